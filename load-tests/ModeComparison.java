@@ -0,0 +1,312 @@
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rorysteerprojects.retailrewards.api.CustomerTransactionsDTO;
+import com.rorysteerprojects.retailrewards.application_services.RetailRewardsService;
+import com.rorysteerprojects.retailrewards.application_services.RewardsComputePool;
+import com.rorysteerprojects.retailrewards.application_services.parsers.CustomerParser;
+import com.rorysteerprojects.retailrewards.application_services.parsers.RetailTransactionParser;
+import com.rorysteerprojects.retailrewards.application_services.readers.CustomerTransactionsCsvReader;
+import com.rorysteerprojects.retailrewards.application_services.readers.CustomerTransactionsJsonReader;
+import com.rorysteerprojects.retailrewards.config.RewardsApiModule;
+import com.rorysteerprojects.retailrewards.config.RewardsMetrics;
+import com.rorysteerprojects.retailrewards.domain.RewardsCalculator;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.io.BufferedInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Compares request latency on platform and virtual threads where k6 and the Spring Boot service cannot be run.
+ * <p>
+ * The server puts {@link RetailRewardsService} and {@link RewardsComputePool}, configured as the service configures
+ * them in each mode, behind a minimal blocking HTTP/1.1 server.  Each connection is handled on a thread from a pool
+ * of 200 platform threads, the size of Tomcat's pool, or on a new virtual thread, as with
+ * {@code rewards.threads.virtual.enabled}.  It is not Tomcat: there is no keep-alive, no Spring MVC and no filters,
+ * so its figures compare the two threading modes rather than measure the service.
+ * <p>
+ * The client sends the requests of {@code calculate-rewards.js} at a constant rate, while slow clients trickle the
+ * body of {@code slow-clients.sh} 20 bytes every 100ms, and prints the latency percentiles of the requests that
+ * succeeded.  Run it with {@code mode-comparison.sh}.
+ *
+ * <pre>
+ * java ModeComparison server &lt;platform|virtual&gt; &lt;port&gt;
+ * java ModeComparison client &lt;port&gt; &lt;slowClients&gt; &lt;requestsPerSecond&gt; &lt;seconds&gt; &lt;transactions&gt;
+ * </pre>
+ */
+public class ModeComparison {
+
+    private static final int TOMCAT_MAX_THREADS = 200;
+    private static final int CUSTOMERS = 100;
+    private static final int WARM_UP_REQUESTS = 300;
+
+    public static void main(String[] args) throws Exception {
+        if (args[0].equals("server")) {
+            server(args[1].equals("virtual"), Integer.parseInt(args[2]));
+        }
+        else {
+            client(Integer.parseInt(args[1]),
+                    Integer.parseInt(args[2]),
+                    Integer.parseInt(args[3]),
+                    Integer.parseInt(args[4]),
+                    Integer.parseInt(args[5]));
+        }
+    }
+
+    private static void server(boolean virtual, int port) throws IOException {
+        var mapper = new ObjectMapper();
+        mapper.registerModule(new RewardsApiModule());
+        var service = new RetailRewardsService(new CustomerParser(),
+                new RetailTransactionParser(),
+                new RewardsCalculator(),
+                new CustomerTransactionsJsonReader(),
+                new CustomerTransactionsCsvReader(),
+                new RewardsMetrics(new SimpleMeterRegistry()),
+                virtual ? new RewardsComputePool(true, 0) : new RewardsComputePool(),
+                50_000,
+                8_192,
+                false);
+        ExecutorService executor = virtual ?
+                Executors.newVirtualThreadPerTaskExecutor() :
+                Executors.newFixedThreadPool(TOMCAT_MAX_THREADS);
+        var serverSocket = new ServerSocket(port, 2000, InetAddress.getLoopbackAddress());
+        Thread.ofPlatform().start(() -> {
+            while (true) {
+                try {
+                    var socket = serverSocket.accept();
+                    executor.execute(() -> handle(socket, mapper, service));
+                }
+                catch (IOException e) {
+                    return;
+                }
+            }
+        });
+        System.out.println("ready " + (virtual ? "virtual" : "platform"));
+    }
+
+    /**
+     * One request per connection, read and answered with blocking streams on the executor's thread, as a Tomcat
+     * worker does.
+     */
+    private static void handle(Socket socket, ObjectMapper mapper, RetailRewardsService service) {
+        try (socket) {
+            var in = new BufferedInputStream(socket.getInputStream());
+            long contentLength = 0;
+            String line;
+            while (!(line = readLine(in)).isEmpty()) {
+                if (line.regionMatches(true, 0, "Content-Length:", 0, 15)) {
+                    contentLength = Long.parseLong(line.substring(15).trim());
+                }
+            }
+            var result = service.calculateRewards(mapper.readValue(new BodyInputStream(in, contentLength),
+                    CustomerTransactionsDTO.class));
+            var body = mapper.writeValueAsBytes(result);
+            var out = socket.getOutputStream();
+            out.write(("HTTP/1.1 " + (result.getErrors().isEmpty() ? "200 OK" : "422 Unprocessable Entity") + "\r\n" +
+                    "Content-Type: application/json\r\n" +
+                    "Content-Length: " + body.length + "\r\n" +
+                    "Connection: close\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+            out.write(body);
+            out.flush();
+        }
+        catch (IOException | RuntimeException e) {
+            // The client gave up or sent a bad request; it sees the connection close.
+        }
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        var line = new StringBuilder();
+        int c;
+        while ((c = in.read()) != -1 && c != '\n') {
+            if (c != '\r') {
+                line.append((char) c);
+            }
+        }
+        return line.toString();
+    }
+
+    private static void client(int port, int slowClients, int rate, int seconds, int transactions) throws Exception {
+        var uri = URI.create("http://127.0.0.1:" + port + "/calculate-rewards");
+        var warmUp = HttpClient.newHttpClient();
+        for (int i = 0; i < WARM_UP_REQUESTS; i++) {
+            warmUp.send(post(uri, body(transactions, 900_000 + i)), HttpResponse.BodyHandlers.discarding());
+        }
+
+        var stop = new AtomicBoolean();
+        var slowBody = slowBody().getBytes(StandardCharsets.US_ASCII);
+        for (int i = 0; i < slowClients; i++) {
+            Thread.startVirtualThread(() -> trickle(port, slowBody, stop));
+        }
+        if (slowClients > 0) {
+            // Gives the slow clients time to connect and take their threads.
+            Thread.sleep(5000);
+        }
+
+        var client = HttpClient.newBuilder().executor(Executors.newVirtualThreadPerTaskExecutor()).build();
+        var latencies = new ConcurrentLinkedQueue<Long>();
+        var failures = new AtomicInteger();
+        var total = rate * seconds;
+        var done = new CountDownLatch(total);
+        var start = System.nanoTime();
+        for (int i = 0; i < total; i++) {
+            var wait = start + i * TimeUnit.SECONDS.toNanos(1) / rate - System.nanoTime();
+            if (wait > 0) {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            }
+            var sent = System.nanoTime();
+            client.sendAsync(post(uri, body(transactions, 1_000_000 + i)), HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, error) -> {
+                        if (error == null && response.statusCode() == 200) {
+                            latencies.add(System.nanoTime() - sent);
+                        }
+                        else {
+                            failures.incrementAndGet();
+                        }
+                        done.countDown();
+                    });
+        }
+        done.await(60, TimeUnit.SECONDS);
+        var elapsedSeconds = (System.nanoTime() - start) / 1e9;
+        stop.set(true);
+
+        List<Long> sorted = new ArrayList<>(latencies);
+        Collections.sort(sorted);
+        System.out.printf("slowClients=%d rate=%d/s sent=%d ok=%d failed=%d throughput=%.1f/s p50=%s p95=%s p99=%s%n",
+                slowClients, rate, total, sorted.size(), failures.get(), sorted.size() / elapsedSeconds,
+                percentile(sorted, 50), percentile(sorted, 95), percentile(sorted, 99));
+        System.exit(0);
+    }
+
+    private static HttpRequest post(URI uri, String body) {
+        return HttpRequest.newBuilder(uri)
+                .timeout(Duration.ofSeconds(10))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+
+    /**
+     * Posts the body 20 bytes every 100ms, over and over until stopped.
+     */
+    private static void trickle(int port, byte[] body, AtomicBoolean stop) {
+        while (!stop.get()) {
+            try (var socket = new Socket("127.0.0.1", port)) {
+                var out = socket.getOutputStream();
+                out.write(("POST /calculate-rewards HTTP/1.1\r\n" +
+                        "Host: localhost\r\n" +
+                        "Content-Type: application/json\r\n" +
+                        "Content-Length: " + body.length + "\r\n" +
+                        "Connection: close\r\n\r\n").getBytes(StandardCharsets.US_ASCII));
+                for (int i = 0; i < body.length && !stop.get(); i += 20) {
+                    out.write(body, i, Math.min(20, body.length - i));
+                    out.flush();
+                    Thread.sleep(100);
+                }
+                socket.getInputStream().readAllBytes();
+            }
+            catch (IOException e) {
+                // Reconnects.
+            }
+            catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * The body of {@code slow-clients.sh}.
+     */
+    private static String slowBody() {
+        var body = new StringBuilder("{\"customers\":[{\"id\":\"1\",\"name\":\"Customer 1\"}],\"transactions\":[");
+        for (int i = 0; i < 200; i++) {
+            body.append("{\"id\":\"").append(i)
+                    .append("\",\"date\":\"2023-04-01\",\"customerId\":\"1\",\"value\":\"75.00\"},");
+        }
+        return body.append("{\"id\":\"200\",\"date\":\"2023-04-02\",\"customerId\":\"1\",\"value\":\"120.00\"}]}")
+                .toString();
+    }
+
+    /**
+     * A body like those of {@code calculate-rewards.js}, made unique by the id of its last transaction so that the
+     * result cache and single flight of the service would not apply.
+     */
+    private static String body(int transactions, int lastId) {
+        var body = new StringBuilder("{\"customers\":[");
+        for (int i = 1; i <= CUSTOMERS; i++) {
+            body.append(i > 1 ? "," : "")
+                    .append("{\"id\":\"").append(i).append("\",\"name\":\"Customer ").append(i).append("\"}");
+        }
+        body.append("],\"transactions\":[");
+        for (int i = 0; i < transactions - 1; i++) {
+            body.append("{\"id\":\"").append(i)
+                    .append("\",\"date\":\"2023-0").append(3 + i % 3).append('-').append(String.format("%02d", 1 + i % 28))
+                    .append("\",\"customerId\":\"").append(1 + i % CUSTOMERS)
+                    .append("\",\"value\":\"").append(i * 37 % 250).append('.').append(String.format("%02d", i % 100))
+                    .append("\"},");
+        }
+        return body.append("{\"id\":\"").append(lastId)
+                .append("\",\"date\":\"2023-05-31\",\"customerId\":\"1\",\"value\":\"120.00\"}]}")
+                .toString();
+    }
+
+    private static String percentile(List<Long> sorted, int percentile) {
+        if (sorted.isEmpty()) {
+            return "-";
+        }
+        var nanos = sorted.get(Math.min(sorted.size() - 1, (int) Math.ceil(percentile / 100.0 * sorted.size()) - 1));
+        return String.format("%.1fms", nanos / 1e6);
+    }
+
+    /**
+     * The request body, up to its {@code Content-Length}.  Closing it leaves the socket open for the response.
+     */
+    private static class BodyInputStream extends FilterInputStream {
+
+        private long remaining;
+
+        BodyInputStream(InputStream in, long contentLength) {
+            super(in);
+            this.remaining = contentLength;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return remaining-- > 0 ? super.read() : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            var read = super.read(b, off, (int) Math.min(len, remaining));
+            if (read > 0) {
+                remaining -= read;
+            }
+            return read;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
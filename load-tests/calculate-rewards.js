@@ -0,0 +1,54 @@
+// Load test for POST /calculate-rewards, run against the service on platform threads and on virtual threads.
+//
+//   k6 run -e BASE_URL=http://localhost:5000 -e RATE=200 load-tests/calculate-rewards.js
+//
+// Each request has CUSTOMERS customers and TRANSACTIONS transactions, and a different last transaction id so
+// that the result cache and single-flight do not answer it.  Run slow-clients.sh alongside to hold connections
+// open with trickling bodies, as our slowest callers do.
+import http from 'k6/http';
+import { check } from 'k6';
+
+const BASE_URL = __ENV.BASE_URL || 'http://localhost:5000';
+const CUSTOMERS = parseInt(__ENV.CUSTOMERS || '100');
+const TRANSACTIONS = parseInt(__ENV.TRANSACTIONS || '2000');
+
+export const options = {
+    scenarios: {
+        calculateRewards: {
+            executor: 'constant-arrival-rate',
+            rate: parseInt(__ENV.RATE || '200'),
+            timeUnit: '1s',
+            duration: __ENV.DURATION || '2m',
+            preAllocatedVUs: 100,
+            maxVUs: parseInt(__ENV.MAX_VUS || '1000'),
+        },
+    },
+    thresholds: {
+        http_req_failed: ['rate<0.01'],
+        http_req_duration: ['p(99)<1000'],
+    },
+};
+
+const customers = [];
+for (let i = 1; i <= CUSTOMERS; i++) {
+    customers.push({ id: `${i}`, name: `Customer ${i}` });
+}
+const transactions = [];
+for (let i = 0; i < TRANSACTIONS - 1; i++) {
+    transactions.push({
+        id: `${i}`,
+        date: `2023-0${3 + (i % 3)}-${String(1 + (i % 28)).padStart(2, '0')}`,
+        customerId: `${1 + (i % CUSTOMERS)}`,
+        value: `${(i * 37) % 250}.${String(i % 100).padStart(2, '0')}`,
+    });
+}
+const body = JSON.stringify({ customers, transactions }).slice(0, -2);
+
+export default function () {
+    // Transaction ids must be numbers, and this one must differ from the ids of the others.
+    const lastTransaction = { id: `${TRANSACTIONS + __ITER * 1000 + __VU}`, date: '2023-05-31', customerId: '1', value: '120.00' };
+    const response = http.post(`${BASE_URL}/calculate-rewards`, `${body},${JSON.stringify(lastTransaction)}]}`, {
+        headers: { 'Content-Type': 'application/json' },
+    });
+    check(response, { 'status is 200': (r) => r.status === 200 });
+}
@@ -0,0 +1,31 @@
+#!/bin/sh
+# Runs ModeComparison.java on platform threads and on virtual threads, each without and with slow clients, and
+# prints a line of latency percentiles for each run.  Needs JDK 21 and the jar built by ./gradlew bootJar, whose
+# classes and libraries are unpacked into a temporary directory to compile and run against.
+#
+#   CLIENTS=400 RATE=40 DURATION=30 TRANSACTIONS=2000 load-tests/mode-comparison.sh
+
+CLIENTS=${CLIENTS:-400}
+RATE=${RATE:-40}
+DURATION=${DURATION:-30}
+TRANSACTIONS=${TRANSACTIONS:-2000}
+PORT=${PORT:-5001}
+JAR=$(pwd)/$(ls build/libs/*.jar | grep -v plain | head -n 1)
+WORK=$(mktemp -d)
+trap 'rm -rf "$WORK"' EXIT
+
+(cd "$WORK" && jar xf "$JAR")
+CLASSPATH="$WORK/classes:$WORK/BOOT-INF/classes:$WORK/BOOT-INF/lib/*"
+javac -nowarn -d "$WORK/classes" -cp "$CLASSPATH" load-tests/ModeComparison.java || exit 1
+
+for mode in platform virtual; do
+    for slowClients in 0 "$CLIENTS"; do
+        java -Xmx1g -cp "$CLASSPATH" ModeComparison server $mode "$PORT" > /dev/null &
+        server=$!
+        sleep 3
+        printf '%s: ' $mode
+        java -Xmx512m -cp "$CLASSPATH" ModeComparison client "$PORT" "$slowClients" "$RATE" "$DURATION" "$TRANSACTIONS"
+        kill $server
+        wait $server 2> /dev/null
+    done
+done
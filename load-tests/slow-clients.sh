@@ -0,0 +1,30 @@
+#!/bin/sh
+# Holds CLIENTS connections to POST /calculate-rewards open by uploading a request body at RATE bytes a second,
+# over and over until interrupted.  With more clients than Tomcat has threads (200 by default) every thread of
+# the platform pool is left waiting on a body, while virtual threads are not.
+#
+#   CLIENTS=400 RATE=200 load-tests/slow-clients.sh http://localhost:5000
+
+BASE_URL=${1:-http://localhost:5000}
+CLIENTS=${CLIENTS:-400}
+RATE=${RATE:-200}
+BODY=$(mktemp)
+trap 'kill 0; rm -f "$BODY"' INT TERM EXIT
+
+printf '{"customers":[{"id":"1","name":"Customer 1"}],"transactions":[' > "$BODY"
+i=0
+while [ $i -lt 200 ]; do
+    printf '{"id":"%d","date":"2023-04-01","customerId":"1","value":"75.00"},' $i >> "$BODY"
+    i=$((i + 1))
+done
+printf '{"id":"200","date":"2023-04-02","customerId":"1","value":"120.00"}]}' >> "$BODY"
+
+client=0
+while [ $client -lt "$CLIENTS" ]; do
+    (while true; do
+        curl -s -o /dev/null --limit-rate "$RATE" -H 'Content-Type: application/json' -H 'Cache-Control: no-cache' \
+            --data-binary @"$BODY" "$BASE_URL/calculate-rewards"
+    done) &
+    client=$((client + 1))
+done
+wait
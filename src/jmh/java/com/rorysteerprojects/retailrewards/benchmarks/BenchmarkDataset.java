@@ -0,0 +1,58 @@
+package com.rorysteerprojects.retailrewards.benchmarks;
+
+import com.rorysteerprojects.retailrewards.api.CustomerDTO;
+import com.rorysteerprojects.retailrewards.api.CustomerTransactionsDTO;
+import com.rorysteerprojects.retailrewards.api.RetailTransactionDTO;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates reproducible request bodies for the benchmarks.
+ * <p>
+ * Transactions are spread evenly over {@code dateSpreadDays} days from the first of a month and over all the
+ * customers.  A spread of more than 89 days can cross into a fourth month, which the service rejects when no
+ * other errors are present.  {@code errorRate} is the fraction of transactions given one invalid field, chosen at
+ * random from the validation rules.
+ */
+public final class BenchmarkDataset {
+
+    private static final LocalDate FIRST_DAY = LocalDate.of(2023, 10, 1);
+
+    private BenchmarkDataset() {
+    }
+
+    public static CustomerTransactionsDTO generate(int customerCount,
+                                                   int transactionCount,
+                                                   double errorRate,
+                                                   int dateSpreadDays,
+                                                   long seed) {
+        var random = new Random(seed);
+
+        List<CustomerDTO> customers = new ArrayList<>(customerCount);
+        for (int i = 0; i < customerCount; i++) {
+            customers.add(new CustomerDTO(String.valueOf(i + 1), "Customer " + (i + 1)));
+        }
+
+        List<RetailTransactionDTO> transactions = new ArrayList<>(transactionCount);
+        for (int i = 0; i < transactionCount; i++) {
+            var id = String.valueOf(i + 1);
+            var date = FIRST_DAY.plusDays(random.nextInt(dateSpreadDays)).toString();
+            var customerId = String.valueOf(random.nextInt(customerCount) + 1);
+            var value = random.nextInt(500) + "." + String.format("%02d", random.nextInt(100));
+            if (random.nextDouble() < errorRate) {
+                switch (random.nextInt(5)) {
+                    case 0 -> id = "T" + id;
+                    case 1 -> date = "2023-02-30";
+                    case 2 -> customerId = String.valueOf(customerCount + 1 + random.nextInt(customerCount));
+                    case 3 -> value = "-" + value;
+                    default -> value = value + ".5";
+                }
+            }
+            transactions.add(new RetailTransactionDTO(id, date, customerId, value));
+        }
+        return new CustomerTransactionsDTO(customers, transactions);
+    }
+}
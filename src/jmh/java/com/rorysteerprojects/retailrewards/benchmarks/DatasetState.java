@@ -0,0 +1,90 @@
+package com.rorysteerprojects.retailrewards.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rorysteerprojects.retailrewards.api.CustomerTransactionsDTO;
+import com.rorysteerprojects.retailrewards.api.RewardsResultDTO;
+import com.rorysteerprojects.retailrewards.application_services.RetailRewardsService;
+import com.rorysteerprojects.retailrewards.application_services.RewardsComputePool;
+import com.rorysteerprojects.retailrewards.application_services.parsers.CustomerParser;
+import com.rorysteerprojects.retailrewards.application_services.parsers.RetailTransactionParser;
+import com.rorysteerprojects.retailrewards.application_services.parsers.ValidationErrors;
+import com.rorysteerprojects.retailrewards.application_services.readers.CustomerTransactionsCsvReader;
+import com.rorysteerprojects.retailrewards.application_services.readers.CustomerTransactionsJsonReader;
+import com.rorysteerprojects.retailrewards.config.RewardsApiModule;
+import com.rorysteerprojects.retailrewards.config.RewardsMetrics;
+import com.rorysteerprojects.retailrewards.domain.CustomerIndex;
+import com.rorysteerprojects.retailrewards.domain.RewardsCalculator;
+import com.rorysteerprojects.retailrewards.domain.TransactionBatch;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+
+/**
+ * The generated request, plus each intermediate form of it, shared by all the benchmarks.
+ */
+@State(Scope.Benchmark)
+public class DatasetState {
+
+    @Param({"1000"})
+    public int customerCount;
+
+    @Param({"10000", "1000000"})
+    public int transactionCount;
+
+    @Param({"0.0", "0.01"})
+    public double errorRate;
+
+    @Param({"89"})
+    public int dateSpreadDays;
+
+    public final CustomerParser customerParser = new CustomerParser();
+    public final RetailTransactionParser retailTransactionParser = new RetailTransactionParser();
+    public final RewardsCalculator rewardsCalculator = new RewardsCalculator();
+    public final CustomerTransactionsJsonReader customerTransactionsJsonReader = new CustomerTransactionsJsonReader();
+    public final RewardsMetrics rewardsMetrics = new RewardsMetrics(new SimpleMeterRegistry());
+    /**
+     * Binds the api DTOs reflectively, as Spring Boot does without the {@link RewardsApiModule}.
+     */
+    public final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    public final ObjectMapper codecObjectMapper = Jackson2ObjectMapperBuilder.json().build()
+            .registerModule(new RewardsApiModule());
+
+    public CustomerTransactionsDTO request;
+    public byte[] requestJson;
+    public CustomerIndex customerIndex;
+    public TransactionBatch validTransactions;
+    public RewardsResultDTO response;
+
+    @Setup(Level.Trial)
+    public void generate() throws IOException {
+        request = BenchmarkDataset.generate(customerCount, transactionCount, errorRate, dateSpreadDays, 20231201L);
+        requestJson = objectMapper.writeValueAsBytes(request);
+
+        customerIndex = customerParser.parserCustomers(request.getCustomers()).customerIndex();
+        validTransactions = new TransactionBatch(transactionCount);
+        request.getTransactions().forEach(transaction ->
+                retailTransactionParser.parseTransaction(transaction, null, customerIndex, new ValidationErrors())
+                        .ifPresent(validTransactions::add));
+
+        response = newService(Integer.MAX_VALUE).calculateRewards(request);
+    }
+
+    public RetailRewardsService newService(int parallelThreshold) {
+        return new RetailRewardsService(customerParser,
+                retailTransactionParser,
+                rewardsCalculator,
+                customerTransactionsJsonReader,
+                new CustomerTransactionsCsvReader(),
+                rewardsMetrics,
+                new RewardsComputePool(),
+                parallelThreshold,
+                8_192,
+                true);
+    }
+}
@@ -0,0 +1,44 @@
+package com.rorysteerprojects.retailrewards.benchmarks;
+
+import com.rorysteerprojects.retailrewards.api.CustomerTransactionsDTO;
+import com.rorysteerprojects.retailrewards.config.RewardsApiModule;
+import org.openjdk.jmh.annotations.Benchmark;
+
+import java.io.IOException;
+
+/**
+ * Jackson binding of the request and response bodies, configured the way Spring Boot configures it, reflectively
+ * and with the hand written codecs of the {@link RewardsApiModule}.
+ */
+public class JsonCodecBenchmark {
+
+    @Benchmark
+    public CustomerTransactionsDTO deserializeRequest(DatasetState dataset) throws IOException {
+        return dataset.objectMapper.readValue(dataset.requestJson, CustomerTransactionsDTO.class);
+    }
+
+    @Benchmark
+    public CustomerTransactionsDTO deserializeRequestWithCodecs(DatasetState dataset) throws IOException {
+        return dataset.codecObjectMapper.readValue(dataset.requestJson, CustomerTransactionsDTO.class);
+    }
+
+    @Benchmark
+    public byte[] serializeRequest(DatasetState dataset) throws IOException {
+        return dataset.objectMapper.writeValueAsBytes(dataset.request);
+    }
+
+    @Benchmark
+    public byte[] serializeRequestWithCodecs(DatasetState dataset) throws IOException {
+        return dataset.codecObjectMapper.writeValueAsBytes(dataset.request);
+    }
+
+    @Benchmark
+    public byte[] serializeResponse(DatasetState dataset) throws IOException {
+        return dataset.objectMapper.writeValueAsBytes(dataset.response);
+    }
+
+    @Benchmark
+    public byte[] serializeResponseWithCodecs(DatasetState dataset) throws IOException {
+        return dataset.codecObjectMapper.writeValueAsBytes(dataset.response);
+    }
+}
@@ -0,0 +1,75 @@
+package com.rorysteerprojects.retailrewards.benchmarks;
+
+import com.rorysteerprojects.retailrewards.domain.CalendarMonths;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.time.LocalDate;
+import java.util.Random;
+
+/**
+ * Putting transactions in their month of the summary, comparing the {@link LocalDate} comparisons the calculator
+ * used to make with the epoch day comparisons against month boundaries worked out once per calculation.
+ */
+@State(Scope.Benchmark)
+public class MonthBucketingBenchmark {
+
+    private static final LocalDate FIRST_DAY = LocalDate.of(2023, 10, 1);
+
+    @Param({"10000000"})
+    public int transactionCount;
+
+    private LocalDate[] dates;
+    private int[] epochDays;
+
+    @Setup(Level.Trial)
+    public void generateDates() {
+        var random = new Random(20231217L);
+        dates = new LocalDate[transactionCount];
+        epochDays = new int[transactionCount];
+        for (int i = 0; i < transactionCount; i++) {
+            dates[i] = FIRST_DAY.plusDays(random.nextInt(89));
+            epochDays[i] = (int) dates[i].toEpochDay();
+        }
+    }
+
+    @Benchmark
+    public int[] localDates() {
+        var earliestDate = dates[0];
+        for (LocalDate date : dates) {
+            earliestDate = date.isBefore(earliestDate) ? date : earliestDate;
+        }
+        var secondMonthStartDate = LocalDate.of(earliestDate.getYear(), earliestDate.getMonth(), 1).plusMonths(1);
+        var thirdMonthStartDate = secondMonthStartDate.plusMonths(1);
+
+        var monthCounts = new int[3];
+        for (LocalDate date : dates) {
+            var monthNumber = date.isBefore(secondMonthStartDate) ? 0 :
+                    date.isBefore(thirdMonthStartDate) ? 1 :
+                            2;
+            monthCounts[monthNumber]++;
+        }
+        return monthCounts;
+    }
+
+    @Benchmark
+    public int[] epochDays() {
+        var earliestEpochDay = epochDays[0];
+        for (int epochDay : epochDays) {
+            earliestEpochDay = Math.min(earliestEpochDay, epochDay);
+        }
+        var firstMonth = CalendarMonths.monthOf(earliestEpochDay);
+        var secondMonthStartDay = CalendarMonths.firstDayOf(firstMonth + 1);
+        var thirdMonthStartDay = CalendarMonths.firstDayOf(firstMonth + 2);
+
+        var monthCounts = new int[3];
+        for (int epochDay : epochDays) {
+            monthCounts[(epochDay >= secondMonthStartDay ? 1 : 0) + (epochDay >= thirdMonthStartDay ? 1 : 0)]++;
+        }
+        return monthCounts;
+    }
+}
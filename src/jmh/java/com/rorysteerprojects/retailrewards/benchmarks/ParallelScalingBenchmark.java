@@ -0,0 +1,57 @@
+package com.rorysteerprojects.retailrewards.benchmarks;
+
+import com.rorysteerprojects.retailrewards.application_services.parsers.RetailTransactionParserResult;
+import com.rorysteerprojects.retailrewards.application_services.parsers.RetailTransactionParser;
+import com.rorysteerprojects.retailrewards.domain.RewardsResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Scaling of the parallel validation and aggregation with the number of cores.  Compare each parallelism against
+ * the sequential {@link ParserBenchmark#parseTransactions} and {@link RewardsCalculatorBenchmark#calculate}
+ * results for the same data set.
+ */
+@State(Scope.Benchmark)
+public class ParallelScalingBenchmark {
+
+    @Param({"1", "2", "4", "8", "16"})
+    public int parallelism;
+
+    @Param({"8192"})
+    public int chunkSize;
+
+    private ForkJoinPool pool;
+
+    @Setup(Level.Trial)
+    public void createPool() {
+        pool = new ForkJoinPool(parallelism);
+    }
+
+    @TearDown(Level.Trial)
+    public void shutdownPool() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public RetailTransactionParserResult parseTransactions(DatasetState dataset) {
+        var parser = dataset.retailTransactionParser;
+        return parser.checkSpan(parser.validateTransactions(dataset.request.getTransactions(),
+                RetailTransactionParser.knownCustomers(dataset.customerIndex),
+                pool,
+                chunkSize,
+                parser.newValidationErrors()));
+    }
+
+    @Benchmark
+    public List<RewardsResult> calculate(DatasetState dataset) {
+        return dataset.rewardsCalculator.calculate(dataset.validTransactions, pool, chunkSize);
+    }
+}
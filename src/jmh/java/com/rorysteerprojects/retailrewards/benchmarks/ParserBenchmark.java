@@ -0,0 +1,22 @@
+package com.rorysteerprojects.retailrewards.benchmarks;
+
+import com.rorysteerprojects.retailrewards.application_services.parsers.CustomerParserResult;
+import com.rorysteerprojects.retailrewards.application_services.parsers.RetailTransactionParser;
+import com.rorysteerprojects.retailrewards.application_services.parsers.RetailTransactionParserResult;
+import org.openjdk.jmh.annotations.Benchmark;
+
+public class ParserBenchmark {
+
+    @Benchmark
+    public CustomerParserResult parseCustomers(DatasetState dataset) {
+        return dataset.customerParser.parserCustomers(dataset.request.getCustomers());
+    }
+
+    @Benchmark
+    public RetailTransactionParserResult parseTransactions(DatasetState dataset) {
+        var parser = dataset.retailTransactionParser;
+        return parser.checkSpan(parser.validateTransactions(dataset.request.getTransactions(),
+                RetailTransactionParser.knownCustomers(dataset.customerIndex),
+                parser.newValidationErrors()));
+    }
+}
@@ -0,0 +1,36 @@
+package com.rorysteerprojects.retailrewards.benchmarks;
+
+import com.rorysteerprojects.retailrewards.api.RewardsResultDTO;
+import com.rorysteerprojects.retailrewards.application_services.RetailRewardsService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+/**
+ * End to end calculations, from the bound request DTO and from the raw request body, through to the response DTO.
+ */
+@State(Scope.Benchmark)
+public class RetailRewardsServiceBenchmark {
+
+    private RetailRewardsService service;
+
+    @Setup(Level.Trial)
+    public void createService(DatasetState dataset) {
+        service = dataset.newService(Integer.MAX_VALUE);
+    }
+
+    @Benchmark
+    public RewardsResultDTO calculateRewards(DatasetState dataset) {
+        return service.calculateRewards(dataset.request);
+    }
+
+    @Benchmark
+    public RewardsResultDTO calculateRewardsStreaming(DatasetState dataset) throws IOException {
+        return service.calculateRewards(new ByteArrayInputStream(dataset.requestJson)).result();
+    }
+}
@@ -0,0 +1,14 @@
+package com.rorysteerprojects.retailrewards.benchmarks;
+
+import com.rorysteerprojects.retailrewards.domain.RewardsResult;
+import org.openjdk.jmh.annotations.Benchmark;
+
+import java.util.List;
+
+public class RewardsCalculatorBenchmark {
+
+    @Benchmark
+    public List<RewardsResult> calculate(DatasetState dataset) {
+        return dataset.rewardsCalculator.calculate(dataset.validTransactions);
+    }
+}
@@ -0,0 +1,67 @@
+package com.rorysteerprojects.retailrewards.benchmarks;
+
+import com.rorysteerprojects.retailrewards.domain.RewardsTiers;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * The points for 10 million transactions from compiled {@link RewardsTiers} of 2 to 32 tiers, against the two
+ * clamped terms the calculator hard coded for the original rules.  The 2 tier case is the original rules.
+ */
+@State(Scope.Benchmark)
+public class RewardsTiersBenchmark {
+
+    @Param({"10000000"})
+    public int transactionCount;
+
+    @Param({"2", "8", "32"})
+    public int tierCount;
+
+    private long[] valuesInCents;
+    private RewardsTiers rewardsTiers;
+
+    @Setup(Level.Trial)
+    public void generateValues() {
+        var random = new Random(20231217L);
+        valuesInCents = new long[transactionCount];
+        for (int i = 0; i < transactionCount; i++) {
+            valuesInCents[i] = random.nextInt(50_000);
+        }
+        if (tierCount == 2) {
+            rewardsTiers = RewardsTiers.DEFAULT;
+            return;
+        }
+        List<RewardsTiers.Tier> tiers = new ArrayList<>();
+        for (int i = 0; i < tierCount; i++) {
+            tiers.add(new RewardsTiers.Tier(i * 500L / tierCount, i + 1));
+        }
+        rewardsTiers = RewardsTiers.of(tiers, Integer.MAX_VALUE);
+    }
+
+    @Benchmark
+    public long hardCodedRules() {
+        long total = 0;
+        for (long valueInCents : valuesInCents) {
+            var wholeDollars = valueInCents / 100;
+            total += Math.min(Math.max(0, wholeDollars - 50) + Math.max(0, wholeDollars - 100), Integer.MAX_VALUE);
+        }
+        return total;
+    }
+
+    @Benchmark
+    public long compiledTiers() {
+        long total = 0;
+        for (long valueInCents : valuesInCents) {
+            total += rewardsTiers.points(valueInCents);
+        }
+        return total;
+    }
+}
@@ -0,0 +1,31 @@
+package com.rorysteerprojects.retailrewards.benchmarks;
+
+import com.rorysteerprojects.retailrewards.domain.RewardsCalculator;
+import com.rorysteerprojects.retailrewards.domain.RewardsResult;
+import com.rorysteerprojects.retailrewards.domain.RewardsTiers;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+
+/**
+ * The rewards calculation with the scalar loop against the vector kernel, for the same data set.  The JMH forks
+ * run with the {@code jdk.incubator.vector} module, see build.gradle.
+ */
+@State(Scope.Benchmark)
+public class VectorKernelBenchmark {
+
+    private final RewardsCalculator scalarCalculator = new RewardsCalculator(RewardsTiers.DEFAULT, false);
+    private final RewardsCalculator vectorCalculator = new RewardsCalculator(RewardsTiers.DEFAULT, true);
+
+    @Benchmark
+    public List<RewardsResult> scalar(DatasetState dataset) {
+        return scalarCalculator.calculate(dataset.validTransactions);
+    }
+
+    @Benchmark
+    public List<RewardsResult> vector(DatasetState dataset) {
+        return vectorCalculator.calculate(dataset.validTransactions);
+    }
+}
@@ -1,5 +1,7 @@
 package com.rorysteerprojects.retailrewards.api;
 
+import java.util.Objects;
+
 public class CustomerDTO {
 
     private final String id;
@@ -18,6 +20,19 @@ public class CustomerDTO {
         return name;
     }
 
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        CustomerDTO that = (CustomerDTO) o;
+        return Objects.equals(id, that.id) && Objects.equals(name, that.name);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id, name);
+    }
+
     @Override
     public String toString() {
         return "Customer{" +
@@ -1,6 +1,7 @@
 package com.rorysteerprojects.retailrewards.api;
 
 import java.util.List;
+import java.util.Objects;
 
 public class CustomerTransactionsDTO {
 
@@ -19,4 +20,17 @@ public class CustomerTransactionsDTO {
     public List<RetailTransactionDTO> getTransactions() {
         return transactions;
     }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        CustomerTransactionsDTO that = (CustomerTransactionsDTO) o;
+        return Objects.equals(customers, that.customers) && Objects.equals(transactions, that.transactions);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(customers, transactions);
+    }
 }
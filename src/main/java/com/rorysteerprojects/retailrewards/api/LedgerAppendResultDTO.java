@@ -0,0 +1,59 @@
+package com.rorysteerprojects.retailrewards.api;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+public class LedgerAppendResultDTO {
+    private final int transactionsAppended;
+    private final int transactionsDropped;
+    private final List<String> errors;
+    private final List<ValidationErrorDTO> validationErrors;
+    private final Map<String, Integer> errorCounts;
+
+    public LedgerAppendResultDTO(int transactionsAppended, List<String> errors) {
+        this(transactionsAppended, 0, errors, Collections.emptyList(), Collections.emptyMap());
+    }
+
+    /**
+     * @param transactionsDropped the valid transactions whose points fell out of the ledger's window while they
+     *                            were being appended
+     * @param validationErrors    the same errors as {@code errors}, with the row, field and rule of each
+     * @param errorCounts         the number of errors reported for each rule, by rule code
+     */
+    public LedgerAppendResultDTO(int transactionsAppended,
+                                 int transactionsDropped,
+                                 List<String> errors,
+                                 List<ValidationErrorDTO> validationErrors,
+                                 Map<String, Integer> errorCounts) {
+        this.transactionsAppended = transactionsAppended;
+        this.transactionsDropped = transactionsDropped;
+        this.errors = errors;
+        this.validationErrors = validationErrors;
+        this.errorCounts = errorCounts;
+    }
+
+    public int getTransactionsAppended() {
+        return transactionsAppended;
+    }
+
+    public int getTransactionsDropped() {
+        return transactionsDropped;
+    }
+
+    public List<String> getErrors() {
+        return errors;
+    }
+
+    @JsonInclude(JsonInclude.Include.NON_EMPTY)
+    public List<ValidationErrorDTO> getValidationErrors() {
+        return validationErrors;
+    }
+
+    @JsonInclude(JsonInclude.Include.NON_EMPTY)
+    public Map<String, Integer> getErrorCounts() {
+        return errorCounts;
+    }
+}
@@ -1,5 +1,7 @@
 package com.rorysteerprojects.retailrewards.api;
 
+import java.util.Objects;
+
 public class RetailTransactionDTO {
 
     private final String id;
@@ -30,6 +32,20 @@ public class RetailTransactionDTO {
         return value;
     }
 
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        RetailTransactionDTO that = (RetailTransactionDTO) o;
+        return Objects.equals(id, that.id) && Objects.equals(date, that.date) &&
+                Objects.equals(customerId, that.customerId) && Objects.equals(value, that.value);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id, date, customerId, value);
+    }
+
     @Override
     public String toString() {
         return "RetailTransaction{" +
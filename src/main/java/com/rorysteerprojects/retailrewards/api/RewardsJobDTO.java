@@ -0,0 +1,48 @@
+package com.rorysteerprojects.retailrewards.api;
+
+public class RewardsJobDTO {
+    private final String jobId;
+    private final RewardsJobStatus status;
+    private final long customersRead;
+    private final long transactionsValidated;
+    private final long transactionsAggregated;
+    private final RewardsResultDTO result;
+
+    public RewardsJobDTO(String jobId,
+                         RewardsJobStatus status,
+                         long customersRead,
+                         long transactionsValidated,
+                         long transactionsAggregated,
+                         RewardsResultDTO result) {
+        this.jobId = jobId;
+        this.status = status;
+        this.customersRead = customersRead;
+        this.transactionsValidated = transactionsValidated;
+        this.transactionsAggregated = transactionsAggregated;
+        this.result = result;
+    }
+
+    public String getJobId() {
+        return jobId;
+    }
+
+    public RewardsJobStatus getStatus() {
+        return status;
+    }
+
+    public long getCustomersRead() {
+        return customersRead;
+    }
+
+    public long getTransactionsValidated() {
+        return transactionsValidated;
+    }
+
+    public long getTransactionsAggregated() {
+        return transactionsAggregated;
+    }
+
+    public RewardsResultDTO getResult() {
+        return result;
+    }
+}
@@ -0,0 +1,9 @@
+package com.rorysteerprojects.retailrewards.api;
+
+public enum RewardsJobStatus {
+    QUEUED,
+    RUNNING,
+    COMPLETED,
+    FAILED,
+    REJECTED
+}
@@ -1,15 +1,34 @@
 package com.rorysteerprojects.retailrewards.api;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 public class RewardsResultDTO {
     private final List<CustomerSummaryDTO> customerSummaries;
     private final List<String> errors;
+    private final List<ValidationErrorDTO> validationErrors;
+    private final Map<String, Integer> errorCounts;
 
     public RewardsResultDTO(List<CustomerSummaryDTO> customerSummaries, List<String> errors) {
+        this(customerSummaries, errors, Collections.emptyList(), Collections.emptyMap());
+    }
+
+    /**
+     * @param validationErrors the same errors as {@code errors}, with the row, field and rule of each
+     * @param errorCounts      the number of errors reported for each rule, by rule code
+     */
+    public RewardsResultDTO(List<CustomerSummaryDTO> customerSummaries,
+                            List<String> errors,
+                            List<ValidationErrorDTO> validationErrors,
+                            Map<String, Integer> errorCounts) {
 
         this.customerSummaries = customerSummaries;
         this.errors = errors;
+        this.validationErrors = validationErrors;
+        this.errorCounts = errorCounts;
     }
 
     public List<CustomerSummaryDTO> getCustomerSummaries() {
@@ -19,4 +38,14 @@ public class RewardsResultDTO {
     public List<String> getErrors() {
         return errors;
     }
+
+    @JsonInclude(JsonInclude.Include.NON_EMPTY)
+    public List<ValidationErrorDTO> getValidationErrors() {
+        return validationErrors;
+    }
+
+    @JsonInclude(JsonInclude.Include.NON_EMPTY)
+    public Map<String, Integer> getErrorCounts() {
+        return errorCounts;
+    }
 }
@@ -0,0 +1,49 @@
+package com.rorysteerprojects.retailrewards.api;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * One validation error: the index of the customer or transaction in its list, the field that failed, the code of
+ * the rule and its message.  Errors that cover the request as a whole have no row or field.  The row is a long, as
+ * the batch runner reports the line of a file, which may have more lines than an int can count.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ValidationErrorDTO {
+    private final Long row;
+    private final String field;
+    private final String rule;
+    private final String message;
+
+    public ValidationErrorDTO(Long row, String field, String rule, String message) {
+        this.row = row;
+        this.field = field;
+        this.rule = rule;
+        this.message = message;
+    }
+
+    public Long getRow() {
+        return row;
+    }
+
+    public String getField() {
+        return field;
+    }
+
+    public String getRule() {
+        return rule;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    @Override
+    public String toString() {
+        return "ValidationError{" +
+                "row=" + row +
+                ", field='" + field + '\'' +
+                ", rule='" + rule + '\'' +
+                ", message='" + message + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,65 @@
+package com.rorysteerprojects.retailrewards.application_services;
+
+import com.rorysteerprojects.retailrewards.api.CustomerSummaryDTO;
+import com.rorysteerprojects.retailrewards.config.RewardsMetrics;
+import com.rorysteerprojects.retailrewards.config.RewardsMetrics.Stage;
+import com.rorysteerprojects.retailrewards.domain.CustomerIndex;
+import com.rorysteerprojects.retailrewards.domain.RewardsResult;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * The customer summaries of a calculation, each built from its rewards result and customer name as it is read.
+ * <p>
+ * The response is written a summary at a time, so a response for hundreds of thousands of customers never holds
+ * all of their summaries at once, only the rewards results and customer index the calculation already had.
+ * <p>
+ * The customer names are therefore looked up while the response is serialized.  The time spent on the lookups is
+ * added up as the summaries are read, and recorded as the {@link Stage#NAME_RESOLUTION} stage once the last one
+ * has been; it is also part of the {@link Stage#SERIALIZATION} stage it overlaps.
+ */
+class CustomerSummaries extends AbstractList<CustomerSummaryDTO> implements RandomAccess {
+
+    private final List<RewardsResult> rewardsResults;
+    private final CustomerIndex customerIndex;
+    private final String customerIdNotFound;
+    private final RewardsMetrics rewardsMetrics;
+    // Summaries are read by one thread, the one writing the response.
+    private long nameResolutionNanos;
+
+    CustomerSummaries(List<RewardsResult> rewardsResults,
+                      CustomerIndex customerIndex,
+                      String customerIdNotFound,
+                      RewardsMetrics rewardsMetrics) {
+        this.rewardsResults = rewardsResults;
+        this.customerIndex = customerIndex;
+        this.customerIdNotFound = customerIdNotFound;
+        this.rewardsMetrics = rewardsMetrics;
+    }
+
+    @Override
+    public CustomerSummaryDTO get(int index) {
+        var rewardsSummary = rewardsResults.get(index);
+        var startNanos = System.nanoTime();
+        var customerName = customerIndex.getNameOrDefault(rewardsSummary.customerId(), customerIdNotFound);
+        nameResolutionNanos += System.nanoTime() - startNanos;
+        if (index == rewardsResults.size() - 1) {
+            rewardsMetrics.recordStage(Stage.NAME_RESOLUTION, nameResolutionNanos);
+            nameResolutionNanos = 0;
+        }
+        return new CustomerSummaryDTO(
+                rewardsSummary.customerId(),
+                customerName,
+                rewardsSummary.monthlyTotals()[0],
+                rewardsSummary.monthlyTotals()[1],
+                rewardsSummary.monthlyTotals()[2],
+                rewardsSummary.threeMonthTotal());
+    }
+
+    @Override
+    public int size() {
+        return rewardsResults.size();
+    }
+}
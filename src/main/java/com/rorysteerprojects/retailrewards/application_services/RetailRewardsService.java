@@ -1,73 +1,177 @@
 package com.rorysteerprojects.retailrewards.application_services;
 
-import com.rorysteerprojects.retailrewards.api.CustomerSummaryDTO;
 import com.rorysteerprojects.retailrewards.api.CustomerTransactionsDTO;
 import com.rorysteerprojects.retailrewards.api.RewardsResultDTO;
+import com.rorysteerprojects.retailrewards.application_services.cache.CustomerTransactionsHash;
+import com.rorysteerprojects.retailrewards.application_services.cache.SingleFlight;
 import com.rorysteerprojects.retailrewards.application_services.parsers.CustomerParser;
 import com.rorysteerprojects.retailrewards.application_services.parsers.RetailTransactionParser;
+import com.rorysteerprojects.retailrewards.application_services.parsers.ValidationErrors;
+import com.rorysteerprojects.retailrewards.application_services.readers.CustomerTransactionsCsvReader;
+import com.rorysteerprojects.retailrewards.application_services.readers.CustomerTransactionsJsonReader;
+import com.rorysteerprojects.retailrewards.application_services.readers.MultipartFormReader;
 import com.rorysteerprojects.retailrewards.config.ResourceLookup;
-import com.rorysteerprojects.retailrewards.domain.Customer;
+import com.rorysteerprojects.retailrewards.config.RewardsMetrics;
+import com.rorysteerprojects.retailrewards.config.RewardsMetrics.Stage;
 import com.rorysteerprojects.retailrewards.domain.RewardsCalculator;
-import com.rorysteerprojects.retailrewards.domain.RewardsResult;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.Collections;
-import java.util.List;
-import java.util.stream.Stream;
 
 @Component
 public class RetailRewardsService {
     private final CustomerParser customerParser;
     private final RetailTransactionParser retailTransactionParser;
     private final RewardsCalculator rewardsCalculator;
+    private final CustomerTransactionsJsonReader customerTransactionsJsonReader;
+    private final CustomerTransactionsCsvReader customerTransactionsCsvReader;
+    private final RewardsMetrics rewardsMetrics;
+    private final RewardsComputePool rewardsComputePool;
+    private final int parallelThreshold;
+    private final int parallelChunkSize;
+    private final SingleFlight<CustomerTransactionsHash.Key, RewardsResultDTO> singleFlight;
 
     public RetailRewardsService(CustomerParser customerParser,
                                 RetailTransactionParser retailTransactionParser,
-                                RewardsCalculator rewardsCalculator) {
+                                RewardsCalculator rewardsCalculator,
+                                CustomerTransactionsJsonReader customerTransactionsJsonReader,
+                                CustomerTransactionsCsvReader customerTransactionsCsvReader,
+                                RewardsMetrics rewardsMetrics,
+                                RewardsComputePool rewardsComputePool,
+                                @Value("${rewards.parallel-threshold:50000}") int parallelThreshold,
+                                @Value("${rewards.parallel-chunk-size:8192}") int parallelChunkSize,
+                                @Value("${rewards.single-flight.enabled:true}") boolean singleFlightEnabled) {
         this.customerParser = customerParser;
         this.retailTransactionParser = retailTransactionParser;
         this.rewardsCalculator = rewardsCalculator;
+        this.customerTransactionsJsonReader = customerTransactionsJsonReader;
+        this.customerTransactionsCsvReader = customerTransactionsCsvReader;
+        this.rewardsMetrics = rewardsMetrics;
+        this.rewardsComputePool = rewardsComputePool;
+        this.parallelThreshold = parallelThreshold;
+        this.parallelChunkSize = parallelChunkSize;
+        this.singleFlight = singleFlightEnabled ? new SingleFlight<>(rewardsMetrics) : null;
     }
 
+    /**
+     * Requests with at least {@code rewards.parallel-threshold} transactions are validated and aggregated in
+     * chunks on the {@link RewardsComputePool}.  The results and errors are the same either way.
+     * <p>
+     * On virtual threads the parse, validation and aggregation stages are handed to that pool and the request
+     * thread waits for them, so the number of calculations running at once stays bounded by its parallelism.
+     * <p>
+     * With {@code rewards.single-flight.enabled} a request identical to one already being calculated waits for
+     * that calculation and returns the same result, see {@link SingleFlight}.
+     */
     public RewardsResultDTO calculateRewards(CustomerTransactionsDTO customerTransactions) {
-        var customerParserResult = customerParser.parserCustomers(customerTransactions.getCustomers());
-        var transactionParserResult = retailTransactionParser.parseTransactions(
-                customerTransactions.getTransactions(),
-                customerParserResult.customers()
-        );
+        if (singleFlight == null) {
+            return rewardsComputePool.run(() -> calculateRewardsNow(customerTransactions));
+        }
+        return singleFlight.execute(CustomerTransactionsHash.keyOf(customerTransactions),
+                () -> rewardsComputePool.run(() -> calculateRewardsNow(customerTransactions)));
+    }
+
+    private RewardsResultDTO calculateRewardsNow(CustomerTransactionsDTO customerTransactions) {
+        var parallel = customerTransactions.getTransactions().size() >= parallelThreshold;
+        rewardsMetrics.recordRequestSize(customerTransactions.getCustomers().size(),
+                customerTransactions.getTransactions().size());
+
+        var customerParserResult = rewardsMetrics.time(Stage.CUSTOMER_PARSE,
+                () -> customerParser.parserCustomers(customerTransactions.getCustomers()));
+        if (customerParserResult.validationErrors().isLimitReached()) {
+            // The customers alone have used up the errors a response may report, so the transactions are left.
+            rewardsMetrics.recordValidationFailures(customerParserResult.ruleCounts());
+            return validationErrorResult(customerParserResult.validationErrors());
+        }
+        // The transactions may only report the errors the customers have left.
+        var transactionErrors = customerParserResult.validationErrors().newRemaining();
+        var isKnownCustomer = RetailTransactionParser.knownCustomers(customerParserResult.customerIndex());
+        var validatedTransactions = rewardsMetrics.time(Stage.TRANSACTION_VALIDATION, () -> parallel ?
+                retailTransactionParser.validateTransactions(
+                        customerTransactions.getTransactions(),
+                        isKnownCustomer,
+                        rewardsComputePool.pool(),
+                        parallelChunkSize,
+                        transactionErrors) :
+                retailTransactionParser.validateTransactions(
+                        customerTransactions.getTransactions(),
+                        isKnownCustomer,
+                        transactionErrors));
+        var transactionParserResult = rewardsMetrics.time(Stage.SPAN_CHECK,
+                () -> retailTransactionParser.checkSpan(validatedTransactions));
+
+        var errors = customerParserResult.validationErrors();
+        errors.addAll(transactionParserResult.validationErrors());
+        rewardsMetrics.recordValidationFailures(errors.ruleCounts());
+        if (!errors.isEmpty()) {
+            return validationErrorResult(errors);
+        }
+        var rewardsResults = rewardsMetrics.time(Stage.AGGREGATION, () -> parallel ?
+                rewardsCalculator.calculate(transactionParserResult.retailTransactions(),
+                        rewardsComputePool.pool(),
+                        parallelChunkSize) :
+                rewardsCalculator.calculate(transactionParserResult.retailTransactions()));
+        var customerIdNotFound = ResourceLookup.getMessage("res_customerIdNotFound");
+        // The names are looked up, and the name resolution stage recorded, as the summaries are written.
+        var customerSummaries = new CustomerSummaries(rewardsResults,
+                customerParserResult.customerIndex(),
+                customerIdNotFound,
+                rewardsMetrics);
+        return new RewardsResultDTO(customerSummaries, Collections.emptyList());
+    }
 
-        if (!customerParserResult.errors().isEmpty() || !transactionParserResult.errors().isEmpty()) {
-            return new RewardsResultDTO(
-                    Collections.emptyList(),
-                    Stream.concat(
-                            customerParserResult.errors().stream(),
-                            transactionParserResult.errors().stream())
-                            .toList()
-                    );
+    /**
+     * The errors of a request with no summaries, as messages, as structured errors and as counts by rule.
+     */
+    static RewardsResultDTO validationErrorResult(ValidationErrors errors) {
+        return new RewardsResultDTO(Collections.emptyList(), errors.messages(), errors.list(), errors.countsByRule());
+    }
+
+    public StreamingRewardsCalculation calculateRewards(InputStream customerTransactionsJson) throws IOException {
+        var calculation = newStreamingCalculation();
+        customerTransactionsJsonReader.read(customerTransactionsJson, calculation);
+        return calculation;
+    }
+
+    /**
+     * Customers are read in full before any transactions, so both CSV streams are read in constant memory.
+     */
+    public StreamingRewardsCalculation calculateRewardsFromCsv(InputStream customersCsv,
+                                                               InputStream transactionsCsv) throws IOException {
+        var calculation = newStreamingCalculation();
+        customerTransactionsCsvReader.readCustomers(customersCsv, calculation);
+        customerTransactionsCsvReader.readTransactions(transactionsCsv, calculation);
+        return calculation;
+    }
+
+    /**
+     * Reads the {@code customers} part and then the {@code transactions} part of a multipart form as they arrive.
+     * Parts sent before either are skipped, so the customers must be sent first.
+     */
+    public StreamingRewardsCalculation calculateRewardsFromCsv(MultipartFormReader form) throws IOException {
+        var calculation = newStreamingCalculation();
+        var customersCsv = form.nextPart("customers");
+        if (customersCsv == null) {
+            return calculation;
+        }
+        customerTransactionsCsvReader.readCustomers(customersCsv, calculation);
+        var transactionsCsv = form.nextPart("transactions");
+        if (transactionsCsv != null) {
+            customerTransactionsCsvReader.readTransactions(transactionsCsv, calculation);
         }
-        return new RewardsResultDTO(rewardsCalculator.calculate(transactionParserResult.retailTransactions())
-                .stream()
-                .map(summary -> buildCustomerSummaryDTO(summary, customerParserResult.customers()))
-                .toList(),
-                Collections.emptyList()
-        );
+        return calculation;
     }
 
-    private CustomerSummaryDTO buildCustomerSummaryDTO(RewardsResult rewardsSummary, List<Customer> customers) {
-        return new CustomerSummaryDTO(
-                rewardsSummary.customerId(),
-                getCustomerName(customers, rewardsSummary.customerId()),
-                rewardsSummary.monthlyTotals()[0],
-                rewardsSummary.monthlyTotals()[1],
-                rewardsSummary.monthlyTotals()[2],
-                rewardsSummary.threeMonthTotal());
+    public StreamingRewardsCalculation calculateRewardsFromNdjson(InputStream customerTransactionsNdjson) throws IOException {
+        var calculation = newStreamingCalculation();
+        customerTransactionsJsonReader.readNdjson(customerTransactionsNdjson, calculation);
+        return calculation;
     }
 
-    private String getCustomerName(List<Customer> customers, int customerId) {
-        return customers.stream()
-                .filter(customer -> customer.id() == customerId)
-                .map(Customer::name)
-                .findFirst()
-                .orElse(ResourceLookup.getMessage("res_customerIdNotFound"));
+    public StreamingRewardsCalculation newStreamingCalculation() {
+        return new StreamingRewardsCalculation(customerParser, retailTransactionParser, rewardsCalculator, rewardsMetrics);
     }
 }
@@ -0,0 +1,72 @@
+package com.rorysteerprojects.retailrewards.application_services;
+
+import com.rorysteerprojects.retailrewards.config.VirtualThreadsConfig;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Supplier;
+
+/**
+ * The threads the CPU bound stages of a rewards calculation run on.
+ * <p>
+ * On the Tomcat pool the stages run on the request thread, and large requests are split across the common
+ * fork/join pool, as they always have been.  With {@code rewards.threads.virtual.enabled} every request has a
+ * thread of its own, so the number running at once is no longer bounded by the pool.  Instead the stages are
+ * handed to a dedicated fork/join pool of {@code rewards.compute.parallelism} threads, one per core by default,
+ * and the virtual thread waits for them, which leaves its carrier free.  Work already on the pool, such as the
+ * chunks of a large request, runs where it is rather than queueing behind itself.
+ */
+@Component
+public class RewardsComputePool {
+
+    private final ForkJoinPool pool;
+    private final boolean offload;
+
+    public RewardsComputePool() {
+        this(ForkJoinPool.commonPool(), false);
+    }
+
+    @Autowired
+    public RewardsComputePool(@Value("${rewards.threads.virtual.enabled:false}") boolean virtualThreadsEnabled,
+                              @Value("${rewards.compute.parallelism:0}") int parallelism) {
+        this(virtualThreadsEnabled && VirtualThreadsConfig.isAvailable() ?
+                        new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors()) :
+                        ForkJoinPool.commonPool(),
+                virtualThreadsEnabled && VirtualThreadsConfig.isAvailable());
+    }
+
+    RewardsComputePool(ForkJoinPool pool, boolean offload) {
+        this.pool = pool;
+        this.offload = offload;
+    }
+
+    /**
+     * The pool that large requests are split across.
+     */
+    public ForkJoinPool pool() {
+        return pool;
+    }
+
+    /**
+     * Runs {@code stages} on the pool and waits for the result, or runs them on the calling thread when the
+     * stages are not offloaded or the caller is already on a fork/join pool.  Unchecked exceptions are rethrown
+     * to the caller.
+     */
+    public <T> T run(Supplier<T> stages) {
+        if (!offload || ForkJoinTask.inForkJoinPool()) {
+            return stages.get();
+        }
+        return pool.invoke(ForkJoinTask.adapt(stages::get));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (pool != ForkJoinPool.commonPool()) {
+            pool.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package com.rorysteerprojects.retailrewards.application_services;
+
+import com.rorysteerprojects.retailrewards.api.CustomerDTO;
+import com.rorysteerprojects.retailrewards.api.RetailTransactionDTO;
+import com.rorysteerprojects.retailrewards.api.RewardsResultDTO;
+import com.rorysteerprojects.retailrewards.application_services.parsers.CustomerParser;
+import com.rorysteerprojects.retailrewards.application_services.parsers.RetailTransactionParser;
+import com.rorysteerprojects.retailrewards.application_services.parsers.ValidationErrors;
+import com.rorysteerprojects.retailrewards.application_services.parsers.ValidationRule;
+import com.rorysteerprojects.retailrewards.config.ResourceLookup;
+import com.rorysteerprojects.retailrewards.config.RewardsMetrics;
+import com.rorysteerprojects.retailrewards.config.RewardsMetrics.Stage;
+import com.rorysteerprojects.retailrewards.domain.CustomerIndex;
+import com.rorysteerprojects.retailrewards.domain.RewardsAccumulator;
+import com.rorysteerprojects.retailrewards.domain.RewardsCalculator;
+
+import java.util.Collections;
+
+/**
+ * A single rewards calculation fed one customer and one transaction at a time.
+ * <p>
+ * Each transaction is validated and aggregated as soon as it arrives and is then dropped, so the memory held is
+ * proportional to the number of customers rather than the number of transactions.  All customers must be
+ * supplied before the first transaction; readers that encounter transactions first are expected to hold them back.
+ * Once the errors reach the limit set on the parsers, the rest of the rows are counted but not validated.
+ * <p>
+ * The result is identical to {@link RetailRewardsService#calculateRewards} for the same customers and transactions.
+ */
+public class StreamingRewardsCalculation {
+
+    private final CustomerParser customerParser;
+    private final RetailTransactionParser retailTransactionParser;
+    private final RewardsAccumulator rewardsAccumulator;
+    private final RewardsMetrics rewardsMetrics;
+
+    private CustomerIndex customerIndex = new CustomerIndex();
+    private final ValidationErrors customerErrors;
+    private ValidationErrors transactionErrors;
+    private boolean customerListPresent;
+    private boolean transactionListPresent;
+    private boolean customersComplete;
+    // The months of every transaction that parsed, aggregated or not, as the span is checked on all of them.
+    private int earliestMonth = Integer.MAX_VALUE;
+    private int latestMonth = Integer.MIN_VALUE;
+    // Progress counters are only written by the thread feeding the calculation, and may be read from others.
+    private volatile long customerCount;
+    private volatile long transactionCount;
+    private volatile long transactionsAggregated;
+
+    StreamingRewardsCalculation(CustomerParser customerParser,
+                                RetailTransactionParser retailTransactionParser,
+                                RewardsCalculator rewardsCalculator,
+                                RewardsMetrics rewardsMetrics) {
+        this.customerParser = customerParser;
+        this.retailTransactionParser = retailTransactionParser;
+        this.rewardsAccumulator = rewardsCalculator.newAccumulator();
+        this.rewardsMetrics = rewardsMetrics;
+        this.customerErrors = customerParser.newValidationErrors();
+        this.transactionErrors = retailTransactionParser.newValidationErrors();
+    }
+
+    public void startCustomers() {
+        customerListPresent = true;
+    }
+
+    public void startTransactions() {
+        transactionListPresent = true;
+    }
+
+    public void acceptCustomer(CustomerDTO customer) {
+        if (customersComplete) {
+            throw new IllegalStateException("Customers must be supplied before any transactions");
+        }
+        customerCount++;
+        if (!customerErrors.isLimitReached()) {
+            customerParser.parseCustomer(customer, (int) (customerCount - 1), customerIndex, customerErrors);
+        }
+    }
+
+    /**
+     * Accepts a customer read from line {@code lineNumber} of a text format, prefixing any errors with the line.
+     */
+    public void acceptCustomer(CustomerDTO customer, long lineNumber) {
+        var errorCount = customerErrors.size();
+        acceptCustomer(customer);
+        customerErrors.prefixMessages(errorCount, "Line " + lineNumber + ": ");
+    }
+
+    /**
+     * Accepts a transaction read from line {@code lineNumber} of a text format, prefixing any errors with the line.
+     */
+    public void acceptTransaction(RetailTransactionDTO transaction, long lineNumber) {
+        var errorCount = transactionErrors.size();
+        acceptTransaction(transaction);
+        transactionErrors.prefixMessages(errorCount, "Line " + lineNumber + ": ");
+    }
+
+    public void acceptTransaction(RetailTransactionDTO transaction) {
+        completeCustomers();
+        transactionCount++;
+        if (customerCount == 0) {
+            // Transactions without customers are rejected as an invalid request body, so there is nothing to validate.
+            return;
+        }
+        if (customerErrors.isLimitReached() || transactionErrors.isLimitReached()) {
+            return;
+        }
+        var parsed = retailTransactionParser.parseTransaction(transaction,
+                (int) (transactionCount - 1),
+                customerIndex,
+                transactionErrors);
+        if (parsed.isEmpty()) {
+            return;
+        }
+        var month = parsed.get().month();
+        earliestMonth = Math.min(earliestMonth, month);
+        latestMonth = Math.max(latestMonth, month);
+        if (customerErrors.isEmpty() && transactionErrors.isEmpty()) {
+            rewardsAccumulator.add(parsed.get());
+            transactionsAggregated++;
+        }
+    }
+
+    public long customersRead() {
+        return customerCount;
+    }
+
+    public long transactionsValidated() {
+        return transactionCount;
+    }
+
+    public long transactionsAggregated() {
+        return transactionsAggregated;
+    }
+
+    public boolean isInvalidRequestBody() {
+        return !customerListPresent ||
+                !transactionListPresent ||
+                transactionCount > 0 && customerCount == 0;
+    }
+
+    public RewardsResultDTO result() {
+        completeCustomers();
+        if (transactionErrors.isEmpty() && isSpanMoreThanThreeMonths()) {
+            transactionErrors.add(null, ValidationRule.TRANSACTIONS_SPAN_MORE_THAN_THREE_MONTHS, null);
+        }
+        var errors = customerErrors.newEmpty();
+        errors.addAll(customerErrors);
+        errors.addAll(transactionErrors);
+        rewardsMetrics.recordRequestSize(customerCount, transactionCount);
+        rewardsMetrics.recordValidationFailures(errors.ruleCounts());
+        if (!errors.isEmpty()) {
+            return RetailRewardsService.validationErrorResult(errors);
+        }
+        var customerIdNotFound = ResourceLookup.getMessage("res_customerIdNotFound");
+        // The rewards were aggregated as the transactions arrived, leaving only putting them in customer order.
+        var rewardsResults = rewardsMetrics.time(Stage.AGGREGATION, rewardsAccumulator::results);
+        var customerSummaries = new CustomerSummaries(rewardsResults, customerIndex, customerIdNotFound, rewardsMetrics);
+        return new RewardsResultDTO(customerSummaries, Collections.emptyList());
+    }
+
+    public boolean isAcceptingCustomers() {
+        return !customersComplete;
+    }
+
+    /**
+     * The same check as {@link RetailTransactionParser#checkSpan}, which also covers the transactions of a request
+     * whose customers have errors.
+     */
+    private boolean isSpanMoreThanThreeMonths() {
+        return earliestMonth <= latestMonth && latestMonth - earliestMonth >= 3;
+    }
+
+    private void completeCustomers() {
+        if (!customersComplete) {
+            customersComplete = true;
+            if (!customerErrors.isEmpty()) {
+                // Matches the list based path: when any customer is invalid no customers are parsed, so the
+                // existence check on transactions is skipped.
+                customerIndex = new CustomerIndex();
+            }
+            if (!customerErrors.isLimitReached()) {
+                // The transactions may only report the errors the customers have left.
+                transactionErrors = customerErrors.newRemaining();
+            }
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.rorysteerprojects.retailrewards.application_services.cache;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Hashes a JSON document by its tokens rather than its bytes, so documents that differ only in whitespace or in
+ * how strings are escaped hash the same.  The order of the fields and the spelling of numbers are kept, so
+ * {@code {"a":1,"b":2}} and {@code {"b":2,"a":1}} hash differently.
+ * <p>
+ * The document is tokenized with Jackson's streaming parser and the text of each token is read from the parser's
+ * own buffer, so nothing is bound to objects.  The tokens are written to a small buffer in a canonical form, which
+ * is fed to xxHash64 and, for a {@link Key}, to SHA-256 as it fills.
+ */
+public final class CanonicalJsonHash {
+
+    private static final int BUFFER_BYTES = 4096;
+
+    private CanonicalJsonHash() {
+    }
+
+    /**
+     * @param context hashed ahead of the document, so the same document sent for different purposes hashes
+     *                differently
+     * @throws com.fasterxml.jackson.core.JsonProcessingException if {@code json} is not well formed
+     */
+    public static long of(JsonFactory jsonFactory, String context, byte[] json) throws IOException {
+        return hash(jsonFactory, context, json, null).hash();
+    }
+
+    /**
+     * The xxHash64 of {@link #of} together with the SHA-256 digest of the same canonical form, for lookups where
+     * two documents sharing a 64 bit hash must not be mistaken for each other.
+     *
+     * @throws com.fasterxml.jackson.core.JsonProcessingException if {@code json} is not well formed
+     */
+    public static Key keyOf(JsonFactory jsonFactory, String context, byte[] json) throws IOException {
+        try {
+            return hash(jsonFactory, context, json, MessageDigest.getInstance("SHA-256"));
+        }
+        catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Every Java platform supports SHA-256", e);
+        }
+    }
+
+    private static Key hash(JsonFactory jsonFactory, String context, byte[] json, MessageDigest sha256)
+            throws IOException {
+        var canonical = new CanonicalForm(sha256);
+        var contextChars = context.toCharArray();
+        canonical.writeInt(contextChars.length).write(contextChars, 0, contextChars.length);
+        try (var parser = jsonFactory.createParser(json)) {
+            JsonToken token;
+            while ((token = parser.nextToken()) != null) {
+                canonical.write((byte) token.id());
+                if (token == JsonToken.FIELD_NAME || token.isScalarValue() && token != JsonToken.VALUE_NULL) {
+                    canonical.writeInt(parser.getTextLength())
+                            .write(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength());
+                }
+            }
+        }
+        return canonical.finish();
+    }
+
+    /**
+     * The 64 bit hash of a document, which picks its entry, and the SHA-256 digest that confirms it.
+     */
+    public record Key(long hash, byte[] sha256) {
+
+        /**
+         * @return whether {@code other} was made from the same canonical form, comparing the digests in constant
+         * time
+         */
+        public boolean matches(Key other) {
+            return hash == other.hash && MessageDigest.isEqual(sha256, other.sha256);
+        }
+    }
+
+    /**
+     * The canonical form of the tokens, written little endian with chars as two bytes, and fed to the hashes a
+     * buffer at a time.
+     */
+    private static class CanonicalForm {
+
+        private final XxHash64 xxHash64 = new XxHash64();
+        private final MessageDigest sha256;
+        private final byte[] buffer = new byte[BUFFER_BYTES];
+        private int length;
+
+        CanonicalForm(MessageDigest sha256) {
+            this.sha256 = sha256;
+        }
+
+        CanonicalForm write(byte value) {
+            if (length == buffer.length) {
+                flush();
+            }
+            buffer[length++] = value;
+            return this;
+        }
+
+        CanonicalForm writeInt(int value) {
+            write((byte) value);
+            write((byte) (value >>> 8));
+            write((byte) (value >>> 16));
+            return write((byte) (value >>> 24));
+        }
+
+        CanonicalForm write(char[] chars, int offset, int count) {
+            for (int i = offset; i < offset + count; i++) {
+                write((byte) chars[i]);
+                write((byte) (chars[i] >>> 8));
+            }
+            return this;
+        }
+
+        Key finish() {
+            flush();
+            return new Key(xxHash64.digest(), sha256 != null ? sha256.digest() : null);
+        }
+
+        private void flush() {
+            xxHash64.update(buffer, 0, length);
+            if (sha256 != null) {
+                sha256.update(buffer, 0, length);
+            }
+            length = 0;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.rorysteerprojects.retailrewards.application_services.cache;
+
+import com.rorysteerprojects.retailrewards.api.CustomerDTO;
+import com.rorysteerprojects.retailrewards.api.CustomerTransactionsDTO;
+import com.rorysteerprojects.retailrewards.api.RetailTransactionDTO;
+
+import java.util.List;
+
+/**
+ * The xxHash64 of every field of a rewards request, so that requests with the same customers and transactions
+ * in the same order hash the same.  Each field is hashed with its length, and nulls are told apart from empty
+ * values.
+ */
+public final class CustomerTransactionsHash {
+
+    private static final int NULL_LENGTH = -1;
+    private static final int NULL_ELEMENT = -2;
+
+    private CustomerTransactionsHash() {
+    }
+
+    /**
+     * @return the request keyed by its hash, see {@link Key}
+     */
+    public static Key keyOf(CustomerTransactionsDTO customerTransactions) {
+        return new Key(of(customerTransactions), customerTransactions);
+    }
+
+    public static long of(CustomerTransactionsDTO customerTransactions) {
+        var hash = new XxHash64();
+        List<CustomerDTO> customers = customerTransactions.getCustomers();
+        hash.updateInt(customers == null ? NULL_LENGTH : customers.size());
+        if (customers != null) {
+            for (CustomerDTO customer : customers) {
+                if (customer == null) {
+                    hash.updateInt(NULL_ELEMENT);
+                    continue;
+                }
+                field(hash, customer.getId());
+                field(hash, customer.getName());
+            }
+        }
+        List<RetailTransactionDTO> transactions = customerTransactions.getTransactions();
+        hash.updateInt(transactions == null ? NULL_LENGTH : transactions.size());
+        if (transactions != null) {
+            for (RetailTransactionDTO transaction : transactions) {
+                if (transaction == null) {
+                    hash.updateInt(NULL_ELEMENT);
+                    continue;
+                }
+                field(hash, transaction.getId());
+                field(hash, transaction.getDate());
+                field(hash, transaction.getCustomerId());
+                field(hash, transaction.getValue());
+            }
+        }
+        return hash.digest();
+    }
+
+    /**
+     * A request with its hash, equal only to the key of an equal request.  The hash is worked out once and is the
+     * key's hash code, and it is compared before the requests, so only requests sharing a hash are compared field
+     * by field.
+     */
+    public record Key(long hash, CustomerTransactionsDTO customerTransactions) {
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Key key &&
+                    hash == key.hash &&
+                    customerTransactions.equals(key.customerTransactions);
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(hash);
+        }
+    }
+
+    private static void field(XxHash64 hash, String value) {
+        if (value == null) {
+            hash.updateInt(NULL_LENGTH);
+        }
+        else {
+            hash.updateInt(value.length()).update(value);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.rorysteerprojects.retailrewards.application_services.cache;
+
+import com.rorysteerprojects.retailrewards.application_services.cache.CanonicalJsonHash.Key;
+import com.rorysteerprojects.retailrewards.config.RewardsMetrics;
+import com.rorysteerprojects.retailrewards.config.RewardsMetrics.CacheLookup;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Serialized rewards responses keyed by the {@link CanonicalJsonHash} of the request that produced them, so a
+ * repeated request can be answered with the stored bytes.  Each entry keeps the SHA-256 digest of its request as
+ * well, and a lookup whose digest differs is a miss, so two requests that share a 64 bit hash are never answered
+ * with each other's response.
+ * <p>
+ * Entries are weighed by the size of their body and the least recently used entries are evicted once the total
+ * weight would go over {@code rewards.cache.max-size}.  A response heavier than the whole cache is not stored.
+ * Every method takes the cache's lock; each is constant time apart from evictions.
+ */
+@Component
+public class RewardsResultCache {
+
+    /**
+     * The approximate heap taken by an entry apart from its body: the map entry, the key, its digest and the
+     * response.
+     */
+    static final int ENTRY_OVERHEAD_BYTES = 176;
+
+    private final RewardsMetrics rewardsMetrics;
+    private final long maxWeight;
+    private final LinkedHashMap<Long, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long weight;
+
+    @Autowired
+    public RewardsResultCache(RewardsMetrics rewardsMetrics,
+                              @Value("${rewards.cache.max-size:64MB}") DataSize maxSize) {
+        this(rewardsMetrics, maxSize.toBytes());
+    }
+
+    RewardsResultCache(RewardsMetrics rewardsMetrics, long maxWeight) {
+        this.rewardsMetrics = rewardsMetrics;
+        this.maxWeight = maxWeight;
+        rewardsMetrics.registerCacheGauges(this, RewardsResultCache::size, RewardsResultCache::weight);
+    }
+
+    /**
+     * @return the response stored for the request of {@code key}, or null, recording the lookup as a hit or a miss
+     */
+    public CachedResponse get(Key key) {
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(key.hash());
+        }
+        var response = entry != null && entry.key().matches(key) ? entry.response() : null;
+        rewardsMetrics.recordCacheLookup(response != null ? CacheLookup.HIT : CacheLookup.MISS);
+        return response;
+    }
+
+    /**
+     * Stores {@code response} for the request of {@code key}, replacing any entry with the same 64 bit hash.
+     */
+    public void put(Key key, CachedResponse response) {
+        if (response.weight() > maxWeight) {
+            return;
+        }
+        var evictions = 0;
+        synchronized (this) {
+            var replaced = entries.put(key.hash(), new Entry(key, response));
+            weight += response.weight() - (replaced != null ? replaced.response().weight() : 0);
+            Iterator<Map.Entry<Long, Entry>> leastRecentlyUsed = entries.entrySet().iterator();
+            while (weight > maxWeight) {
+                weight -= leastRecentlyUsed.next().getValue().response().weight();
+                leastRecentlyUsed.remove();
+                evictions++;
+            }
+        }
+        rewardsMetrics.recordCacheEvictions(evictions);
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return the total weight of the entries in bytes
+     */
+    public synchronized long weight() {
+        return weight;
+    }
+
+    /**
+     * A response as it was written, status, content type and body.
+     */
+    public record CachedResponse(int status, String contentType, byte[] body) {
+
+        long weight() {
+            return body.length + ENTRY_OVERHEAD_BYTES;
+        }
+    }
+
+    private record Entry(Key key, CachedResponse response) {
+    }
+}
@@ -0,0 +1,93 @@
+package com.rorysteerprojects.retailrewards.application_services.cache;
+
+import com.rorysteerprojects.retailrewards.config.RewardsMetrics;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
+
+/**
+ * Runs at most one computation at a time for each key, keys being compared with {@code equals}, so keys that
+ * only share a hash code never share a computation.  The first caller for a key, the leader, runs the
+ * computation on its own thread; callers that arrive for the same key while it runs wait for it and get the same
+ * result, or the same exception, and are counted as coalesced.  Once the computation finishes the key is free
+ * again, so a later caller runs it afresh.
+ * <p>
+ * If the leader's thread is interrupted, or the computation throws a {@link CancellationException}, its result
+ * is not shared: the waiting callers start over and one of them runs the computation as the new leader.  A caller
+ * interrupted while waiting stops waiting with a {@link CancellationException} and leaves the leader running for
+ * the others.
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final RewardsMetrics rewardsMetrics;
+
+    public SingleFlight(RewardsMetrics rewardsMetrics) {
+        this.rewardsMetrics = rewardsMetrics;
+    }
+
+    public V execute(K key, Supplier<V> computation) {
+        while (true) {
+            var leaderResult = new CompletableFuture<V>();
+            var running = inFlight.putIfAbsent(key, leaderResult);
+            if (running == null) {
+                return lead(key, leaderResult, computation);
+            }
+            rewardsMetrics.recordCoalescedRequest();
+            try {
+                return running.get();
+            }
+            catch (CancellationException e) {
+                // The leader was cancelled, so try again, perhaps as the leader.
+                inFlight.remove(key, running);
+            }
+            catch (ExecutionException e) {
+                throw rethrow(e.getCause());
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new CancellationException("Interrupted while waiting for an identical calculation");
+            }
+        }
+    }
+
+    /**
+     * @return the number of keys whose computation is running
+     */
+    public int inFlightCount() {
+        return inFlight.size();
+    }
+
+    private V lead(K key, CompletableFuture<V> leaderResult, Supplier<V> computation) {
+        try {
+            var result = computation.get();
+            leaderResult.complete(result);
+            return result;
+        }
+        catch (RuntimeException | Error e) {
+            if (e instanceof CancellationException || Thread.currentThread().isInterrupted()) {
+                leaderResult.cancel(false);
+            }
+            else {
+                leaderResult.completeExceptionally(e);
+            }
+            throw e;
+        }
+        finally {
+            inFlight.remove(key, leaderResult);
+        }
+    }
+
+    private static RuntimeException rethrow(Throwable cause) {
+        if (cause instanceof RuntimeException runtimeException) {
+            throw runtimeException;
+        }
+        if (cause instanceof Error error) {
+            throw error;
+        }
+        throw new IllegalStateException(cause);
+    }
+}
@@ -0,0 +1,163 @@
+package com.rorysteerprojects.retailrewards.application_services.cache;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+
+/**
+ * The 64 bit xxHash of a stream of bytes, fed in pieces with the {@code update} methods.
+ * <p>
+ * Input is consumed in 32 byte stripes by four independent lanes, with a partial stripe held back until more
+ * input arrives or the digest is taken.  Chars and ints are fed as their little endian bytes.
+ */
+public class XxHash64 {
+
+    private static final long PRIME_1 = 0x9E3779B185EBCA87L;
+    private static final long PRIME_2 = 0xC2B2AE3D27D4EB4FL;
+    private static final long PRIME_3 = 0x165667B19E3779F9L;
+    private static final long PRIME_4 = 0x85EBCA77C2B2AE63L;
+    private static final long PRIME_5 = 0x27D4EB2F165667C5L;
+    private static final int STRIPE_BYTES = 32;
+
+    private static final VarHandle LONG_LE = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle INT_LE = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private final long seed;
+    private final byte[] buffer = new byte[STRIPE_BYTES];
+    private int bufferedBytes;
+    private long totalBytes;
+    private long lane1;
+    private long lane2;
+    private long lane3;
+    private long lane4;
+
+    public XxHash64() {
+        this(0);
+    }
+
+    public XxHash64(long seed) {
+        this.seed = seed;
+        lane1 = seed + PRIME_1 + PRIME_2;
+        lane2 = seed + PRIME_2;
+        lane3 = seed;
+        lane4 = seed - PRIME_1;
+    }
+
+    public XxHash64 update(byte value) {
+        buffer[bufferedBytes++] = value;
+        totalBytes++;
+        if (bufferedBytes == STRIPE_BYTES) {
+            consumeStripe(buffer, 0);
+            bufferedBytes = 0;
+        }
+        return this;
+    }
+
+    public XxHash64 update(byte[] bytes, int offset, int length) {
+        var end = offset + length;
+        while (bufferedBytes > 0 && offset < end) {
+            update(bytes[offset++]);
+        }
+        for (; end - offset >= STRIPE_BYTES; offset += STRIPE_BYTES) {
+            consumeStripe(bytes, offset);
+            totalBytes += STRIPE_BYTES;
+        }
+        while (offset < end) {
+            update(bytes[offset++]);
+        }
+        return this;
+    }
+
+    public XxHash64 update(char[] chars, int offset, int length) {
+        for (int i = offset; i < offset + length; i++) {
+            updateChar(chars[i]);
+        }
+        return this;
+    }
+
+    public XxHash64 update(CharSequence chars) {
+        for (int i = 0; i < chars.length(); i++) {
+            updateChar(chars.charAt(i));
+        }
+        return this;
+    }
+
+    public XxHash64 updateInt(int value) {
+        update((byte) value);
+        update((byte) (value >>> 8));
+        update((byte) (value >>> 16));
+        return update((byte) (value >>> 24));
+    }
+
+    /**
+     * @return the hash of the bytes fed so far; more bytes can be fed afterwards
+     */
+    public long digest() {
+        long hash;
+        if (totalBytes >= STRIPE_BYTES) {
+            hash = Long.rotateLeft(lane1, 1) + Long.rotateLeft(lane2, 7) +
+                    Long.rotateLeft(lane3, 12) + Long.rotateLeft(lane4, 18);
+            hash = mergeLane(hash, lane1);
+            hash = mergeLane(hash, lane2);
+            hash = mergeLane(hash, lane3);
+            hash = mergeLane(hash, lane4);
+        }
+        else {
+            hash = seed + PRIME_5;
+        }
+        hash += totalBytes;
+
+        var offset = 0;
+        for (; bufferedBytes - offset >= Long.BYTES; offset += Long.BYTES) {
+            hash ^= round(0, (long) LONG_LE.get(buffer, offset));
+            hash = Long.rotateLeft(hash, 27) * PRIME_1 + PRIME_4;
+        }
+        if (bufferedBytes - offset >= Integer.BYTES) {
+            hash ^= ((int) INT_LE.get(buffer, offset) & 0xFFFF_FFFFL) * PRIME_1;
+            hash = Long.rotateLeft(hash, 23) * PRIME_2 + PRIME_3;
+            offset += Integer.BYTES;
+        }
+        for (; offset < bufferedBytes; offset++) {
+            hash ^= (buffer[offset] & 0xFFL) * PRIME_5;
+            hash = Long.rotateLeft(hash, 11) * PRIME_1;
+        }
+
+        hash ^= hash >>> 33;
+        hash *= PRIME_2;
+        hash ^= hash >>> 29;
+        hash *= PRIME_3;
+        hash ^= hash >>> 32;
+        return hash;
+    }
+
+    private void updateChar(char value) {
+        if (bufferedBytes > STRIPE_BYTES - Character.BYTES) {
+            update((byte) value);
+            update((byte) (value >>> 8));
+            return;
+        }
+        buffer[bufferedBytes] = (byte) value;
+        buffer[bufferedBytes + 1] = (byte) (value >>> 8);
+        bufferedBytes += Character.BYTES;
+        totalBytes += Character.BYTES;
+        if (bufferedBytes == STRIPE_BYTES) {
+            consumeStripe(buffer, 0);
+            bufferedBytes = 0;
+        }
+    }
+
+    private void consumeStripe(byte[] bytes, int offset) {
+        lane1 = round(lane1, (long) LONG_LE.get(bytes, offset));
+        lane2 = round(lane2, (long) LONG_LE.get(bytes, offset + 8));
+        lane3 = round(lane3, (long) LONG_LE.get(bytes, offset + 16));
+        lane4 = round(lane4, (long) LONG_LE.get(bytes, offset + 24));
+    }
+
+    private static long round(long accumulator, long input) {
+        return Long.rotateLeft(accumulator + input * PRIME_2, 31) * PRIME_1;
+    }
+
+    private static long mergeLane(long hash, long lane) {
+        return (hash ^ round(0, lane)) * PRIME_1 + PRIME_4;
+    }
+}
@@ -0,0 +1,21 @@
+package com.rorysteerprojects.retailrewards.application_services.jobs;
+
+import java.io.IOException;
+
+/**
+ * Thrown when a streamed job's request body is longer than {@code rewards.jobs.max-body-size}.  The body is not
+ * read any further and whatever had been spooled is deleted.
+ */
+public class RequestBodyTooLargeException extends IOException {
+
+    private final long maxBodySize;
+
+    public RequestBodyTooLargeException(long maxBodySize) {
+        super("Request body is longer than " + maxBodySize + " bytes");
+        this.maxBodySize = maxBodySize;
+    }
+
+    public long getMaxBodySize() {
+        return maxBodySize;
+    }
+}
@@ -0,0 +1,61 @@
+package com.rorysteerprojects.retailrewards.application_services.jobs;
+
+import com.rorysteerprojects.retailrewards.api.RewardsJobDTO;
+import com.rorysteerprojects.retailrewards.api.RewardsJobStatus;
+import com.rorysteerprojects.retailrewards.api.RewardsResultDTO;
+import com.rorysteerprojects.retailrewards.application_services.StreamingRewardsCalculation;
+
+import java.time.Instant;
+
+/**
+ * One submitted rewards calculation.  Written by the executor thread running it and read by request threads
+ * polling for it.
+ */
+class RewardsJob {
+
+    private final String id;
+    private final StreamingRewardsCalculation calculation;
+    private volatile RewardsJobStatus status = RewardsJobStatus.QUEUED;
+    private volatile RewardsResultDTO result;
+    private volatile Instant finishedAt;
+
+    RewardsJob(String id, StreamingRewardsCalculation calculation) {
+        this.id = id;
+        this.calculation = calculation;
+    }
+
+    String getId() {
+        return id;
+    }
+
+    StreamingRewardsCalculation getCalculation() {
+        return calculation;
+    }
+
+    void start() {
+        status = RewardsJobStatus.RUNNING;
+    }
+
+    void finish(RewardsJobStatus finalStatus, RewardsResultDTO finalResult, Instant now) {
+        result = finalResult;
+        finishedAt = now;
+        status = finalStatus;
+    }
+
+    boolean isExpired(Instant expiredBefore) {
+        var finished = finishedAt;
+        return finished != null && finished.isBefore(expiredBefore);
+    }
+
+    RewardsJobDTO toDTO() {
+        var currentStatus = status;
+        return new RewardsJobDTO(id,
+                currentStatus,
+                calculation.customersRead(),
+                calculation.transactionsValidated(),
+                calculation.transactionsAggregated(),
+                currentStatus == RewardsJobStatus.COMPLETED || currentStatus == RewardsJobStatus.FAILED ?
+                        result :
+                        null);
+    }
+}
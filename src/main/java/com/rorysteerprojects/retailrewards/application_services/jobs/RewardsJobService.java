@@ -0,0 +1,246 @@
+package com.rorysteerprojects.retailrewards.application_services.jobs;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.rorysteerprojects.retailrewards.api.CustomerTransactionsDTO;
+import com.rorysteerprojects.retailrewards.api.RewardsJobDTO;
+import com.rorysteerprojects.retailrewards.api.RewardsJobStatus;
+import com.rorysteerprojects.retailrewards.api.RewardsResultDTO;
+import com.rorysteerprojects.retailrewards.application_services.RetailRewardsService;
+import com.rorysteerprojects.retailrewards.application_services.StreamingRewardsCalculation;
+import com.rorysteerprojects.retailrewards.application_services.readers.CustomerTransactionsJsonReader;
+import com.rorysteerprojects.retailrewards.config.ResourceLookup;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs rewards calculations in the background so that very large requests do not hold a request thread.
+ * <p>
+ * At most {@code rewards.jobs.concurrency} jobs run at once and at most {@code rewards.jobs.queue-capacity} more
+ * wait for a thread; beyond that submissions are rejected with a {@link RejectedExecutionException}.  A place is
+ * reserved before a streamed body is spooled, so a submission that would be rejected reads none of it, and a
+ * body longer than {@code rewards.jobs.max-body-size} is rejected with a {@link RequestBodyTooLargeException}
+ * once that much has been spooled.  Each job is
+ * fed through a {@link StreamingRewardsCalculation}, whose counters report its progress while it runs.  Finished
+ * jobs are kept in memory for {@code rewards.jobs.retention} and are evicted the next time jobs are submitted or
+ * looked up after that.
+ */
+@Component
+public class RewardsJobService {
+
+    private final RetailRewardsService retailRewardsService;
+    private final CustomerTransactionsJsonReader customerTransactionsJsonReader;
+    private final long maxBodySize;
+    private final Duration retention;
+    private final Clock clock;
+    // One permit for each job that is queued or running; the executor's own queue is never full.
+    private final Semaphore jobSlots;
+    private final ThreadPoolExecutor executor;
+    private final Map<String, RewardsJob> jobs = new ConcurrentHashMap<>();
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    @Autowired
+    public RewardsJobService(RetailRewardsService retailRewardsService,
+                             CustomerTransactionsJsonReader customerTransactionsJsonReader,
+                             @Value("${rewards.jobs.concurrency:2}") int concurrency,
+                             @Value("${rewards.jobs.queue-capacity:16}") int queueCapacity,
+                             @Value("${rewards.jobs.max-body-size:256MB}") DataSize maxBodySize,
+                             @Value("${rewards.jobs.retention:15m}") Duration retention) {
+        this(retailRewardsService, customerTransactionsJsonReader, concurrency, queueCapacity, maxBodySize, retention,
+                Clock.systemUTC());
+    }
+
+    RewardsJobService(RetailRewardsService retailRewardsService,
+                      CustomerTransactionsJsonReader customerTransactionsJsonReader,
+                      int concurrency,
+                      int queueCapacity,
+                      DataSize maxBodySize,
+                      Duration retention,
+                      Clock clock) {
+        this.retailRewardsService = retailRewardsService;
+        this.customerTransactionsJsonReader = customerTransactionsJsonReader;
+        this.maxBodySize = maxBodySize.toBytes();
+        this.retention = retention;
+        this.clock = clock;
+        this.jobSlots = new Semaphore(concurrency + queueCapacity);
+        var threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(concurrency, concurrency,
+                0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(),
+                runnable -> {
+                    var thread = new Thread(runnable, "rewards-job-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    public RewardsJobDTO submit(CustomerTransactionsDTO customerTransactions) {
+        reserveJobSlot();
+        return submit(calculation -> feed(customerTransactions, calculation), () -> {});
+    }
+
+    /**
+     * Copies the request body to a temporary file before queueing the job, since the request, and with it the
+     * body, ends as soon as the job id has been returned.
+     *
+     * @throws RejectedExecutionException if the queue is full, before any of the body is read
+     * @throws RequestBodyTooLargeException if the body is longer than {@code rewards.jobs.max-body-size}
+     */
+    public RewardsJobDTO submit(InputStream customerTransactionsJson) throws IOException {
+        reserveJobSlot();
+        Path spooledBody = null;
+        try {
+            spooledBody = Files.createTempFile("rewards-job-", ".json");
+            spool(customerTransactionsJson, spooledBody);
+        }
+        catch (IOException | RuntimeException e) {
+            if (spooledBody != null) {
+                delete(spooledBody);
+            }
+            jobSlots.release();
+            throw e;
+        }
+        var spooled = spooledBody;
+        return submit(calculation -> {
+                    try (InputStream spooledInput = Files.newInputStream(spooled)) {
+                        customerTransactionsJsonReader.read(spooledInput, calculation);
+                    }
+                },
+                () -> delete(spooled));
+    }
+
+    public Optional<RewardsJobDTO> find(String jobId) {
+        evictExpiredJobs();
+        return Optional.ofNullable(jobs.get(jobId)).map(RewardsJob::toDTO);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void reserveJobSlot() {
+        if (!jobSlots.tryAcquire()) {
+            throw new RejectedExecutionException("The rewards job queue is full");
+        }
+    }
+
+    private void spool(InputStream body, Path spooledBody) throws IOException {
+        try (OutputStream spooledOutput = Files.newOutputStream(spooledBody)) {
+            var buffer = new byte[8192];
+            long spooled = 0;
+            int read;
+            while ((read = body.read(buffer)) != -1) {
+                spooled += read;
+                if (spooled > maxBodySize) {
+                    throw new RequestBodyTooLargeException(maxBodySize);
+                }
+                spooledOutput.write(buffer, 0, read);
+            }
+        }
+    }
+
+    /**
+     * Queues a job for which a slot has already been reserved, releasing the slot once the job has run.
+     */
+    private RewardsJobDTO submit(JobInput input, Runnable cleanUp) {
+        evictExpiredJobs();
+        var job = new RewardsJob(UUID.randomUUID().toString(), retailRewardsService.newStreamingCalculation());
+        jobs.put(job.getId(), job);
+        try {
+            executor.execute(() -> run(job, input, cleanUp));
+        }
+        catch (RejectedExecutionException e) {
+            // Only once the executor has been shut down, as the slots keep its queue from filling.
+            jobs.remove(job.getId());
+            cleanUp.run();
+            jobSlots.release();
+            throw e;
+        }
+        return job.toDTO();
+    }
+
+    private void run(RewardsJob job, JobInput input, Runnable cleanUp) {
+        job.start();
+        try {
+            var calculation = job.getCalculation();
+            input.feed(calculation);
+            if (calculation.isInvalidRequestBody()) {
+                fail(job, "res_missingLists");
+            }
+            else {
+                job.finish(RewardsJobStatus.COMPLETED, calculation.result(), clock.instant());
+            }
+        }
+        catch (JsonProcessingException e) {
+            fail(job, "res_malformedRequestBody");
+        }
+        catch (IOException | RuntimeException e) {
+            logger.error("Rewards job " + job.getId() + " failed", e);
+            fail(job, "res_rewardsJobFailed");
+        }
+        finally {
+            cleanUp.run();
+            jobSlots.release();
+        }
+    }
+
+    private void fail(RewardsJob job, String messageKey) {
+        job.finish(RewardsJobStatus.FAILED,
+                new RewardsResultDTO(Collections.emptyList(), List.of(ResourceLookup.getMessage(messageKey))),
+                clock.instant());
+    }
+
+    private void feed(CustomerTransactionsDTO customerTransactions, StreamingRewardsCalculation calculation) {
+        if (customerTransactions.getCustomers() != null) {
+            calculation.startCustomers();
+            customerTransactions.getCustomers().forEach(calculation::acceptCustomer);
+        }
+        if (customerTransactions.getTransactions() != null) {
+            calculation.startTransactions();
+            customerTransactions.getTransactions().forEach(calculation::acceptTransaction);
+        }
+    }
+
+    private void evictExpiredJobs() {
+        var expiredBefore = clock.instant().minus(retention);
+        jobs.values().removeIf(job -> job.isExpired(expiredBefore));
+    }
+
+    private void delete(Path spooledBody) {
+        try {
+            Files.deleteIfExists(spooledBody);
+        }
+        catch (IOException e) {
+            logger.warn("Could not delete spooled request body " + spooledBody, e);
+        }
+    }
+
+    private interface JobInput {
+        void feed(StreamingRewardsCalculation calculation) throws IOException;
+    }
+}
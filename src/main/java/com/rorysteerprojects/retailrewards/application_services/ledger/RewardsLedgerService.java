@@ -0,0 +1,115 @@
+package com.rorysteerprojects.retailrewards.application_services.ledger;
+
+import com.rorysteerprojects.retailrewards.api.CustomerDTO;
+import com.rorysteerprojects.retailrewards.api.CustomerSummaryDTO;
+import com.rorysteerprojects.retailrewards.api.CustomerTransactionsDTO;
+import com.rorysteerprojects.retailrewards.api.LedgerAppendResultDTO;
+import com.rorysteerprojects.retailrewards.api.RetailTransactionDTO;
+import com.rorysteerprojects.retailrewards.application_services.parsers.CustomerParser;
+import com.rorysteerprojects.retailrewards.application_services.parsers.FieldParsers;
+import com.rorysteerprojects.retailrewards.application_services.parsers.RetailTransactionParser;
+import com.rorysteerprojects.retailrewards.application_services.parsers.ValidationRule;
+import com.rorysteerprojects.retailrewards.domain.CustomerIndex;
+import com.rorysteerprojects.retailrewards.domain.RewardsLedger;
+import com.rorysteerprojects.retailrewards.domain.RewardsTiers;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Appends transactions to the rewards ledger and reads customer summaries from it.
+ * <p>
+ * Each append is validated with the same rules as a rewards calculation, except that a transaction's customer may
+ * be either in the request or already in the ledger, and every transaction must be in or after the ledger's
+ * current three month window.  An append with any error changes nothing.
+ */
+@Component
+public class RewardsLedgerService {
+
+    private final CustomerParser customerParser;
+    private final RetailTransactionParser retailTransactionParser;
+    private final RewardsLedger rewardsLedger;
+
+    public RewardsLedgerService(CustomerParser customerParser,
+                                RetailTransactionParser retailTransactionParser,
+                                RewardsTiers rewardsTiers,
+                                @Value("${rewards.ledger.stripes:64}") int stripes) {
+        this.customerParser = customerParser;
+        this.retailTransactionParser = retailTransactionParser;
+        this.rewardsLedger = new RewardsLedger(stripes, rewardsTiers);
+    }
+
+    /**
+     * The customers the transactions refer to that are not in the request are looked up in the ledger together,
+     * before the transactions are validated, so the ledger's locks are taken once per stripe rather than once per
+     * transaction.
+     */
+    public LedgerAppendResultDTO append(CustomerTransactionsDTO customerTransactions) {
+        var customers = customerTransactions.getCustomers() != null ?
+                customerTransactions.getCustomers() :
+                Collections.<CustomerDTO>emptyList();
+        var customerParserResult = customerParser.parserCustomers(customers);
+        var errors = customerParserResult.validationErrors();
+        if (!errors.isLimitReached()) {
+            var transactions = customerTransactions.getTransactions();
+            var requestCustomers = customerParserResult.customerIndex();
+            var ledgerCustomers = rewardsLedger.findCustomers(customerIdsNotIn(requestCustomers, transactions));
+            var validatedTransactions = retailTransactionParser.validateTransactions(
+                    transactions,
+                    customerId -> requestCustomers.contains(customerId) || ledgerCustomers.contains(customerId),
+                    errors.newRemaining());
+            errors.addAll(validatedTransactions.validationErrors());
+            if (errors.isEmpty()) {
+                var appendResult = rewardsLedger.append(customerParserResult.customers(),
+                        validatedTransactions.retailTransactions());
+                switch (appendResult.status()) {
+                    case APPENDED -> {
+                        return new LedgerAppendResultDTO(appendResult.transactionsAppended(),
+                                appendResult.transactionsDropped(),
+                                Collections.emptyList(),
+                                Collections.emptyList(),
+                                Collections.emptyMap());
+                    }
+                    case SPANS_MORE_THAN_THREE_MONTHS ->
+                            errors.add(null, ValidationRule.TRANSACTIONS_SPAN_MORE_THAN_THREE_MONTHS, null);
+                    case BEFORE_WINDOW -> errors.add(null, ValidationRule.TRANSACTIONS_BEFORE_LEDGER_WINDOW, null);
+                }
+            }
+        }
+        return new LedgerAppendResultDTO(0, 0, errors.messages(), errors.list(), errors.countsByRule());
+    }
+
+    /**
+     * @return the distinct customer ids of the transactions that are not in {@code requestCustomers}, leaving out
+     * ids that do not parse, which validation reports
+     */
+    private static int[] customerIdsNotIn(CustomerIndex requestCustomers, List<RetailTransactionDTO> transactions) {
+        var seen = new CustomerIndex();
+        var customerIds = new int[transactions.size()];
+        var count = 0;
+        for (RetailTransactionDTO transaction : transactions) {
+            var customerId = FieldParsers.parseInt(transaction.getCustomerId());
+            if (customerId != FieldParsers.INVALID &&
+                    !requestCustomers.contains((int) customerId) &&
+                    seen.add((int) customerId, null)) {
+                customerIds[count++] = (int) customerId;
+            }
+        }
+        return Arrays.copyOf(customerIds, count);
+    }
+
+    public Optional<CustomerSummaryDTO> findCustomerSummary(int customerId) {
+        return rewardsLedger.find(customerId)
+                .map(entry -> new CustomerSummaryDTO(
+                        customerId,
+                        entry.customerName(),
+                        entry.rewards().monthlyTotals()[0],
+                        entry.rewards().monthlyTotals()[1],
+                        entry.rewards().monthlyTotals()[2],
+                        entry.rewards().threeMonthTotal()));
+    }
+}
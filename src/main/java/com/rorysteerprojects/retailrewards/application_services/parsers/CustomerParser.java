@@ -1,45 +1,76 @@
 package com.rorysteerprojects.retailrewards.application_services.parsers;
 
 import com.rorysteerprojects.retailrewards.api.CustomerDTO;
-import com.rorysteerprojects.retailrewards.config.ResourceLookup;
 import com.rorysteerprojects.retailrewards.domain.Customer;
+import com.rorysteerprojects.retailrewards.domain.CustomerIndex;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
 
+/**
+ * Parses and validates customers.  A request reports at most {@code rewards.validation.max-errors} errors, and
+ * with {@code rewards.validation.fail-fast} validation stops after the first customer with an error.
+ */
 @Component
 public class CustomerParser {
+
+    private final int maxErrors;
+    private final boolean failFast;
+
+    public CustomerParser() {
+        this(Integer.MAX_VALUE, false);
+    }
+
+    @Autowired
+    public CustomerParser(@Value("${rewards.validation.max-errors:1000}") int maxErrors,
+                          @Value("${rewards.validation.fail-fast:false}") boolean failFast) {
+        this.maxErrors = maxErrors;
+        this.failFast = failFast;
+    }
+
+    public ValidationErrors newValidationErrors() {
+        return new ValidationErrors(maxErrors, failFast);
+    }
+
     public CustomerParserResult parserCustomers(List<CustomerDTO> customers) {
+        var errors = newValidationErrors();
         if (customers.isEmpty()) {
-            return new CustomerParserResult(Collections.emptyList(), Collections.emptyList());
+            return new CustomerParserResult(Collections.emptyList(), new CustomerIndex(), errors);
         }
 
-        List<String> errors = customers.stream()
-                .filter(this::isCustomerIdInvalid)
-                .map(customer -> customer.toString() + " : " + ResourceLookup.getMessage("res_invalidCustomerId"))
-                .toList();
+        var customerIndex = new CustomerIndex(customers.size());
+        List<Customer> parsedCustomers = new ArrayList<>(customers.size());
+        for (int row = 0; row < customers.size() && !errors.isLimitReached(); row++) {
+            parseCustomer(customers.get(row), row, customerIndex, errors).ifPresent(parsedCustomers::add);
+        }
 
         return errors.isEmpty() ?
-                new CustomerParserResult(convertCustomers(customers), Collections.emptyList()) :
-                new CustomerParserResult(Collections.emptyList(), errors);
+                new CustomerParserResult(parsedCustomers, customerIndex, errors) :
+                new CustomerParserResult(Collections.emptyList(), new CustomerIndex(), errors);
     }
 
-    private boolean isCustomerIdInvalid(CustomerDTO customer) {
-        try {
-            Integer.parseInt(customer.getId());
-            return false;
+    /**
+     * Parses the customer and adds it to {@code customerIndex}, adding any errors to {@code errors} against
+     * {@code row}.  A customer whose id is already in the index is reported as a duplicate and is not added.
+     */
+    public Optional<Customer> parseCustomer(CustomerDTO customer,
+                                            Integer row,
+                                            CustomerIndex customerIndex,
+                                            ValidationErrors errors) {
+        var id = FieldParsers.parseInt(customer.getId());
+        if (id == FieldParsers.INVALID) {
+            errors.add(row, ValidationRule.CUSTOMER_HAS_INVALID_ID, customer);
+            return Optional.empty();
         }
-        catch (Exception e) {
-            return true;
+        if (!customerIndex.add((int) id, customer.getName())) {
+            errors.add(row, ValidationRule.CUSTOMER_HAS_DUPLICATE_ID, customer);
+            return Optional.empty();
         }
-    }
-
-    private List<Customer> convertCustomers(List<CustomerDTO> customers) {
-        return customers.stream()
-                .map(customer -> new Customer(Integer.parseInt(customer.getId()),
-                        customer.getName()))
-                .toList();
+        return Optional.of(new Customer((int) id, customer.getName()));
     }
 }
-
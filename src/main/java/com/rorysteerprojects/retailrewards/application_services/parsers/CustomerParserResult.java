@@ -1,7 +1,22 @@
 package com.rorysteerprojects.retailrewards.application_services.parsers;
 
 import com.rorysteerprojects.retailrewards.domain.Customer;
+import com.rorysteerprojects.retailrewards.domain.CustomerIndex;
 
 import java.util.List;
 
-public record CustomerParserResult(List<Customer> customers, List<String> errors) {}
+/**
+ * @param customerIndex the names of the parsed customers by id, empty if there are any errors
+ */
+public record CustomerParserResult(List<Customer> customers,
+                                   CustomerIndex customerIndex,
+                                   ValidationErrors validationErrors) {
+
+    public List<String> errors() {
+        return validationErrors.messages();
+    }
+
+    public ValidationRuleCounts ruleCounts() {
+        return validationErrors.ruleCounts();
+    }
+}
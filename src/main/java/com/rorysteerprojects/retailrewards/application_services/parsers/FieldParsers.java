@@ -0,0 +1,380 @@
+package com.rorysteerprojects.retailrewards.application_services.parsers;
+
+/**
+ * Exception free parsers for the field formats listed in the README: integer ids, ISO {@code yyyy-mm-dd} dates
+ * and decimal values.
+ * <p>
+ * Each parser accepts and rejects exactly the same input as the standard Java parser it stands in for
+ * ({@link Integer#parseInt(String)}, {@link java.time.LocalDate#parse(CharSequence)} and
+ * {@link Double#parseDouble(String)}), but reports bad input with the {@link #INVALID} status code instead of
+ * throwing.  Building an exception and its stack trace for every bad field is what made large payloads with many
+ * bad rows slow.  None of the parsers allocate.
+ * <p>
+ * Transaction values are parsed straight to a whole number of cents by {@link #parseCents(CharSequence)}, without
+ * going through a {@code double}.
+ */
+public final class FieldParsers {
+
+    /**
+     * Status code returned when the input cannot be parsed.  It lies outside the range of every valid result.
+     */
+    public static final long INVALID = Long.MIN_VALUE;
+
+    /**
+     * Status code returned by {@link #parseCents(CharSequence)} for a well formed value below zero.
+     */
+    public static final long NEGATIVE = Long.MIN_VALUE + 1;
+
+    private static final long[] POWERS_OF_TEN = {
+            1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L, 10_000_000L, 100_000_000L, 1_000_000_000L,
+            10_000_000_000L, 100_000_000_000L, 1_000_000_000_000L, 10_000_000_000_000L, 100_000_000_000_000L,
+            1_000_000_000_000_000L, 10_000_000_000_000_000L, 100_000_000_000_000_000L, 1_000_000_000_000_000_000L
+    };
+    private static final int CENTS_DIGITS = 2;
+    private static final long MAX_EXPONENT = 1_000_000L;
+
+    private static final long MIN_YEAR = -999_999_999L;
+    private static final long MAX_YEAR = 999_999_999L;
+    private static final int MAX_YEAR_DIGITS = 10;
+    private static final int MIN_YEAR_DIGITS = 4;
+    private static final long DAYS_0000_TO_1970 = (146097 * 5L) - (30L * 365L + 7L);
+
+    private FieldParsers() {
+    }
+
+    /**
+     * Parses a signed decimal int, as {@link Integer#parseInt(String)} does.
+     *
+     * @return the int value, or {@link #INVALID}
+     */
+    public static long parseInt(CharSequence text) {
+        if (text == null || text.length() == 0) {
+            return INVALID;
+        }
+        var length = text.length();
+        var i = 0;
+        var negative = false;
+        var firstChar = text.charAt(0);
+        if (firstChar < '0') {
+            if (firstChar == '-') {
+                negative = true;
+            }
+            else if (firstChar != '+') {
+                return INVALID;
+            }
+            if (length == 1) {
+                return INVALID;
+            }
+            i++;
+        }
+        var limit = negative ? -(long) Integer.MIN_VALUE : Integer.MAX_VALUE;
+        long result = 0;
+        while (i < length) {
+            var digit = Character.digit(text.charAt(i++), 10);
+            if (digit < 0) {
+                return INVALID;
+            }
+            result = result * 10 + digit;
+            if (result > limit) {
+                return INVALID;
+            }
+        }
+        return negative ? -result : result;
+    }
+
+    /**
+     * Parses an ISO local date such as {@code 2023-08-09}, as {@link java.time.LocalDate#parse(CharSequence)}
+     * does, including the strict check that the day exists in that month.
+     *
+     * @return the date as a count of days since 1970-01-01, or {@link #INVALID}
+     */
+    public static long parseIsoDate(CharSequence text) {
+        if (text == null) {
+            return INVALID;
+        }
+        var length = text.length();
+        var i = 0;
+        char sign = length > 0 ? text.charAt(0) : 0;
+        if (sign == '+' || sign == '-') {
+            i++;
+        }
+        var yearStart = i;
+        long year = 0;
+        while (i < length && i - yearStart < MAX_YEAR_DIGITS && isAsciiDigit(text.charAt(i))) {
+            year = year * 10 + (text.charAt(i++) - '0');
+        }
+        var yearDigits = i - yearStart;
+        if (yearDigits < MIN_YEAR_DIGITS ||
+                sign == '+' && yearDigits <= MIN_YEAR_DIGITS ||
+                sign != '+' && sign != '-' && yearDigits > MIN_YEAR_DIGITS ||
+                sign == '-' && year == 0) {
+            return INVALID;
+        }
+        year = sign == '-' ? -year : year;
+
+        if (length - i != 6 ||
+                text.charAt(i) != '-' ||
+                !isAsciiDigit(text.charAt(i + 1)) ||
+                !isAsciiDigit(text.charAt(i + 2)) ||
+                text.charAt(i + 3) != '-' ||
+                !isAsciiDigit(text.charAt(i + 4)) ||
+                !isAsciiDigit(text.charAt(i + 5))) {
+            return INVALID;
+        }
+        var month = (text.charAt(i + 1) - '0') * 10 + (text.charAt(i + 2) - '0');
+        var day = (text.charAt(i + 4) - '0') * 10 + (text.charAt(i + 5) - '0');
+        if (year < MIN_YEAR || year > MAX_YEAR || month < 1 || month > 12 || day < 1 || day > lengthOfMonth(year, month)) {
+            return INVALID;
+        }
+        return toEpochDay(year, month, day);
+    }
+
+    /**
+     * Checks that the text is a floating point value that {@link Double#parseDouble(String)} accepts: a decimal
+     * with an optional exponent and type suffix, a hexadecimal floating point literal, {@code NaN} or
+     * {@code Infinity}, optionally signed and surrounded by whitespace.
+     */
+    public static boolean isValidDouble(CharSequence text) {
+        if (text == null) {
+            return false;
+        }
+        var start = 0;
+        var end = text.length();
+        while (start < end && text.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && text.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        var i = start;
+        if (i < end && (text.charAt(i) == '+' || text.charAt(i) == '-')) {
+            i++;
+        }
+        if (i == end) {
+            return false;
+        }
+        var c = text.charAt(i);
+        if (c == 'N') {
+            return regionMatches(text, i, end, "NaN");
+        }
+        if (c == 'I') {
+            return regionMatches(text, i, end, "Infinity");
+        }
+        if (c == '0' && i + 1 < end && (text.charAt(i + 1) == 'x' || text.charAt(i + 1) == 'X')) {
+            return isValidHexDouble(text, i + 2, end);
+        }
+
+        var digits = 0;
+        var pointSeen = false;
+        for (; i < end; i++) {
+            c = text.charAt(i);
+            if (isAsciiDigit(c)) {
+                digits++;
+            }
+            else if (c == '.' && !pointSeen) {
+                pointSeen = true;
+            }
+            else if (c == '.') {
+                return false;
+            }
+            else {
+                break;
+            }
+        }
+        if (digits == 0) {
+            return false;
+        }
+        if (i < end && (text.charAt(i) == 'e' || text.charAt(i) == 'E')) {
+            i = skipExponent(text, i + 1, end);
+            if (i < 0) {
+                return false;
+            }
+        }
+        return i == end || i == end - 1 && isTypeSuffix(text.charAt(i));
+    }
+
+    /**
+     * Parses a decimal value such as {@code 101.50} straight to a whole number of cents.  Digits below a cent are
+     * dropped, as rewards are only calculated on whole dollars.
+     * <p>
+     * Accepts the decimal values that {@link #isValidDouble(CharSequence)} accepts, including an exponent and type
+     * suffix.  {@code NaN}, {@code Infinity}, hexadecimal literals and values too large to count in cents are
+     * not amounts of money and are {@link #INVALID}.
+     *
+     * @return the number of cents, {@link #NEGATIVE} if the value is below zero, or {@link #INVALID}
+     */
+    public static long parseCents(CharSequence text) {
+        if (!isValidDouble(text)) {
+            return INVALID;
+        }
+        var start = 0;
+        var end = text.length();
+        while (text.charAt(start) <= ' ') {
+            start++;
+        }
+        while (text.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        var negative = text.charAt(start) == '-';
+        if (negative || text.charAt(start) == '+') {
+            start++;
+        }
+        var first = text.charAt(start);
+        if (first == 'N' || first == 'I' || start + 1 < end && (text.charAt(start + 1) == 'x' || text.charAt(start + 1) == 'X')) {
+            return INVALID;
+        }
+
+        var mantissaEnd = start;
+        var pointIndex = -1;
+        while (mantissaEnd < end && (isAsciiDigit(text.charAt(mantissaEnd)) || text.charAt(mantissaEnd) == '.')) {
+            if (text.charAt(mantissaEnd) == '.') {
+                pointIndex = mantissaEnd;
+            }
+            mantissaEnd++;
+        }
+        long exponent = 0;
+        if (mantissaEnd < end && (text.charAt(mantissaEnd) == 'e' || text.charAt(mantissaEnd) == 'E')) {
+            var i = mantissaEnd + 1;
+            var negativeExponent = text.charAt(i) == '-';
+            if (negativeExponent || text.charAt(i) == '+') {
+                i++;
+            }
+            for (; i < end && isAsciiDigit(text.charAt(i)); i++) {
+                exponent = Math.min(exponent * 10 + (text.charAt(i) - '0'), MAX_EXPONENT);
+            }
+            exponent = negativeExponent ? -exponent : exponent;
+        }
+
+        if (negative) {
+            return isZero(text, start, mantissaEnd) ? 0 : NEGATIVE;
+        }
+
+        var pointPosition = pointIndex < 0 ? mantissaEnd : pointIndex;
+        long cents = 0;
+        for (int i = start; i < mantissaEnd; i++) {
+            var digit = text.charAt(i) - '0';
+            if (i == pointIndex || digit == 0) {
+                continue;
+            }
+            var powerOfTen = (i < pointPosition ? pointPosition - i - 1 : pointPosition - i) + exponent + CENTS_DIGITS;
+            if (powerOfTen < 0) {
+                continue;
+            }
+            if (powerOfTen >= POWERS_OF_TEN.length) {
+                return INVALID;
+            }
+            var amount = digit * POWERS_OF_TEN[(int) powerOfTen];
+            if (amount > Long.MAX_VALUE - cents) {
+                return INVALID;
+            }
+            cents += amount;
+        }
+        return cents;
+    }
+
+    static boolean isAsciiDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isZero(CharSequence text, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (text.charAt(i) >= '1' && text.charAt(i) <= '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isAsciiHexDigit(char c) {
+        return isAsciiDigit(c) || c >= 'a' && c <= 'f' || c >= 'A' && c <= 'F';
+    }
+
+    private static boolean isValidHexDouble(CharSequence text, int i, int end) {
+        var integerDigits = 0;
+        while (i < end && isAsciiHexDigit(text.charAt(i))) {
+            integerDigits++;
+            i++;
+        }
+        var fractionDigits = 0;
+        var pointSeen = i < end && text.charAt(i) == '.';
+        if (pointSeen) {
+            i++;
+            while (i < end && isAsciiHexDigit(text.charAt(i))) {
+                fractionDigits++;
+                i++;
+            }
+        }
+        if (integerDigits == 0 && fractionDigits == 0) {
+            return false;
+        }
+        if (i == end || (text.charAt(i) != 'p' && text.charAt(i) != 'P')) {
+            return false;
+        }
+        i = skipExponent(text, i + 1, end);
+        return i >= 0 && (i == end || i == end - 1 && isTypeSuffix(text.charAt(i)));
+    }
+
+    /**
+     * @return the index after the exponent's optional sign and its digits, or -1 if there are no digits
+     */
+    private static int skipExponent(CharSequence text, int i, int end) {
+        if (i < end && (text.charAt(i) == '+' || text.charAt(i) == '-')) {
+            i++;
+        }
+        var digitsStart = i;
+        while (i < end && isAsciiDigit(text.charAt(i))) {
+            i++;
+        }
+        return i == digitsStart ? -1 : i;
+    }
+
+    private static boolean isTypeSuffix(char c) {
+        return c == 'f' || c == 'F' || c == 'd' || c == 'D';
+    }
+
+    private static boolean regionMatches(CharSequence text, int start, int end, String expected) {
+        if (end - start != expected.length()) {
+            return false;
+        }
+        for (int i = 0; i < expected.length(); i++) {
+            if (text.charAt(start + i) != expected.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isLeapYear(long year) {
+        return (year & 3) == 0 && (year % 100 != 0 || year % 400 == 0);
+    }
+
+    private static int lengthOfMonth(long year, int month) {
+        return switch (month) {
+            case 2 -> isLeapYear(year) ? 29 : 28;
+            case 4, 6, 9, 11 -> 30;
+            default -> 31;
+        };
+    }
+
+    /**
+     * The same calculation as {@link java.time.LocalDate#toEpochDay()}.
+     */
+    private static long toEpochDay(long year, int month, int day) {
+        long total = 365 * year;
+        if (year >= 0) {
+            total += (year + 3) / 4 - (year + 99) / 100 + (year + 399) / 400;
+        }
+        else {
+            total -= year / -4 - year / -100 + year / -400;
+        }
+        total += (367L * month - 362) / 12;
+        total += day - 1;
+        if (month > 2) {
+            total--;
+            if (!isLeapYear(year)) {
+                total--;
+            }
+        }
+        return total - DAYS_0000_TO_1970;
+    }
+}
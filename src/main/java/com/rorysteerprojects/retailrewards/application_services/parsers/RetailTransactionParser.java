@@ -1,127 +1,219 @@
 package com.rorysteerprojects.retailrewards.application_services.parsers;
 
 import com.rorysteerprojects.retailrewards.api.RetailTransactionDTO;
-import com.rorysteerprojects.retailrewards.config.ResourceLookup;
-import com.rorysteerprojects.retailrewards.domain.Customer;
+import com.rorysteerprojects.retailrewards.domain.CalendarMonths;
+import com.rorysteerprojects.retailrewards.domain.CustomerIndex;
 import com.rorysteerprojects.retailrewards.domain.RetailTransaction;
+import com.rorysteerprojects.retailrewards.domain.TransactionBatch;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
-import java.time.LocalDate;
 import java.util.*;
-import java.util.function.Predicate;
-import java.util.stream.Collectors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.IntPredicate;
 
+/**
+ * Parses and validates transactions.  A request reports at most {@code rewards.validation.max-errors} errors,
+ * and with {@code rewards.validation.fail-fast} validation stops after the first transaction with an error; either
+ * way no more transactions are parsed once the limit is reached.
+ */
 @Component
 public class RetailTransactionParser {
 
-    public RetailTransactionParserResult parseTransactions(List<RetailTransactionDTO> transactions,
-                                                           List<Customer> customers) {
-        if (transactions.isEmpty()) {
-            return new RetailTransactionParserResult(Collections.emptyList(), Collections.emptyList());
-        }
-        List<String> errors = validateTransactions(transactions, customers);
-        return errors.isEmpty() ?
-                new RetailTransactionParserResult(transactions.stream().map(this::parseTransaction).toList(),
-                        Collections.emptyList()) :
-                new RetailTransactionParserResult(Collections.emptyList(), errors);
+    private final int maxErrors;
+    private final boolean failFast;
+
+    public RetailTransactionParser() {
+        this(Integer.MAX_VALUE, false);
     }
 
-    private List<String> validateTransactions(List<RetailTransactionDTO> transactions, List<Customer> customers) {
-        Map<Integer, Customer> customersById = customers.stream()
-                .collect(Collectors.toMap(Customer::id, customer -> customer));
-        List<String> errors = transactions.stream()
-                .map(transaction -> validateTransaction(transaction, customersById))
-                .toList()
-                .stream()
-                .flatMap(Collection::stream)
-                .toList();
+    @Autowired
+    public RetailTransactionParser(@Value("${rewards.validation.max-errors:1000}") int maxErrors,
+                                   @Value("${rewards.validation.fail-fast:false}") boolean failFast) {
+        this.maxErrors = maxErrors;
+        this.failFast = failFast;
+    }
 
-        return errors.isEmpty() && isTransactionsSpanMoreThanThreeCompleteMonths(transactions) ?
-                List.of(ResourceLookup.getMessage("res_transactionsSpanMoreThanThreeMonths")) :
-                errors;
+    public ValidationErrors newValidationErrors() {
+        return new ValidationErrors(maxErrors, failFast);
+    }
 
+    /**
+     * Applies the per transaction validation rules to every transaction, checking the customer id of each
+     * transaction with {@code isKnownCustomer} and adding the errors to {@code errors}, whose limit is what is left
+     * of the request's once its customers have been validated.
+     */
+    public ValidatedTransactions validateTransactions(List<RetailTransactionDTO> transactions,
+                                                      IntPredicate isKnownCustomer,
+                                                      ValidationErrors errors) {
+        return validateChunk(transactions, 0, isKnownCustomer, errors);
     }
 
-    private List<String> validateTransaction(RetailTransactionDTO transaction, Map<Integer, Customer> customersById) {
-        List<String> errors = new ArrayList<>();
-        for (Map.Entry<Predicate<RetailTransactionDTO>, String> entry : validators.entrySet()) {
-            if (entry.getKey().test(transaction)) {
-                errors.add(transaction + " : " + ResourceLookup.getMessage(entry.getValue()));
+    /**
+     * Validates the transactions in chunks of {@code chunkSize} rows on {@code pool}.  Each chunk is validated
+     * independently and the chunks are combined in list order, so the result and the order of the errors are the
+     * same as {@link #validateTransactions(List, IntPredicate, ValidationErrors)}.  Once the chunks combined so far
+     * reach the error limit, the chunks that have not started are cancelled.
+     */
+    public ValidatedTransactions validateTransactions(List<RetailTransactionDTO> transactions,
+                                                      IntPredicate isKnownCustomer,
+                                                      ForkJoinPool pool,
+                                                      int chunkSize,
+                                                      ValidationErrors errors) {
+        if (transactions.size() <= chunkSize) {
+            return validateTransactions(transactions, isKnownCustomer, errors);
+        }
+
+        List<ForkJoinTask<ValidatedTransactions>> tasks = new ArrayList<>();
+        for (int from = 0; from < transactions.size(); from += chunkSize) {
+            var chunk = transactions.subList(from, Math.min(from + chunkSize, transactions.size()));
+            var firstRow = from;
+            tasks.add(pool.submit(() -> validateChunk(chunk, firstRow, isKnownCustomer, errors.newEmpty())));
+        }
+        List<ValidatedTransactions> validatedChunks = new ArrayList<>(tasks.size());
+        for (int i = 0; i < tasks.size(); i++) {
+            if (errors.isLimitReached()) {
+                tasks.subList(i, tasks.size()).forEach(task -> task.cancel(false));
+                break;
             }
+            var validatedChunk = tasks.get(i).join();
+            validatedChunks.add(validatedChunk);
+            errors.addAll(validatedChunk.validationErrors());
         }
-        if (isCustomerIdDoesNotExistInCustomerList(transaction, customersById)) {
-            errors.add(transaction + " : " + ResourceLookup.getMessage("res_transactionHasNotFoundCustomerId"));
+        return combineChunks(validatedChunks, errors);
+    }
+
+    /**
+     * Applies the rules that cover the transactions as a whole.  These are only checked when every transaction
+     * is valid.
+     */
+    public RetailTransactionParserResult checkSpan(ValidatedTransactions validatedTransactions) {
+        var errors = validatedTransactions.validationErrors();
+        if (errors.isEmpty() &&
+                isSpanMoreThanThreeCompleteMonths(validatedTransactions.earliestEpochDay(),
+                        validatedTransactions.latestEpochDay())) {
+            errors.add(null, ValidationRule.TRANSACTIONS_SPAN_MORE_THAN_THREE_MONTHS, null);
         }
-        return errors;
+        return errors.isEmpty() ?
+                new RetailTransactionParserResult(validatedTransactions.retailTransactions(), errors) :
+                new RetailTransactionParserResult(new TransactionBatch(0), errors);
     }
 
-    private boolean isCustomerIdDoesNotExistInCustomerList(RetailTransactionDTO transaction, Map<Integer, Customer> customersById) {
-        return !customersById.isEmpty() &&
-                !isInvalidCustomerId.test(transaction) &&
-                customersById.get(Integer.parseInt(transaction.getCustomerId())) == null;
+    /**
+     * Parses and validates the transaction, adding any errors to {@code errors} against {@code row}.
+     */
+    public Optional<RetailTransaction> parseTransaction(RetailTransactionDTO transaction,
+                                                        Integer row,
+                                                        CustomerIndex customerIndex,
+                                                        ValidationErrors errors) {
+        return Optional.ofNullable(parseAndValidate(transaction, row, knownCustomers(customerIndex), errors));
     }
 
-    private boolean isTransactionsSpanMoreThanThreeCompleteMonths(List<RetailTransactionDTO> transactions) {
-        var transactionWithEarliestDate = transactions.stream()
-                .min(Comparator.comparing(
-                        transaction -> LocalDate.parse(transaction.getDate())));
-        var transactionWithLatestDate = transactions.stream()
-                .max(Comparator.comparing(
-                        transaction -> LocalDate.parse(transaction.getDate())));
-
-        var earliestDate = LocalDate.parse(transactionWithEarliestDate.get().getDate());
-        var latestDate = LocalDate.parse(transactionWithLatestDate.get().getDate());
-        var threeMonthSpan = LocalDate.of(earliestDate.getYear(), earliestDate.getMonth(), 1)
-                .plusMonths(3)
-                .minusDays(1);
-
-        return latestDate.isAfter(threeMonthSpan);
+    /**
+     * @return whether a customer id is in {@code customerIndex}.  An empty index means the customers are not known,
+     * so every customer id is accepted.
+     */
+    public static IntPredicate knownCustomers(CustomerIndex customerIndex) {
+        return customerIndex.isEmpty() ? customerId -> true : customerIndex::contains;
     }
 
-    private RetailTransaction parseTransaction(RetailTransactionDTO transaction) {
-        return new RetailTransaction(
-                Integer.parseInt(transaction.getId()),
-                LocalDate.parse(transaction.getDate()),
-                Integer.parseInt(transaction.getCustomerId()),
-                Double.parseDouble(transaction.getValue()));
+    /**
+     * Parses every field of the transaction exactly once, applying each validation rule to the parsed field.
+     * Every rule that fails is added to {@code errors}.
+     *
+     * @return the parsed transaction, or null if any rule failed
+     */
+    private RetailTransaction parseAndValidate(RetailTransactionDTO transaction,
+                                               Integer row,
+                                               IntPredicate isKnownCustomer,
+                                               ValidationErrors errors) {
+        var valid = true;
+
+        var id = FieldParsers.parseInt(transaction.getId());
+        if (id == FieldParsers.INVALID) {
+            errors.add(row, ValidationRule.TRANSACTION_HAS_INVALID_ID, transaction);
+            valid = false;
+        }
+
+        var epochDay = FieldParsers.parseIsoDate(transaction.getDate());
+        // Dates are held as int epoch days, which covers years to well beyond +/-5,000,000.
+        if (epochDay == FieldParsers.INVALID || epochDay != (int) epochDay) {
+            errors.add(row, ValidationRule.TRANSACTION_HAS_INVALID_DATE, transaction);
+            valid = false;
+        }
+
+        var customerId = FieldParsers.parseInt(transaction.getCustomerId());
+        if (customerId == FieldParsers.INVALID) {
+            errors.add(row, ValidationRule.TRANSACTION_HAS_INVALID_CUSTOMER_ID, transaction);
+            valid = false;
+        }
+
+        var valueInCents = FieldParsers.parseCents(transaction.getValue());
+        if (valueInCents == FieldParsers.INVALID) {
+            errors.add(row, ValidationRule.TRANSACTION_HAS_INVALID_VALUE, transaction);
+            valid = false;
+        }
+        else if (valueInCents == FieldParsers.NEGATIVE) {
+            errors.add(row, ValidationRule.TRANSACTION_HAS_NEGATIVE_VALUE, transaction);
+            valid = false;
+        }
+
+        if (customerId != FieldParsers.INVALID && !isKnownCustomer.test((int) customerId)) {
+            errors.add(row, ValidationRule.TRANSACTION_HAS_NOT_FOUND_CUSTOMER_ID, transaction);
+            valid = false;
+        }
+
+        return valid ?
+                new RetailTransaction((int) id, (int) epochDay, (int) customerId, valueInCents) :
+                null;
     }
 
-    private static final Predicate<String> isInvalidInteger = integerString -> {
-        try {
-            Integer.parseInt(integerString);
-            return false;
-        } catch (Exception e) {
-            return true;
+    private ValidatedTransactions validateChunk(List<RetailTransactionDTO> transactions,
+                                                int firstRow,
+                                                IntPredicate isKnownCustomer,
+                                                ValidationErrors errors) {
+        var retailTransactions = new TransactionBatch(transactions.size());
+        var earliestEpochDay = Integer.MAX_VALUE;
+        var latestEpochDay = Integer.MIN_VALUE;
+        for (int i = 0; i < transactions.size() && !errors.isLimitReached(); i++) {
+            var retailTransaction = parseAndValidate(transactions.get(i), firstRow + i, isKnownCustomer, errors);
+            if (retailTransaction != null) {
+                retailTransactions.add(retailTransaction);
+                earliestEpochDay = Math.min(earliestEpochDay, retailTransaction.epochDay());
+                latestEpochDay = Math.max(latestEpochDay, retailTransaction.epochDay());
+            }
         }
-    };
-    private static final Predicate<RetailTransactionDTO> isInvalidTransactionId = transaction ->
-            isInvalidInteger.test(transaction.getId());;
-    private static final Predicate<RetailTransactionDTO> isInvalidDate = transaction -> {
-        try {
-            LocalDate.parse(transaction.getDate());
-            return false;
-        } catch (Exception e) {
-            return true;
+        return new ValidatedTransactions(retailTransactions, errors, earliestEpochDay, latestEpochDay);
+    }
+
+    /**
+     * @param errors the errors of the chunks, already combined in order
+     */
+    private ValidatedTransactions combineChunks(List<ValidatedTransactions> validatedChunks, ValidationErrors errors) {
+        var earliestEpochDay = Integer.MAX_VALUE;
+        var latestEpochDay = Integer.MIN_VALUE;
+        int transactionCount = 0;
+        for (ValidatedTransactions validatedChunk : validatedChunks) {
+            earliestEpochDay = Math.min(earliestEpochDay, validatedChunk.earliestEpochDay());
+            latestEpochDay = Math.max(latestEpochDay, validatedChunk.latestEpochDay());
+            transactionCount += validatedChunk.retailTransactions().size();
+        }
+
+        var retailTransactions = new TransactionBatch(errors.isEmpty() ? transactionCount : 0);
+        if (errors.isEmpty()) {
+            validatedChunks.forEach(validatedChunk -> retailTransactions.addAll(validatedChunk.retailTransactions()));
         }
-    };
-    private static final Predicate<RetailTransactionDTO> isInvalidCustomerId = transaction ->
-            isInvalidInteger.test(transaction.getCustomerId());
-    private static final Predicate<RetailTransactionDTO> isInvalidValue = transaction -> {
-        try {
-            Double.parseDouble(transaction.getValue());
+        return new ValidatedTransactions(retailTransactions, errors, earliestEpochDay, latestEpochDay);
+    }
+
+    private boolean isSpanMoreThanThreeCompleteMonths(int earliestEpochDay, int latestEpochDay) {
+        if (earliestEpochDay > latestEpochDay) {
             return false;
-        } catch (Exception e) {
-            return true;
         }
-    };
-    private static final Predicate<RetailTransactionDTO> isNegativeValue = transaction ->
-            !isInvalidValue.test(transaction) && Double.parseDouble(transaction.getValue()) < 0;
-    private static final Map<Predicate<RetailTransactionDTO>, String> validators = Map.of(
-            isInvalidTransactionId, "res_transactionHasInvalidId",
-            isInvalidDate, "res_transactionHasInvalidDate",
-            isInvalidCustomerId, "res_transactionHasInvalidCustomerId",
-            isInvalidValue, "res_transactionHasInvalidValue",
-            isNegativeValue, "res_transactionHasNegativeValue"
-    );
-}
+        var startOfFourthMonth = CalendarMonths.firstDayOf(CalendarMonths.monthOf(earliestEpochDay) + 3);
 
+        return latestEpochDay >= startOfFourthMonth;
+    }
+}
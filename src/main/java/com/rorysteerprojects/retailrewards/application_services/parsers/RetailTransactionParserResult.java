@@ -1,7 +1,16 @@
 package com.rorysteerprojects.retailrewards.application_services.parsers;
 
-import com.rorysteerprojects.retailrewards.domain.RetailTransaction;
+import com.rorysteerprojects.retailrewards.domain.TransactionBatch;
 
 import java.util.List;
 
-public record RetailTransactionParserResult(List<RetailTransaction> retailTransactions, List<String> errors) {}
+public record RetailTransactionParserResult(TransactionBatch retailTransactions, ValidationErrors validationErrors) {
+
+    public List<String> errors() {
+        return validationErrors.messages();
+    }
+
+    public ValidationRuleCounts ruleCounts() {
+        return validationErrors.ruleCounts();
+    }
+}
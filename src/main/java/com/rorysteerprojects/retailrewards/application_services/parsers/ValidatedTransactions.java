@@ -0,0 +1,24 @@
+package com.rorysteerprojects.retailrewards.application_services.parsers;
+
+import com.rorysteerprojects.retailrewards.domain.TransactionBatch;
+
+import java.util.List;
+
+/**
+ * Transactions that have been validated row by row but not yet checked as a whole.  The earliest and latest
+ * dates are the epoch days of the valid transactions, and are {@link Integer#MAX_VALUE} and
+ * {@link Integer#MIN_VALUE} if there are none.
+ */
+public record ValidatedTransactions(TransactionBatch retailTransactions,
+                                    ValidationErrors validationErrors,
+                                    int earliestEpochDay,
+                                    int latestEpochDay) {
+
+    public List<String> errors() {
+        return validationErrors.messages();
+    }
+
+    public ValidationRuleCounts ruleCounts() {
+        return validationErrors.ruleCounts();
+    }
+}
@@ -0,0 +1,158 @@
+package com.rorysteerprojects.retailrewards.application_services.parsers;
+
+import com.rorysteerprojects.retailrewards.api.ValidationErrorDTO;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The validation errors of one request, keeping at most {@code maxErrors} of them.
+ * <p>
+ * Once the limit is reached, or once a row has failed in fail fast mode, {@link #isLimitReached()} tells the
+ * parsers to stop validating.  Errors over the limit are dropped before their message is rendered, and the rule
+ * counts are of the errors kept, so they are the same however the rows were split between threads.
+ */
+public class ValidationErrors {
+
+    private final int maxErrors;
+    private final boolean failFast;
+    // Created on the first error, as most rows have none.
+    private List<ValidationErrorDTO> errors;
+    private ValidationRuleCounts ruleCounts;
+
+    public ValidationErrors() {
+        this(Integer.MAX_VALUE, false);
+    }
+
+    /**
+     * @throws IllegalArgumentException if {@code maxErrors} is less than 1
+     */
+    public ValidationErrors(int maxErrors, boolean failFast) {
+        if (maxErrors < 1) {
+            throw new IllegalArgumentException("maxErrors must be at least 1");
+        }
+        this.maxErrors = maxErrors;
+        this.failFast = failFast;
+    }
+
+    /**
+     * A new, empty set of errors with the same limits.
+     */
+    public ValidationErrors newEmpty() {
+        return new ValidationErrors(maxErrors, failFast);
+    }
+
+    /**
+     * A new, empty set of errors limited to what is left of this one's limit, for rows validated after these.
+     * Call it only while {@link #isLimitReached()} is false.
+     */
+    public ValidationErrors newRemaining() {
+        return new ValidationErrors(Math.max(1, maxErrors - size()), failFast);
+    }
+
+    /**
+     * Adds an error for the row, rendering its message as {@code subject : message}, or as just the rule's message
+     * if there is no subject.  The error is dropped if the limit has been reached.
+     *
+     * @param row the index of the customer or transaction in its list, or null for the request as a whole
+     */
+    public void add(Integer row, ValidationRule rule, Object subject) {
+        if (size() >= maxErrors) {
+            return;
+        }
+        if (errors == null) {
+            errors = new ArrayList<>();
+        }
+        errors.add(new ValidationErrorDTO(row != null ? row.longValue() : null,
+                rule.getField(),
+                rule.name(),
+                subject != null ? subject + " : " + rule.getMessage() : rule.getMessage()));
+        ruleCounts().increment(rule);
+    }
+
+    /**
+     * Adds the errors of {@code other}, in order, as far as the limit allows.
+     */
+    public void addAll(ValidationErrors other) {
+        addAll(other, 0);
+    }
+
+    /**
+     * Adds the errors of {@code other}, in order, as far as the limit allows, moving the row of each error that
+     * has one on by {@code rowOffset}.  Used when {@code other} validated rows from part way through a list.
+     */
+    public void addAll(ValidationErrors other, long rowOffset) {
+        for (ValidationErrorDTO error : other.list()) {
+            if (size() >= maxErrors) {
+                return;
+            }
+            if (errors == null) {
+                errors = new ArrayList<>();
+            }
+            errors.add(rowOffset == 0 || error.getRow() == null ? error : new ValidationErrorDTO(
+                    error.getRow() + rowOffset, error.getField(), error.getRule(), error.getMessage()));
+            ruleCounts().increment(ValidationRule.valueOf(error.getRule()));
+        }
+    }
+
+    /**
+     * Prefixes the message of every error from index {@code firstError} on.
+     */
+    public void prefixMessages(int firstError, String prefix) {
+        for (int i = firstError; i < size(); i++) {
+            var error = errors.get(i);
+            errors.set(i, new ValidationErrorDTO(error.getRow(),
+                    error.getField(),
+                    error.getRule(),
+                    prefix + error.getMessage()));
+        }
+    }
+
+    /**
+     * @return true once no more rows need to be validated: {@code maxErrors} errors have been kept, or in fail
+     * fast mode any error has
+     */
+    public boolean isLimitReached() {
+        return failFast ? size() > 0 : size() >= maxErrors;
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public int size() {
+        return errors != null ? errors.size() : 0;
+    }
+
+    public List<ValidationErrorDTO> list() {
+        return errors != null ? Collections.unmodifiableList(errors) : Collections.emptyList();
+    }
+
+    public List<String> messages() {
+        return list().stream().map(ValidationErrorDTO::getMessage).toList();
+    }
+
+    public ValidationRuleCounts ruleCounts() {
+        if (ruleCounts == null) {
+            ruleCounts = new ValidationRuleCounts();
+        }
+        return ruleCounts;
+    }
+
+    /**
+     * @return the number of errors kept for each rule that failed, by rule code in the order of the rules
+     */
+    public Map<String, Integer> countsByRule() {
+        Map<String, Integer> countsByRule = new LinkedHashMap<>();
+        for (ValidationRule rule : ValidationRule.values()) {
+            var count = ruleCounts().get(rule);
+            if (count > 0) {
+                countsByRule.put(rule.name(), count);
+            }
+        }
+        return countsByRule;
+    }
+}
@@ -0,0 +1,42 @@
+package com.rorysteerprojects.retailrewards.application_services.parsers;
+
+import com.rorysteerprojects.retailrewards.config.ResourceLookup;
+
+/**
+ * The validation rules, each with the field it checks and its message, which is looked up once.  The rules that
+ * cover the request as a whole have no field.
+ */
+public enum ValidationRule {
+    CUSTOMER_HAS_INVALID_ID("res_invalidCustomerId", "id"),
+    CUSTOMER_HAS_DUPLICATE_ID("res_duplicateCustomerId", "id"),
+    TRANSACTION_HAS_INVALID_ID("res_transactionHasInvalidId", "id"),
+    TRANSACTION_HAS_INVALID_DATE("res_transactionHasInvalidDate", "date"),
+    TRANSACTION_HAS_INVALID_CUSTOMER_ID("res_transactionHasInvalidCustomerId", "customerId"),
+    TRANSACTION_HAS_INVALID_VALUE("res_transactionHasInvalidValue", "value"),
+    TRANSACTION_HAS_NEGATIVE_VALUE("res_transactionHasNegativeValue", "value"),
+    TRANSACTION_HAS_NOT_FOUND_CUSTOMER_ID("res_transactionHasNotFoundCustomerId", "customerId"),
+    TRANSACTIONS_SPAN_MORE_THAN_THREE_MONTHS("res_transactionsSpanMoreThanThreeMonths", null),
+    TRANSACTIONS_BEFORE_LEDGER_WINDOW("res_transactionsBeforeLedgerWindow", null);
+
+    private final String messageKey;
+    private final String field;
+    private final String message;
+
+    ValidationRule(String messageKey, String field) {
+        this.messageKey = messageKey;
+        this.field = field;
+        this.message = ResourceLookup.getMessage(messageKey);
+    }
+
+    public String getMessageKey() {
+        return messageKey;
+    }
+
+    public String getField() {
+        return field;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+}
@@ -0,0 +1,25 @@
+package com.rorysteerprojects.retailrewards.application_services.parsers;
+
+/**
+ * The number of times each {@link ValidationRule} failed while parsing one request.
+ */
+public class ValidationRuleCounts {
+
+    private static final ValidationRule[] RULES = ValidationRule.values();
+
+    private final int[] counts = new int[RULES.length];
+
+    public void increment(ValidationRule rule) {
+        counts[rule.ordinal()]++;
+    }
+
+    public void addAll(ValidationRuleCounts other) {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] += other.counts[i];
+        }
+    }
+
+    public int get(ValidationRule rule) {
+        return counts[rule.ordinal()];
+    }
+}
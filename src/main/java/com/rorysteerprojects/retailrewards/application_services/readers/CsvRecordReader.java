@@ -0,0 +1,120 @@
+package com.rorysteerprojects.retailrewards.application_services.readers;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads RFC 4180 CSV one record at a time from a UTF-8 stream.
+ * <p>
+ * Fields may be quoted, quoted fields may contain commas, line breaks and doubled quotes, and records may end with
+ * either CRLF or LF.  A leading byte order mark is skipped.  Only the current record is held in memory.
+ */
+class CsvRecordReader {
+
+    private static final int BYTE_ORDER_MARK = '\uFEFF';
+
+    private final Reader reader;
+    private final StringBuilder field = new StringBuilder();
+    private long lineNumber = 1;
+    private long recordLineNumber;
+    private int next;
+
+    CsvRecordReader(InputStream inputStream) throws IOException {
+        this.reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+        next = reader.read();
+        if (next == BYTE_ORDER_MARK) {
+            next = reader.read();
+        }
+    }
+
+    /**
+     * @return the fields of the next record, or null at the end of the stream.  Blank lines are skipped.
+     */
+    List<String> readRecord() throws IOException {
+        while (next == '\r' || next == '\n') {
+            skipLineBreak();
+        }
+        if (next == -1) {
+            return null;
+        }
+        recordLineNumber = lineNumber;
+        List<String> fields = new ArrayList<>();
+        while (true) {
+            fields.add(readField());
+            if (next == ',') {
+                next = reader.read();
+            }
+            else {
+                if (next != -1) {
+                    skipLineBreak();
+                }
+                return fields;
+            }
+        }
+    }
+
+    /**
+     * @return the line the last record returned by {@link #readRecord()} started on, counting from 1
+     */
+    long recordLineNumber() {
+        return recordLineNumber;
+    }
+
+    /**
+     * @return the line the reader is on; once the stream is exhausted this is one more than the number of
+     * complete lines read
+     */
+    long lineNumber() {
+        return lineNumber;
+    }
+
+    private String readField() throws IOException {
+        field.setLength(0);
+        if (next != '"') {
+            while (next != ',' && next != '\r' && next != '\n' && next != -1) {
+                field.append((char) next);
+                next = reader.read();
+            }
+            return field.toString();
+        }
+
+        var quoteLineNumber = lineNumber;
+        next = reader.read();
+        while (true) {
+            if (next == -1) {
+                throw new MalformedCsvException(quoteLineNumber, "quoted field is not closed");
+            }
+            if (next == '"') {
+                next = reader.read();
+                if (next != '"') {
+                    break;
+                }
+            }
+            if (next == '\n') {
+                lineNumber++;
+            }
+            field.append((char) next);
+            next = reader.read();
+        }
+        if (next != ',' && next != '\r' && next != '\n' && next != -1) {
+            throw new MalformedCsvException(lineNumber, "unexpected character after quoted field");
+        }
+        return field.toString();
+    }
+
+    private void skipLineBreak() throws IOException {
+        if (next == '\r') {
+            next = reader.read();
+        }
+        if (next == '\n') {
+            next = reader.read();
+        }
+        lineNumber++;
+    }
+}
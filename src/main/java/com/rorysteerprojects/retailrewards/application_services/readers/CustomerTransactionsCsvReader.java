@@ -0,0 +1,90 @@
+package com.rorysteerprojects.retailrewards.application_services.readers;
+
+import com.rorysteerprojects.retailrewards.api.CustomerDTO;
+import com.rorysteerprojects.retailrewards.api.RetailTransactionDTO;
+import com.rorysteerprojects.retailrewards.application_services.StreamingRewardsCalculation;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Function;
+
+/**
+ * Reads customers and transactions from CSV, one record at a time, and feeds each row straight into a
+ * {@link StreamingRewardsCalculation}.
+ * <p>
+ * The first record of each stream is a header naming the columns ({@code id,name} for customers and
+ * {@code id,date,customerId,value} for transactions) in any order and any case.  A column that is missing, or a
+ * row that is too short to reach it, reads as a missing field and fails validation in the same way as the JSON
+ * request body.
+ */
+@Component
+public class CustomerTransactionsCsvReader {
+
+    public void readCustomers(InputStream customersCsv, StreamingRewardsCalculation calculation) throws IOException {
+        var csv = new CsvRecordReader(customersCsv);
+        var header = csv.readRecord();
+        calculation.startCustomers();
+        if (header == null) {
+            return;
+        }
+        var toCustomer = customerColumns(header);
+        List<String> fields;
+        while ((fields = csv.readRecord()) != null) {
+            calculation.acceptCustomer(toCustomer.apply(fields), csv.recordLineNumber());
+        }
+    }
+
+    public void readTransactions(InputStream transactionsCsv, StreamingRewardsCalculation calculation) throws IOException {
+        var csv = new CsvRecordReader(transactionsCsv);
+        var header = csv.readRecord();
+        calculation.startTransactions();
+        if (header == null) {
+            return;
+        }
+        var toTransaction = transactionColumns(header);
+        List<String> fields;
+        while ((fields = csv.readRecord()) != null) {
+            calculation.acceptTransaction(toTransaction.apply(fields), csv.recordLineNumber());
+        }
+    }
+
+    /**
+     * @return a function mapping the fields of a record to a customer, using the columns named in {@code header}
+     */
+    public static Function<List<String>, CustomerDTO> customerColumns(List<String> header) {
+        var id = columnIndex(header, "id");
+        var name = columnIndex(header, "name");
+        return fields -> new CustomerDTO(field(fields, id), field(fields, name));
+    }
+
+    /**
+     * @return a function mapping the fields of a record to a transaction, using the columns named in {@code header}
+     */
+    public static Function<List<String>, RetailTransactionDTO> transactionColumns(List<String> header) {
+        var id = columnIndex(header, "id");
+        var date = columnIndex(header, "date");
+        var customerId = columnIndex(header, "customerid");
+        var value = columnIndex(header, "value");
+        return fields -> new RetailTransactionDTO(
+                field(fields, id),
+                field(fields, date),
+                field(fields, customerId),
+                field(fields, value));
+    }
+
+    private static int columnIndex(List<String> header, String column) {
+        for (int i = 0; i < header.size(); i++) {
+            if (header.get(i).trim().toLowerCase(Locale.ROOT).equals(column)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static String field(List<String> fields, int index) {
+        return index >= 0 && index < fields.size() ? fields.get(index) : null;
+    }
+}
@@ -0,0 +1,171 @@
+package com.rorysteerprojects.retailrewards.application_services.readers;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.rorysteerprojects.retailrewards.api.CustomerDTO;
+import com.rorysteerprojects.retailrewards.api.RetailTransactionDTO;
+import com.rorysteerprojects.retailrewards.application_services.StreamingRewardsCalculation;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads a {@code {customers, transactions}} request body token by token and feeds each row straight into a
+ * {@link StreamingRewardsCalculation}, so the transaction list is never materialized.
+ * <p>
+ * Customers have to be known before transactions can be validated.  Bodies that list {@code customers} first (as
+ * in the README) stream in constant memory; if {@code transactions} comes first it is held back until the
+ * customers have been read.
+ * <p>
+ * {@link #readNdjson} reads the newline delimited form, one {@code customer} or {@code transaction} object per
+ * line, and reports validation errors against the line each row was read from.
+ */
+@Component
+public class CustomerTransactionsJsonReader {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    public void read(InputStream requestBody, StreamingRewardsCalculation calculation) throws IOException {
+        try (JsonParser parser = JSON_FACTORY.createParser(requestBody)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return;
+            }
+            List<RetailTransactionDTO> heldBackTransactions = null;
+            boolean customersRead = false;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                var fieldName = parser.getCurrentName();
+                var token = parser.nextToken();
+                if ("customers".equals(fieldName) && token == JsonToken.START_ARRAY) {
+                    calculation.startCustomers();
+                    while (parser.nextToken() != JsonToken.END_ARRAY) {
+                        calculation.acceptCustomer(readCustomer(parser));
+                    }
+                    customersRead = true;
+                }
+                else if ("transactions".equals(fieldName) && token == JsonToken.START_ARRAY) {
+                    calculation.startTransactions();
+                    if (!customersRead) {
+                        heldBackTransactions = new ArrayList<>();
+                    }
+                    while (parser.nextToken() != JsonToken.END_ARRAY) {
+                        var transaction = readTransaction(parser);
+                        if (heldBackTransactions != null) {
+                            heldBackTransactions.add(transaction);
+                        }
+                        else {
+                            calculation.acceptTransaction(transaction);
+                        }
+                    }
+                }
+                else {
+                    parser.skipChildren();
+                }
+            }
+            if (heldBackTransactions != null) {
+                heldBackTransactions.forEach(calculation::acceptTransaction);
+            }
+        }
+    }
+
+    /**
+     * Reads newline delimited JSON in which every line is an object with a {@code type} of {@code customer} or
+     * {@code transaction} alongside the fields of that row.  All customer lines must come before the first
+     * transaction line, so nothing is ever held back.
+     */
+    public void readNdjson(InputStream requestBody, StreamingRewardsCalculation calculation) throws IOException {
+        calculation.startCustomers();
+        calculation.startTransactions();
+        try (JsonParser parser = JSON_FACTORY.createParser(requestBody)) {
+            while (parser.nextToken() != null) {
+                expectStartObject(parser);
+                var lineNumber = parser.getTokenLocation().getLineNr();
+                String type = null;
+                String id = null;
+                String name = null;
+                String date = null;
+                String customerId = null;
+                String value = null;
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    var fieldName = parser.getCurrentName();
+                    parser.nextToken();
+                    switch (fieldName) {
+                        case "type" -> type = readString(parser);
+                        case "id" -> id = readString(parser);
+                        case "name" -> name = readString(parser);
+                        case "date" -> date = readString(parser);
+                        case "customerId" -> customerId = readString(parser);
+                        case "value" -> value = readString(parser);
+                        default -> parser.skipChildren();
+                    }
+                }
+                if ("customer".equals(type) && calculation.isAcceptingCustomers()) {
+                    calculation.acceptCustomer(new CustomerDTO(id, name), lineNumber);
+                }
+                else if ("customer".equals(type)) {
+                    throw new JsonParseException(parser, "Line " + lineNumber + ": customers must come before transactions");
+                }
+                else if ("transaction".equals(type)) {
+                    calculation.acceptTransaction(new RetailTransactionDTO(id, date, customerId, value), lineNumber);
+                }
+                else {
+                    throw new JsonParseException(parser, "Line " + lineNumber + ": unknown row type " + type);
+                }
+            }
+        }
+    }
+
+    private CustomerDTO readCustomer(JsonParser parser) throws IOException {
+        expectStartObject(parser);
+        String id = null;
+        String name = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            var fieldName = parser.getCurrentName();
+            parser.nextToken();
+            switch (fieldName) {
+                case "id" -> id = readString(parser);
+                case "name" -> name = readString(parser);
+                default -> parser.skipChildren();
+            }
+        }
+        return new CustomerDTO(id, name);
+    }
+
+    private RetailTransactionDTO readTransaction(JsonParser parser) throws IOException {
+        expectStartObject(parser);
+        String id = null;
+        String date = null;
+        String customerId = null;
+        String value = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            var fieldName = parser.getCurrentName();
+            parser.nextToken();
+            switch (fieldName) {
+                case "id" -> id = readString(parser);
+                case "date" -> date = readString(parser);
+                case "customerId" -> customerId = readString(parser);
+                case "value" -> value = readString(parser);
+                default -> parser.skipChildren();
+            }
+        }
+        return new RetailTransactionDTO(id, date, customerId, value);
+    }
+
+    private void expectStartObject(JsonParser parser) throws JsonParseException {
+        if (!parser.hasToken(JsonToken.START_OBJECT)) {
+            throw new JsonParseException(parser, "Expected an object but found " + parser.currentToken());
+        }
+    }
+
+    private String readString(JsonParser parser) throws IOException {
+        if (parser.currentToken().isScalarValue()) {
+            return parser.getValueAsString();
+        }
+        parser.skipChildren();
+        return null;
+    }
+}
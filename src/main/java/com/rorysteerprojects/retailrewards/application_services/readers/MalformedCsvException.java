@@ -0,0 +1,20 @@
+package com.rorysteerprojects.retailrewards.application_services.readers;
+
+import java.io.IOException;
+
+/**
+ * Thrown when a CSV request body cannot be split into records, for example when a quoted field is never closed.
+ */
+public class MalformedCsvException extends IOException {
+
+    private final long lineNumber;
+
+    public MalformedCsvException(long lineNumber, String reason) {
+        super("Line " + lineNumber + ": " + reason);
+        this.lineNumber = lineNumber;
+    }
+
+    public long getLineNumber() {
+        return lineNumber;
+    }
+}
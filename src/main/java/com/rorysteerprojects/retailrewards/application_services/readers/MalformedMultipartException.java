@@ -0,0 +1,14 @@
+package com.rorysteerprojects.retailrewards.application_services.readers;
+
+import java.io.IOException;
+
+/**
+ * Thrown when a {@code multipart/form-data} request body cannot be split into its parts, for example when it ends
+ * before the last boundary.
+ */
+public class MalformedMultipartException extends IOException {
+
+    public MalformedMultipartException(String reason) {
+        super(reason);
+    }
+}
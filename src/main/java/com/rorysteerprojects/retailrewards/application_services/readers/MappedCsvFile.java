@@ -0,0 +1,172 @@
+package com.rorysteerprojects.retailrewards.application_services.readers;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A CSV file with a header line, read through memory mapped segments so that files much larger than the heap can
+ * be processed, and processed in parallel.
+ * <p>
+ * {@link #split(int)} divides the records after the header into segments that start and end on line boundaries.
+ * Each segment is mapped only while it is being read.  Because the split is by line, quoted fields in a mapped
+ * file must not contain line breaks.
+ */
+public class MappedCsvFile implements AutoCloseable {
+
+    /**
+     * Segments are kept well under the 2GB limit of a single mapping.
+     */
+    static final long MAX_SEGMENT_BYTES = 1L << 28;
+
+    private static final int SCAN_BUFFER_BYTES = 8192;
+
+    private final FileChannel channel;
+    private final long size;
+    private final long dataStart;
+    private final List<String> header;
+
+    public MappedCsvFile(Path path) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            this.size = channel.size();
+            this.dataStart = nextLineStart(0);
+            this.header = dataStart == 0 ?
+                    null :
+                    new CsvRecordReader(new ByteBufferInputStream(map(0, dataStart))).readRecord();
+        }
+        catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return the fields of the header line, or null if the file is empty
+     */
+    public List<String> header() {
+        return header;
+    }
+
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Splits the records after the header into at least {@code parts} segments of roughly equal size, fewer if
+     * the file has fewer lines, and more if needed to keep each segment under {@link #MAX_SEGMENT_BYTES}.
+     */
+    public List<Segment> split(int parts) throws IOException {
+        var dataBytes = size - dataStart;
+        var count = (int) Math.max(parts, (dataBytes + MAX_SEGMENT_BYTES - 1) / MAX_SEGMENT_BYTES);
+        List<Segment> segments = new ArrayList<>(count);
+        var start = dataStart;
+        for (int i = 1; i <= count && start < size; i++) {
+            var end = i == count ? size : Math.max(start, nextLineStart(dataStart + dataBytes * i / count));
+            if (end > start) {
+                segments.add(new Segment(start, end));
+                start = end;
+            }
+        }
+        return segments;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    @FunctionalInterface
+    public interface RecordConsumer {
+        /**
+         * @param lineNumber the line the record starts on, counting from 1 at the start of the segment
+         */
+        void accept(List<String> fields, long lineNumber);
+    }
+
+    public class Segment {
+
+        private final long start;
+        private final long end;
+
+        private Segment(long start, long end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        /**
+         * Maps the segment and passes each record in it to {@code consumer}, in file order.
+         *
+         * @return the number of lines in the segment
+         */
+        public long forEachRecord(RecordConsumer consumer) throws IOException {
+            var csv = new CsvRecordReader(new ByteBufferInputStream(map(start, end - start)));
+            List<String> fields;
+            while ((fields = csv.readRecord()) != null) {
+                consumer.accept(fields, csv.recordLineNumber());
+            }
+            return csv.lineNumber() - 1;
+        }
+
+        public long bytes() {
+            return end - start;
+        }
+    }
+
+    private ByteBuffer map(long position, long length) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+    }
+
+    /**
+     * @return the position just after the first line break at or after {@code position}, or the end of the file
+     */
+    private long nextLineStart(long position) throws IOException {
+        var buffer = ByteBuffer.allocate(SCAN_BUFFER_BYTES);
+        while (position < size) {
+            buffer.clear();
+            var read = channel.read(buffer, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    private static class ByteBufferInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (length == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            var count = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, count);
+            return count;
+        }
+    }
+}
@@ -0,0 +1,239 @@
+package com.rorysteerprojects.retailrewards.application_services.readers;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * Reads the parts of a {@code multipart/form-data} body one after another as the body arrives, without spooling
+ * them to memory or disk.
+ * <p>
+ * Only the bytes that might be the start of the next boundary are held back, so the body of each part can be read
+ * as a stream of any length.  Parts are read in the order they were sent; a part that has been passed over cannot
+ * be read.
+ */
+public class MultipartFormReader {
+
+    private static final int BUFFER_BYTES = 8192;
+    private static final int MAX_HEADER_BYTES = 8192;
+
+    private final InputStream body;
+    // The line break before the boundary belongs to the boundary, not to the part.
+    private final byte[] delimiter;
+    private final byte[] buffer;
+    private int head;
+    private int tail;
+    private boolean endOfBody;
+    private boolean lastPartRead;
+    private PartInputStream part;
+
+    /**
+     * @param boundary the {@code boundary} parameter of the request's content type
+     */
+    public MultipartFormReader(InputStream body, String boundary) {
+        this.body = body;
+        this.delimiter = ("\r\n--" + boundary).getBytes(StandardCharsets.ISO_8859_1);
+        this.buffer = new byte[Math.max(BUFFER_BYTES, 2 * delimiter.length)];
+        // The first boundary need not follow a line break, so one is supplied.
+        buffer[tail++] = '\r';
+        buffer[tail++] = '\n';
+    }
+
+    /**
+     * @return the {@code boundary} parameter of a {@code multipart/form-data} content type, unquoted, or null if it
+     * has none
+     */
+    public static String boundary(String contentType) {
+        if (contentType == null) {
+            return null;
+        }
+        for (String parameter : contentType.split(";")) {
+            var nameAndValue = parameter.split("=", 2);
+            if (nameAndValue.length == 2 && nameAndValue[0].trim().equalsIgnoreCase("boundary")) {
+                var value = nameAndValue[1].trim();
+                if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+                    value = value.substring(1, value.length() - 1);
+                }
+                return value.isEmpty() ? null : value;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Skips the rest of the current part, and any parts before the next one with the given name.
+     *
+     * @return the body of the next part named {@code name}, or null if the form ends first
+     * @throws MalformedMultipartException if the body is not a well formed multipart form
+     */
+    public InputStream nextPart(String name) throws IOException {
+        while (!lastPartRead) {
+            skipToNextPart();
+            if (lastPartRead) {
+                break;
+            }
+            var partName = readPartName();
+            part = new PartInputStream();
+            if (name.equals(partName)) {
+                return part;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Reads past the rest of the current part, or the preamble before the first, and the boundary after it.
+     */
+    private void skipToNextPart() throws IOException {
+        var skipped = part != null ? part : new PartInputStream();
+        var discard = new byte[BUFFER_BYTES];
+        while (skipped.read(discard, 0, discard.length) >= 0) {
+            // Discarded.
+        }
+        head += delimiter.length;
+        if (!fill(2)) {
+            throw new MalformedMultipartException("The body ends in a boundary");
+        }
+        if (buffer[head] == '-' && buffer[head + 1] == '-') {
+            lastPartRead = true;
+            part = null;
+            return;
+        }
+        // Whitespace may follow the boundary on its line.
+        while (fill(1) && (buffer[head] == ' ' || buffer[head] == '\t')) {
+            head++;
+        }
+        if (!fill(2) || buffer[head] != '\r' || buffer[head + 1] != '\n') {
+            throw new MalformedMultipartException("A boundary is not followed by a line break");
+        }
+        head += 2;
+    }
+
+    /**
+     * Reads the headers of a part up to the blank line before its body.
+     *
+     * @return the name given in its {@code Content-Disposition} header, or null if it has none
+     */
+    private String readPartName() throws IOException {
+        String name = null;
+        var headerBytes = 0;
+        var line = new StringBuilder();
+        while (true) {
+            if (!fill(1)) {
+                throw new MalformedMultipartException("The body ends in the headers of a part");
+            }
+            var b = buffer[head++];
+            if (++headerBytes > MAX_HEADER_BYTES) {
+                throw new MalformedMultipartException("The headers of a part are too long");
+            }
+            if (b != '\n') {
+                line.append((char) (b & 0xFF));
+                continue;
+            }
+            if (line.length() > 0 && line.charAt(line.length() - 1) == '\r') {
+                line.setLength(line.length() - 1);
+            }
+            if (line.length() == 0) {
+                return name;
+            }
+            var header = line.toString();
+            line.setLength(0);
+            var colon = header.indexOf(':');
+            if (colon > 0 && header.substring(0, colon).trim().equalsIgnoreCase("Content-Disposition")) {
+                name = dispositionName(header.substring(colon + 1));
+            }
+        }
+    }
+
+    private static String dispositionName(String disposition) {
+        for (String parameter : disposition.split(";")) {
+            var nameAndValue = parameter.split("=", 2);
+            if (nameAndValue.length == 2 && nameAndValue[0].trim().toLowerCase(Locale.ROOT).equals("name")) {
+                var value = nameAndValue[1].trim();
+                if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+                    value = value.substring(1, value.length() - 1);
+                }
+                return value;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Reads from the body until at least {@code bytes} are buffered or the body ends.
+     *
+     * @return true if they are buffered
+     */
+    private boolean fill(int bytes) throws IOException {
+        while (tail - head < bytes && !endOfBody) {
+            if (head > 0) {
+                System.arraycopy(buffer, head, buffer, 0, tail - head);
+                tail -= head;
+                head = 0;
+            }
+            var read = body.read(buffer, tail, buffer.length - tail);
+            if (read < 0) {
+                endOfBody = true;
+            }
+            else {
+                tail += read;
+            }
+        }
+        return tail - head >= bytes;
+    }
+
+    /**
+     * @return the index of the first buffered byte that starts the delimiter, or may start it once more of the body
+     * is read, or {@code tail} if there is none
+     */
+    private int delimiterStart() {
+        for (int i = head; i < tail; i++) {
+            var matched = 0;
+            while (matched < delimiter.length && i + matched < tail && buffer[i + matched] == delimiter[matched]) {
+                matched++;
+            }
+            if (matched == delimiter.length || i + matched == tail) {
+                return i;
+            }
+        }
+        return tail;
+    }
+
+    /**
+     * The body of one part, which ends at the boundary after it.
+     */
+    private class PartInputStream extends InputStream {
+
+        private final byte[] single = new byte[1];
+        private boolean ended;
+
+        @Override
+        public int read() throws IOException {
+            return read(single, 0, 1) < 0 ? -1 : single[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (ended || part != this && part != null) {
+                return -1;
+            }
+            if (len == 0) {
+                return 0;
+            }
+            fill(delimiter.length);
+            var start = delimiterStart();
+            if (start == head) {
+                if (tail - head < delimiter.length) {
+                    throw new MalformedMultipartException("The body ends before the last boundary");
+                }
+                ended = true;
+                return -1;
+            }
+            var count = Math.min(len, start - head);
+            System.arraycopy(buffer, head, b, off, count);
+            head += count;
+            return count;
+        }
+    }
+}
@@ -0,0 +1,313 @@
+package com.rorysteerprojects.retailrewards.batch;
+
+import com.rorysteerprojects.retailrewards.api.RetailTransactionDTO;
+import com.rorysteerprojects.retailrewards.application_services.parsers.CustomerParser;
+import com.rorysteerprojects.retailrewards.application_services.parsers.RetailTransactionParser;
+import com.rorysteerprojects.retailrewards.application_services.parsers.ValidationErrors;
+import com.rorysteerprojects.retailrewards.application_services.parsers.ValidationRule;
+import com.rorysteerprojects.retailrewards.application_services.readers.CustomerTransactionsCsvReader;
+import com.rorysteerprojects.retailrewards.application_services.readers.MappedCsvFile;
+import com.rorysteerprojects.retailrewards.config.ResourceLookup;
+import com.rorysteerprojects.retailrewards.domain.CustomerIndex;
+import com.rorysteerprojects.retailrewards.domain.RetailTransaction;
+import com.rorysteerprojects.retailrewards.domain.RewardsAccumulator;
+import com.rorysteerprojects.retailrewards.domain.RewardsCalculator;
+import com.rorysteerprojects.retailrewards.domain.RewardsResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Calculates rewards offline from a customers CSV file and a transactions CSV file, writing the customer summaries
+ * to a CSV file.  Runs instead of the web server when the {@code batch} profile is active.
+ * <p>
+ * Both files are memory mapped.  The transactions file is split at line boundaries into segments that are
+ * validated and aggregated in parallel, each into its own {@link RewardsAccumulator}, and then combined in file
+ * order as each finishes.  No more segments are in flight than there are threads, so memory use depends on the
+ * number of customers, not the size of the transactions file.  The same validation rules apply
+ * as for the API, with the same {@code rewards.validation.max-errors} limit on the errors reported, and if any rule
+ * fails no summaries are written.
+ */
+@Component
+@Profile("batch")
+public class BatchRewardsRunner implements CommandLineRunner {
+
+    static final String SUMMARY_HEADER = "customerId,customerName,month1Rewards,month2Rewards,month3Rewards,totalRewards";
+    private static final int MONTHS_IN_SUMMARY = 3;
+
+    private final CustomerParser customerParser;
+    private final RetailTransactionParser retailTransactionParser;
+    private final RewardsCalculator rewardsCalculator;
+    private final Path customersPath;
+    private final Path transactionsPath;
+    private final Path outputPath;
+    private final int parallelism;
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    public BatchRewardsRunner(CustomerParser customerParser,
+                              RetailTransactionParser retailTransactionParser,
+                              RewardsCalculator rewardsCalculator,
+                              @Value("${rewards.batch.customers}") Path customersPath,
+                              @Value("${rewards.batch.transactions}") Path transactionsPath,
+                              @Value("${rewards.batch.output}") Path outputPath,
+                              @Value("${rewards.batch.parallelism:0}") int parallelism) {
+        this.customerParser = customerParser;
+        this.retailTransactionParser = retailTransactionParser;
+        this.rewardsCalculator = rewardsCalculator;
+        this.customersPath = customersPath;
+        this.transactionsPath = transactionsPath;
+        this.outputPath = outputPath;
+        this.parallelism = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+    }
+
+    @Override
+    public void run(String... args) throws IOException {
+        var startNanos = System.nanoTime();
+
+        var customers = readCustomers();
+        if (customers.rows() == 0) {
+            throw new IllegalStateException(ResourceLookup.getMessage("res_missingLists"));
+        }
+        var errors = customers.errors();
+        var customerIndex = errors.isEmpty() ? customers.customerIndex() : new CustomerIndex();
+        // As for the API, the transactions are not validated once the customers have used up the error limit,
+        // and may only report the errors the customers have left.
+        var transactions = errors.isLimitReached() ?
+                new TransactionFileResult(rewardsCalculator.newAccumulator(), errors.newEmpty(),
+                        Integer.MAX_VALUE, Integer.MIN_VALUE, 0, 0) :
+                readTransactions(customerIndex, errors.newRemaining());
+
+        var transactionErrors = transactions.errors();
+        if (transactionErrors.isEmpty() &&
+                transactions.earliestMonth() <= transactions.latestMonth() &&
+                transactions.latestMonth() - transactions.earliestMonth() >= MONTHS_IN_SUMMARY) {
+            transactionErrors.add(null, ValidationRule.TRANSACTIONS_SPAN_MORE_THAN_THREE_MONTHS, null);
+        }
+        errors.addAll(transactionErrors);
+        if (errors.isEmpty()) {
+            writeSummaries(transactions.accumulator().results(), customerIndex);
+        }
+
+        var elapsedNanos = System.nanoTime() - startNanos;
+        var rows = customers.rows() + transactions.rows();
+        logger.info("Read {} customers and {} transactions in {} segments in {} ms ({} rows/s)",
+                customers.rows(),
+                transactions.rows(),
+                transactions.segments(),
+                TimeUnit.NANOSECONDS.toMillis(elapsedNanos),
+                elapsedNanos == 0 ? rows : rows * TimeUnit.SECONDS.toNanos(1) / elapsedNanos);
+        if (!errors.isEmpty()) {
+            errors.list().forEach(error -> logger.error(error.getRow() != null ?
+                    "Line " + error.getRow() + ": " + error.getMessage() :
+                    error.getMessage()));
+            throw new IllegalStateException(errors.size() + " validation errors, no summaries were written to " + outputPath);
+        }
+        logger.info("Summaries written to {}", outputPath);
+    }
+
+    /**
+     * The row of each customer error is the line of the file it was found on.
+     */
+    private CustomerFileResult readCustomers() throws IOException {
+        var customerIndex = new CustomerIndex();
+        var errors = customerParser.newValidationErrors();
+        long rows = 0;
+        try (var customersFile = new MappedCsvFile(customersPath)) {
+            if (customersFile.header() == null) {
+                return new CustomerFileResult(customerIndex, errors, 0);
+            }
+            var toCustomer = CustomerTransactionsCsvReader.customerColumns(customersFile.header());
+            // The customer index is not thread safe, so customers are read one segment at a time.
+            long firstLine = 2;
+            for (MappedCsvFile.Segment segment : customersFile.split(1)) {
+                // Customers are only counted, so the segment has no accumulator.  Its errors have the line in the
+                // segment as their row until they are added to the file's errors.
+                var segmentErrors = errors.isLimitReached() ? errors.newEmpty() : errors.newRemaining();
+                var segmentRows = new SegmentRows(segmentErrors, null);
+                var limitReached = errors.isLimitReached();
+                var segmentFirstLine = firstLine;
+                firstLine += segment.forEachRecord((fields, lineNumber) -> {
+                    segmentRows.rows++;
+                    if (!limitReached && !segmentErrors.isLimitReached()) {
+                        customerParser.parseCustomer(toCustomer.apply(fields),
+                                segmentLine(lineNumber),
+                                customerIndex,
+                                segmentErrors);
+                    }
+                });
+                errors.addAll(segmentErrors, segmentFirstLine - 1);
+                rows += segmentRows.rows;
+            }
+        }
+        return new CustomerFileResult(customerIndex, errors, rows);
+    }
+
+    /**
+     * The row of each transaction error is the line of the file it was found on.
+     *
+     * @param errors the errors the transactions may report
+     */
+    private TransactionFileResult readTransactions(CustomerIndex customerIndex,
+                                                   ValidationErrors errors) throws IOException {
+        var accumulator = rewardsCalculator.newAccumulator();
+        var earliestMonth = Integer.MAX_VALUE;
+        var latestMonth = Integer.MIN_VALUE;
+        long rows = 0;
+        try (var transactionsFile = new MappedCsvFile(transactionsPath)) {
+            if (transactionsFile.header() == null) {
+                return new TransactionFileResult(accumulator, errors, earliestMonth, latestMonth, 0, 0);
+            }
+            var toTransaction = CustomerTransactionsCsvReader.transactionColumns(transactionsFile.header());
+            var segments = transactionsFile.split(parallelism);
+            var pool = new ForkJoinPool(parallelism);
+            try {
+                // At most one segment per thread is in flight, and each is combined and dropped as soon as it is
+                // joined, so only that many segment accumulators are held however large the file is.
+                Deque<ForkJoinTask<SegmentResult>> tasks = new ArrayDeque<>(parallelism);
+                var nextSegment = segments.iterator();
+                // Segments are combined in file order so that line numbers and the order of errors match the file.
+                long firstLine = 2;
+                while (nextSegment.hasNext() || !tasks.isEmpty()) {
+                    while (nextSegment.hasNext() && tasks.size() < parallelism) {
+                        var segment = nextSegment.next();
+                        tasks.add(pool.submit(() ->
+                                readTransactionSegment(segment, toTransaction, customerIndex, errors.newEmpty())));
+                    }
+                    var result = tasks.remove().join();
+                    var segmentRows = result.rows();
+                    errors.addAll(segmentRows.errors, firstLine - 1);
+                    earliestMonth = Math.min(earliestMonth, segmentRows.earliestMonth);
+                    latestMonth = Math.max(latestMonth, segmentRows.latestMonth);
+                    rows += segmentRows.rows;
+                    firstLine += result.lines();
+                    if (errors.isEmpty()) {
+                        accumulator.addAll(segmentRows.accumulator);
+                    }
+                }
+            }
+            finally {
+                pool.shutdown();
+            }
+            return new TransactionFileResult(accumulator, errors, earliestMonth, latestMonth, rows, segments.size());
+        }
+    }
+
+    private SegmentResult readTransactionSegment(MappedCsvFile.Segment segment,
+                                                 Function<List<String>, RetailTransactionDTO> toTransaction,
+                                                 CustomerIndex customerIndex,
+                                                 ValidationErrors errors) {
+        var segmentRows = new SegmentRows(errors, rewardsCalculator.newAccumulator());
+        try {
+            var lines = segment.forEachRecord((fields, lineNumber) -> {
+                segmentRows.rows++;
+                if (!errors.isLimitReached()) {
+                    retailTransactionParser.parseTransaction(toTransaction.apply(fields),
+                                    segmentLine(lineNumber),
+                                    customerIndex,
+                                    errors)
+                            .ifPresent(segmentRows::add);
+                }
+            });
+            return new SegmentResult(segmentRows, lines);
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * A segment is mapped in one piece, so it is well under 2GB long and a line in it always fits in an int, while a
+     * line of the file may not.
+     */
+    private static int segmentLine(long lineNumber) {
+        return (int) lineNumber;
+    }
+
+    private void writeSummaries(List<RewardsResult> results, CustomerIndex customerIndex) throws IOException {
+        var customerIdNotFound = ResourceLookup.getMessage("res_customerIdNotFound");
+        try (BufferedWriter writer = Files.newBufferedWriter(outputPath, StandardCharsets.UTF_8)) {
+            writer.write(SUMMARY_HEADER);
+            writer.newLine();
+            for (RewardsResult result : results) {
+                writer.write(Integer.toString(result.customerId()));
+                writer.write(',');
+                writer.write(csvField(customerIndex.getNameOrDefault(result.customerId(), customerIdNotFound)));
+                for (int monthlyTotal : result.monthlyTotals()) {
+                    writer.write(',');
+                    writer.write(Integer.toString(monthlyTotal));
+                }
+                writer.write(',');
+                writer.write(Integer.toString(result.threeMonthTotal()));
+                writer.newLine();
+            }
+        }
+    }
+
+    private static String csvField(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    /**
+     * The rows read from one segment, their errors, and the rewards of its transactions while it has no errors.
+     * The months cover every transaction that parsed, as the span is checked on all of them.
+     */
+    private static class SegmentRows {
+
+        private final ValidationErrors errors;
+        private final RewardsAccumulator accumulator;
+        private long rows;
+        private int earliestMonth = Integer.MAX_VALUE;
+        private int latestMonth = Integer.MIN_VALUE;
+
+        SegmentRows(ValidationErrors errors, RewardsAccumulator accumulator) {
+            this.errors = errors;
+            this.accumulator = accumulator;
+        }
+
+        void add(RetailTransaction transaction) {
+            var month = transaction.month();
+            earliestMonth = Math.min(earliestMonth, month);
+            latestMonth = Math.max(latestMonth, month);
+            if (errors.isEmpty()) {
+                accumulator.add(transaction);
+            }
+        }
+    }
+
+    private record SegmentResult(SegmentRows rows, long lines) {
+    }
+
+    private record CustomerFileResult(CustomerIndex customerIndex, ValidationErrors errors, long rows) {
+    }
+
+    private record TransactionFileResult(RewardsAccumulator accumulator,
+                                         ValidationErrors errors,
+                                         int earliestMonth,
+                                         int latestMonth,
+                                         long rows,
+                                         int segments) {
+    }
+}
@@ -1,9 +1,14 @@
 package com.rorysteerprojects.retailrewards.config;
 
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rorysteerprojects.retailrewards.domain.RewardsTiers;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.MessageSource;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.support.ResourceBundleMessageSource;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
 
 @Configuration
 public class AppConfig {
@@ -14,4 +19,24 @@ public class AppConfig {
         messageSource.setDefaultEncoding("UTF-8");
         return messageSource;
     }
+
+    /**
+     * Spring Boot registers Jackson modules found as beans with the ObjectMapper it creates.
+     */
+    @Bean
+    public Module rewardsApiModule() {
+        return new RewardsApiModule();
+    }
+
+    @Bean
+    public MappingJackson2HttpMessageConverter mappingJackson2HttpMessageConverter(ObjectMapper objectMapper,
+                                                                                   RewardsMetrics rewardsMetrics) {
+        return new TimedJacksonHttpMessageConverter(objectMapper, rewardsMetrics);
+    }
+
+    @Bean
+    public RewardsTiers rewardsTiers(@Value("${rewards.points.tiers:50:1,100:2}") String tiers,
+                                     @Value("${rewards.points.max-per-transaction:2147483647}") int maxPoints) {
+        return RewardsTiers.parse(tiers, maxPoints);
+    }
 }
@@ -4,14 +4,16 @@ import java.util.Locale;
 import java.util.MissingResourceException;
 import java.util.ResourceBundle;
 
+/**
+ * The message catalog, resolved once when the class is loaded rather than on every lookup.
+ */
 public class ResourceLookup {
 
-    public static String getMessage(String key) {
-        Locale locale = new Locale("en", "US");
-        ResourceBundle resourceBundle = ResourceBundle.getBundle("messages", locale);
+    private static final ResourceBundle MESSAGES = ResourceBundle.getBundle("messages", Locale.US);
 
+    public static String getMessage(String key) {
         try {
-            return resourceBundle.getString(key);
+            return MESSAGES.getString(key);
         }
         catch (MissingResourceException e) {
             return "????" + key;
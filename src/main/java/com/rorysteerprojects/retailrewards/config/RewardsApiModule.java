@@ -0,0 +1,343 @@
+package com.rorysteerprojects.retailrewards.config;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.deser.std.StringDeserializer;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.rorysteerprojects.retailrewards.api.CustomerDTO;
+import com.rorysteerprojects.retailrewards.api.CustomerSummaryDTO;
+import com.rorysteerprojects.retailrewards.api.CustomerTransactionsDTO;
+import com.rorysteerprojects.retailrewards.api.RetailTransactionDTO;
+import com.rorysteerprojects.retailrewards.api.RewardsResultDTO;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Hand written Jackson codecs for the api DTOs, in place of binding them through their constructors and getters
+ * by reflection.
+ * <p>
+ * Each deserializer reads the fields of its object straight off the parser into locals and then calls the
+ * constructor, with no property lookups and no tree in between.  The parser hands back field names from its
+ * symbol table, so a name is one shared, interned String with its hash already worked out, and matching it is a
+ * switch on the hash and an identity check.  The lists of a request are read by the element deserializers
+ * directly.  Each serializer writes its fields in the order Jackson writes them.
+ * <p>
+ * The JSON is the same as the reflective binding, including its handling of nulls, unknown properties and
+ * scalars given for strings, since those fall back to the same {@link DeserializationContext} handling.
+ */
+public class RewardsApiModule extends SimpleModule {
+
+    public RewardsApiModule() {
+        super("RewardsApiModule");
+        addDeserializer(CustomerTransactionsDTO.class, CustomerTransactionsDeserializer.INSTANCE);
+        addDeserializer(CustomerDTO.class, CustomerDeserializer.INSTANCE);
+        addDeserializer(RetailTransactionDTO.class, RetailTransactionDeserializer.INSTANCE);
+        addDeserializer(CustomerSummaryDTO.class, CustomerSummaryDeserializer.INSTANCE);
+        addSerializer(CustomerTransactionsDTO.class, new CustomerTransactionsSerializer());
+        addSerializer(CustomerDTO.class, new CustomerSerializer());
+        addSerializer(RetailTransactionDTO.class, new RetailTransactionSerializer());
+        addSerializer(CustomerSummaryDTO.class, new CustomerSummarySerializer());
+        addSerializer(RewardsResultDTO.class, new RewardsResultSerializer());
+    }
+
+    /**
+     * Reads the fields of an object, leaving the parser on each value in turn.
+     */
+    private abstract static class ObjectDeserializer<T> extends StdDeserializer<T> {
+
+        private final List<Object> fieldNames;
+
+        ObjectDeserializer(Class<T> type, String... fieldNames) {
+            super(type);
+            this.fieldNames = List.of((Object[]) fieldNames);
+        }
+
+        /**
+         * @return the name of the first field, or null for an empty object; the parser may already be on it when
+         * this deserializer is handed an object part way through
+         */
+        String firstFieldName(JsonParser p, DeserializationContext ctxt) throws IOException {
+            if (p.isExpectedStartObjectToken()) {
+                return p.nextFieldName();
+            }
+            if (p.hasToken(JsonToken.FIELD_NAME)) {
+                return p.currentName();
+            }
+            if (!p.hasToken(JsonToken.END_OBJECT)) {
+                ctxt.handleUnexpectedToken(handledType(), p);
+            }
+            return null;
+        }
+
+        void skipUnknownField(JsonParser p, DeserializationContext ctxt, String fieldName) throws IOException {
+            ctxt.handleUnknownProperty(p, this, handledType(), fieldName);
+        }
+
+        static String readString(JsonParser p, DeserializationContext ctxt) throws IOException {
+            if (p.hasToken(JsonToken.VALUE_STRING)) {
+                return p.getText();
+            }
+            if (p.hasToken(JsonToken.VALUE_NULL)) {
+                return null;
+            }
+            return StringDeserializer.instance.deserialize(p, ctxt);
+        }
+
+        int readInt(JsonParser p, DeserializationContext ctxt) throws IOException {
+            if (p.hasToken(JsonToken.VALUE_NUMBER_INT)) {
+                return p.getIntValue();
+            }
+            return _parseIntPrimitive(p, ctxt);
+        }
+
+        @Override
+        public Collection<Object> getKnownPropertyNames() {
+            return fieldNames;
+        }
+    }
+
+    private static class CustomerTransactionsDeserializer extends ObjectDeserializer<CustomerTransactionsDTO> {
+
+        static final CustomerTransactionsDeserializer INSTANCE = new CustomerTransactionsDeserializer();
+
+        CustomerTransactionsDeserializer() {
+            super(CustomerTransactionsDTO.class, "customers", "transactions");
+        }
+
+        @Override
+        public CustomerTransactionsDTO deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            List<CustomerDTO> customers = null;
+            List<RetailTransactionDTO> transactions = null;
+            for (var fieldName = firstFieldName(p, ctxt); fieldName != null; fieldName = p.nextFieldName()) {
+                p.nextToken();
+                switch (fieldName) {
+                    case "customers" -> customers = readList(p, ctxt, CustomerDeserializer.INSTANCE);
+                    case "transactions" -> transactions = readList(p, ctxt, RetailTransactionDeserializer.INSTANCE);
+                    default -> skipUnknownField(p, ctxt, fieldName);
+                }
+            }
+            return new CustomerTransactionsDTO(customers, transactions);
+        }
+
+        private static <E> List<E> readList(JsonParser p, DeserializationContext ctxt,
+                                            ObjectDeserializer<E> elementDeserializer) throws IOException {
+            if (p.hasToken(JsonToken.VALUE_NULL)) {
+                return null;
+            }
+            if (!p.isExpectedStartArrayToken()) {
+                ctxt.handleUnexpectedToken(List.class, p);
+                return null;
+            }
+            List<E> elements = new ArrayList<>();
+            for (var token = p.nextToken(); token != JsonToken.END_ARRAY; token = p.nextToken()) {
+                elements.add(token == JsonToken.VALUE_NULL ? null : elementDeserializer.deserialize(p, ctxt));
+            }
+            return elements;
+        }
+    }
+
+    private static class CustomerDeserializer extends ObjectDeserializer<CustomerDTO> {
+
+        static final CustomerDeserializer INSTANCE = new CustomerDeserializer();
+
+        CustomerDeserializer() {
+            super(CustomerDTO.class, "id", "name");
+        }
+
+        @Override
+        public CustomerDTO deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            String id = null;
+            String name = null;
+            for (var fieldName = firstFieldName(p, ctxt); fieldName != null; fieldName = p.nextFieldName()) {
+                p.nextToken();
+                switch (fieldName) {
+                    case "id" -> id = readString(p, ctxt);
+                    case "name" -> name = readString(p, ctxt);
+                    default -> skipUnknownField(p, ctxt, fieldName);
+                }
+            }
+            return new CustomerDTO(id, name);
+        }
+    }
+
+    private static class RetailTransactionDeserializer extends ObjectDeserializer<RetailTransactionDTO> {
+
+        static final RetailTransactionDeserializer INSTANCE = new RetailTransactionDeserializer();
+
+        RetailTransactionDeserializer() {
+            super(RetailTransactionDTO.class, "id", "date", "customerId", "value");
+        }
+
+        @Override
+        public RetailTransactionDTO deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            String id = null;
+            String date = null;
+            String customerId = null;
+            String value = null;
+            for (var fieldName = firstFieldName(p, ctxt); fieldName != null; fieldName = p.nextFieldName()) {
+                p.nextToken();
+                switch (fieldName) {
+                    case "id" -> id = readString(p, ctxt);
+                    case "date" -> date = readString(p, ctxt);
+                    case "customerId" -> customerId = readString(p, ctxt);
+                    case "value" -> value = readString(p, ctxt);
+                    default -> skipUnknownField(p, ctxt, fieldName);
+                }
+            }
+            return new RetailTransactionDTO(id, date, customerId, value);
+        }
+    }
+
+    private static class CustomerSummaryDeserializer extends ObjectDeserializer<CustomerSummaryDTO> {
+
+        static final CustomerSummaryDeserializer INSTANCE = new CustomerSummaryDeserializer();
+
+        CustomerSummaryDeserializer() {
+            super(CustomerSummaryDTO.class, "customerId", "customerName", "month1Rewards", "month2Rewards",
+                    "month3Rewards", "totalRewards");
+        }
+
+        @Override
+        public CustomerSummaryDTO deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            int customerId = 0;
+            String customerName = null;
+            int month1Rewards = 0;
+            int month2Rewards = 0;
+            int month3Rewards = 0;
+            int totalRewards = 0;
+            for (var fieldName = firstFieldName(p, ctxt); fieldName != null; fieldName = p.nextFieldName()) {
+                p.nextToken();
+                switch (fieldName) {
+                    case "customerId" -> customerId = readInt(p, ctxt);
+                    case "customerName" -> customerName = readString(p, ctxt);
+                    case "month1Rewards" -> month1Rewards = readInt(p, ctxt);
+                    case "month2Rewards" -> month2Rewards = readInt(p, ctxt);
+                    case "month3Rewards" -> month3Rewards = readInt(p, ctxt);
+                    case "totalRewards" -> totalRewards = readInt(p, ctxt);
+                    default -> skipUnknownField(p, ctxt, fieldName);
+                }
+            }
+            return new CustomerSummaryDTO(customerId, customerName, month1Rewards, month2Rewards, month3Rewards,
+                    totalRewards);
+        }
+    }
+
+    private static class CustomerTransactionsSerializer extends StdSerializer<CustomerTransactionsDTO> {
+
+        CustomerTransactionsSerializer() {
+            super(CustomerTransactionsDTO.class);
+        }
+
+        @Override
+        public void serialize(CustomerTransactionsDTO value, JsonGenerator gen, SerializerProvider provider)
+                throws IOException {
+            gen.writeStartObject(value);
+            gen.writeFieldName("customers");
+            if (value.getCustomers() == null) {
+                gen.writeNull();
+            }
+            else {
+                gen.writeStartArray();
+                for (CustomerDTO customer : value.getCustomers()) {
+                    CustomerSerializer.write(customer, gen);
+                }
+                gen.writeEndArray();
+            }
+            gen.writeFieldName("transactions");
+            if (value.getTransactions() == null) {
+                gen.writeNull();
+            }
+            else {
+                gen.writeStartArray();
+                for (RetailTransactionDTO transaction : value.getTransactions()) {
+                    RetailTransactionSerializer.write(transaction, gen);
+                }
+                gen.writeEndArray();
+            }
+            gen.writeEndObject();
+        }
+    }
+
+    private static class CustomerSerializer extends StdSerializer<CustomerDTO> {
+
+        CustomerSerializer() {
+            super(CustomerDTO.class);
+        }
+
+        @Override
+        public void serialize(CustomerDTO value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            write(value, gen);
+        }
+
+        static void write(CustomerDTO customer, JsonGenerator gen) throws IOException {
+            if (customer == null) {
+                gen.writeNull();
+                return;
+            }
+            gen.writeStartObject(customer);
+            gen.writeStringField("id", customer.getId());
+            gen.writeStringField("name", customer.getName());
+            gen.writeEndObject();
+        }
+    }
+
+    private static class RetailTransactionSerializer extends StdSerializer<RetailTransactionDTO> {
+
+        RetailTransactionSerializer() {
+            super(RetailTransactionDTO.class);
+        }
+
+        @Override
+        public void serialize(RetailTransactionDTO value, JsonGenerator gen, SerializerProvider provider)
+                throws IOException {
+            write(value, gen);
+        }
+
+        static void write(RetailTransactionDTO transaction, JsonGenerator gen) throws IOException {
+            if (transaction == null) {
+                gen.writeNull();
+                return;
+            }
+            gen.writeStartObject(transaction);
+            gen.writeStringField("id", transaction.getId());
+            gen.writeStringField("date", transaction.getDate());
+            gen.writeStringField("customerId", transaction.getCustomerId());
+            gen.writeStringField("value", transaction.getValue());
+            gen.writeEndObject();
+        }
+    }
+
+    private static class CustomerSummarySerializer extends StdSerializer<CustomerSummaryDTO> {
+
+        CustomerSummarySerializer() {
+            super(CustomerSummaryDTO.class);
+        }
+
+        @Override
+        public void serialize(CustomerSummaryDTO value, JsonGenerator gen, SerializerProvider provider)
+                throws IOException {
+            RewardsResultJsonWriter.writeCustomerSummary(value, gen);
+        }
+    }
+
+    private static class RewardsResultSerializer extends StdSerializer<RewardsResultDTO> {
+
+        RewardsResultSerializer() {
+            super(RewardsResultDTO.class);
+        }
+
+        @Override
+        public void serialize(RewardsResultDTO value, JsonGenerator gen, SerializerProvider provider)
+                throws IOException {
+            RewardsResultJsonWriter.write(value, gen);
+        }
+    }
+}
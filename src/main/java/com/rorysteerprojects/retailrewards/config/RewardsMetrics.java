@@ -0,0 +1,236 @@
+package com.rorysteerprojects.retailrewards.config;
+
+import com.rorysteerprojects.retailrewards.application_services.parsers.ValidationRule;
+import com.rorysteerprojects.retailrewards.application_services.parsers.ValidationRuleCounts;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * The Micrometer meters for the rewards calculation, exposed through /actuator/metrics and /actuator/prometheus.
+ * <ul>
+ *     <li>{@code rewards.request} - the time taken by each request, tagged with its outcome</li>
+ *     <li>{@code rewards.stage} - the time taken by each stage of a request, tagged with the stage</li>
+ *     <li>{@code rewards.request.customers} and {@code rewards.request.transactions} - the size of each request</li>
+ *     <li>{@code rewards.validation.failures} - the number of times each validation rule failed, tagged with the rule</li>
+ *     <li>{@code rewards.request.coalesced} - the number of requests that waited for an identical calculation
+ *     already in flight instead of running their own</li>
+ *     <li>{@code rewards.cache.lookups} - the number of requests answered from the result cache or not, tagged with
+ *     the result of the lookup</li>
+ *     <li>{@code rewards.cache.evictions} - the number of responses evicted from the result cache</li>
+ *     <li>{@code rewards.cache.entries} and {@code rewards.cache.weight} - the number and total size of the cached
+ *     responses</li>
+ *     <li>{@code rewards.admission.requests} - the number of requests admitted, queued for admission or rejected,
+ *     tagged with the result; a queued request is counted again once it is admitted or rejected</li>
+ *     <li>{@code rewards.admission.in-flight} - the work units held by the requests admitted and not yet
+ *     finished</li>
+ * </ul>
+ * The timers and size summaries publish percentile histograms so latency can be aggregated across instances and
+ * compared with payload size.
+ */
+@Component
+public class RewardsMetrics {
+
+    public enum Stage {
+        DESERIALIZATION("deserialization"),
+        CUSTOMER_PARSE("customer-parse"),
+        TRANSACTION_VALIDATION("transaction-validation"),
+        SPAN_CHECK("span-check"),
+        AGGREGATION("aggregation"),
+        NAME_RESOLUTION("name-resolution"),
+        SERIALIZATION("serialization");
+
+        private final String tagValue;
+
+        Stage(String tagValue) {
+            this.tagValue = tagValue;
+        }
+    }
+
+    public enum Outcome {
+        SUCCESS("success"),
+        VALIDATION_ERROR("validation-error"),
+        BAD_REQUEST("bad-request");
+
+        private final String tagValue;
+
+        Outcome(String tagValue) {
+            this.tagValue = tagValue;
+        }
+    }
+
+    public enum CacheLookup {
+        HIT("hit"),
+        MISS("miss"),
+        BYPASS("bypass");
+
+        private final String tagValue;
+
+        CacheLookup(String tagValue) {
+            this.tagValue = tagValue;
+        }
+    }
+
+    public enum Admission {
+        ADMITTED("admitted"),
+        QUEUED("queued"),
+        REJECTED("rejected");
+
+        private final String tagValue;
+
+        Admission(String tagValue) {
+            this.tagValue = tagValue;
+        }
+    }
+
+    private final MeterRegistry meterRegistry;
+    private final Map<Stage, Timer> stageTimers = new EnumMap<>(Stage.class);
+    private final Map<Outcome, Timer> requestTimers = new EnumMap<>(Outcome.class);
+    private final Map<ValidationRule, Counter> validationFailureCounters = new EnumMap<>(ValidationRule.class);
+    private final Map<CacheLookup, Counter> cacheLookupCounters = new EnumMap<>(CacheLookup.class);
+    private final Map<Admission, Counter> admissionCounters = new EnumMap<>(Admission.class);
+    private final Counter cacheEvictions;
+    private final Counter coalescedRequests;
+    private final DistributionSummary customersPerRequest;
+    private final DistributionSummary transactionsPerRequest;
+
+    public RewardsMetrics(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+        for (Stage stage : Stage.values()) {
+            stageTimers.put(stage, Timer.builder("rewards.stage")
+                    .description("Time taken by one stage of a rewards calculation")
+                    .tag("stage", stage.tagValue)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry));
+        }
+        for (Outcome outcome : Outcome.values()) {
+            requestTimers.put(outcome, Timer.builder("rewards.request")
+                    .description("Time taken by a rewards calculation request")
+                    .tag("outcome", outcome.tagValue)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry));
+        }
+        for (ValidationRule rule : ValidationRule.values()) {
+            validationFailureCounters.put(rule, Counter.builder("rewards.validation.failures")
+                    .description("Number of times a validation rule failed")
+                    .tag("rule", rule.name())
+                    .register(meterRegistry));
+        }
+        for (CacheLookup lookup : CacheLookup.values()) {
+            cacheLookupCounters.put(lookup, Counter.builder("rewards.cache.lookups")
+                    .description("Number of rewards requests looked up in the result cache")
+                    .tag("result", lookup.tagValue)
+                    .register(meterRegistry));
+        }
+        for (Admission admission : Admission.values()) {
+            admissionCounters.put(admission, Counter.builder("rewards.admission.requests")
+                    .description("Number of rewards requests admitted, queued for admission or rejected")
+                    .tag("result", admission.tagValue)
+                    .register(meterRegistry));
+        }
+        cacheEvictions = Counter.builder("rewards.cache.evictions")
+                .description("Number of responses evicted from the result cache")
+                .register(meterRegistry);
+        coalescedRequests = Counter.builder("rewards.request.coalesced")
+                .description("Number of requests that waited for an identical calculation already in flight")
+                .register(meterRegistry);
+        customersPerRequest = DistributionSummary.builder("rewards.request.customers")
+                .description("Number of customers in a rewards calculation request")
+                .baseUnit("customers")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        transactionsPerRequest = DistributionSummary.builder("rewards.request.transactions")
+                .description("Number of transactions in a rewards calculation request")
+                .baseUnit("transactions")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    public <T> T time(Stage stage, Supplier<T> work) {
+        return stageTimers.get(stage).record(work);
+    }
+
+    /**
+     * Records a stage whose time was added up in pieces, such as the name lookups made while a response is written.
+     */
+    public void recordStage(Stage stage, long nanos) {
+        stageTimers.get(stage).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public Timer.Sample startStage() {
+        return Timer.start(meterRegistry);
+    }
+
+    public void stopStage(Timer.Sample sample, Stage stage) {
+        sample.stop(stageTimers.get(stage));
+    }
+
+    public Timer.Sample startRequest() {
+        return Timer.start(meterRegistry);
+    }
+
+    /**
+     * @return the duration of the request in nanoseconds
+     */
+    public long stopRequest(Timer.Sample sample, Outcome outcome) {
+        return sample.stop(requestTimers.get(outcome));
+    }
+
+    public void recordRequestSize(long customerCount, long transactionCount) {
+        customersPerRequest.record(customerCount);
+        transactionsPerRequest.record(transactionCount);
+    }
+
+    public void recordValidationFailures(ValidationRuleCounts ruleCounts) {
+        for (ValidationRule rule : ValidationRule.values()) {
+            var count = ruleCounts.get(rule);
+            if (count > 0) {
+                validationFailureCounters.get(rule).increment(count);
+            }
+        }
+    }
+
+    public void recordCoalescedRequest() {
+        coalescedRequests.increment();
+    }
+
+    public void recordCacheLookup(CacheLookup lookup) {
+        cacheLookupCounters.get(lookup).increment();
+    }
+
+    public void recordCacheEvictions(int count) {
+        if (count > 0) {
+            cacheEvictions.increment(count);
+        }
+    }
+
+    public <T> void registerCacheGauges(T cache, ToDoubleFunction<T> entries, ToDoubleFunction<T> weightInBytes) {
+        Gauge.builder("rewards.cache.entries", cache, entries)
+                .description("Number of responses in the result cache")
+                .register(meterRegistry);
+        Gauge.builder("rewards.cache.weight", cache, weightInBytes)
+                .description("Total size of the responses in the result cache")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    public void recordAdmission(Admission admission) {
+        admissionCounters.get(admission).increment();
+    }
+
+    public <T> void registerAdmissionGauge(T admission, ToDoubleFunction<T> workUnitsInFlight) {
+        Gauge.builder("rewards.admission.in-flight", admission, workUnitsInFlight)
+                .description("Work units held by the rewards requests in flight")
+                .baseUnit("kilobytes")
+                .register(meterRegistry);
+    }
+}
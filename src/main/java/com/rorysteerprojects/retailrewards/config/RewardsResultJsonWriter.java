@@ -0,0 +1,120 @@
+package com.rorysteerprojects.retailrewards.config;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.rorysteerprojects.retailrewards.api.CustomerSummaryDTO;
+import com.rorysteerprojects.retailrewards.api.RewardsResultDTO;
+import com.rorysteerprojects.retailrewards.api.ValidationErrorDTO;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes a {@link RewardsResultDTO} field by field with a {@link JsonGenerator}, in the same shape Jackson binds
+ * it to.
+ * <p>
+ * The customer summaries are read and written one at a time, and the generator passes its buffer on to the
+ * response as it fills, so the writer holds neither the summaries nor the body in full.  Summaries built as they
+ * are read, as the service's are, are only ever held one at a time.  The body is still copied by the
+ * {@code RewardsResultCacheFilter} in front of /calculate-rewards, but only up to
+ * {@code rewards.cache.max-body-size}, past which the copy is dropped and the rest passes straight through.
+ */
+public final class RewardsResultJsonWriter {
+
+    private RewardsResultJsonWriter() {
+    }
+
+    public static void write(RewardsResultDTO result, JsonGenerator generator) throws IOException {
+        generator.writeStartObject();
+        generator.writeFieldName("customerSummaries");
+        if (result.getCustomerSummaries() == null) {
+            generator.writeNull();
+        }
+        else {
+            generator.writeStartArray();
+            for (CustomerSummaryDTO customerSummary : result.getCustomerSummaries()) {
+                writeCustomerSummary(customerSummary, generator);
+            }
+            generator.writeEndArray();
+        }
+        generator.writeFieldName("errors");
+        writeStrings(result.getErrors(), generator);
+        if (result.getValidationErrors() != null && !result.getValidationErrors().isEmpty()) {
+            generator.writeFieldName("validationErrors");
+            writeValidationErrors(result.getValidationErrors(), generator);
+        }
+        if (result.getErrorCounts() != null && !result.getErrorCounts().isEmpty()) {
+            generator.writeFieldName("errorCounts");
+            writeErrorCounts(result.getErrorCounts(), generator);
+        }
+        generator.writeEndObject();
+    }
+
+    static void writeCustomerSummary(CustomerSummaryDTO customerSummary, JsonGenerator generator)
+            throws IOException {
+        if (customerSummary == null) {
+            generator.writeNull();
+            return;
+        }
+        generator.writeStartObject();
+        generator.writeNumberField("customerId", customerSummary.getCustomerId());
+        generator.writeStringField("customerName", customerSummary.getCustomerName());
+        generator.writeNumberField("month1Rewards", customerSummary.getMonth1Rewards());
+        generator.writeNumberField("month2Rewards", customerSummary.getMonth2Rewards());
+        generator.writeNumberField("month3Rewards", customerSummary.getMonth3Rewards());
+        generator.writeNumberField("totalRewards", customerSummary.getTotalRewards());
+        generator.writeEndObject();
+    }
+
+    private static void writeStrings(List<String> strings, JsonGenerator generator) throws IOException {
+        if (strings == null) {
+            generator.writeNull();
+            return;
+        }
+        generator.writeStartArray();
+        for (String string : strings) {
+            generator.writeString(string);
+        }
+        generator.writeEndArray();
+    }
+
+    /**
+     * Fields that are null are left out, as {@link ValidationErrorDTO} asks.
+     */
+    private static void writeValidationErrors(List<ValidationErrorDTO> validationErrors, JsonGenerator generator)
+            throws IOException {
+        generator.writeStartArray();
+        for (ValidationErrorDTO validationError : validationErrors) {
+            generator.writeStartObject();
+            if (validationError.getRow() != null) {
+                generator.writeNumberField("row", validationError.getRow());
+            }
+            if (validationError.getField() != null) {
+                generator.writeStringField("field", validationError.getField());
+            }
+            if (validationError.getRule() != null) {
+                generator.writeStringField("rule", validationError.getRule());
+            }
+            if (validationError.getMessage() != null) {
+                generator.writeStringField("message", validationError.getMessage());
+            }
+            generator.writeEndObject();
+        }
+        generator.writeEndArray();
+    }
+
+    private static void writeErrorCounts(Map<String, Integer> errorCounts, JsonGenerator generator)
+            throws IOException {
+        generator.writeStartObject();
+        for (Map.Entry<String, Integer> errorCount : errorCounts.entrySet()) {
+            generator.writeFieldName(errorCount.getKey());
+            if (errorCount.getValue() == null) {
+                generator.writeNull();
+            }
+            else {
+                generator.writeNumber(errorCount.getValue());
+            }
+        }
+        generator.writeEndObject();
+    }
+}
@@ -0,0 +1,71 @@
+package com.rorysteerprojects.retailrewards.config;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.rorysteerprojects.retailrewards.api.CustomerTransactionsDTO;
+import com.rorysteerprojects.retailrewards.api.RewardsResultDTO;
+import com.rorysteerprojects.retailrewards.config.RewardsMetrics.Stage;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.util.StreamUtils;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+
+/**
+ * The JSON message converter Spring Boot would otherwise create, timing the binding of the rewards request and
+ * response bodies as the deserialization and serialization stages.
+ * <p>
+ * Rewards responses are written straight to the response body by the {@link RewardsResultJsonWriter}, a customer
+ * summary at a time, see there for what the result cache keeps of them.  The status has been set by then, from the
+ * errors of the result.
+ */
+public class TimedJacksonHttpMessageConverter extends MappingJackson2HttpMessageConverter {
+
+    private final RewardsMetrics rewardsMetrics;
+
+    public TimedJacksonHttpMessageConverter(ObjectMapper objectMapper, RewardsMetrics rewardsMetrics) {
+        super(objectMapper);
+        this.rewardsMetrics = rewardsMetrics;
+    }
+
+    @Override
+    public Object read(Type type, Class<?> contextClass, HttpInputMessage inputMessage)
+            throws IOException, HttpMessageNotReadableException {
+        if (type != CustomerTransactionsDTO.class) {
+            return super.read(type, contextClass, inputMessage);
+        }
+        var sample = rewardsMetrics.startStage();
+        try {
+            return super.read(type, contextClass, inputMessage);
+        }
+        finally {
+            rewardsMetrics.stopStage(sample, Stage.DESERIALIZATION);
+        }
+    }
+
+    @Override
+    protected void writeInternal(Object object, Type type, HttpOutputMessage outputMessage)
+            throws IOException, HttpMessageNotWritableException {
+        if (!(object instanceof RewardsResultDTO)) {
+            super.writeInternal(object, type, outputMessage);
+            return;
+        }
+        var sample = rewardsMetrics.startStage();
+        try (var generator = getObjectMapper().getFactory()
+                .createGenerator(StreamUtils.nonClosing(outputMessage.getBody()), JsonEncoding.UTF8)) {
+            if (getObjectMapper().isEnabled(SerializationFeature.INDENT_OUTPUT)) {
+                generator.useDefaultPrettyPrinter();
+            }
+            RewardsResultJsonWriter.write((RewardsResultDTO) object, generator);
+            generator.flush();
+        }
+        finally {
+            rewardsMetrics.stopStage(sample, Stage.SERIALIZATION);
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.rorysteerprojects.retailrewards.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * With {@code rewards.threads.virtual.enabled}, Tomcat handles each request on a new virtual thread instead of a
+ * thread from its fixed pool, so requests waiting on slow bodies or responses do not hold a platform thread.
+ * <p>
+ * Virtual threads are final from JDK 21, and the application is still compiled for 17, so the executor is looked
+ * up reflectively.  On an older JDK the setting is logged and ignored, and requests stay on the Tomcat pool.
+ */
+@Configuration
+public class VirtualThreadsConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(VirtualThreadsConfig.class);
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadsProtocolHandlerCustomizer(
+            @Value("${rewards.threads.virtual.enabled:false}") boolean virtualThreadsEnabled) {
+        var executor = virtualThreadsEnabled ? newVirtualThreadPerTaskExecutor() : Optional.<ExecutorService>empty();
+        if (virtualThreadsEnabled && executor.isEmpty()) {
+            logger.warn("rewards.threads.virtual.enabled is set but virtual threads need JDK 21, using the Tomcat pool");
+        }
+        return protocolHandler -> executor.ifPresent(protocolHandler::setExecutor);
+    }
+
+    /**
+     * @return whether this JVM can start virtual threads
+     */
+    public static boolean isAvailable() {
+        try {
+            Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return true;
+        }
+        catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
+    static Optional<ExecutorService> newVirtualThreadPerTaskExecutor() {
+        try {
+            return Optional.of((ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor")
+                    .invoke(null));
+        }
+        catch (ReflectiveOperationException e) {
+            return Optional.empty();
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.rorysteerprojects.retailrewards.domain;
+
+/**
+ * Integer arithmetic on dates held as epoch days (days since 1970-01-01) and months held as
+ * {@code year * 12 + month - 1}, so that the transaction loops never need a {@link java.time.LocalDate}.
+ * <p>
+ * The conversions are the proleptic Gregorian calendar used by {@link java.time.LocalDate}, computed with
+ * 400 year eras so there are no loops and no tables.
+ */
+public final class CalendarMonths {
+
+    private static final int DAYS_0000_03_01_TO_1970 = 719_468;
+    private static final int DAYS_PER_ERA = 146_097;
+
+    private CalendarMonths() {
+    }
+
+    /**
+     * @return the month containing {@code epochDay}, as {@code year * 12 + month - 1}
+     */
+    public static int monthOf(int epochDay) {
+        // Days are counted from 0000-03-01 so that the leap day falls at the end of the year.
+        long days = epochDay + (long) DAYS_0000_03_01_TO_1970;
+        var era = Math.floorDiv(days, DAYS_PER_ERA);
+        var dayOfEra = days - era * DAYS_PER_ERA;
+        var yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        var dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        var marchBasedMonth = (5 * dayOfYear + 2) / 153;
+        var month = marchBasedMonth < 10 ? marchBasedMonth + 3 : marchBasedMonth - 9;
+        var year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+        return (int) (year * 12 + month - 1);
+    }
+
+    /**
+     * @return the epoch day of the first day of {@code month}
+     */
+    public static long firstDayOf(int month) {
+        long year = Math.floorDiv(month, 12);
+        var monthOfYear = Math.floorMod(month, 12) + 1;
+        year -= monthOfYear <= 2 ? 1 : 0;
+        var era = Math.floorDiv(year, 400);
+        var yearOfEra = year - era * 400;
+        var dayOfYear = (153 * (monthOfYear > 2 ? monthOfYear - 3 : monthOfYear + 9) + 2) / 5;
+        var dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * DAYS_PER_ERA + dayOfEra - DAYS_0000_03_01_TO_1970;
+    }
+
+    /**
+     * @return {@code month} as a packed {@code yyyymm} number, such as {@code 202303} for March 2023
+     */
+    public static int toYearMonth(int month) {
+        return Math.floorDiv(month, 12) * 100 + Math.floorMod(month, 12) + 1;
+    }
+}
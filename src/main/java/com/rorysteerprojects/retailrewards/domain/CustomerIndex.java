@@ -0,0 +1,95 @@
+package com.rorysteerprojects.retailrewards.domain;
+
+/**
+ * Customer names keyed by customer id, held in an open addressing hash table of primitive arrays.
+ * <p>
+ * Built once per request as the customers are parsed, then used both to check that each transaction's customer
+ * exists and to put the names on the customer summaries.  Looking a customer up is a hash and a short probe with
+ * no boxing of the id.
+ */
+public class CustomerIndex {
+
+    private int[] customerIds;
+    private boolean[] occupied;
+    private String[] names;
+    private int mask;
+    private int size;
+
+    public CustomerIndex() {
+        this(OpenAddressing.MINIMUM_CAPACITY);
+    }
+
+    public CustomerIndex(int expectedCustomers) {
+        allocate(OpenAddressing.capacityFor(expectedCustomers));
+    }
+
+    /**
+     * @return false, leaving the existing name in place, if a customer with this id has already been added
+     */
+    public boolean add(int customerId, String name) {
+        var slot = OpenAddressing.hash(customerId) & mask;
+        while (occupied[slot]) {
+            if (customerIds[slot] == customerId) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        if (OpenAddressing.isFull(size, occupied.length)) {
+            grow();
+            return add(customerId, name);
+        }
+        occupied[slot] = true;
+        customerIds[slot] = customerId;
+        names[slot] = name;
+        size++;
+        return true;
+    }
+
+    public boolean contains(int customerId) {
+        return slotOf(customerId) >= 0;
+    }
+
+    public String getNameOrDefault(int customerId, String defaultName) {
+        var slot = slotOf(customerId);
+        return slot >= 0 ? names[slot] : defaultName;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    private int slotOf(int customerId) {
+        var slot = OpenAddressing.hash(customerId) & mask;
+        while (occupied[slot]) {
+            if (customerIds[slot] == customerId) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private void grow() {
+        var oldCustomerIds = customerIds;
+        var oldOccupied = occupied;
+        var oldNames = names;
+        allocate(oldOccupied.length * 2);
+        size = 0;
+        for (int oldSlot = 0; oldSlot < oldOccupied.length; oldSlot++) {
+            if (oldOccupied[oldSlot]) {
+                add(oldCustomerIds[oldSlot], oldNames[oldSlot]);
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        customerIds = new int[capacity];
+        occupied = new boolean[capacity];
+        names = new String[capacity];
+        mask = capacity - 1;
+    }
+}
@@ -0,0 +1,124 @@
+package com.rorysteerprojects.retailrewards.domain;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Monthly rewards totals keyed by customer id, held in an open addressing hash table of primitive arrays.
+ * <p>
+ * Each customer has one slot holding its three monthly counters, so adding a transaction's points is a hash, a
+ * probe and an increment: no boxing of customer ids and no per transaction arrays.  The table only allocates when
+ * it grows.
+ */
+public class CustomerRewardsTable {
+
+    static final int MONTHS = 3;
+
+    private int[] customerIds;
+    private boolean[] occupied;
+    private int[] rewards;
+    private int mask;
+    private int size;
+
+    public CustomerRewardsTable() {
+        this(OpenAddressing.MINIMUM_CAPACITY);
+    }
+
+    public CustomerRewardsTable(int expectedCustomers) {
+        allocate(OpenAddressing.capacityFor(expectedCustomers));
+    }
+
+    public void add(int customerId, int month, int points) {
+        var slot = slotFor(customerId);
+        rewards[slot * MONTHS + month] += points;
+    }
+
+    public void addAll(CustomerRewardsTable other) {
+        for (int otherSlot = 0; otherSlot < other.occupied.length; otherSlot++) {
+            if (other.occupied[otherSlot]) {
+                var slot = slotFor(other.customerIds[otherSlot]);
+                for (int month = 0; month < MONTHS; month++) {
+                    rewards[slot * MONTHS + month] += other.rewards[otherSlot * MONTHS + month];
+                }
+            }
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param firstMonth the calendar month of counter 0, as {@code year * 12 + month - 1}
+     */
+    public List<RewardsResult> toRewardsResults(int firstMonth) {
+        return toRewardsResults(0, firstMonth);
+    }
+
+    /**
+     * Results are in customer id order, so they do not depend on the order the customers were added in.
+     *
+     * @param firstCounter the counter that holds month 1; months 2 and 3 follow it, wrapping around
+     * @param firstMonth   the calendar month that month 1 is
+     */
+    List<RewardsResult> toRewardsResults(int firstCounter, int firstMonth) {
+        List<RewardsResult> results = new ArrayList<>(size);
+        for (int slot = 0; slot < occupied.length; slot++) {
+            if (occupied[slot]) {
+                results.add(resultAt(slot, firstCounter, firstMonth));
+            }
+        }
+        results.sort(Comparator.comparingInt(RewardsResult::customerId));
+        return results;
+    }
+
+    private RewardsResult resultAt(int slot, int firstCounter, int firstMonth) {
+        int[] monthlyTotals = new int[MONTHS];
+        int threeMonthTotal = 0;
+        for (int i = 0; i < MONTHS; i++) {
+            monthlyTotals[i] = rewards[slot * MONTHS + (firstCounter + i) % MONTHS];
+            threeMonthTotal += monthlyTotals[i];
+        }
+        return new RewardsResult(customerIds[slot], firstMonth, monthlyTotals, threeMonthTotal);
+    }
+
+    private int slotFor(int customerId) {
+        var slot = OpenAddressing.hash(customerId) & mask;
+        while (occupied[slot]) {
+            if (customerIds[slot] == customerId) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        if (OpenAddressing.isFull(size, occupied.length)) {
+            grow();
+            return slotFor(customerId);
+        }
+        occupied[slot] = true;
+        customerIds[slot] = customerId;
+        size++;
+        return slot;
+    }
+
+    private void grow() {
+        var oldCustomerIds = customerIds;
+        var oldOccupied = occupied;
+        var oldRewards = rewards;
+        allocate(oldOccupied.length * 2);
+        size = 0;
+        for (int oldSlot = 0; oldSlot < oldOccupied.length; oldSlot++) {
+            if (oldOccupied[oldSlot]) {
+                var slot = slotFor(oldCustomerIds[oldSlot]);
+                System.arraycopy(oldRewards, oldSlot * MONTHS, rewards, slot * MONTHS, MONTHS);
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        customerIds = new int[capacity];
+        occupied = new boolean[capacity];
+        rewards = new int[capacity * MONTHS];
+        mask = capacity - 1;
+    }
+}
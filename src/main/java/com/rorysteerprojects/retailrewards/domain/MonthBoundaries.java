@@ -0,0 +1,16 @@
+package com.rorysteerprojects.retailrewards.domain;
+
+/**
+ * The first days of months 2 and 3 of a summary as epoch days, worked out once per calculation so that putting a
+ * transaction in its month is two integer comparisons.
+ */
+record MonthBoundaries(long secondMonthStartDay, long thirdMonthStartDay) {
+
+    MonthBoundaries(int firstMonth) {
+        this(CalendarMonths.firstDayOf(firstMonth + 1), CalendarMonths.firstDayOf(firstMonth + 2));
+    }
+
+    int monthNumber(int epochDay) {
+        return (epochDay >= secondMonthStartDay ? 1 : 0) + (epochDay >= thirdMonthStartDay ? 1 : 0);
+    }
+}
@@ -0,0 +1,32 @@
+package com.rorysteerprojects.retailrewards.domain;
+
+/**
+ * Sizing and hashing shared by the int keyed open addressing tables.  Tables are powers of two in size and are
+ * kept at most half full, so probe sequences stay short.
+ */
+final class OpenAddressing {
+
+    static final int MINIMUM_CAPACITY = 16;
+
+    private static final int FIBONACCI_HASH_MULTIPLIER = 0x9E3779B9;
+
+    private OpenAddressing() {
+    }
+
+    static int capacityFor(int expectedKeys) {
+        var capacity = MINIMUM_CAPACITY;
+        while (capacity < expectedKeys * 2L) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    static boolean isFull(int size, int capacity) {
+        return (size + 1) * 2 > capacity;
+    }
+
+    static int hash(int key) {
+        var hash = key * FIBONACCI_HASH_MULTIPLIER;
+        return hash ^ (hash >>> 16);
+    }
+}
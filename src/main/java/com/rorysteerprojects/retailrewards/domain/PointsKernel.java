@@ -0,0 +1,20 @@
+package com.rorysteerprojects.retailrewards.domain;
+
+/**
+ * Works out the points and the month number of a run of transactions in one pass over the value and date
+ * columns, ready for the points to be added to a rewards table.
+ */
+interface PointsKernel {
+
+    /**
+     * For each transaction of {@code transactions} from index {@code from} up to {@code to}, writes the points
+     * to {@code points[i - from]} and the month number to {@code monthNumbers[i - from]}, with the same results as
+     * {@link RewardsTiers#points(long)} and {@link MonthBoundaries#monthNumber(int)}.
+     */
+    void compute(TransactionBatch transactions,
+                 int from,
+                 int to,
+                 MonthBoundaries monthBoundaries,
+                 int[] points,
+                 int[] monthNumbers);
+}
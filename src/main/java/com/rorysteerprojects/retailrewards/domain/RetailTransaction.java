@@ -2,5 +2,23 @@ package com.rorysteerprojects.retailrewards.domain;
 
 import java.time.LocalDate;
 
-public record RetailTransaction(int id, LocalDate date, int customerId, double value) {
+/**
+ * @param epochDay the date of the transaction as a count of days since 1970-01-01
+ */
+public record RetailTransaction(int id, int epochDay, int customerId, long valueInCents) {
+
+    public RetailTransaction(int id, LocalDate date, int customerId, long valueInCents) {
+        this(id, Math.toIntExact(date.toEpochDay()), customerId, valueInCents);
+    }
+
+    public LocalDate date() {
+        return LocalDate.ofEpochDay(epochDay);
+    }
+
+    /**
+     * @return the month of the transaction, as {@code year * 12 + month - 1}
+     */
+    public int month() {
+        return CalendarMonths.monthOf(epochDay);
+    }
 }
@@ -0,0 +1,54 @@
+package com.rorysteerprojects.retailrewards.domain;
+
+import java.util.List;
+
+/**
+ * Aggregates rewards one transaction at a time, without needing the full transaction list up front.
+ * <p>
+ * {@link RewardsCalculator#calculate(List)} anchors month 1 to the earliest transaction, which is only known once
+ * every transaction has been seen.  The accumulator instead buckets points by calendar month modulo 3: for any
+ * data set that spans at most three calendar months those buckets are distinct, so the months can be put back in
+ * order once the earliest month is known.  Data spanning more than three months is rejected by validation anyway,
+ * which {@link #isSpanMoreThanThreeMonths()} reports.
+ */
+public class RewardsAccumulator {
+
+    private static final int MONTHS_IN_SUMMARY = 3;
+
+    private final RewardsTiers rewardsTiers;
+    private final CustomerRewardsTable rewardsTable = new CustomerRewardsTable();
+    private int earliestMonth = Integer.MAX_VALUE;
+    private int latestMonth = Integer.MIN_VALUE;
+
+    RewardsAccumulator(RewardsTiers rewardsTiers) {
+        this.rewardsTiers = rewardsTiers;
+    }
+
+    public void add(RetailTransaction transaction) {
+        var month = transaction.month();
+        earliestMonth = Math.min(earliestMonth, month);
+        latestMonth = Math.max(latestMonth, month);
+
+        rewardsTable.add(transaction.customerId(),
+                Math.floorMod(month, MONTHS_IN_SUMMARY),
+                rewardsTiers.points(transaction.valueInCents()));
+    }
+
+    /**
+     * Adds the rewards aggregated by another accumulator.  Both bucket by calendar month, so accumulators fed
+     * disjoint parts of the same transactions combine to the same result as one fed all of them.
+     */
+    public void addAll(RewardsAccumulator other) {
+        earliestMonth = Math.min(earliestMonth, other.earliestMonth);
+        latestMonth = Math.max(latestMonth, other.latestMonth);
+        rewardsTable.addAll(other.rewardsTable);
+    }
+
+    public boolean isSpanMoreThanThreeMonths() {
+        return rewardsTable.size() > 0 && latestMonth - earliestMonth >= MONTHS_IN_SUMMARY;
+    }
+
+    public List<RewardsResult> results() {
+        return rewardsTable.toRewardsResults(Math.floorMod(earliestMonth, MONTHS_IN_SUMMARY), earliestMonth);
+    }
+}
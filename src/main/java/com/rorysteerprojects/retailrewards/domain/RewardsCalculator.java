@@ -1,83 +1,208 @@
 package com.rorysteerprojects.retailrewards.domain;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
-import java.time.LocalDate;
 import java.util.*;
-import java.util.function.UnaryOperator;
-import java.util.stream.Collectors;
-import java.util.stream.IntStream;
-
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Calculates the monthly rewards of each customer from their transactions, with the points for each transaction
+ * set by the {@link RewardsTiers}.
+ * <p>
+ * With {@code rewards.vector-kernel.enabled} the points and month numbers are worked out a block at a time by a
+ * kernel on the incubating Vector API, when the JVM was started with {@code --add-modules jdk.incubator.vector}.
+ * Without the module, or without the flag, the scalar loop is used.  The results are the same either way.
+ */
 @Component
 public class RewardsCalculator {
 
-    private static final int THRESHOLD_FOR_SINGLE_POINTS = 50;
-    private static final int THRESHOLD_FOR_DOUBLE_POINTS = 100;
+    private static final int KERNEL_BLOCK_SIZE = 1024;
+    private static final String VECTOR_MODULE = "jdk.incubator.vector";
+
+    private final RewardsTiers rewardsTiers;
+    /**
+     * Null when the scalar loop is used.
+     */
+    private final PointsKernel pointsKernel;
+    private final Logger logger = LoggerFactory.getLogger(getClass());
+
+    public RewardsCalculator() {
+        this(RewardsTiers.DEFAULT);
+    }
+
+    public RewardsCalculator(RewardsTiers rewardsTiers) {
+        this.rewardsTiers = rewardsTiers;
+        this.pointsKernel = null;
+    }
+
+    @Autowired
+    public RewardsCalculator(RewardsTiers rewardsTiers,
+                             @Value("${rewards.vector-kernel.enabled:false}") boolean vectorKernelEnabled) {
+        this.rewardsTiers = rewardsTiers;
+        this.pointsKernel = vectorKernelEnabled ? loadVectorKernel() : null;
+    }
+
+    boolean usesVectorKernel() {
+        return pointsKernel != null;
+    }
+
+    PointsKernel pointsKernel() {
+        return pointsKernel;
+    }
+
     public List<RewardsResult> calculate(List<RetailTransaction> transactions) {
+        return calculate(TransactionBatch.of(transactions));
+    }
+
+    public List<RewardsResult> calculate(TransactionBatch transactions) {
         if (transactions.isEmpty()) {
             return Collections.emptyList();
         }
-        var secondMonthStartDate = calculateTheDateOfTheFirstDayOfTheSecondMonth(transactions);
-        var thirdMonthStartDate = secondMonthStartDate.plusMonths(1);
-
-
-        Map<Integer, int[]> rewardsByCustomerId = transactions.stream()
-                .collect(Collectors.toMap(RetailTransaction::customerId,
-                        transaction -> getRewardsForTransaction(transaction, secondMonthStartDate, thirdMonthStartDate),
-                        this::combineRewardsArrays
-                ));
-
-        return rewardsByCustomerId.entrySet()
-                .stream()
-                .map(entrySet -> new RewardsResult(entrySet.getKey(),
-                        entrySet.getValue(),
-                        IntStream.of(entrySet.getValue()).sum()))
-                .toList();
+        var firstMonth = calculateTheFirstMonth(transactions);
+        var monthBoundaries = new MonthBoundaries(firstMonth);
+
+
+        var rewardsTable = new CustomerRewardsTable();
+        aggregate(transactions, 0, transactions.size(), monthBoundaries, rewardsTiers, pointsKernel, rewardsTable);
+
+        return rewardsTable.toRewardsResults(firstMonth);
         //  Authors Note:  I realize I can combine the two statements above. I chose not to do so deliberately for
         //   readability and maintainability.  I favor easy to read code versus train wrecks of cleverness.
     }
 
-    private LocalDate calculateTheDateOfTheFirstDayOfTheSecondMonth(List<RetailTransaction> transactions) {
-        var transactionWithEarliestDate = transactions.stream().min(Comparator.comparing(RetailTransaction::date));
-        return LocalDate.of(transactionWithEarliestDate.get().date().getYear(),
-                transactionWithEarliestDate.get().date().getMonth(),
-                1).plusMonths(1);
+    public List<RewardsResult> calculate(List<RetailTransaction> transactions, ForkJoinPool pool, int chunkSize) {
+        return calculate(TransactionBatch.of(transactions), pool, chunkSize);
     }
 
-    private int[] getRewardsForTransaction(RetailTransaction transaction,
-                                           LocalDate secondMonthStartDate,
-                                           LocalDate thirdMonthStartDate) {
+    /**
+     * Aggregates chunks of at most {@code chunkSize} transactions into partial customer totals on {@code pool},
+     * merging the partial totals as the chunks complete.  The results are the same as
+     * {@link #calculate(TransactionBatch)}.
+     */
+    public List<RewardsResult> calculate(TransactionBatch transactions, ForkJoinPool pool, int chunkSize) {
+        if (transactions.size() <= chunkSize) {
+            return calculate(transactions);
+        }
+        var firstMonth = calculateTheFirstMonth(transactions);
+        var monthBoundaries = new MonthBoundaries(firstMonth);
 
-        var monthNumber = transaction.date().isBefore(secondMonthStartDate) ? 0 :
-                transaction.date().isBefore(thirdMonthStartDate) ? 1 :
-                        2;
+        var rewardsTable = pool.invoke(
+                new AggregateTask(transactions, 0, transactions.size(), monthBoundaries, rewardsTiers, pointsKernel,
+                        chunkSize));
 
-        int[] rewards = {0, 0, 0};
-        rewards[monthNumber] = getRewardsPoints(transaction);
-        return rewards;
+        return rewardsTable.toRewardsResults(firstMonth);
     }
 
-    private int getRewardsPoints(RetailTransaction transaction) {
-        if (transaction.value() < THRESHOLD_FOR_SINGLE_POINTS) {
-            return 0;
+    public RewardsAccumulator newAccumulator() {
+        return new RewardsAccumulator(rewardsTiers);
+    }
+
+    private int calculateTheFirstMonth(TransactionBatch transactions) {
+        var earliestEpochDay = transactions.epochDay(0);
+        for (int i = 1; i < transactions.size(); i++) {
+            earliestEpochDay = Math.min(earliestEpochDay, transactions.epochDay(i));
         }
+        return CalendarMonths.monthOf(earliestEpochDay);
+    }
 
-        var wholeDollars = (int) transaction.value();
-        var calculator = transaction.value() > THRESHOLD_FOR_DOUBLE_POINTS ?
-                calculateDoublePoints : calculateSinglePoints;
-        return calculator.apply(wholeDollars);
+    /**
+     * Adds the transactions from index {@code from} up to {@code to} to the table, reading the columns by index.
+     * With a kernel the points and month numbers of each block of transactions are worked out first and then
+     * added to the table.
+     */
+    private static void aggregate(TransactionBatch transactions,
+                                  int from,
+                                  int to,
+                                  MonthBoundaries monthBoundaries,
+                                  RewardsTiers rewardsTiers,
+                                  PointsKernel pointsKernel,
+                                  CustomerRewardsTable rewardsTable) {
+        if (pointsKernel == null) {
+            for (int i = from; i < to; i++) {
+                rewardsTable.add(transactions.customerId(i),
+                        monthBoundaries.monthNumber(transactions.epochDay(i)),
+                        rewardsTiers.points(transactions.valueInCents(i)));
+            }
+            return;
+        }
+        var points = new int[Math.min(KERNEL_BLOCK_SIZE, to - from)];
+        var monthNumbers = new int[points.length];
+        for (int blockStart = from; blockStart < to; blockStart += KERNEL_BLOCK_SIZE) {
+            var blockEnd = Math.min(blockStart + KERNEL_BLOCK_SIZE, to);
+            pointsKernel.compute(transactions, blockStart, blockEnd, monthBoundaries, points, monthNumbers);
+            for (int i = blockStart; i < blockEnd; i++) {
+                rewardsTable.add(transactions.customerId(i), monthNumbers[i - blockStart], points[i - blockStart]);
+            }
+        }
     }
 
-    UnaryOperator<Integer> calculateDoublePoints = wholeDollars ->
-            wholeDollars * 2 - THRESHOLD_FOR_DOUBLE_POINTS - THRESHOLD_FOR_SINGLE_POINTS;
+    /**
+     * The kernel class refers to the incubator module, so it is compiled in the separate {@code vector} source set
+     * and only loaded once the module is known to be present.
+     */
+    private PointsKernel loadVectorKernel() {
+        if (ModuleLayer.boot().findModule(VECTOR_MODULE).isEmpty()) {
+            logger.warn("rewards.vector-kernel.enabled is set but the {} module is not present, using the scalar loop",
+                    VECTOR_MODULE);
+            return null;
+        }
+        try {
+            return (PointsKernel) Class.forName(RewardsCalculator.class.getPackageName() + ".VectorPointsKernel")
+                    .getDeclaredConstructor(RewardsTiers.class)
+                    .newInstance(rewardsTiers);
+        }
+        catch (ReflectiveOperationException | LinkageError e) {
+            logger.warn("The vector kernel could not be loaded, using the scalar loop", e);
+            return null;
+        }
+    }
 
-    UnaryOperator<Integer>  calculateSinglePoints = wholeDollars -> wholeDollars - THRESHOLD_FOR_SINGLE_POINTS;
+    private static class AggregateTask extends RecursiveTask<CustomerRewardsTable> {
+        private final TransactionBatch transactions;
+        private final int from;
+        private final int to;
+        private final MonthBoundaries monthBoundaries;
+        private final RewardsTiers rewardsTiers;
+        private final PointsKernel pointsKernel;
+        private final int chunkSize;
+
+        AggregateTask(TransactionBatch transactions,
+                      int from,
+                      int to,
+                      MonthBoundaries monthBoundaries,
+                      RewardsTiers rewardsTiers,
+                      PointsKernel pointsKernel,
+                      int chunkSize) {
+            this.transactions = transactions;
+            this.from = from;
+            this.to = to;
+            this.monthBoundaries = monthBoundaries;
+            this.rewardsTiers = rewardsTiers;
+            this.pointsKernel = pointsKernel;
+            this.chunkSize = chunkSize;
+        }
 
-    private int[] combineRewardsArrays(int[] existingRewards, int[] rewardsToAdd) {
-        int[] rewardsTotal = new int[]{0, 0, 0};
-        for (int i = 0; i < rewardsTotal.length; i++) {
-            rewardsTotal[i] = existingRewards[i] + rewardsToAdd[i];
+        @Override
+        protected CustomerRewardsTable compute() {
+            if (to - from <= chunkSize) {
+                var rewardsTable = new CustomerRewardsTable();
+                aggregate(transactions, from, to, monthBoundaries, rewardsTiers, pointsKernel, rewardsTable);
+                return rewardsTable;
+            }
+            var middle = (from + to) >>> 1;
+            var firstHalf = new AggregateTask(transactions, from, middle, monthBoundaries, rewardsTiers, pointsKernel,
+                    chunkSize);
+            var secondHalf = new AggregateTask(transactions, middle, to, monthBoundaries, rewardsTiers, pointsKernel,
+                    chunkSize);
+            firstHalf.fork();
+            var rewardsTable = secondHalf.compute();
+            rewardsTable.addAll(firstHalf.join());
+            return rewardsTable;
         }
-        return rewardsTotal;
     }
 }
@@ -0,0 +1,243 @@
+package com.rorysteerprojects.retailrewards.domain;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Monthly rewards totals that are kept up to date as transactions are appended, so a customer's summary can be
+ * read at any time without recalculating it.
+ * <p>
+ * Customers are divided between a fixed number of stripes by the high bits of their hashed id.  Each stripe holds
+ * the names and the rewards table of its customers and is guarded by its own lock, so appends and queries for
+ * customers in different stripes do not contend.
+ * <p>
+ * The ledger covers a sliding window of three calendar months ending with the latest month it has seen.  Appending
+ * a transaction for a later month rolls the window on; each stripe's {@link RollingRewardsWindow} evicts the
+ * months that fall out of it.
+ */
+public class RewardsLedger {
+
+    private static final int MONTHS_IN_SUMMARY = 3;
+
+    private final RewardsTiers rewardsTiers;
+    private final Stripe[] stripes;
+    private final int stripeShift;
+    private final AtomicInteger latestMonth = new AtomicInteger(Integer.MIN_VALUE);
+
+    public RewardsLedger(int stripeCount) {
+        this(stripeCount, RewardsTiers.DEFAULT);
+    }
+
+    /**
+     * @param stripeCount the number of stripes, rounded up to a power of two
+     */
+    public RewardsLedger(int stripeCount, RewardsTiers rewardsTiers) {
+        this.rewardsTiers = rewardsTiers;
+        var stripeBits = 32 - Integer.numberOfLeadingZeros(Math.max(stripeCount, 1) - 1);
+        this.stripes = new Stripe[1 << stripeBits];
+        this.stripeShift = 32 - stripeBits;
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    public boolean containsCustomer(int customerId) {
+        var stripe = stripeFor(customerId);
+        synchronized (stripe) {
+            return stripe.customers.contains(customerId);
+        }
+    }
+
+    /**
+     * @return those of {@code customerIds} that are in the ledger, without their names.  Each stripe's lock is
+     * taken at most once, however many ids there are.
+     */
+    public CustomerIndex findCustomers(int[] customerIds) {
+        var found = new CustomerIndex();
+        var byStripe = byStripe(customerIds.length, i -> customerIds[i]);
+        for (int stripeIndex = 0; stripeIndex < stripes.length; stripeIndex++) {
+            if (byStripe.isEmpty(stripeIndex)) {
+                continue;
+            }
+            var stripe = stripes[stripeIndex];
+            synchronized (stripe) {
+                for (int i = byStripe.starts[stripeIndex]; i < byStripe.starts[stripeIndex + 1]; i++) {
+                    var customerId = customerIds[byStripe.indexes[i]];
+                    if (stripe.customers.contains(customerId)) {
+                        found.add(customerId, null);
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Adds the customers and transactions to the ledger, rolling the window on to the month of the latest
+     * transaction if that is later than the window.  Customers already in the ledger keep their name.  Every
+     * transaction must be for a customer in the ledger or in {@code customers}.
+     * <p>
+     * Nothing is appended if the transactions span more than three calendar months, or if any of them would be
+     * before the window.  A transaction can still fall out of the window if another append rolls it on while this
+     * one is being applied; its points are dropped and it is counted in
+     * {@link AppendResult#transactionsDropped()}.  Each transaction counted as appended was in the window when its
+     * points were added, so {@link #find(int)} saw them until the window rolled on past their month.
+     */
+    public AppendResult append(List<Customer> customers, List<RetailTransaction> transactions) {
+        return append(customers, TransactionBatch.of(transactions));
+    }
+
+    /**
+     * The same as {@link #append(List, List)}, for transactions held in a {@link TransactionBatch}.
+     */
+    public AppendResult append(List<Customer> customers, TransactionBatch transactions) {
+        var appendStatus = rollWindow(transactions);
+        if (appendStatus != AppendStatus.APPENDED) {
+            return new AppendResult(appendStatus, 0, 0);
+        }
+        for (Customer customer : customers) {
+            var stripe = stripeFor(customer.id());
+            synchronized (stripe) {
+                stripe.customers.add(customer.id(), customer.name());
+            }
+        }
+
+        // Group the transactions by stripe so that each stripe's lock is taken once per append.
+        var byStripe = byStripe(transactions.size(), transactions::customerId);
+        var dropped = 0;
+        for (int stripeIndex = 0; stripeIndex < stripes.length; stripeIndex++) {
+            if (byStripe.isEmpty(stripeIndex)) {
+                continue;
+            }
+            var stripe = stripes[stripeIndex];
+            synchronized (stripe) {
+                for (int i = byStripe.starts[stripeIndex]; i < byStripe.starts[stripeIndex + 1]; i++) {
+                    var transaction = byStripe.indexes[i];
+                    // Another append may have rolled the window past this transaction's month since it was
+                    // checked, and before it reached this customer's buckets, so the month is checked again
+                    // against the window as it is now.
+                    if (!stripe.rewards.add(transactions.customerId(transaction),
+                            CalendarMonths.monthOf(transactions.epochDay(transaction)),
+                            rewardsTiers.points(transactions.valueInCents(transaction)),
+                            latestMonth.get() - (MONTHS_IN_SUMMARY - 1))) {
+                        dropped++;
+                    }
+                }
+            }
+        }
+        return new AppendResult(AppendStatus.APPENDED, transactions.size() - dropped, dropped);
+    }
+
+    /**
+     * @return the customer's name and rewards for the three months of the window, with zero rewards if the
+     * customer has no transactions in the window, or empty if the customer is not in the ledger
+     */
+    public Optional<Entry> find(int customerId) {
+        var windowLatestMonth = latestMonth.get();
+        var stripe = stripeFor(customerId);
+        synchronized (stripe) {
+            if (!stripe.customers.contains(customerId)) {
+                return Optional.empty();
+            }
+            var rewards = stripe.rewards.find(customerId, windowLatestMonth);
+            return Optional.of(new Entry(stripe.customers.getNameOrDefault(customerId, null),
+                    rewards != null ? rewards : new RewardsResult(customerId,
+                            windowLatestMonth - (MONTHS_IN_SUMMARY - 1),
+                            new int[MONTHS_IN_SUMMARY],
+                            0)));
+        }
+    }
+
+    public record Entry(String customerName, RewardsResult rewards) {
+    }
+
+    /**
+     * @param transactionsAppended the transactions whose points were added
+     * @param transactionsDropped  the transactions whose points were dropped because another append rolled the
+     *                             window past their month, before their points were added, while this one was
+     *                             being applied
+     */
+    public record AppendResult(AppendStatus status, int transactionsAppended, int transactionsDropped) {
+    }
+
+    public enum AppendStatus {
+        APPENDED,
+        SPANS_MORE_THAN_THREE_MONTHS,
+        BEFORE_WINDOW
+    }
+
+    private AppendStatus rollWindow(TransactionBatch transactions) {
+        if (transactions.isEmpty()) {
+            return AppendStatus.APPENDED;
+        }
+        var earliest = Integer.MAX_VALUE;
+        var latest = Integer.MIN_VALUE;
+        for (int i = 0; i < transactions.size(); i++) {
+            var month = CalendarMonths.monthOf(transactions.epochDay(i));
+            earliest = Math.min(earliest, month);
+            latest = Math.max(latest, month);
+        }
+        if (latest - earliest >= MONTHS_IN_SUMMARY) {
+            return AppendStatus.SPANS_MORE_THAN_THREE_MONTHS;
+        }
+        while (true) {
+            var current = latestMonth.get();
+            var rolled = Math.max(current, latest);
+            if (rolled - earliest >= MONTHS_IN_SUMMARY) {
+                return AppendStatus.BEFORE_WINDOW;
+            }
+            if (rolled == current || latestMonth.compareAndSet(current, rolled)) {
+                return AppendStatus.APPENDED;
+            }
+        }
+    }
+
+    /**
+     * Orders the indexes {@code 0} to {@code count - 1} by the stripe of the customer {@code customerIdAt} gives
+     * for each, keeping their order within a stripe.
+     */
+    private StripeOrder byStripe(int count, IntUnaryOperator customerIdAt) {
+        var stripeOf = new int[count];
+        var starts = new int[stripes.length + 1];
+        for (int i = 0; i < count; i++) {
+            stripeOf[i] = stripeIndex(customerIdAt.applyAsInt(i));
+            starts[stripeOf[i] + 1]++;
+        }
+        for (int i = 0; i < stripes.length; i++) {
+            starts[i + 1] += starts[i];
+        }
+        var next = starts.clone();
+        var indexes = new int[count];
+        for (int i = 0; i < count; i++) {
+            indexes[next[stripeOf[i]]++] = i;
+        }
+        return new StripeOrder(indexes, starts);
+    }
+
+    /**
+     * @param indexes the indexes in stripe order
+     * @param starts  the position in {@code indexes} at which each stripe's indexes start, with the count at the end
+     */
+    private record StripeOrder(int[] indexes, int[] starts) {
+
+        boolean isEmpty(int stripeIndex) {
+            return starts[stripeIndex] == starts[stripeIndex + 1];
+        }
+    }
+
+    private Stripe stripeFor(int customerId) {
+        return stripes[stripeIndex(customerId)];
+    }
+
+    private int stripeIndex(int customerId) {
+        // The rewards tables index by the low bits of the same hash, so the stripe is chosen by the high bits.
+        return stripeShift == 32 ? 0 : OpenAddressing.hash(customerId) >>> stripeShift;
+    }
+
+    private static class Stripe {
+        private final CustomerIndex customers = new CustomerIndex();
+        private final RollingRewardsWindow rewards = new RollingRewardsWindow();
+    }
+}
@@ -1,4 +1,8 @@
 package com.rorysteerprojects.retailrewards.domain;
 
-public record RewardsResult(int customerId, int[] monthlyTotals, int threeMonthTotal) {
+/**
+ * @param firstMonth the month of {@code monthlyTotals[0]}, as {@code year * 12 + month - 1}; see
+ *                   {@link CalendarMonths#toYearMonth(int)}
+ */
+public record RewardsResult(int customerId, int firstMonth, int[] monthlyTotals, int threeMonthTotal) {
 }
@@ -0,0 +1,191 @@
+package com.rorysteerprojects.retailrewards.domain;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * The points a transaction earns, from tiers of points per whole dollar over a threshold, compiled into a flat
+ * table for evaluation.
+ * <p>
+ * Each tier sets the points earned for every whole dollar over its threshold, up to the next tier's threshold.
+ * A tier with no points per dollar caps the points earned, and {@code maxPointsPerTransaction} caps them
+ * outright.  The tiers are sorted by threshold and the points earned up to each threshold are worked out once.
+ * The points for each whole dollar up to the last threshold are then looked up in a table, and past it they are
+ * a multiply and an add, so the cost per transaction does not grow with the number of tiers.  When the last
+ * threshold is too far out for the table, the values between the end of the table and the last threshold fall
+ * back to a binary search of the thresholds, which takes the same number of steps for a given number of tiers.
+ * <p>
+ * Tiers are written as {@code dollars:pointsPerDollar} separated by commas.  The original rules, one point per
+ * dollar over $50 and two points per dollar over $100, are {@code 50:1,100:2}.
+ */
+public final class RewardsTiers {
+
+    public static final RewardsTiers DEFAULT = parse("50:1,100:2", Integer.MAX_VALUE);
+
+    private static final long CENTS_PER_DOLLAR = 100;
+    private static final int MAX_TABLE_SIZE = 1 << 16;
+
+    private final List<Tier> tiers;
+    private final int maxPointsPerTransaction;
+    /**
+     * The start of each segment of the table in whole dollars, beginning with a segment from 0 that earns nothing.
+     */
+    private final long[] segmentStarts;
+    private final long[] pointsPerDollar;
+    /**
+     * The points earned up to the start of each segment, at most {@link Integer#MAX_VALUE}.
+     */
+    private final long[] pointsAtSegmentStart;
+    /**
+     * The points for each whole dollar from 0 up to the last threshold, or up to {@link #MAX_TABLE_SIZE} if that
+     * is sooner.
+     */
+    private final int[] pointsByWholeDollar;
+    private final int lastSegment;
+
+    public record Tier(long overDollars, int pointsPerDollar) {
+    }
+
+    private RewardsTiers(List<Tier> tiers, int maxPointsPerTransaction) {
+        this.tiers = tiers;
+        this.maxPointsPerTransaction = maxPointsPerTransaction;
+        segmentStarts = new long[tiers.size() + 1];
+        pointsPerDollar = new long[tiers.size() + 1];
+        pointsAtSegmentStart = new long[tiers.size() + 1];
+        for (int i = 0; i < tiers.size(); i++) {
+            segmentStarts[i + 1] = tiers.get(i).overDollars();
+            pointsPerDollar[i + 1] = tiers.get(i).pointsPerDollar();
+            pointsAtSegmentStart[i + 1] = pointsUpTo(i, segmentStarts[i + 1]);
+        }
+        lastSegment = tiers.size();
+        pointsByWholeDollar = new int[(int) Math.min(segmentStarts[lastSegment] + 1, MAX_TABLE_SIZE)];
+        for (int wholeDollars = 0; wholeDollars < pointsByWholeDollar.length; wholeDollars++) {
+            pointsByWholeDollar[wholeDollars] = searchPoints(wholeDollars);
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException if two tiers have the same threshold, or a threshold, points per dollar or
+     *                                  {@code maxPointsPerTransaction} is negative
+     */
+    public static RewardsTiers of(List<Tier> tiers, int maxPointsPerTransaction) {
+        if (maxPointsPerTransaction < 0) {
+            throw new IllegalArgumentException("The maximum points per transaction must not be negative");
+        }
+        var sortedTiers = new ArrayList<>(tiers);
+        sortedTiers.sort(Comparator.comparingLong(Tier::overDollars));
+        for (int i = 0; i < sortedTiers.size(); i++) {
+            var tier = sortedTiers.get(i);
+            if (tier.overDollars() < 0 || tier.pointsPerDollar() < 0) {
+                throw new IllegalArgumentException("Tier " + tier + " must not be negative");
+            }
+            if (i > 0 && sortedTiers.get(i - 1).overDollars() == tier.overDollars()) {
+                throw new IllegalArgumentException("There is more than one tier over $" + tier.overDollars());
+            }
+        }
+        return new RewardsTiers(List.copyOf(sortedTiers), maxPointsPerTransaction);
+    }
+
+    /**
+     * @param definition tiers written as {@code dollars:pointsPerDollar} separated by commas, in any order
+     * @throws IllegalArgumentException if the definition is not well formed or {@link #of(List, int)} rejects the
+     *                                  tiers
+     */
+    public static RewardsTiers parse(String definition, int maxPointsPerTransaction) {
+        List<Tier> tiers = new ArrayList<>();
+        for (String entry : definition.split(",")) {
+            if (entry.isBlank()) {
+                continue;
+            }
+            var parts = entry.split(":");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Tier '" + entry.trim() + "' is not dollars:pointsPerDollar");
+            }
+            try {
+                tiers.add(new Tier(Long.parseLong(parts[0].trim()), Integer.parseInt(parts[1].trim())));
+            }
+            catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Tier '" + entry.trim() + "' is not dollars:pointsPerDollar", e);
+            }
+        }
+        return of(tiers, maxPointsPerTransaction);
+    }
+
+    public List<Tier> tiers() {
+        return tiers;
+    }
+
+    public int maxPointsPerTransaction() {
+        return maxPointsPerTransaction;
+    }
+
+    /**
+     * @return the points earned by a transaction of {@code valueInCents}, at most
+     * {@link #maxPointsPerTransaction()}
+     */
+    public int points(long valueInCents) {
+        var wholeDollars = valueInCents / CENTS_PER_DOLLAR;
+        if (wholeDollars > segmentStarts[lastSegment]) {
+            return (int) Math.min(pointsUpTo(lastSegment, wholeDollars), maxPointsPerTransaction);
+        }
+        if (wholeDollars < pointsByWholeDollar.length) {
+            return pointsByWholeDollar[(int) Math.max(wholeDollars, 0)];
+        }
+        return searchPoints(wholeDollars);
+    }
+
+    /**
+     * Finds the last segment starting below {@code wholeDollars}.  Segment 0 starts at 0 and earns nothing, so
+     * values of $0 or less land in it whatever the search does.
+     */
+    private int searchPoints(long wholeDollars) {
+        var segment = 0;
+        for (int remaining = segmentStarts.length; remaining > 1; ) {
+            var half = remaining >>> 1;
+            segment = segmentStarts[segment + half] < wholeDollars ? segment + half : segment;
+            remaining -= half;
+        }
+        return (int) Math.min(pointsUpTo(segment, wholeDollars), maxPointsPerTransaction);
+    }
+
+    /**
+     * The threshold of each tier in whole dollars, for {@link #pointsPerDollarSteps()}.
+     */
+    long[] thresholds() {
+        return tiers.stream().mapToLong(Tier::overDollars).toArray();
+    }
+
+    /**
+     * The change in points per dollar at each of the {@link #thresholds()}, so that the points for a value are
+     * the sum over the tiers of its step times the whole dollars over its threshold, as long as that sum stays in
+     * range.
+     */
+    long[] pointsPerDollarSteps() {
+        var steps = new long[tiers.size()];
+        for (int i = 0; i < tiers.size(); i++) {
+            steps[i] = pointsPerDollar[i + 1] - pointsPerDollar[i];
+        }
+        return steps;
+    }
+
+    /**
+     * Spans longer than {@link Integer#MAX_VALUE} dollars are shortened to it, which can only change a result
+     * that is over {@link Integer#MAX_VALUE} anyway.
+     */
+    private long pointsUpTo(int segment, long wholeDollars) {
+        var dollarsInSegment = Math.min(wholeDollars - segmentStarts[segment], Integer.MAX_VALUE);
+        return Math.min(pointsAtSegmentStart[segment] + pointsPerDollar[segment] * dollarsInSegment,
+                Integer.MAX_VALUE);
+    }
+
+    @Override
+    public String toString() {
+        var definition = new StringBuilder();
+        for (Tier tier : tiers) {
+            definition.append(definition.isEmpty() ? "" : ",").append(tier.overDollars()).append(':')
+                    .append(tier.pointsPerDollar());
+        }
+        return definition.toString();
+    }
+}
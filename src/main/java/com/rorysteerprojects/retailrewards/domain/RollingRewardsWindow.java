@@ -0,0 +1,153 @@
+package com.rorysteerprojects.retailrewards.domain;
+
+/**
+ * Rewards for a sliding window of three calendar months, keyed by customer id.
+ * <p>
+ * Each customer has a ring of three monthly buckets, indexed by month modulo 3, and each bucket records the month
+ * it holds.  When points arrive for a month that is newer than the month in its bucket, the bucket is evicted and
+ * reused, so rolling on to a new month costs nothing up front and each customer's ring is brought up to date in
+ * constant time the next time it is touched.  The three month total of each customer is kept up to date as
+ * points are added and buckets are evicted, less any buckets that have gone out of the window since.
+ * <p>
+ * Memory is fixed per customer, however many months the window rolls through.  Months are counted as
+ * {@code year * 12 + month - 1}.
+ */
+public class RollingRewardsWindow {
+
+    static final int MONTHS = 3;
+
+    private int[] customerIds;
+    private boolean[] occupied;
+    private int[] rewards;
+    private int[] bucketMonths;
+    private int[] totals;
+    private int mask;
+    private int size;
+
+    public RollingRewardsWindow() {
+        this(OpenAddressing.MINIMUM_CAPACITY);
+    }
+
+    public RollingRewardsWindow(int expectedCustomers) {
+        allocate(OpenAddressing.capacityFor(expectedCustomers));
+    }
+
+    /**
+     * Adds points for the customer in {@code month}.  Points for a month older than the one already in the
+     * month's bucket are out of the window and are dropped.
+     *
+     * @return false if the points were dropped
+     */
+    public boolean add(int customerId, int month, int points) {
+        return add(customerId, month, points, Integer.MIN_VALUE);
+    }
+
+    /**
+     * Adds points for the customer in {@code month}, unless the month is before {@code earliestMonth}, the first
+     * month of the window the points are read back with, or older than the one already in the month's bucket.
+     *
+     * @return false if the points were dropped
+     */
+    public boolean add(int customerId, int month, int points, int earliestMonth) {
+        if (month < earliestMonth) {
+            return false;
+        }
+        var slot = slotFor(customerId);
+        var bucket = slot * MONTHS + Math.floorMod(month, MONTHS);
+        if (bucketMonths[bucket] != month) {
+            if (bucketMonths[bucket] > month) {
+                return false;
+            }
+            totals[slot] -= rewards[bucket];
+            rewards[bucket] = 0;
+            bucketMonths[bucket] = month;
+        }
+        rewards[bucket] += points;
+        totals[slot] += points;
+        return true;
+    }
+
+    /**
+     * @return the customer's rewards for the three months ending with {@code latestMonth}, month 1 being the
+     * earliest, or null if no points have been added for the customer
+     */
+    public RewardsResult find(int customerId, int latestMonth) {
+        var slot = OpenAddressing.hash(customerId) & mask;
+        while (occupied[slot]) {
+            if (customerIds[slot] == customerId) {
+                return resultAt(slot, latestMonth);
+            }
+            slot = (slot + 1) & mask;
+        }
+        return null;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private RewardsResult resultAt(int slot, int latestMonth) {
+        int[] monthlyTotals = new int[MONTHS];
+        var threeMonthTotal = totals[slot];
+        for (int i = 0; i < MONTHS; i++) {
+            var month = latestMonth - (MONTHS - 1) + i;
+            var bucket = slot * MONTHS + Math.floorMod(month, MONTHS);
+            if (bucketMonths[bucket] == month) {
+                monthlyTotals[i] = rewards[bucket];
+            }
+            else {
+                // The bucket still holds a month that has rolled out of the window.
+                threeMonthTotal -= rewards[bucket];
+            }
+        }
+        return new RewardsResult(customerIds[slot], latestMonth - (MONTHS - 1), monthlyTotals, threeMonthTotal);
+    }
+
+    private int slotFor(int customerId) {
+        var slot = OpenAddressing.hash(customerId) & mask;
+        while (occupied[slot]) {
+            if (customerIds[slot] == customerId) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        if (OpenAddressing.isFull(size, occupied.length)) {
+            grow();
+            return slotFor(customerId);
+        }
+        occupied[slot] = true;
+        customerIds[slot] = customerId;
+        for (int i = 0; i < MONTHS; i++) {
+            bucketMonths[slot * MONTHS + i] = Integer.MIN_VALUE;
+        }
+        size++;
+        return slot;
+    }
+
+    private void grow() {
+        var oldCustomerIds = customerIds;
+        var oldOccupied = occupied;
+        var oldRewards = rewards;
+        var oldBucketMonths = bucketMonths;
+        var oldTotals = totals;
+        allocate(oldOccupied.length * 2);
+        size = 0;
+        for (int oldSlot = 0; oldSlot < oldOccupied.length; oldSlot++) {
+            if (oldOccupied[oldSlot]) {
+                var slot = slotFor(oldCustomerIds[oldSlot]);
+                System.arraycopy(oldRewards, oldSlot * MONTHS, rewards, slot * MONTHS, MONTHS);
+                System.arraycopy(oldBucketMonths, oldSlot * MONTHS, bucketMonths, slot * MONTHS, MONTHS);
+                totals[slot] = oldTotals[oldSlot];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        customerIds = new int[capacity];
+        occupied = new boolean[capacity];
+        rewards = new int[capacity * MONTHS];
+        bucketMonths = new int[capacity * MONTHS];
+        totals = new int[capacity];
+        mask = capacity - 1;
+    }
+}
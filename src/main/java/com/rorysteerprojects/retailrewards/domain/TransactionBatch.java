@@ -0,0 +1,123 @@
+package com.rorysteerprojects.retailrewards.domain;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Transactions held column by column, in parallel arrays of ids, epoch days, customer ids and values in cents.
+ * <p>
+ * A transaction takes 20 bytes, against a {@link RetailTransaction} record and the list slot that refers to it,
+ * and a pass over one column reads consecutive memory.  The aggregation loops read the columns by index;
+ * {@link #get(int)} and {@link #stream()} create a record for each transaction and are meant for callers that
+ * need one, not for the aggregation loops.
+ */
+public class TransactionBatch {
+
+    private static final int MINIMUM_CAPACITY = 16;
+
+    private int[] ids;
+    private int[] epochDays;
+    private int[] customerIds;
+    private long[] valuesInCents;
+    private int size;
+
+    public TransactionBatch() {
+        this(MINIMUM_CAPACITY);
+    }
+
+    public TransactionBatch(int expectedTransactions) {
+        ids = new int[expectedTransactions];
+        epochDays = new int[expectedTransactions];
+        customerIds = new int[expectedTransactions];
+        valuesInCents = new long[expectedTransactions];
+    }
+
+    public static TransactionBatch of(List<RetailTransaction> transactions) {
+        var batch = new TransactionBatch(transactions.size());
+        transactions.forEach(batch::add);
+        return batch;
+    }
+
+    public void add(int id, int epochDay, int customerId, long valueInCents) {
+        if (size == ids.length) {
+            grow(size + 1);
+        }
+        ids[size] = id;
+        epochDays[size] = epochDay;
+        customerIds[size] = customerId;
+        valuesInCents[size] = valueInCents;
+        size++;
+    }
+
+    public void add(RetailTransaction transaction) {
+        add(transaction.id(), transaction.epochDay(), transaction.customerId(), transaction.valueInCents());
+    }
+
+    public void addAll(TransactionBatch other) {
+        if (size + other.size > ids.length) {
+            grow(size + other.size);
+        }
+        System.arraycopy(other.ids, 0, ids, size, other.size);
+        System.arraycopy(other.epochDays, 0, epochDays, size, other.size);
+        System.arraycopy(other.customerIds, 0, customerIds, size, other.size);
+        System.arraycopy(other.valuesInCents, 0, valuesInCents, size, other.size);
+        size += other.size;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int id(int index) {
+        return ids[Objects.checkIndex(index, size)];
+    }
+
+    public int epochDay(int index) {
+        return epochDays[Objects.checkIndex(index, size)];
+    }
+
+    public int customerId(int index) {
+        return customerIds[Objects.checkIndex(index, size)];
+    }
+
+    public long valueInCents(int index) {
+        return valuesInCents[Objects.checkIndex(index, size)];
+    }
+
+    /**
+     * @return the epoch day column, whose entries from {@link #size()} on are not transactions
+     */
+    int[] epochDayColumn() {
+        return epochDays;
+    }
+
+    /**
+     * @return the value in cents column, whose entries from {@link #size()} on are not transactions
+     */
+    long[] valueInCentsColumn() {
+        return valuesInCents;
+    }
+
+    public RetailTransaction get(int index) {
+        return new RetailTransaction(id(index), epochDay(index), customerId(index), valueInCents(index));
+    }
+
+    public Stream<RetailTransaction> stream() {
+        return IntStream.range(0, size).mapToObj(this::get);
+    }
+
+    private void grow(int minimumCapacity) {
+        var capacity = Math.max(Math.max(MINIMUM_CAPACITY, minimumCapacity), ids.length * 2);
+        ids = Arrays.copyOf(ids, capacity);
+        epochDays = Arrays.copyOf(epochDays, capacity);
+        customerIds = Arrays.copyOf(customerIds, capacity);
+        valuesInCents = Arrays.copyOf(valuesInCents, capacity);
+    }
+}
@@ -1,43 +1,60 @@
 package com.rorysteerprojects.retailrewards.rest_api;
 
 import com.rorysteerprojects.retailrewards.config.ResourceLookup;
+import com.rorysteerprojects.retailrewards.config.RewardsMetrics;
+import com.rorysteerprojects.retailrewards.config.RewardsMetrics.Outcome;
 import com.rorysteerprojects.retailrewards.api.CustomerTransactionsDTO;
 import com.rorysteerprojects.retailrewards.api.RewardsResultDTO;
 import com.rorysteerprojects.retailrewards.application_services.RetailRewardsService;
+import com.rorysteerprojects.retailrewards.application_services.StreamingRewardsCalculation;
+import com.rorysteerprojects.retailrewards.application_services.readers.MalformedCsvException;
+import com.rorysteerprojects.retailrewards.application_services.readers.MalformedMultipartException;
+import com.rorysteerprojects.retailrewards.application_services.readers.MultipartFormReader;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 
 @RestController
 public class RetailRewardsController {
 
     private final RetailRewardsService retailRewardsService;
+    private final RewardsMetrics rewardsMetrics;
     private final Logger logger = LoggerFactory.getLogger(getClass());
 
-    public RetailRewardsController(RetailRewardsService retailRewardsService) {
+    public RetailRewardsController(RetailRewardsService retailRewardsService, RewardsMetrics rewardsMetrics) {
         this.retailRewardsService = retailRewardsService;
+        this.rewardsMetrics = rewardsMetrics;
     }
 
     @PostMapping("/calculate-rewards")
     public ResponseEntity<RewardsResultDTO> calculateRewards(@RequestBody CustomerTransactionsDTO customerTransactions) {
-        var startTimeInMillis = System.currentTimeMillis();
+        var requestSample = rewardsMetrics.startRequest();
         if (isInvalidRequestBody(customerTransactions)) {
-            var endTimeInMillis = System.currentTimeMillis();
-            logger.info(ResourceLookup.getMessage("res_serviceReturnedError") + (endTimeInMillis - startTimeInMillis) + "ms");
+            logResultOfService(requestSample, Outcome.BAD_REQUEST);
             return ResponseEntity.badRequest().body(new RewardsResultDTO(Collections.emptyList(),
                     List.of(ResourceLookup.getMessage("res_missingLists"))));
         }
 
         RewardsResultDTO rewardsResult = retailRewardsService.calculateRewards(customerTransactions);
-        logResultOfService(rewardsResult, startTimeInMillis);
+        logResultOfService(requestSample, rewardsResult.getErrors().isEmpty() ?
+                Outcome.SUCCESS :
+                Outcome.VALIDATION_ERROR);
 
         return rewardsResult.getErrors().isEmpty() ?
                 ResponseEntity.ok(rewardsResult) :
@@ -46,20 +63,101 @@ public class RetailRewardsController {
                         .body(rewardsResult);
     }
 
-    private boolean isInvalidRequestBody(CustomerTransactionsDTO customerTransactions) {
+    @PostMapping(value = "/calculate-rewards/stream", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<RewardsResultDTO> calculateRewardsStreaming(InputStream customerTransactionsJson) throws IOException {
+        var requestSample = rewardsMetrics.startRequest();
+        StreamingRewardsCalculation calculation;
+        try {
+            calculation = retailRewardsService.calculateRewards(customerTransactionsJson);
+        }
+        catch (JsonProcessingException e) {
+            return badRequest(requestSample, "res_malformedRequestBody");
+        }
+        return streamingResult(requestSample, calculation);
+    }
+
+    /**
+     * Customers and transactions as two {@code text/csv} parts of a multipart request, customers first.  The parts
+     * are read as they arrive rather than being spooled first, which is why Spring's multipart support is turned
+     * off.  Validation errors are prefixed with the line of the part the row was read from.
+     */
+    @PostMapping(value = "/calculate-rewards", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<RewardsResultDTO> calculateRewardsCsv(
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+            InputStream customerTransactionsForm) throws IOException {
+        var requestSample = rewardsMetrics.startRequest();
+        var boundary = MultipartFormReader.boundary(contentType);
+        if (boundary == null) {
+            return badRequest(requestSample, "res_malformedCsvRequestBody");
+        }
+        StreamingRewardsCalculation calculation;
+        try {
+            calculation = retailRewardsService.calculateRewardsFromCsv(
+                    new MultipartFormReader(customerTransactionsForm, boundary));
+        }
+        catch (MalformedCsvException | MalformedMultipartException e) {
+            logger.info(e.getMessage());
+            return badRequest(requestSample, "res_malformedCsvRequestBody");
+        }
+        return streamingResult(requestSample, calculation);
+    }
+
+    /**
+     * One customer or transaction object per line.  Validation errors are prefixed with the line the row was
+     * read from.
+     */
+    @PostMapping(value = "/calculate-rewards", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<RewardsResultDTO> calculateRewardsNdjson(InputStream customerTransactionsNdjson) throws IOException {
+        var requestSample = rewardsMetrics.startRequest();
+        StreamingRewardsCalculation calculation;
+        try {
+            calculation = retailRewardsService.calculateRewardsFromNdjson(customerTransactionsNdjson);
+        }
+        catch (JsonProcessingException e) {
+            logger.info(e.getOriginalMessage());
+            return badRequest(requestSample, "res_malformedRequestBody");
+        }
+        return streamingResult(requestSample, calculation);
+    }
+
+    static boolean isInvalidRequestBody(CustomerTransactionsDTO customerTransactions) {
         return customerTransactions == null ||
                 customerTransactions.getCustomers() == null ||
                 customerTransactions.getTransactions() == null ||
                 !customerTransactions.getTransactions().isEmpty() && customerTransactions.getCustomers().isEmpty();
     }
-    private void logResultOfService(RewardsResultDTO rewardsResult, long startTimeInMillis) {
+    private ResponseEntity<RewardsResultDTO> streamingResult(Timer.Sample requestSample,
+                                                             StreamingRewardsCalculation calculation) {
+        if (calculation.isInvalidRequestBody()) {
+            return badRequest(requestSample, "res_missingLists");
+        }
+
+        RewardsResultDTO rewardsResult = calculation.result();
+        logResultOfService(requestSample, rewardsResult.getErrors().isEmpty() ?
+                Outcome.SUCCESS :
+                Outcome.VALIDATION_ERROR);
+
+        return rewardsResult.getErrors().isEmpty() ?
+                ResponseEntity.ok(rewardsResult) :
+                ResponseEntity
+                        .status(HttpStatusCode.valueOf(422))
+                        .body(rewardsResult);
+    }
+
+    private ResponseEntity<RewardsResultDTO> badRequest(Timer.Sample requestSample, String messageKey) {
+        logResultOfService(requestSample, Outcome.BAD_REQUEST);
+        return ResponseEntity.badRequest().body(new RewardsResultDTO(Collections.emptyList(),
+                List.of(ResourceLookup.getMessage(messageKey))));
+    }
+
+    private void logResultOfService(Timer.Sample requestSample, Outcome outcome) {
 
-        var endTimeInMillis = System.currentTimeMillis();
-        if (rewardsResult.getErrors().isEmpty()) {
-            logger.info(ResourceLookup.getMessage("res_serviceReturnedSuccess") + (endTimeInMillis - startTimeInMillis) + "ms");
+        var durationInMillis = TimeUnit.NANOSECONDS.toMillis(rewardsMetrics.stopRequest(requestSample, outcome));
+        if (outcome == Outcome.SUCCESS) {
+            logger.info(ResourceLookup.getMessage("res_serviceReturnedSuccess") + durationInMillis + "ms");
         }
         else {
-            logger.info(ResourceLookup.getMessage("res_serviceReturnedError") + (endTimeInMillis - startTimeInMillis) + "ms");
+            logger.info(ResourceLookup.getMessage("res_serviceReturnedError") + durationInMillis + "ms");
         }
     }
 }
@@ -0,0 +1,289 @@
+package com.rorysteerprojects.retailrewards.rest_api;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rorysteerprojects.retailrewards.api.RewardsResultDTO;
+import com.rorysteerprojects.retailrewards.config.ResourceLookup;
+import com.rorysteerprojects.retailrewards.config.RewardsMetrics;
+import com.rorysteerprojects.retailrewards.config.RewardsMetrics.Admission;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits the work that requests to /calculate-rewards, /calculate-rewards/stream and /rewards-jobs may have in
+ * flight at once.  /rewards-jobs/stream spools its body to disk instead, and is bounded by the job queue.
+ * <p>
+ * Each request costs a work unit for every kilobyte of its {@code Content-Length}, or
+ * {@code rewards.admission.unknown-length-cost} when it has none, and the units are taken from a budget of
+ * {@code rewards.admission.max-in-flight} before the body is read.  A request that does not fit waits up to
+ * {@code rewards.admission.queue-timeout} for earlier requests to finish, in the order they arrived, and is then
+ * turned away with {@code 429 Too Many Requests} and a {@code Retry-After} of
+ * {@code rewards.admission.retry-after}.  A request costing more than the whole budget could never be admitted,
+ * so it is turned away straight away with {@code 413 Payload Too Large}.  So is a request without a
+ * {@code Content-Length} whose body turns out to be longer than its unknown length cost: reading the body fails
+ * as soon as it goes over, and the response is replaced with the {@code 413} if it has not been sent yet.
+ * <p>
+ * The filter runs ahead of the {@link RewardsResultCacheFilter}, which reads bodies of up to
+ * {@code rewards.cache.max-body-size}.
+ */
+@Component
+@Order(Ordered.LOWEST_PRECEDENCE - 1)
+public class RewardsAdmissionFilter extends OncePerRequestFilter {
+
+    private static final Set<String> ADMITTED_PATHS = Set.of("/calculate-rewards", "/calculate-rewards/stream",
+            "/rewards-jobs");
+    private static final long BYTES_PER_WORK_UNIT = 1024;
+
+    private final RewardsMetrics rewardsMetrics;
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final int maxWorkUnits;
+    private final int unknownLengthCost;
+    private final Duration queueTimeout;
+    private final String retryAfterSeconds;
+    private final Semaphore workUnits;
+
+    public RewardsAdmissionFilter(RewardsMetrics rewardsMetrics,
+                                  ObjectMapper objectMapper,
+                                  @Value("${rewards.admission.enabled:true}") boolean enabled,
+                                  @Value("${rewards.admission.max-in-flight:256MB}") DataSize maxInFlight,
+                                  @Value("${rewards.admission.unknown-length-cost:8MB}") DataSize unknownLengthCost,
+                                  @Value("${rewards.admission.queue-timeout:500ms}") Duration queueTimeout,
+                                  @Value("${rewards.admission.retry-after:1s}") Duration retryAfter) {
+        this.rewardsMetrics = rewardsMetrics;
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.maxWorkUnits = workUnits(maxInFlight.toBytes());
+        this.unknownLengthCost = workUnits(unknownLengthCost.toBytes());
+        this.queueTimeout = queueTimeout;
+        this.retryAfterSeconds = Long.toString(Math.max(1, retryAfter.toSeconds()));
+        this.workUnits = new Semaphore(maxWorkUnits, true);
+        rewardsMetrics.registerAdmissionGauge(this, filter -> filter.maxWorkUnits - filter.workUnits.availablePermits());
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled ||
+                !HttpMethod.POST.matches(request.getMethod()) ||
+                !ADMITTED_PATHS.contains(request.getRequestURI().substring(request.getContextPath().length()));
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        var contentLength = request.getContentLengthLong();
+        var cost = contentLength >= 0 ? workUnits(contentLength) : unknownLengthCost;
+        if (cost > maxWorkUnits) {
+            rewardsMetrics.recordAdmission(Admission.REJECTED);
+            reject(response, HttpStatus.PAYLOAD_TOO_LARGE, "res_requestTooLarge");
+            return;
+        }
+        if (!acquire(cost)) {
+            rewardsMetrics.recordAdmission(Admission.REJECTED);
+            response.setHeader(HttpHeaders.RETRY_AFTER, retryAfterSeconds);
+            reject(response, HttpStatus.TOO_MANY_REQUESTS, "res_tooManyRequests");
+            return;
+        }
+        rewardsMetrics.recordAdmission(Admission.ADMITTED);
+        if (contentLength >= 0) {
+            try {
+                filterChain.doFilter(request, response);
+            }
+            finally {
+                workUnits.release(cost);
+            }
+            return;
+        }
+
+        var limitedRequest = new LimitedBodyRequest(request, cost * BYTES_PER_WORK_UNIT);
+        try {
+            filterChain.doFilter(limitedRequest, new LimitedBodyResponse(response, limitedRequest));
+        }
+        catch (IOException | ServletException | RuntimeException e) {
+            if (!limitedRequest.isOverLimit()) {
+                throw e;
+            }
+        }
+        finally {
+            workUnits.release(cost);
+        }
+        if (limitedRequest.isOverLimit()) {
+            rewardsMetrics.recordAdmission(Admission.REJECTED);
+            if (!response.isCommitted()) {
+                response.reset();
+                reject(response, HttpStatus.PAYLOAD_TOO_LARGE, "res_requestTooLarge");
+            }
+        }
+    }
+
+    /**
+     * The first attempt does not wait either, but unlike {@link Semaphore#tryAcquire(int)} it does not jump ahead
+     * of the requests already waiting.
+     */
+    private boolean acquire(int cost) {
+        try {
+            if (workUnits.tryAcquire(cost, 0, TimeUnit.NANOSECONDS)) {
+                return true;
+            }
+            rewardsMetrics.recordAdmission(Admission.QUEUED);
+            return workUnits.tryAcquire(cost, queueTimeout.toNanos(), TimeUnit.NANOSECONDS);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private void reject(HttpServletResponse response, HttpStatus status, String messageKey) throws IOException {
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), new RewardsResultDTO(Collections.emptyList(),
+                List.of(ResourceLookup.getMessage(messageKey))));
+    }
+
+    private static int workUnits(long bytes) {
+        return (int) Math.min(Math.max(1, (bytes + BYTES_PER_WORK_UNIT - 1) / BYTES_PER_WORK_UNIT), Integer.MAX_VALUE);
+    }
+
+    /**
+     * A request without a {@code Content-Length}, whose body fails to read once it is longer than the bytes its
+     * work units cover.
+     */
+    private static class LimitedBodyRequest extends HttpServletRequestWrapper {
+
+        private final long maxBytes;
+        private long bytesRead;
+        private ServletInputStream inputStream;
+
+        LimitedBodyRequest(HttpServletRequest request, long maxBytes) {
+            super(request);
+            this.maxBytes = maxBytes;
+        }
+
+        boolean isOverLimit() {
+            return bytesRead > maxBytes;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() throws IOException {
+            if (inputStream == null) {
+                inputStream = new CountingInputStream(super.getInputStream());
+            }
+            return inputStream;
+        }
+
+        @Override
+        public BufferedReader getReader() throws IOException {
+            var encoding = getCharacterEncoding();
+            return new BufferedReader(new InputStreamReader(getInputStream(),
+                    encoding != null ? Charset.forName(encoding) : StandardCharsets.ISO_8859_1));
+        }
+
+        private void count(long bytes) throws IOException {
+            if (bytes > 0) {
+                bytesRead += bytes;
+                if (isOverLimit()) {
+                    throw new IOException(ResourceLookup.getMessage("res_requestTooLarge"));
+                }
+            }
+        }
+
+        private class CountingInputStream extends ServletInputStream {
+
+            private final ServletInputStream body;
+
+            CountingInputStream(ServletInputStream body) {
+                this.body = body;
+            }
+
+            @Override
+            public int read() throws IOException {
+                var b = body.read();
+                count(b >= 0 ? 1 : 0);
+                return b;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                var read = body.read(b, off, len);
+                count(read);
+                return read;
+            }
+
+            @Override
+            public boolean isFinished() {
+                return body.isFinished();
+            }
+
+            @Override
+            public boolean isReady() {
+                return body.isReady();
+            }
+
+            @Override
+            public void setReadListener(ReadListener readListener) {
+                body.setReadListener(readListener);
+            }
+
+            @Override
+            public void close() throws IOException {
+                body.close();
+            }
+        }
+    }
+
+    /**
+     * Leaves the response to the filter once the body has gone over its limit, so that the error the controller or
+     * Spring makes of the failed read does not replace the {@code 413}.
+     */
+    private static class LimitedBodyResponse extends HttpServletResponseWrapper {
+
+        private final LimitedBodyRequest request;
+
+        LimitedBodyResponse(HttpServletResponse response, LimitedBodyRequest request) {
+            super(response);
+            this.request = request;
+        }
+
+        @Override
+        public void sendError(int sc, String msg) throws IOException {
+            if (!request.isOverLimit()) {
+                super.sendError(sc, msg);
+            }
+        }
+
+        @Override
+        public void sendError(int sc) throws IOException {
+            if (!request.isOverLimit()) {
+                super.sendError(sc);
+            }
+        }
+    }
+}
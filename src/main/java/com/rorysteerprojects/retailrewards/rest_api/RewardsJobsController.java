@@ -0,0 +1,78 @@
+package com.rorysteerprojects.retailrewards.rest_api;
+
+import com.rorysteerprojects.retailrewards.api.CustomerTransactionsDTO;
+import com.rorysteerprojects.retailrewards.api.RewardsJobDTO;
+import com.rorysteerprojects.retailrewards.api.RewardsJobStatus;
+import com.rorysteerprojects.retailrewards.api.RewardsResultDTO;
+import com.rorysteerprojects.retailrewards.application_services.jobs.RequestBodyTooLargeException;
+import com.rorysteerprojects.retailrewards.application_services.jobs.RewardsJobService;
+import com.rorysteerprojects.retailrewards.config.ResourceLookup;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+
+@RestController
+public class RewardsJobsController {
+
+    private final RewardsJobService rewardsJobService;
+
+    public RewardsJobsController(RewardsJobService rewardsJobService) {
+        this.rewardsJobService = rewardsJobService;
+    }
+
+    @PostMapping("/rewards-jobs")
+    public ResponseEntity<RewardsJobDTO> submitRewardsJob(@RequestBody CustomerTransactionsDTO customerTransactions) {
+        if (RetailRewardsController.isInvalidRequestBody(customerTransactions)) {
+            return ResponseEntity.badRequest().body(rejectedJob("res_missingLists"));
+        }
+        try {
+            return accepted(rewardsJobService.submit(customerTransactions));
+        }
+        catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(rejectedJob("res_rewardsJobQueueFull"));
+        }
+    }
+
+    @PostMapping(value = "/rewards-jobs/stream", consumes = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<RewardsJobDTO> submitRewardsJobStreaming(InputStream customerTransactionsJson) throws IOException {
+        try {
+            return accepted(rewardsJobService.submit(customerTransactionsJson));
+        }
+        catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(rejectedJob("res_rewardsJobQueueFull"));
+        }
+        catch (RequestBodyTooLargeException e) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE).body(rejectedJob("res_rewardsJobTooLarge"));
+        }
+    }
+
+    @GetMapping("/rewards-jobs/{jobId}")
+    public ResponseEntity<RewardsJobDTO> getRewardsJob(@PathVariable String jobId) {
+        return rewardsJobService.find(jobId)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    private ResponseEntity<RewardsJobDTO> accepted(RewardsJobDTO job) {
+        return ResponseEntity.accepted()
+                .location(URI.create("/rewards-jobs/" + job.getJobId()))
+                .body(job);
+    }
+
+    private RewardsJobDTO rejectedJob(String messageKey) {
+        return new RewardsJobDTO(null, RewardsJobStatus.REJECTED, 0, 0, 0,
+                new RewardsResultDTO(Collections.emptyList(), List.of(ResourceLookup.getMessage(messageKey))));
+    }
+}
@@ -0,0 +1,48 @@
+package com.rorysteerprojects.retailrewards.rest_api;
+
+import com.rorysteerprojects.retailrewards.api.CustomerSummaryDTO;
+import com.rorysteerprojects.retailrewards.api.CustomerTransactionsDTO;
+import com.rorysteerprojects.retailrewards.api.LedgerAppendResultDTO;
+import com.rorysteerprojects.retailrewards.application_services.ledger.RewardsLedgerService;
+import com.rorysteerprojects.retailrewards.config.ResourceLookup;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+public class RewardsLedgerController {
+
+    private final RewardsLedgerService rewardsLedgerService;
+
+    public RewardsLedgerController(RewardsLedgerService rewardsLedgerService) {
+        this.rewardsLedgerService = rewardsLedgerService;
+    }
+
+    @PostMapping("/ledger/transactions")
+    public ResponseEntity<LedgerAppendResultDTO> appendTransactions(@RequestBody CustomerTransactionsDTO customerTransactions) {
+        if (customerTransactions == null || customerTransactions.getTransactions() == null) {
+            return ResponseEntity.badRequest().body(new LedgerAppendResultDTO(0,
+                    List.of(ResourceLookup.getMessage("res_missingTransactionList"))));
+        }
+
+        var appendResult = rewardsLedgerService.append(customerTransactions);
+        return appendResult.getErrors().isEmpty() ?
+                ResponseEntity.ok(appendResult) :
+                ResponseEntity
+                        .status(HttpStatusCode.valueOf(422))
+                        .body(appendResult);
+    }
+
+    @GetMapping("/ledger/customers/{customerId}")
+    public ResponseEntity<CustomerSummaryDTO> getCustomerSummary(@PathVariable int customerId) {
+        return rewardsLedgerService.findCustomerSummary(customerId)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+}
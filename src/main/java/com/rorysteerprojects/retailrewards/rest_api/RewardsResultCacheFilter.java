@@ -0,0 +1,349 @@
+package com.rorysteerprojects.retailrewards.rest_api;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rorysteerprojects.retailrewards.application_services.cache.CanonicalJsonHash;
+import com.rorysteerprojects.retailrewards.application_services.cache.CanonicalJsonHash.Key;
+import com.rorysteerprojects.retailrewards.application_services.cache.RewardsResultCache;
+import com.rorysteerprojects.retailrewards.application_services.cache.RewardsResultCache.CachedResponse;
+import com.rorysteerprojects.retailrewards.config.RewardsMetrics;
+import com.rorysteerprojects.retailrewards.config.RewardsMetrics.CacheLookup;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+
+/**
+ * Answers repeated JSON requests to /calculate-rewards from the {@link RewardsResultCache}, writing the stored
+ * response bytes without binding the request or the response.  /calculate-rewards/stream is left alone, since it is
+ * there for bodies too large to hold.
+ * <p>
+ * Only requests with a {@code Content-Length} of at most {@code rewards.cache.max-body-size} are cached.  Their body
+ * is read and keyed with {@link CanonicalJsonHash}, together with the path, and a stored response is only served
+ * when the SHA-256 digest of its request matches as well as the 64 bit hash.  On a miss the request carries on to
+ * the controller with the same body, and the response is written straight through while a copy of up to
+ * {@code rewards.cache.max-body-size} is kept; a 200 or 422 response that fits is stored.
+ * <p>
+ * Each response has an {@code X-Rewards-Cache} header of {@code HIT}, {@code MISS} or {@code BYPASS}.  A request
+ * with {@code Cache-Control: no-cache} or {@code no-store}, or without a {@code Content-Length} or with a larger
+ * one, bypasses the cache and its body is not read here.  A body that is not well formed JSON is passed on for the
+ * controller to reject.
+ */
+@Component
+public class RewardsResultCacheFilter extends OncePerRequestFilter {
+
+    static final String CACHE_HEADER = "X-Rewards-Cache";
+
+    private static final Set<String> CACHED_PATHS = Set.of("/calculate-rewards");
+
+    private final RewardsResultCache rewardsResultCache;
+    private final RewardsMetrics rewardsMetrics;
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final int maxBodySize;
+
+    public RewardsResultCacheFilter(RewardsResultCache rewardsResultCache,
+                                    RewardsMetrics rewardsMetrics,
+                                    ObjectMapper objectMapper,
+                                    @Value("${rewards.cache.enabled:true}") boolean enabled,
+                                    @Value("${rewards.cache.max-body-size:4MB}") DataSize maxBodySize) {
+        this.rewardsResultCache = rewardsResultCache;
+        this.rewardsMetrics = rewardsMetrics;
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.maxBodySize = (int) Math.min(maxBodySize.toBytes(), Integer.MAX_VALUE - 8);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled ||
+                !HttpMethod.POST.matches(request.getMethod()) ||
+                !CACHED_PATHS.contains(path(request)) ||
+                !isJson(request.getContentType());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        var contentLength = request.getContentLengthLong();
+        if (isBypassRequested(request) || contentLength < 0 || contentLength > maxBodySize) {
+            rewardsMetrics.recordCacheLookup(CacheLookup.BYPASS);
+            response.setHeader(CACHE_HEADER, "BYPASS");
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        var body = request.getInputStream().readNBytes((int) contentLength);
+        var bufferedRequest = new BufferedBodyRequest(request, body);
+        Key key;
+        try {
+            key = CanonicalJsonHash.keyOf(objectMapper.getFactory(), path(request), body);
+        }
+        catch (JsonProcessingException e) {
+            filterChain.doFilter(bufferedRequest, response);
+            return;
+        }
+
+        var cachedResponse = rewardsResultCache.get(key);
+        if (cachedResponse != null) {
+            response.setStatus(cachedResponse.status());
+            response.setContentType(cachedResponse.contentType());
+            response.setContentLength(cachedResponse.body().length);
+            response.setHeader(CACHE_HEADER, "HIT");
+            response.getOutputStream().write(cachedResponse.body());
+            return;
+        }
+
+        response.setHeader(CACHE_HEADER, "MISS");
+        var capturingResponse = new CapturingResponse(response, maxBodySize);
+        filterChain.doFilter(bufferedRequest, capturingResponse);
+        var status = capturingResponse.getStatus();
+        var captured = capturingResponse.captured();
+        if ((status == HttpServletResponse.SC_OK || status == 422) && captured != null) {
+            rewardsResultCache.put(key, new CachedResponse(status, capturingResponse.getContentType(), captured));
+        }
+    }
+
+    private static String path(HttpServletRequest request) {
+        return request.getRequestURI().substring(request.getContextPath().length());
+    }
+
+    private static boolean isJson(String contentType) {
+        if (contentType == null) {
+            return false;
+        }
+        try {
+            return MediaType.APPLICATION_JSON.isCompatibleWith(MediaType.parseMediaType(contentType));
+        }
+        catch (InvalidMediaTypeException e) {
+            return false;
+        }
+    }
+
+    private static boolean isBypassRequested(HttpServletRequest request) {
+        var cacheControl = request.getHeaders(HttpHeaders.CACHE_CONTROL);
+        while (cacheControl.hasMoreElements()) {
+            for (String directive : cacheControl.nextElement().split(",")) {
+                var trimmed = directive.trim();
+                if (trimmed.equalsIgnoreCase("no-cache") || trimmed.equalsIgnoreCase("no-store")) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The request with its body replayed from the bytes the filter has already read.
+     */
+    private static class BufferedBodyRequest extends HttpServletRequestWrapper {
+
+        private final byte[] body;
+
+        BufferedBodyRequest(HttpServletRequest request, byte[] body) {
+            super(request);
+            this.body = body;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() {
+            var bytes = new ByteArrayInputStream(body);
+            return new ServletInputStream() {
+                @Override
+                public boolean isFinished() {
+                    return bytes.available() == 0;
+                }
+
+                @Override
+                public boolean isReady() {
+                    return true;
+                }
+
+                /**
+                 * The whole body is already in memory, so the listener is told straight away that it can be read
+                 * and then that it has been.
+                 */
+                @Override
+                public void setReadListener(ReadListener readListener) {
+                    try {
+                        readListener.onDataAvailable();
+                        readListener.onAllDataRead();
+                    }
+                    catch (IOException e) {
+                        readListener.onError(e);
+                    }
+                }
+
+                @Override
+                public int read() {
+                    return bytes.read();
+                }
+
+                @Override
+                public int read(byte[] buffer, int offset, int length) {
+                    return bytes.read(buffer, offset, length);
+                }
+            };
+        }
+
+        @Override
+        public BufferedReader getReader() {
+            var encoding = getCharacterEncoding();
+            return new BufferedReader(new InputStreamReader(new ByteArrayInputStream(body),
+                    encoding != null ? Charset.forName(encoding) : StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public int getContentLength() {
+            return body.length;
+        }
+
+        @Override
+        public long getContentLengthLong() {
+            return body.length;
+        }
+    }
+
+    /**
+     * The response written straight through to the client, keeping a copy of the body until it goes over
+     * {@code maxCapturedBytes}.
+     */
+    private static class CapturingResponse extends HttpServletResponseWrapper {
+
+        private final int maxCapturedBytes;
+        private ByteArrayOutputStream captured = new ByteArrayOutputStream();
+        private ServletOutputStream outputStream;
+        private PrintWriter writer;
+
+        CapturingResponse(HttpServletResponse response, int maxCapturedBytes) {
+            super(response);
+            this.maxCapturedBytes = maxCapturedBytes;
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            if (outputStream == null) {
+                outputStream = new CapturingOutputStream(super.getOutputStream());
+            }
+            return outputStream;
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            if (writer == null) {
+                writer = new PrintWriter(new OutputStreamWriter(getOutputStream(), getCharacterEncoding()));
+            }
+            return writer;
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            if (writer != null) {
+                writer.flush();
+            }
+            super.flushBuffer();
+        }
+
+        @Override
+        public void resetBuffer() {
+            super.resetBuffer();
+            captured = new ByteArrayOutputStream();
+        }
+
+        @Override
+        public void reset() {
+            super.reset();
+            captured = new ByteArrayOutputStream();
+        }
+
+        /**
+         * @return the body written, or null if it went over the limit
+         */
+        byte[] captured() {
+            if (writer != null) {
+                writer.flush();
+            }
+            return captured != null ? captured.toByteArray() : null;
+        }
+
+        /**
+         * Drops the copy once another {@code length} bytes would take it over the limit.
+         */
+        private boolean isCapturing(int length) {
+            if (captured != null && captured.size() + (long) length > maxCapturedBytes) {
+                captured = null;
+            }
+            return captured != null;
+        }
+
+        private class CapturingOutputStream extends ServletOutputStream {
+
+            private final ServletOutputStream target;
+
+            CapturingOutputStream(ServletOutputStream target) {
+                this.target = target;
+            }
+
+            @Override
+            public void write(int value) throws IOException {
+                target.write(value);
+                if (isCapturing(1)) {
+                    captured.write(value);
+                }
+            }
+
+            @Override
+            public void write(byte[] bytes, int offset, int length) throws IOException {
+                target.write(bytes, offset, length);
+                if (isCapturing(length)) {
+                    captured.write(bytes, offset, length);
+                }
+            }
+
+            @Override
+            public void flush() throws IOException {
+                target.flush();
+            }
+
+            @Override
+            public void close() throws IOException {
+                target.close();
+            }
+
+            @Override
+            public boolean isReady() {
+                return target.isReady();
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener) {
+                target.setWriteListener(writeListener);
+            }
+        }
+    }
+}
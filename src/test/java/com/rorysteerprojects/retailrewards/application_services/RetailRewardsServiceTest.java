@@ -3,21 +3,55 @@ package com.rorysteerprojects.retailrewards.application_services;
 import com.rorysteerprojects.retailrewards.api.CustomerDTO;
 import com.rorysteerprojects.retailrewards.api.CustomerTransactionsDTO;
 import com.rorysteerprojects.retailrewards.api.RetailTransactionDTO;
+import com.rorysteerprojects.retailrewards.api.ValidationErrorDTO;
 import com.rorysteerprojects.retailrewards.application_services.parsers.CustomerParser;
 import com.rorysteerprojects.retailrewards.application_services.parsers.RetailTransactionParser;
+import com.rorysteerprojects.retailrewards.application_services.parsers.ValidationRule;
+import com.rorysteerprojects.retailrewards.application_services.readers.CustomerTransactionsCsvReader;
+import com.rorysteerprojects.retailrewards.application_services.readers.CustomerTransactionsJsonReader;
+import com.rorysteerprojects.retailrewards.config.RewardsMetrics;
 import com.rorysteerprojects.retailrewards.domain.RewardsCalculator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 class RetailRewardsServiceTest {
 
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final RewardsMetrics rewardsMetrics = new RewardsMetrics(meterRegistry);
     private final RetailRewardsService service = new RetailRewardsService(
             new CustomerParser(),
             new RetailTransactionParser(),
-            new RewardsCalculator()
+            new RewardsCalculator(),
+            new CustomerTransactionsJsonReader(),
+            new CustomerTransactionsCsvReader(),
+            rewardsMetrics,
+            new RewardsComputePool(),
+            50_000,
+            8_192,
+            true
+    );
+    private final RetailRewardsService parallelService = new RetailRewardsService(
+            new CustomerParser(),
+            new RetailTransactionParser(),
+            new RewardsCalculator(),
+            new CustomerTransactionsJsonReader(),
+            new CustomerTransactionsCsvReader(),
+            new RewardsMetrics(new SimpleMeterRegistry()),
+            new RewardsComputePool(),
+            1,
+            7,
+            true
     );
 
     @Test
@@ -198,4 +232,283 @@ class RetailRewardsServiceTest {
         assertEquals(0, customerSummary.get().getMonth3Rewards());
         assertEquals(0, customerSummary.get().getTotalRewards());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void duplicateCustomerIdsAreReportedByBothPaths() throws IOException {
+        var customerTransaction = new CustomerTransactionsDTO(
+                List.of(
+                        new CustomerDTO("1", "Customer 1"),
+                        new CustomerDTO("1", "Customer 2")
+                ),
+                List.of(
+                        new RetailTransactionDTO("101", "2023-08-12", "1", "51.0")
+                )
+        );
+        var json = new ObjectMapper().writeValueAsBytes(customerTransaction);
+
+        var result = service.calculateRewards(customerTransaction);
+        var streamedResult = service.calculateRewards(new ByteArrayInputStream(json)).result();
+
+        assertTrue(result.getCustomerSummaries().isEmpty());
+        assertEquals(List.of(customerTransaction.getCustomers().get(1).toString() + " : has a duplicate customer id."),
+                result.getErrors());
+        assertEquals(result.getErrors(), streamedResult.getErrors());
+    }
+
+    @Test
+    public void streamedRequestBodyReturnsTheSameResultsAsTheRequestDTO() throws IOException {
+        var customerTransaction = new CustomerTransactionsDTO(
+                List.of(
+                        new CustomerDTO("100", "Customer 1"),
+                        new CustomerDTO("101", "Customer 2"),
+                        new CustomerDTO("102", "Customer 3")
+                ),
+                List.of(
+                        new RetailTransactionDTO("1001", "2023-11-03", "100", "120"),
+                        new RetailTransactionDTO("1002", "2024-01-31", "101", "70"),
+                        new RetailTransactionDTO("1005", "2023-11-01", "102", "50.99"),
+                        new RetailTransactionDTO("1006", "2023-11-01", "101", "150.75"),
+                        new RetailTransactionDTO("1007", "2023-11-30", "101", "90"),
+                        new RetailTransactionDTO("1011", "2023-12-31", "101", "500.50"),
+                        new RetailTransactionDTO("1012", "2024-01-31", "100", "65.50")
+                )
+        );
+        var json = new ObjectMapper().writeValueAsBytes(customerTransaction);
+
+        var expected = service.calculateRewards(customerTransaction);
+        var result = service.calculateRewards(new ByteArrayInputStream(json)).result();
+
+        assertTrue(result.getErrors().isEmpty());
+        assertEquals(expected.getCustomerSummaries().size(), result.getCustomerSummaries().size());
+        for (var expectedSummary : expected.getCustomerSummaries()) {
+            var summary = result.getCustomerSummaries().stream()
+                    .filter(s -> s.getCustomerId() == expectedSummary.getCustomerId())
+                    .findFirst();
+            assertTrue(summary.isPresent());
+            assertEquals(expectedSummary.getCustomerName(), summary.get().getCustomerName());
+            assertEquals(expectedSummary.getMonth1Rewards(), summary.get().getMonth1Rewards());
+            assertEquals(expectedSummary.getMonth2Rewards(), summary.get().getMonth2Rewards());
+            assertEquals(expectedSummary.getMonth3Rewards(), summary.get().getMonth3Rewards());
+            assertEquals(expectedSummary.getTotalRewards(), summary.get().getTotalRewards());
+        }
+    }
+
+    @Test
+    public void streamedRequestBodyReturnsTheSameErrorsAsTheRequestDTO() throws IOException {
+        var customerTransaction = new CustomerTransactionsDTO(
+                List.of(
+                        new CustomerDTO("1", "Customer 1"),
+                        new CustomerDTO(null, null)
+                ),
+                List.of(
+                        new RetailTransactionDTO("101", "2023-08-12", "1", "51.0"),
+                        new RetailTransactionDTO(null, null, null, null),
+                        new RetailTransactionDTO("102", "2023-08-12", "2", "51.0")
+                )
+        );
+        var json = new ObjectMapper().writeValueAsBytes(customerTransaction);
+
+        var expected = service.calculateRewards(customerTransaction);
+        var result = service.calculateRewards(new ByteArrayInputStream(json)).result();
+
+        assertTrue(result.getCustomerSummaries().isEmpty());
+        assertEquals(expected.getErrors().size(), result.getErrors().size());
+        assertTrue(result.getErrors().containsAll(expected.getErrors()));
+    }
+
+    @Test
+    public void spanErrorsAreReportedByBothPathsWhenTheCustomersHaveErrors() throws IOException {
+        var customerTransaction = new CustomerTransactionsDTO(
+                List.of(
+                        new CustomerDTO("1", "Customer 1"),
+                        new CustomerDTO(null, null)
+                ),
+                List.of(
+                        new RetailTransactionDTO("101", "2023-08-12", "1", "51.0"),
+                        new RetailTransactionDTO("102", "2023-11-01", "1", "51.0")
+                )
+        );
+        var json = new ObjectMapper().writeValueAsBytes(customerTransaction);
+
+        var result = service.calculateRewards(customerTransaction);
+        var streamedResult = service.calculateRewards(new ByteArrayInputStream(json)).result();
+
+        assertEquals(List.of("CUSTOMER_HAS_INVALID_ID", "TRANSACTIONS_SPAN_MORE_THAN_THREE_MONTHS"),
+                result.getValidationErrors().stream().map(ValidationErrorDTO::getRule).toList());
+        assertEquals(result.getErrors(), streamedResult.getErrors());
+        assertEquals(result.getErrorCounts(), streamedResult.getErrorCounts());
+    }
+
+    @Test
+    public void parallelCalculationReturnsTheSameResultsAsSequential() {
+        var customerTransaction = generateCustomerTransactions(new Random(20231205L), 0);
+
+        var expected = service.calculateRewards(customerTransaction);
+        var result = parallelService.calculateRewards(customerTransaction);
+
+        assertTrue(result.getErrors().isEmpty());
+        assertFalse(result.getCustomerSummaries().isEmpty());
+        assertEquals(expected.getCustomerSummaries().size(), result.getCustomerSummaries().size());
+        for (int i = 0; i < expected.getCustomerSummaries().size(); i++) {
+            var expectedSummary = expected.getCustomerSummaries().get(i);
+            var summary = result.getCustomerSummaries().get(i);
+            assertEquals(expectedSummary.getCustomerId(), summary.getCustomerId());
+            assertEquals(expectedSummary.getCustomerName(), summary.getCustomerName());
+            assertEquals(expectedSummary.getMonth1Rewards(), summary.getMonth1Rewards());
+            assertEquals(expectedSummary.getMonth2Rewards(), summary.getMonth2Rewards());
+            assertEquals(expectedSummary.getMonth3Rewards(), summary.getMonth3Rewards());
+            assertEquals(expectedSummary.getTotalRewards(), summary.getTotalRewards());
+        }
+    }
+
+    @Test
+    public void parallelCalculationReturnsTheSameErrorsInTheSameOrderAsSequential() {
+        var customerTransaction = generateCustomerTransactions(new Random(20231206L), 10);
+
+        var expected = service.calculateRewards(customerTransaction);
+        var result = parallelService.calculateRewards(customerTransaction);
+
+        assertFalse(expected.getErrors().isEmpty());
+        assertTrue(result.getCustomerSummaries().isEmpty());
+        assertEquals(expected.getErrors(), result.getErrors());
+    }
+
+    @Test
+    public void eachStageAndTheRequestSizeAreRecorded() {
+        var customerTransaction = generateCustomerTransactions(new Random(20231208L), 0);
+
+        var result = service.calculateRewards(customerTransaction);
+
+        for (var stage : List.of("customer-parse", "transaction-validation", "span-check", "aggregation")) {
+            assertEquals(1, meterRegistry.get("rewards.stage").tag("stage", stage).timer().count());
+        }
+        // The names are looked up as the summaries are read, so the stage is recorded once they all have been.
+        var nameResolution = meterRegistry.get("rewards.stage").tag("stage", "name-resolution").timer();
+        assertEquals(0, nameResolution.count());
+        result.getCustomerSummaries().forEach(summary -> assertNotNull(summary.getCustomerName()));
+        assertEquals(1, nameResolution.count());
+        assertEquals(40, meterRegistry.get("rewards.request.customers").summary().totalAmount());
+        assertEquals(1_000, meterRegistry.get("rewards.request.transactions").summary().totalAmount());
+    }
+
+    @Test
+    public void eachValidationRuleThatFailsIsCounted() throws IOException {
+        var customerTransaction = new CustomerTransactionsDTO(
+                List.of(
+                        new CustomerDTO("1", "Customer 1"),
+                        new CustomerDTO(null, null)
+                ),
+                List.of(
+                        new RetailTransactionDTO("101", "2023-08-12", "1", "51.0"),
+                        new RetailTransactionDTO(null, null, null, null),
+                        new RetailTransactionDTO("102", "2023-08-12", "2", "-51.0")
+                )
+        );
+        var json = new ObjectMapper().writeValueAsBytes(customerTransaction);
+
+        service.calculateRewards(customerTransaction);
+        service.calculateRewards(new ByteArrayInputStream(json)).result();
+
+        assertEquals(2, validationFailures(ValidationRule.CUSTOMER_HAS_INVALID_ID));
+        assertEquals(2, validationFailures(ValidationRule.TRANSACTION_HAS_INVALID_ID));
+        assertEquals(2, validationFailures(ValidationRule.TRANSACTION_HAS_INVALID_DATE));
+        assertEquals(2, validationFailures(ValidationRule.TRANSACTION_HAS_INVALID_CUSTOMER_ID));
+        assertEquals(2, validationFailures(ValidationRule.TRANSACTION_HAS_INVALID_VALUE));
+        assertEquals(2, validationFailures(ValidationRule.TRANSACTION_HAS_NEGATIVE_VALUE));
+        assertEquals(0, validationFailures(ValidationRule.TRANSACTION_HAS_NOT_FOUND_CUSTOMER_ID));
+        assertEquals(0, validationFailures(ValidationRule.TRANSACTIONS_SPAN_MORE_THAN_THREE_MONTHS));
+    }
+
+    @Test
+    public void errorsAreReportedWithTheirRowFieldAndRuleUpToTheLimit() throws IOException {
+        var cappedService = new RetailRewardsService(
+                new CustomerParser(2, false),
+                new RetailTransactionParser(2, false),
+                new RewardsCalculator(),
+                new CustomerTransactionsJsonReader(),
+                new CustomerTransactionsCsvReader(),
+                new RewardsMetrics(new SimpleMeterRegistry()),
+                new RewardsComputePool(),
+                50_000,
+                8_192,
+                false);
+        var customerTransaction = new CustomerTransactionsDTO(
+                List.of(
+                        new CustomerDTO("1", "Customer 1"),
+                        new CustomerDTO("x", "Customer x"),
+                        new CustomerDTO("y", "Customer y"),
+                        new CustomerDTO("z", "Customer z")
+                ),
+                List.of(new RetailTransactionDTO(null, null, null, null))
+        );
+        var json = new ObjectMapper().writeValueAsBytes(customerTransaction);
+
+        for (var result : List.of(cappedService.calculateRewards(customerTransaction),
+                cappedService.calculateRewards(new ByteArrayInputStream(json)).result())) {
+            assertTrue(result.getCustomerSummaries().isEmpty());
+            assertEquals(2, result.getErrors().size());
+            assertEquals(List.of(1L, 2L), result.getValidationErrors().stream().map(ValidationErrorDTO::getRow).toList());
+            assertEquals(List.of("id", "id"), result.getValidationErrors().stream().map(ValidationErrorDTO::getField).toList());
+            assertEquals(result.getErrors(), result.getValidationErrors().stream().map(ValidationErrorDTO::getMessage).toList());
+            assertEquals(Map.of("CUSTOMER_HAS_INVALID_ID", 2), result.getErrorCounts());
+        }
+    }
+
+    @Test
+    public void customersAndTransactionsShareOneErrorLimit() throws IOException {
+        var customerTransaction = new CustomerTransactionsDTO(
+                List.of(
+                        new CustomerDTO("x", "Customer x"),
+                        new CustomerDTO("y", "Customer y")
+                ),
+                List.of(
+                        new RetailTransactionDTO("a", "2023-08-12", "1", "51.0"),
+                        new RetailTransactionDTO("b", "2023-08-12", "1", "51.0"),
+                        new RetailTransactionDTO("c", "2023-08-12", "1", "51.0")
+                )
+        );
+        var json = new ObjectMapper().writeValueAsBytes(customerTransaction);
+
+        for (int parallelThreshold : new int[]{50_000, 1}) {
+            var cappedService = new RetailRewardsService(
+                    new CustomerParser(3, false),
+                    new RetailTransactionParser(3, false),
+                    new RewardsCalculator(),
+                    new CustomerTransactionsJsonReader(),
+                    new CustomerTransactionsCsvReader(),
+                    new RewardsMetrics(new SimpleMeterRegistry()),
+                    new RewardsComputePool(),
+                    parallelThreshold,
+                    1,
+                    false);
+            for (var result : List.of(cappedService.calculateRewards(customerTransaction),
+                    cappedService.calculateRewards(new ByteArrayInputStream(json)).result())) {
+                assertEquals(Map.of("CUSTOMER_HAS_INVALID_ID", 2, "TRANSACTION_HAS_INVALID_ID", 1),
+                        result.getErrorCounts());
+                assertEquals(3, result.getErrors().size());
+            }
+        }
+    }
+
+    private double validationFailures(ValidationRule rule) {
+        return meterRegistry.get("rewards.validation.failures").tag("rule", rule.name()).counter().count();
+    }
+
+    private CustomerTransactionsDTO generateCustomerTransactions(Random random, int percentInvalid) {
+        List<CustomerDTO> customers = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            customers.add(new CustomerDTO(String.valueOf(i), "Customer " + i));
+        }
+        List<RetailTransactionDTO> transactions = new ArrayList<>();
+        var firstDay = LocalDate.of(2023, 10, 1);
+        for (int i = 0; i < 1_000; i++) {
+            var invalid = random.nextInt(100) < percentInvalid;
+            transactions.add(new RetailTransactionDTO(
+                    String.valueOf(i),
+                    firstDay.plusDays(random.nextInt(92)).toString(),
+                    String.valueOf(invalid ? 40 + random.nextInt(5) : random.nextInt(40)),
+                    random.nextInt(300) + "." + random.nextInt(100)));
+        }
+        return new CustomerTransactionsDTO(customers, transactions);
+    }
+}
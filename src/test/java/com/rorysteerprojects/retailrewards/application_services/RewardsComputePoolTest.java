@@ -0,0 +1,57 @@
+package com.rorysteerprojects.retailrewards.application_services;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RewardsComputePoolTest {
+
+    private final ForkJoinPool pool = new ForkJoinPool(2);
+
+    @AfterEach
+    public void shutdownPool() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    public void stagesRunOnTheCallingThreadUnlessOffloaded() {
+        var caller = Thread.currentThread();
+
+        assertSame(caller, new RewardsComputePool().run(Thread::currentThread));
+        assertSame(caller, new RewardsComputePool(pool, false).run(Thread::currentThread));
+        assertSame(ForkJoinPool.commonPool(), new RewardsComputePool(false, 4).pool());
+    }
+
+    @Test
+    public void offloadedStagesRunOnThePool() {
+        var computePool = new RewardsComputePool(pool, true);
+
+        var thread = computePool.run(Thread::currentThread);
+
+        assertNotSame(Thread.currentThread(), thread);
+        assertSame(pool, computePool.pool());
+        assertTrue(thread.getName().startsWith("ForkJoinPool-"), thread.getName());
+    }
+
+    @Test
+    public void stagesAlreadyOnThePoolRunWhereTheyAre() {
+        var computePool = new RewardsComputePool(pool, true);
+
+        var threads = computePool.run(() -> new Thread[]{Thread.currentThread(), computePool.run(Thread::currentThread)});
+
+        assertSame(threads[0], threads[1]);
+    }
+
+    @Test
+    public void exceptionsAreRethrownToTheCaller() {
+        var computePool = new RewardsComputePool(pool, true);
+
+        var thrown = assertThrows(IllegalStateException.class, () -> computePool.run(() -> {
+            throw new IllegalStateException("stage failed");
+        }));
+        assertTrue(thrown.getMessage().contains("stage failed"), thrown.getMessage());
+    }
+}
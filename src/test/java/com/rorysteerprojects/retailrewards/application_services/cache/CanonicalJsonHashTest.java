@@ -0,0 +1,50 @@
+package com.rorysteerprojects.retailrewards.application_services.cache;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CanonicalJsonHashTest {
+
+    @Test
+    public void canonicalHashIgnoresWhitespaceAndEscapes() throws IOException {
+        var jsonFactory = new JsonFactory();
+        var compact = "{\"customers\":[{\"id\":\"1\",\"name\":\"Ann\"}],\"transactions\":[]}";
+        var spaced = "{\n  \"customers\" : [ { \"id\" : \"1\", \"name\" : \"\\u0041nn\" } ],\n  \"transactions\" : [ ]\n}";
+        var reordered = "{\"transactions\":[],\"customers\":[{\"id\":\"1\",\"name\":\"Ann\"}]}";
+
+        var compactHash = CanonicalJsonHash.of(jsonFactory, "/calculate-rewards", bytes(compact));
+        assertEquals(compactHash, CanonicalJsonHash.of(jsonFactory, "/calculate-rewards", bytes(spaced)));
+        assertNotEquals(compactHash, CanonicalJsonHash.of(jsonFactory, "/calculate-rewards", bytes(reordered)));
+        assertNotEquals(compactHash, CanonicalJsonHash.of(jsonFactory, "/calculate-rewards/stream", bytes(compact)));
+        assertNotEquals(compactHash, CanonicalJsonHash.of(jsonFactory, "/calculate-rewards",
+                bytes(compact.replace("Ann", "Anne"))));
+        assertThrows(JsonProcessingException.class,
+                () -> CanonicalJsonHash.of(jsonFactory, "/calculate-rewards", bytes("{\"customers\":[")));
+    }
+
+    @Test
+    public void keysCarryTheHashAndADigestOfTheCanonicalForm() throws IOException {
+        var jsonFactory = new JsonFactory();
+        var compact = "{\"customers\":[{\"id\":\"1\",\"name\":\"Ann\"}],\"transactions\":[]}";
+        var spaced = "{ \"customers\" : [ { \"id\" : \"1\", \"name\" : \"\\u0041nn\" } ], \"transactions\" : [ ] }";
+
+        var key = CanonicalJsonHash.keyOf(jsonFactory, "/calculate-rewards", bytes(compact));
+
+        assertEquals(CanonicalJsonHash.of(jsonFactory, "/calculate-rewards", bytes(compact)), key.hash());
+        assertEquals(32, key.sha256().length);
+        assertTrue(key.matches(CanonicalJsonHash.keyOf(jsonFactory, "/calculate-rewards", bytes(spaced))));
+        assertFalse(key.matches(CanonicalJsonHash.keyOf(jsonFactory, "/calculate-rewards",
+                bytes(compact.replace("Ann", "Anne")))));
+        assertFalse(key.matches(new CanonicalJsonHash.Key(key.hash(), new byte[32])));
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
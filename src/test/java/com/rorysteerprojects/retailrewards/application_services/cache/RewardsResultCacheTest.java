@@ -0,0 +1,85 @@
+package com.rorysteerprojects.retailrewards.application_services.cache;
+
+import com.rorysteerprojects.retailrewards.application_services.cache.CanonicalJsonHash.Key;
+import com.rorysteerprojects.retailrewards.application_services.cache.RewardsResultCache.CachedResponse;
+import com.rorysteerprojects.retailrewards.config.RewardsMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RewardsResultCacheTest {
+
+    private static final int BODY_BYTES = 1000;
+    private static final long ENTRY_WEIGHT = BODY_BYTES + RewardsResultCache.ENTRY_OVERHEAD_BYTES;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final RewardsResultCache cache = new RewardsResultCache(new RewardsMetrics(meterRegistry), 3 * ENTRY_WEIGHT);
+
+    @Test
+    public void leastRecentlyUsedEntriesAreEvictedOnceTheWeightIsExceeded() {
+        cache.put(key(1), response(200));
+        cache.put(key(2), response(200));
+        cache.put(key(3), response(422));
+        assertNotNull(cache.get(key(1)));
+
+        cache.put(key(4), response(200));
+
+        assertNull(cache.get(key(2)));
+        assertNotNull(cache.get(key(1)));
+        assertEquals(422, cache.get(key(3)).status());
+        assertNotNull(cache.get(key(4)));
+        assertEquals(3, cache.size());
+        assertEquals(3 * ENTRY_WEIGHT, cache.weight());
+        assertEquals(1, meterRegistry.get("rewards.cache.evictions").counter().count());
+        assertEquals(3 * ENTRY_WEIGHT, meterRegistry.get("rewards.cache.weight").gauge().value());
+    }
+
+    @Test
+    public void lookupsAreCountedAsHitsAndMisses() {
+        cache.put(key(1), response(200));
+        cache.get(key(1));
+        cache.get(key(1));
+        cache.get(key(2));
+
+        assertEquals(2, meterRegistry.get("rewards.cache.lookups").tag("result", "hit").counter().count());
+        assertEquals(1, meterRegistry.get("rewards.cache.lookups").tag("result", "miss").counter().count());
+        assertEquals(1, meterRegistry.get("rewards.cache.entries").gauge().value());
+    }
+
+    @Test
+    public void responsesHeavierThanTheCacheAreNotStored() {
+        cache.put(key(1), response(200));
+        cache.put(key(2), new CachedResponse(200, "application/json", new byte[4 * BODY_BYTES]));
+
+        assertNull(cache.get(key(2)));
+        assertNotNull(cache.get(key(1)));
+        assertEquals(ENTRY_WEIGHT, cache.weight());
+    }
+
+    @Test
+    public void replacingAnEntryReplacesItsWeight() {
+        cache.put(key(1), response(200));
+        cache.put(key(1), new CachedResponse(200, "application/json", new byte[10]));
+
+        assertEquals(10 + RewardsResultCache.ENTRY_OVERHEAD_BYTES, cache.weight());
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void requestsSharingAHashButNotADigestMiss() {
+        cache.put(key(1), response(200));
+
+        assertNull(cache.get(new Key(1, new byte[]{2})));
+        assertNotNull(cache.get(key(1)));
+        assertEquals(1, meterRegistry.get("rewards.cache.lookups").tag("result", "miss").counter().count());
+    }
+
+    private static Key key(long hash) {
+        return new Key(hash, new byte[]{(byte) hash});
+    }
+
+    private static CachedResponse response(int status) {
+        return new CachedResponse(status, "application/json", new byte[BODY_BYTES]);
+    }
+}
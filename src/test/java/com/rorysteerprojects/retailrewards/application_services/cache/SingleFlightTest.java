@@ -0,0 +1,177 @@
+package com.rorysteerprojects.retailrewards.application_services.cache;
+
+import com.rorysteerprojects.retailrewards.api.CustomerDTO;
+import com.rorysteerprojects.retailrewards.api.CustomerTransactionsDTO;
+import com.rorysteerprojects.retailrewards.api.RetailTransactionDTO;
+import com.rorysteerprojects.retailrewards.config.RewardsMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleFlightTest {
+
+    private static final long KEY = 42;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final SingleFlight<Long, Object> singleFlight = new SingleFlight<>(new RewardsMetrics(meterRegistry));
+    private final ExecutorService executor = Executors.newFixedThreadPool(5);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final AtomicInteger computations = new AtomicInteger();
+
+    @AfterEach
+    public void shutdownExecutor() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void concurrentCallsForTheSameKeyShareOneComputation() throws Exception {
+        var result = new Object();
+        var leader = executor.submit(() -> singleFlight.execute(KEY, () -> awaitRelease(result)));
+        awaitComputations(1);
+        List<Future<Object>> followers = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            followers.add(executor.submit(() -> singleFlight.execute(KEY, () -> awaitRelease(new Object()))));
+        }
+        awaitCoalesced(4);
+
+        release.countDown();
+
+        assertSame(result, leader.get(5, TimeUnit.SECONDS));
+        for (Future<Object> follower : followers) {
+            assertSame(result, follower.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, computations.get());
+        assertEquals(0, singleFlight.inFlightCount());
+
+        assertNotSame(result, singleFlight.execute(KEY, Object::new));
+    }
+
+    @Test
+    public void aFailureOfTheLeaderIsSharedWithTheWaitingCallers() throws Exception {
+        var failure = new IllegalStateException("calculation failed");
+        var leader = executor.submit(() -> singleFlight.execute(KEY, () -> {
+            awaitRelease(null);
+            throw failure;
+        }));
+        awaitComputations(1);
+        var follower = executor.submit(() -> singleFlight.execute(KEY, () -> awaitRelease(new Object())));
+        awaitCoalesced(1);
+
+        release.countDown();
+
+        assertSame(failure, assertThrows(ExecutionException.class, () -> leader.get(5, TimeUnit.SECONDS)).getCause());
+        assertSame(failure, assertThrows(ExecutionException.class, () -> follower.get(5, TimeUnit.SECONDS)).getCause());
+        assertEquals(1, computations.get());
+    }
+
+    @Test
+    public void aCancelledLeaderHandsTheComputationToAWaitingCaller() throws Exception {
+        var leader = executor.submit(() -> singleFlight.execute(KEY, () -> {
+            awaitRelease(null);
+            throw new CancellationException("leader cancelled");
+        }));
+        awaitComputations(1);
+        var result = new Object();
+        var follower = executor.submit(() -> singleFlight.execute(KEY, () -> result));
+        awaitCoalesced(1);
+
+        release.countDown();
+
+        assertThrows(ExecutionException.class, () -> leader.get(5, TimeUnit.SECONDS));
+        assertSame(result, follower.get(5, TimeUnit.SECONDS));
+        assertEquals(0, singleFlight.inFlightCount());
+    }
+
+    @Test
+    public void requestsSharingAHashButNotTheirFieldsDoNotShareAComputation() throws Exception {
+        var requests = new SingleFlight<CustomerTransactionsHash.Key, Object>(new RewardsMetrics(meterRegistry));
+        var first = new CustomerTransactionsHash.Key(KEY, request("1", "Customer 1", "100", "2023-03-01", "1", "120.00"));
+        var second = new CustomerTransactionsHash.Key(KEY, request("1", "Customer 1", "100", "2023-03-01", "1", "120.01"));
+        var leader = executor.submit(() -> requests.execute(first, () -> awaitRelease(new Object())));
+        awaitComputations(1);
+
+        var result = new Object();
+        assertSame(result, requests.execute(second, () -> result));
+
+        release.countDown();
+        leader.get(5, TimeUnit.SECONDS);
+        assertEquals(0, meterRegistry.get("rewards.request.coalesced").counter().count());
+    }
+
+    @Test
+    public void requestsWithTheSameFieldsHaveEqualKeys() {
+        var key = CustomerTransactionsHash.keyOf(request("1", "Customer 1", "100", "2023-03-01", "1", "120.00"));
+
+        assertEquals(key, CustomerTransactionsHash.keyOf(request("1", "Customer 1", "100", "2023-03-01", "1", "120.00")));
+        assertEquals(key.hashCode(),
+                CustomerTransactionsHash.keyOf(request("1", "Customer 1", "100", "2023-03-01", "1", "120.00")).hashCode());
+        assertNotEquals(key, CustomerTransactionsHash.keyOf(request("1", "Customer 1", "100", "2023-03-01", "1", null)));
+        assertNotEquals(key, new CustomerTransactionsHash.Key(key.hash(),
+                request("1", "Customer 1", "100", "2023-03-01", "1", "120.01")));
+    }
+
+    @Test
+    public void requestsWithTheSameFieldsHashTheSame() {
+        var request = request("1", "Customer 1", "100", "2023-03-01", "1", "120.00");
+
+        assertEquals(CustomerTransactionsHash.of(request),
+                CustomerTransactionsHash.of(request("1", "Customer 1", "100", "2023-03-01", "1", "120.00")));
+        assertNotEquals(CustomerTransactionsHash.of(request),
+                CustomerTransactionsHash.of(request("1", "Customer 1", "100", "2023-03-01", "1", "120.01")));
+        assertNotEquals(CustomerTransactionsHash.of(request("1", "2", "100", "2023-03-01", "1", "120.00")),
+                CustomerTransactionsHash.of(request("12", "", "100", "2023-03-01", "1", "120.00")));
+        assertNotEquals(CustomerTransactionsHash.of(request("1", null, "100", "2023-03-01", "1", "120.00")),
+                CustomerTransactionsHash.of(request("1", "", "100", "2023-03-01", "1", "120.00")));
+    }
+
+    private Object awaitRelease(Object result) {
+        computations.incrementAndGet();
+        try {
+            assertTrue(release.await(5, TimeUnit.SECONDS));
+        }
+        catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+        return result;
+    }
+
+    private void awaitComputations(int expected) throws InterruptedException {
+        for (int i = 0; i < 500 && computations.get() < expected; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(expected, computations.get());
+    }
+
+    private void awaitCoalesced(int expected) throws InterruptedException {
+        var coalesced = meterRegistry.get("rewards.request.coalesced").counter();
+        for (int i = 0; i < 500 && coalesced.count() < expected; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(expected, coalesced.count());
+        // Give the callers counted as coalesced time to start waiting on the leader's result.
+        Thread.sleep(50);
+    }
+
+    private static CustomerTransactionsDTO request(String customerId,
+                                                   String customerName,
+                                                   String transactionId,
+                                                   String date,
+                                                   String transactionCustomerId,
+                                                   String value) {
+        return new CustomerTransactionsDTO(List.of(new CustomerDTO(customerId, customerName)),
+                List.of(new RetailTransactionDTO(transactionId, date, transactionCustomerId, value)));
+    }
+}
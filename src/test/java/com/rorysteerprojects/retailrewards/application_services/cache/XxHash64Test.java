@@ -0,0 +1,44 @@
+package com.rorysteerprojects.retailrewards.application_services.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class XxHash64Test {
+
+    @Test
+    public void digestsMatchTheReferenceImplementation() {
+        assertEquals(0xEF46DB3751D8E999L, hash(""));
+        assertEquals(0xD24EC4F1A98C6E5BL, hash("a"));
+        assertEquals(0x44BC2CF5AD770999L, hash("abc"));
+        assertEquals(0xFBCEA83C8A378BF1L, hash("Nobody inspects the spammish repetition"));
+    }
+
+    @Test
+    public void feedingTheBytesInPiecesGivesTheSameDigest() {
+        var bytes = new byte[1024];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) i;
+        }
+        assertEquals(0x6F3914F18FE4DF57L, new XxHash64().update(bytes, 0, bytes.length).digest());
+
+        for (int pieceLength : new int[]{1, 7, 31, 33, 100}) {
+            var hash = new XxHash64();
+            for (int offset = 0; offset < bytes.length; offset += pieceLength) {
+                hash.update(bytes, offset, Math.min(pieceLength, bytes.length - offset));
+            }
+            assertEquals(0x6F3914F18FE4DF57L, hash.digest(), "pieces of " + pieceLength);
+        }
+    }
+
+    private static long hash(String value) {
+        var bytes = bytes(value);
+        return new XxHash64().update(bytes, 0, bytes.length).digest();
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+}
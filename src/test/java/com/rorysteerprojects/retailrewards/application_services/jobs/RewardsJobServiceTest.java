@@ -0,0 +1,221 @@
+package com.rorysteerprojects.retailrewards.application_services.jobs;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rorysteerprojects.retailrewards.api.CustomerDTO;
+import com.rorysteerprojects.retailrewards.api.CustomerTransactionsDTO;
+import com.rorysteerprojects.retailrewards.api.RetailTransactionDTO;
+import com.rorysteerprojects.retailrewards.api.RewardsJobDTO;
+import com.rorysteerprojects.retailrewards.api.RewardsJobStatus;
+import com.rorysteerprojects.retailrewards.application_services.RetailRewardsService;
+import com.rorysteerprojects.retailrewards.application_services.RewardsComputePool;
+import com.rorysteerprojects.retailrewards.application_services.parsers.CustomerParser;
+import com.rorysteerprojects.retailrewards.application_services.parsers.RetailTransactionParser;
+import com.rorysteerprojects.retailrewards.application_services.readers.CustomerTransactionsCsvReader;
+import com.rorysteerprojects.retailrewards.application_services.readers.CustomerTransactionsJsonReader;
+import com.rorysteerprojects.retailrewards.config.RewardsMetrics;
+import com.rorysteerprojects.retailrewards.domain.RewardsCalculator;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.AbstractList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RewardsJobServiceTest {
+
+    private final CustomerTransactionsJsonReader reader = new CustomerTransactionsJsonReader();
+    private final RetailRewardsService retailRewardsService = new RetailRewardsService(
+            new CustomerParser(),
+            new RetailTransactionParser(),
+            new RewardsCalculator(),
+            reader,
+            new CustomerTransactionsCsvReader(),
+            new RewardsMetrics(new SimpleMeterRegistry()),
+            new RewardsComputePool(),
+            50_000,
+            8_192,
+            true
+    );
+    private final MutableClock clock = new MutableClock();
+    private final RewardsJobService jobService =
+            new RewardsJobService(retailRewardsService, reader, 1, 1, DataSize.ofKilobytes(1), Duration.ofMinutes(15), clock);
+    private final CountDownLatch releaseBlockedJob = new CountDownLatch(1);
+
+    private final CustomerTransactionsDTO customerTransactions = new CustomerTransactionsDTO(
+            List.of(
+                    new CustomerDTO("100", "Customer 1"),
+                    new CustomerDTO("101", "Customer 2")
+            ),
+            List.of(
+                    new RetailTransactionDTO("1001", "2023-11-03", "100", "120"),
+                    new RetailTransactionDTO("1002", "2024-01-31", "101", "70"),
+                    new RetailTransactionDTO("1006", "2023-11-01", "101", "150.75")
+            )
+    );
+
+    @AfterEach
+    public void shutdown() {
+        releaseBlockedJob.countDown();
+        jobService.shutdown();
+    }
+
+    @Test
+    public void submittedJobCompletesWithTheSameResultAsTheService() throws InterruptedException {
+        var submitted = jobService.submit(customerTransactions);
+        var job = awaitFinished(submitted.getJobId());
+
+        var expected = retailRewardsService.calculateRewards(customerTransactions);
+        assertEquals(RewardsJobStatus.COMPLETED, job.getStatus());
+        assertEquals(2, job.getCustomersRead());
+        assertEquals(3, job.getTransactionsValidated());
+        assertEquals(3, job.getTransactionsAggregated());
+        assertTrue(job.getResult().getErrors().isEmpty());
+        assertEquals(expected.getCustomerSummaries().size(), job.getResult().getCustomerSummaries().size());
+        for (int i = 0; i < expected.getCustomerSummaries().size(); i++) {
+            assertEquals(expected.getCustomerSummaries().get(i).getCustomerId(),
+                    job.getResult().getCustomerSummaries().get(i).getCustomerId());
+            assertEquals(expected.getCustomerSummaries().get(i).getTotalRewards(),
+                    job.getResult().getCustomerSummaries().get(i).getTotalRewards());
+        }
+    }
+
+    @Test
+    public void streamedJobCompletesWithTheSameResultAsTheService() throws IOException, InterruptedException {
+        var json = new ObjectMapper().writeValueAsBytes(customerTransactions);
+
+        var submitted = jobService.submit(new ByteArrayInputStream(json));
+        var job = awaitFinished(submitted.getJobId());
+
+        assertEquals(RewardsJobStatus.COMPLETED, job.getStatus());
+        assertEquals(retailRewardsService.calculateRewards(customerTransactions).getCustomerSummaries().size(),
+                job.getResult().getCustomerSummaries().size());
+    }
+
+    @Test
+    public void streamedJobWithMalformedBodyFails() throws IOException, InterruptedException {
+        var submitted = jobService.submit(new ByteArrayInputStream("{\"customers\": [".getBytes(StandardCharsets.UTF_8)));
+        var job = awaitFinished(submitted.getJobId());
+
+        assertEquals(RewardsJobStatus.FAILED, job.getStatus());
+        assertEquals(List.of("Request Body is not valid JSON"), job.getResult().getErrors());
+    }
+
+    @Test
+    public void jobsBeyondTheQueueCapacityAreRejected() {
+        var running = jobService.submit(blockingCustomerTransactions());
+        var queued = jobService.submit(customerTransactions);
+
+        assertThrows(RejectedExecutionException.class, () -> jobService.submit(customerTransactions));
+        assertTrue(jobService.find(running.getJobId()).isPresent());
+        assertEquals(RewardsJobStatus.QUEUED, jobService.find(queued.getJobId()).get().getStatus());
+    }
+
+    @Test
+    public void streamedJobsBeyondTheQueueCapacityAreRejectedBeforeTheirBodyIsRead() throws IOException {
+        jobService.submit(blockingCustomerTransactions());
+        jobService.submit(customerTransactions);
+        var body = new ByteArrayInputStream(new ObjectMapper().writeValueAsBytes(customerTransactions));
+
+        assertThrows(RejectedExecutionException.class, () -> jobService.submit(body));
+        assertTrue(body.available() > 0);
+    }
+
+    @Test
+    public void streamedJobsLongerThanTheMaximumBodySizeAreRejected() throws IOException, InterruptedException {
+        var body = new ByteArrayInputStream(new byte[64 * 1024]);
+
+        var thrown = assertThrows(RequestBodyTooLargeException.class, () -> jobService.submit(body));
+        assertEquals(1024, thrown.getMaxBodySize());
+        assertTrue(body.available() > 0);
+
+        // The rejected body gave its slot back.
+        var json = new ObjectMapper().writeValueAsBytes(customerTransactions);
+        jobService.submit(blockingCustomerTransactions());
+        assertDoesNotThrow(() -> jobService.submit(new ByteArrayInputStream(json)));
+    }
+
+    @Test
+    public void finishedJobsAreEvictedAfterTheRetentionPeriod() throws InterruptedException {
+        var submitted = jobService.submit(customerTransactions);
+        awaitFinished(submitted.getJobId());
+
+        clock.advance(Duration.ofMinutes(14));
+        assertTrue(jobService.find(submitted.getJobId()).isPresent());
+
+        clock.advance(Duration.ofMinutes(2));
+        assertTrue(jobService.find(submitted.getJobId()).isEmpty());
+    }
+
+    @Test
+    public void unknownJobIsNotFound() {
+        assertTrue(jobService.find("unknown").isEmpty());
+    }
+
+    private RewardsJobDTO awaitFinished(String jobId) throws InterruptedException {
+        for (int attempt = 0; attempt < 500; attempt++) {
+            var job = jobService.find(jobId).orElseThrow();
+            if (job.getStatus() == RewardsJobStatus.COMPLETED || job.getStatus() == RewardsJobStatus.FAILED) {
+                return job;
+            }
+            Thread.sleep(10);
+        }
+        throw new AssertionError("Job " + jobId + " did not finish");
+    }
+
+    private CustomerTransactionsDTO blockingCustomerTransactions() {
+        var customers = new AbstractList<CustomerDTO>() {
+            @Override
+            public CustomerDTO get(int index) {
+                try {
+                    releaseBlockedJob.await();
+                }
+                catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return customerTransactions.getCustomers().get(index);
+            }
+
+            @Override
+            public int size() {
+                return customerTransactions.getCustomers().size();
+            }
+        };
+        return new CustomerTransactionsDTO(customers, customerTransactions.getTransactions());
+    }
+
+    private static class MutableClock extends Clock {
+        private Instant now = Instant.parse("2023-12-01T10:00:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
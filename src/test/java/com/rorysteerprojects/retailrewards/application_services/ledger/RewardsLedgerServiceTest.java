@@ -0,0 +1,77 @@
+package com.rorysteerprojects.retailrewards.application_services.ledger;
+
+import com.rorysteerprojects.retailrewards.api.CustomerDTO;
+import com.rorysteerprojects.retailrewards.api.CustomerTransactionsDTO;
+import com.rorysteerprojects.retailrewards.api.RetailTransactionDTO;
+import com.rorysteerprojects.retailrewards.application_services.parsers.CustomerParser;
+import com.rorysteerprojects.retailrewards.application_services.parsers.RetailTransactionParser;
+import com.rorysteerprojects.retailrewards.domain.RewardsTiers;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RewardsLedgerServiceTest {
+
+    private final RewardsLedgerService service = new RewardsLedgerService(
+            new CustomerParser(),
+            new RetailTransactionParser(),
+            RewardsTiers.DEFAULT,
+            4);
+
+    @Test
+    public void transactionsMayReferToCustomersAlreadyInTheLedger() {
+        var appendResult = service.append(new CustomerTransactionsDTO(
+                List.of(new CustomerDTO("1", "Customer 1")),
+                List.of(new RetailTransactionDTO("100", "2023-03-01", "1", "101.50"))));
+        assertTrue(appendResult.getErrors().isEmpty());
+        assertEquals(1, appendResult.getTransactionsAppended());
+        assertEquals(0, appendResult.getTransactionsDropped());
+
+        appendResult = service.append(new CustomerTransactionsDTO(
+                null,
+                List.of(new RetailTransactionDTO("101", "2023-05-31", "1", "500"))));
+        assertTrue(appendResult.getErrors().isEmpty());
+
+        var summary = service.findCustomerSummary(1);
+        assertTrue(summary.isPresent());
+        assertEquals("Customer 1", summary.get().getCustomerName());
+        assertEquals(52, summary.get().getMonth1Rewards());
+        assertEquals(850, summary.get().getMonth3Rewards());
+        assertEquals(902, summary.get().getTotalRewards());
+    }
+
+    @Test
+    public void anAppendWithAnyErrorChangesNothing() {
+        var appendResult = service.append(new CustomerTransactionsDTO(
+                List.of(new CustomerDTO("1", "Customer 1")),
+                List.of(new RetailTransactionDTO("100", "2023-03-01", "1", "101.50"),
+                        new RetailTransactionDTO("101", "2023-03-01", "2", "101.50"))));
+
+        assertEquals(0, appendResult.getTransactionsAppended());
+        assertEquals(List.of("RetailTransaction{id='101', date='2023-03-01', customerId='2', value='101.50'} : " +
+                "has a Customer id not found in the list of Customers."), appendResult.getErrors());
+        assertEquals(1, (long) appendResult.getValidationErrors().get(0).getRow());
+        assertEquals("customerId", appendResult.getValidationErrors().get(0).getField());
+        assertEquals(Map.of("TRANSACTION_HAS_NOT_FOUND_CUSTOMER_ID", 1), appendResult.getErrorCounts());
+        assertTrue(service.findCustomerSummary(1).isEmpty());
+    }
+
+    @Test
+    public void transactionsBeforeTheWindowAreRejected() {
+        service.append(new CustomerTransactionsDTO(
+                List.of(new CustomerDTO("1", "Customer 1")),
+                List.of(new RetailTransactionDTO("100", "2023-06-01", "1", "101.50"))));
+
+        var appendResult = service.append(new CustomerTransactionsDTO(
+                List.of(),
+                List.of(new RetailTransactionDTO("101", "2023-03-31", "1", "101.50"))));
+
+        assertEquals(List.of("Transaction details contain transactions from before the three calendar Months held " +
+                "in the ledger."), appendResult.getErrors());
+        assertEquals(Map.of("TRANSACTIONS_BEFORE_LEDGER_WINDOW", 1), appendResult.getErrorCounts());
+        assertEquals(52, service.findCustomerSummary(1).orElseThrow().getTotalRewards());
+    }
+}
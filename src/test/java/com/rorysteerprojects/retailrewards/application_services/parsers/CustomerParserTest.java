@@ -93,4 +93,32 @@ class CustomerParserTest {
                 .stream()
                 .anyMatch(e -> e.equals(customers.get(3).toString() + " : has an invalid customer id.")));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testDuplicateCustomerIdIsAnErrorAndTheFirstCustomerIsKept() {
+        var parser = new CustomerParser();
+        var customers = List.of(new CustomerDTO("101", "Customer 1"),
+                new CustomerDTO("102", "Customer 2"),
+                new CustomerDTO("0101", "Customer 3"));
+        var result = parser.parserCustomers(customers);
+
+        assertTrue(result.customers().isEmpty());
+        assertTrue(result.customerIndex().isEmpty());
+        assertEquals(1, result.errors().size());
+        assertEquals(customers.get(2).toString() + " : has a duplicate customer id.", result.errors().get(0));
+        assertEquals(1, result.ruleCounts().get(ValidationRule.CUSTOMER_HAS_DUPLICATE_ID));
+    }
+
+    @Test
+    public void testValidCustomersAreIndexedById() {
+        var parser = new CustomerParser();
+        var customers = List.of(new CustomerDTO("101", "Customer 1"),
+                new CustomerDTO("102", null));
+        var result = parser.parserCustomers(customers);
+
+        assertEquals(2, result.customerIndex().size());
+        assertEquals("Customer 1", result.customerIndex().getNameOrDefault(101, "not found"));
+        assertNull(result.customerIndex().getNameOrDefault(102, "not found"));
+        assertEquals("not found", result.customerIndex().getNameOrDefault(103, "not found"));
+    }
+}
@@ -0,0 +1,175 @@
+package com.rorysteerprojects.retailrewards.application_services.parsers;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Property based tests: each parser is checked against the JDK parser it replaces over a large number of
+ * generated inputs, biased towards the characters and shapes that sit on the edges of each format.
+ */
+class FieldParsersTest {
+
+    private static final int SAMPLES = 200_000;
+
+    private static final String[] INT_FRAGMENTS = {
+            "0", "1", "7", "9", "-", "+", " ", "a", ".", "\u0663", "\uff17",
+            "2147483647", "2147483648", "-2147483648", "-2147483649", "00000000001", "99999999999"
+    };
+
+    private static final String[] DATE_FRAGMENTS = {
+            "2023", "2024", "1900", "2000", "0000", "-", "+", "01", "02", "12", "13", "00", "28", "29", "30", "31",
+            "32", "1", "9", "0", "12345", "999999999", "1000000000", "T", " ", "\u0663"
+    };
+
+    private static final String[] DOUBLE_FRAGMENTS = {
+            "0", "1", "5", "9", "00", "101.50", ".", "-", "+", "e", "E", "e-", "E+", "f", "F", "d", "D", "x", "X",
+            "0x", "0X", "p", "P", "a", "F", "NaN", "Infinity", "N", "I", " ", "\t", "\n", "\u0663", ",", "1e400",
+            "1e-400", "_"
+    };
+
+    private static final String[] CENTS_FRAGMENTS = {
+            "0", "1", "5", "9", "00", "50", "100", "101.50", "50.99", ".", "-", "+", "e", "E-", "e+", "e1", "e2",
+            "e-3", "e19", "d", "F", " ", "NaN", "Infinity", "0x1p3", "92233720368547758", "07", "99999999999"
+    };
+
+    private final Random random = new Random(20231118L);
+
+    @Test
+    public void parseIntAcceptsExactlyWhatIntegerParseIntAccepts() {
+        for (String text : List.of("", "-", "+", "0", "-0", "+0", "2147483647", "-2147483648", "2147483648",
+                "-2147483649", "\u0663\u0663", "1 ", " 1", "1.0")) {
+            assertParseIntMatchesTheJdk(text);
+        }
+        for (int i = 0; i < SAMPLES; i++) {
+            assertParseIntMatchesTheJdk(generate(INT_FRAGMENTS, 4));
+            assertParseIntMatchesTheJdk(Long.toString(random.nextLong() >> random.nextInt(64)));
+        }
+        assertEquals(FieldParsers.INVALID, FieldParsers.parseInt(null));
+    }
+
+    @Test
+    public void parseIsoDateAcceptsExactlyWhatLocalDateParseAccepts() {
+        for (String text : List.of("2023-08-09", "2024-02-29", "2023-02-29", "2000-02-29", "1900-02-29",
+                "2023-04-31", "2023-8-09", "2023-08-9", "20230-01-01", "+20230-01-01", "+2023-01-01",
+                "-0000-01-01", "-0001-01-01", "+999999999-12-31", "+1000000000-01-01", "-999999999-01-01",
+                "2023-08-09T00:00", "", "badDate")) {
+            assertParseIsoDateMatchesTheJdk(text);
+        }
+        for (int i = 0; i < SAMPLES; i++) {
+            assertParseIsoDateMatchesTheJdk(generate(DATE_FRAGMENTS, 6));
+            assertParseIsoDateMatchesTheJdk(
+                    generate(DATE_FRAGMENTS, 1) + "-" + generate(DATE_FRAGMENTS, 1) + "-" + generate(DATE_FRAGMENTS, 1));
+            assertParseIsoDateMatchesTheJdk(LocalDate.ofEpochDay(random.nextInt(1_000_000) - 500_000).toString());
+        }
+        assertEquals(FieldParsers.INVALID, FieldParsers.parseIsoDate(null));
+    }
+
+    @Test
+    public void isValidDoubleAcceptsExactlyWhatDoubleParseDoubleAccepts() {
+        for (String text : List.of("", " ", "0", "-0", "50.99", "101.50", ".5", "5.", ".", "-.", "1e", "1e5",
+                "1e+5", "1E-5", "1e5d", "1.5F", "1.5dd", "NaN", "-NaN", "Infinity", "-Infinity", "NaNd", "0x1p3",
+                "0x1.8p1", "0x.8p1", "0x.p1", "0x1p", "0x1", "-0x1P-3f", " 10.5\t", "10.5-", "1,010.5", "badValue",
+                "1..0", "\u0663")) {
+            assertIsValidDoubleMatchesTheJdk(text);
+        }
+        for (int i = 0; i < SAMPLES; i++) {
+            assertIsValidDoubleMatchesTheJdk(generate(DOUBLE_FRAGMENTS, 6));
+            assertIsValidDoubleMatchesTheJdk(Double.toString(Double.longBitsToDouble(random.nextLong())));
+        }
+        assertFalse(FieldParsers.isValidDouble(null));
+    }
+
+    @Test
+    public void parseCentsTruncatesDecimalValuesToWholeCents() {
+        assertEquals(10150, FieldParsers.parseCents("101.50"));
+        assertEquals(5099, FieldParsers.parseCents("50.99"));
+        assertEquals(50000, FieldParsers.parseCents("500"));
+        assertEquals(10000, FieldParsers.parseCents("100.00000001"));
+        assertEquals(10099, FieldParsers.parseCents("100.999999999999999999"));
+        assertEquals(5, FieldParsers.parseCents(".05"));
+        assertEquals(12000, FieldParsers.parseCents(" 1.2e2d "));
+        assertEquals(0, FieldParsers.parseCents("-0.00"));
+        assertEquals(FieldParsers.NEGATIVE, FieldParsers.parseCents("-50.2"));
+        assertEquals(FieldParsers.NEGATIVE, FieldParsers.parseCents("-1e400"));
+        assertEquals(FieldParsers.INVALID, FieldParsers.parseCents("10.5-"));
+        assertEquals(FieldParsers.INVALID, FieldParsers.parseCents("1,010.5"));
+        assertEquals(FieldParsers.INVALID, FieldParsers.parseCents("NaN"));
+        assertEquals(FieldParsers.INVALID, FieldParsers.parseCents("Infinity"));
+        assertEquals(FieldParsers.INVALID, FieldParsers.parseCents("0x1p3"));
+        assertEquals(FieldParsers.INVALID, FieldParsers.parseCents("1e400"));
+        assertEquals(FieldParsers.INVALID, FieldParsers.parseCents(null));
+    }
+
+    @Test
+    public void parseCentsMatchesExactDecimalArithmetic() {
+        for (int i = 0; i < SAMPLES; i++) {
+            assertParseCentsMatchesBigDecimal(generate(CENTS_FRAGMENTS, 6));
+        }
+    }
+
+    private String generate(String[] fragments, int maxFragments) {
+        var builder = new StringBuilder();
+        var count = random.nextInt(maxFragments + 1);
+        for (int i = 0; i < count; i++) {
+            builder.append(fragments[random.nextInt(fragments.length)]);
+        }
+        return builder.toString();
+    }
+
+    private void assertParseIntMatchesTheJdk(String text) {
+        long expected;
+        try {
+            expected = Integer.parseInt(text);
+        } catch (NumberFormatException e) {
+            expected = FieldParsers.INVALID;
+        }
+        assertEquals(expected, FieldParsers.parseInt(text), "parseInt(\"" + text + "\")");
+    }
+
+    private void assertParseIsoDateMatchesTheJdk(String text) {
+        long expected;
+        try {
+            expected = LocalDate.parse(text).toEpochDay();
+        } catch (RuntimeException e) {
+            expected = FieldParsers.INVALID;
+        }
+        assertEquals(expected, FieldParsers.parseIsoDate(text), "parseIsoDate(\"" + text + "\")");
+    }
+
+    private void assertParseCentsMatchesBigDecimal(String text) {
+        long expected;
+        var trimmed = text.trim();
+        if (trimmed.matches(".*[eE][-+]?\\d{4,}.*")) {
+            // Too large an exponent for a BigDecimal reference to be practical
+            return;
+        }
+        if (!FieldParsers.isValidDouble(text) || trimmed.contains("N") || trimmed.contains("I") || trimmed.contains("x")) {
+            expected = FieldParsers.INVALID;
+        }
+        else {
+            var value = new BigDecimal(trimmed.replaceAll("[fFdD]$", ""));
+            var cents = value.movePointRight(2).setScale(0, RoundingMode.DOWN);
+            expected = value.signum() < 0 ? FieldParsers.NEGATIVE :
+                    cents.toBigInteger().bitLength() < Long.SIZE ? cents.longValue() : FieldParsers.INVALID;
+        }
+        assertEquals(expected, FieldParsers.parseCents(text), "parseCents(\"" + text + "\")");
+    }
+
+    private void assertIsValidDoubleMatchesTheJdk(String text) {
+        boolean expected;
+        try {
+            Double.parseDouble(text);
+            expected = true;
+        } catch (NumberFormatException e) {
+            expected = false;
+        }
+        assertEquals(expected, FieldParsers.isValidDouble(text), "isValidDouble(\"" + text + "\")");
+    }
+}
@@ -1,12 +1,17 @@
 package com.rorysteerprojects.retailrewards.application_services.parsers;
 
 import com.rorysteerprojects.retailrewards.api.RetailTransactionDTO;
+import com.rorysteerprojects.retailrewards.api.ValidationErrorDTO;
 import com.rorysteerprojects.retailrewards.domain.Customer;
+import com.rorysteerprojects.retailrewards.domain.CustomerIndex;
 import org.junit.jupiter.api.Test;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -16,7 +21,7 @@ class RetailTransactionParserTest {
 
     @Test
     public void testEmptyListReturnsEmptyList() {
-        var result = parser.parseTransactions(Collections.emptyList(), Collections.emptyList());
+        var result = parseTransactions(parser, Collections.emptyList(), Collections.emptyList());
         assertTrue(result.retailTransactions().isEmpty());
         assertTrue(result.errors().isEmpty());
     }
@@ -25,7 +30,7 @@ class RetailTransactionParserTest {
     public void testOneTransactionWithInvalidIdInListIsConvertedToErrors() {
         var transactions = List.of(new RetailTransactionDTO("badId", "2023-08-09", "1", "150.23"));
         List<Customer> customers = Collections.emptyList();
-        var result = parser.parseTransactions(transactions, customers);
+        var result = parseTransactions(parser, transactions, customers);
 
         assertTrue(result.retailTransactions().isEmpty());
         assertEquals(1, result.errors().size());
@@ -38,7 +43,7 @@ class RetailTransactionParserTest {
     public void testOneTransactionWithInvalidDateInListIsConvertedToErrors() {
         var transactions = List.of(new RetailTransactionDTO("1001", "badDate", "1", "150.23"));
         List<Customer> customers = Collections.emptyList();
-        var result = parser.parseTransactions(transactions, customers);
+        var result = parseTransactions(parser, transactions, customers);
 
         assertTrue(result.retailTransactions().isEmpty());
         assertEquals(1, result.errors().size());
@@ -51,7 +56,7 @@ class RetailTransactionParserTest {
     public void testOneTransactionWithInvalidCustomerIdInListIsConvertedToErrors() {
         var transactions = List.of(new RetailTransactionDTO("1001", "2023-08-09", "badId", "150.23"));
         List<Customer> customers = Collections.emptyList();
-        var result = parser.parseTransactions(transactions, customers);
+        var result = parseTransactions(parser, transactions, customers);
 
         assertTrue(result.retailTransactions().isEmpty());
         assertEquals(1, result.errors().size());
@@ -64,7 +69,7 @@ class RetailTransactionParserTest {
     public void testOneTransactionWithInvalidValueInListIsConvertedToErrors() {
         var transactions = List.of(new RetailTransactionDTO("1001", "2023-08-09", "1", "badValue"));
         List<Customer> customers = Collections.emptyList();
-        var result = parser.parseTransactions(transactions, customers);
+        var result = parseTransactions(parser, transactions, customers);
 
         assertTrue(result.retailTransactions().isEmpty());
         assertEquals(1, result.errors().size());
@@ -80,7 +85,7 @@ class RetailTransactionParserTest {
                 new RetailTransactionDTO("1001", "2023-08-09", "1", "10.5-"),
                 new RetailTransactionDTO("1001", "2023-08-09", "1", "1,010.5"));
         List<Customer> customers = Collections.emptyList();
-        var result = parser.parseTransactions(transactions, customers);
+        var result = parseTransactions(parser, transactions, customers);
 
         assertTrue(result.retailTransactions().isEmpty());
         assertEquals(3, result.errors().size());
@@ -100,7 +105,7 @@ class RetailTransactionParserTest {
                 new RetailTransactionDTO("1001", "2023-08-09", "1", "50.2"),
                 new RetailTransactionDTO("1001", "2023-08-09", "2", "10.5"));
         var customers = List.of(new Customer(1, "Customer 1"));
-        var result = parser.parseTransactions(transactions, customers);
+        var result = parseTransactions(parser, transactions, customers);
 
         assertTrue(result.retailTransactions().isEmpty());
         assertEquals(1, result.errors().size());
@@ -113,7 +118,7 @@ class RetailTransactionParserTest {
     public void testOneValidTransactionInListReturnsNoErrors() {
         var transactions = List.of(new RetailTransactionDTO("1001", "2023-08-09", "1", "150.53"));
         List<Customer> customers = List.of(new Customer(1, "Customer 1"));
-        var result = parser.parseTransactions(transactions, customers);
+        var result = parseTransactions(parser, transactions, customers);
 
         assertTrue(result.errors().isEmpty());
     }
@@ -122,7 +127,7 @@ class RetailTransactionParserTest {
     public void testOneTransactionInListWithAllValuesInvalidIsConvertedToErrors() {
         var transactions = List.of(new RetailTransactionDTO("badId", "badDate", "badCustomerId", "badValue"));
         List<Customer> customers = Collections.emptyList();
-        var result = parser.parseTransactions(transactions, customers);
+        var result = parseTransactions(parser, transactions, customers);
 
         assertTrue(result.retailTransactions().isEmpty());
         assertEquals(4, result.errors().size());
@@ -147,7 +152,7 @@ class RetailTransactionParserTest {
                 new RetailTransactionDTO(null, null, null, null)
         );
         List<Customer> customers = Collections.emptyList();
-        var result = parser.parseTransactions(transactions, customers);
+        var result = parseTransactions(parser, transactions, customers);
 
         assertTrue(result.retailTransactions().isEmpty());
         assertEquals(8, result.errors().size());
@@ -188,7 +193,7 @@ class RetailTransactionParserTest {
         );
 
         List<Customer> customers = Collections.emptyList();
-        var result = parser.parseTransactions(transactions, customers);
+        var result = parseTransactions(parser, transactions, customers);
 
         assertTrue(result.retailTransactions().isEmpty());
         assertEquals(20, result.errors().size());
@@ -198,7 +203,7 @@ class RetailTransactionParserTest {
     public void testOneValidTransactionInListReturnsCorrectTransactionsAndNoErrors() {
         var transactions = List.of(new RetailTransactionDTO("1001", "2023-08-09", "101", "150.53"));
         List<Customer> customers = List.of(new Customer(101, "Customer 1"));
-        var result = parser.parseTransactions(transactions, customers);
+        var result = parseTransactions(parser, transactions, customers);
 
         assertTrue(result.errors().isEmpty());
         assertFalse(result.retailTransactions().isEmpty());
@@ -209,7 +214,7 @@ class RetailTransactionParserTest {
         assertTrue(resultTransaction.isPresent());
         assertEquals(LocalDate.parse(transactions.get(0).getDate()), resultTransaction.get().date());
         assertEquals(Integer.parseInt(transactions.get(0).getCustomerId()), resultTransaction.get().customerId());
-        assertEquals(Double.parseDouble(transactions.get(0).getValue()), resultTransaction.get().value());
+        assertEquals(15053, resultTransaction.get().valueInCents());
     }
 
     @Test
@@ -222,7 +227,7 @@ class RetailTransactionParserTest {
         List<Customer> customers = List.of(new Customer(101, "Customer 1"),
                 new Customer(102, "Customer 2"),
                 new Customer(103, "Customer 3"));
-        var result = parser.parseTransactions(transactions, customers);
+        var result = parseTransactions(parser, transactions, customers);
 
         assertTrue(result.errors().isEmpty());
         assertEquals(transactions.size(), result.retailTransactions().size());
@@ -233,7 +238,7 @@ class RetailTransactionParserTest {
         assertTrue(resultTransaction.isPresent());
         assertEquals(LocalDate.parse(transactions.get(0).getDate()), resultTransaction.get().date());
         assertEquals(Integer.parseInt(transactions.get(0).getCustomerId()), resultTransaction.get().customerId());
-        assertEquals(Double.parseDouble(transactions.get(0).getValue()), resultTransaction.get().value());
+        assertEquals(15053, resultTransaction.get().valueInCents());
         resultTransaction = result.retailTransactions()
                 .stream()
                 .filter(t -> t.id() == Integer.parseInt(transactions.get(1).getId()))
@@ -241,7 +246,7 @@ class RetailTransactionParserTest {
         assertTrue(resultTransaction.isPresent());
         assertEquals(LocalDate.parse(transactions.get(1).getDate()), resultTransaction.get().date());
         assertEquals(Integer.parseInt(transactions.get(1).getCustomerId()), resultTransaction.get().customerId());
-        assertEquals(Double.parseDouble(transactions.get(1).getValue()), resultTransaction.get().value());
+        assertEquals(16000, resultTransaction.get().valueInCents());
         resultTransaction = result.retailTransactions()
                 .stream()
                 .filter(t -> t.id() == Integer.parseInt(transactions.get(2).getId()))
@@ -249,7 +254,7 @@ class RetailTransactionParserTest {
         assertTrue(resultTransaction.isPresent());
         assertEquals(LocalDate.parse(transactions.get(2).getDate()), resultTransaction.get().date());
         assertEquals(Integer.parseInt(transactions.get(2).getCustomerId()), resultTransaction.get().customerId());
-        assertEquals(Double.parseDouble(transactions.get(2).getValue()), resultTransaction.get().value());
+        assertEquals(1710, resultTransaction.get().valueInCents());
         resultTransaction = result.retailTransactions()
                 .stream()
                 .filter(t -> t.id() == Integer.parseInt(transactions.get(3).getId()))
@@ -257,7 +262,7 @@ class RetailTransactionParserTest {
         assertTrue(resultTransaction.isPresent());
         assertEquals(LocalDate.parse(transactions.get(3).getDate()), resultTransaction.get().date());
         assertEquals(Integer.parseInt(transactions.get(3).getCustomerId()), resultTransaction.get().customerId());
-        assertEquals(Double.parseDouble(transactions.get(3).getValue()), resultTransaction.get().value());
+        assertEquals(100000, resultTransaction.get().valueInCents());
     }
 
     @Test
@@ -271,7 +276,7 @@ class RetailTransactionParserTest {
                 new Customer(101, "Customer 1"),
                 new Customer(102, "Customer 2"),
                 new Customer(103, "Customer 3"));
-        var result = parser.parseTransactions(transactions, customers);
+        var result = parseTransactions(parser, transactions, customers);
 
         assertTrue(result.retailTransactions().isEmpty());
         assertEquals(1, result.errors().size());
@@ -289,9 +294,124 @@ class RetailTransactionParserTest {
                 new Customer(101, "Customer 1"),
                 new Customer(102, "Customer 2"),
                 new Customer(103, "Customer 3"));
-        var result = parser.parseTransactions(transactions, customers);
+        var result = parseTransactions(parser, transactions, customers);
 
         assertTrue(result.errors().isEmpty());
         assertEquals(4, result.retailTransactions().size());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testEachFailedRuleIsReportedOnceForATransaction() {
+        var transactions = List.of(
+                new RetailTransactionDTO("1001", "2023-08-09", "2", "-10.5"),
+                new RetailTransactionDTO("1002", "2023-02-30", "1", "50"));
+        var customers = List.of(new Customer(1, "Customer 1"));
+        var result = parseTransactions(parser, transactions, customers);
+
+        assertTrue(result.retailTransactions().isEmpty());
+        assertEquals(List.of(
+                transactions.get(0).toString() + " : has a negative value.",
+                transactions.get(0).toString() + " : has a Customer id not found in the list of Customers.",
+                transactions.get(1).toString() + " : has invalid transaction date."),
+                result.errors());
+    }
+
+    @Test
+    public void errorsRecordTheRowFieldAndRuleOfEachFailure() {
+        var transactions = List.of(
+                new RetailTransactionDTO("1001", "2023-08-09", "1", "50"),
+                new RetailTransactionDTO("1002", "2023-08-09", "1", "-10.5"));
+        var result = parseTransactions(parser, transactions, List.of(new Customer(1, "Customer 1")));
+
+        var error = result.validationErrors().list().get(0);
+        assertEquals(1, (long) error.getRow());
+        assertEquals("value", error.getField());
+        assertEquals("TRANSACTION_HAS_NEGATIVE_VALUE", error.getRule());
+        assertEquals(transactions.get(1).toString() + " : has a negative value.", error.getMessage());
+        assertEquals(Map.of("TRANSACTION_HAS_NEGATIVE_VALUE", 1), result.validationErrors().countsByRule());
+    }
+
+    @Test
+    public void validationStopsOnceTheMaximumNumberOfErrorsIsReached() {
+        var cappedParser = new RetailTransactionParser(3, false);
+        var transactions = invalidTransactions(100);
+        var result = parseTransactions(cappedParser, transactions, Collections.<Customer>emptyList());
+
+        assertEquals(List.of(
+                transactions.get(0).toString() + " : has invalid transaction id.",
+                transactions.get(0).toString() + " : has invalid value.",
+                transactions.get(1).toString() + " : has invalid transaction id."),
+                result.errors());
+        assertEquals(2, result.ruleCounts().get(ValidationRule.TRANSACTION_HAS_INVALID_ID));
+        assertEquals(1, result.ruleCounts().get(ValidationRule.TRANSACTION_HAS_INVALID_VALUE));
+    }
+
+    @Test
+    public void failFastStopsAfterTheFirstTransactionWithErrors() {
+        var failFastParser = new RetailTransactionParser(1000, true);
+        var transactions = new ArrayList<>(List.of(new RetailTransactionDTO("1000", "2023-08-09", "1", "50")));
+        transactions.addAll(invalidTransactions(10));
+        var result = parseTransactions(failFastParser, transactions, Collections.<Customer>emptyList());
+
+        assertEquals(List.of(1L, 1L), result.validationErrors().list().stream().map(ValidationErrorDTO::getRow).toList());
+    }
+
+    @Test
+    public void cappedErrorsAreTheSameWhenValidatedInChunks() {
+        var cappedParser = new RetailTransactionParser(25, false);
+        var transactions = new ArrayList<RetailTransactionDTO>();
+        for (int i = 0; i < 1000; i++) {
+            transactions.add(i % 7 == 0 ?
+                    new RetailTransactionDTO("bad" + i, "2023-08-09", "1", "50") :
+                    new RetailTransactionDTO(Integer.toString(i), "2023-08-09", "1", "50"));
+        }
+        var sequential = cappedParser.validateTransactions(transactions, customerId -> true,
+                cappedParser.newValidationErrors());
+        var chunked = cappedParser.validateTransactions(transactions, customerId -> true, new ForkJoinPool(4), 16,
+                cappedParser.newValidationErrors());
+
+        assertEquals(25, sequential.errors().size());
+        assertEquals(sequential.errors(), chunked.errors());
+        assertEquals(168, (long) chunked.validationErrors().list().get(24).getRow());
+        assertEquals(25, chunked.ruleCounts().get(ValidationRule.TRANSACTION_HAS_INVALID_ID));
+    }
+
+    @Test
+    public void transactionsOnlyUseTheErrorsTheCustomersHaveLeft() {
+        var cappedParser = new RetailTransactionParser(25, false);
+        var customerErrors = new ValidationErrors(25, false);
+        for (int row = 0; row < 20; row++) {
+            customerErrors.add(row, ValidationRule.CUSTOMER_HAS_INVALID_ID, null);
+        }
+        var transactions = new ArrayList<RetailTransactionDTO>();
+        for (int i = 0; i < 1000; i++) {
+            transactions.add(new RetailTransactionDTO("bad" + i, "2023-08-09", "1", "50"));
+        }
+
+        var sequential = cappedParser.validateTransactions(transactions, customerId -> true,
+                customerErrors.newRemaining());
+        var chunked = cappedParser.validateTransactions(transactions, customerId -> true, new ForkJoinPool(4), 16,
+                customerErrors.newRemaining());
+
+        assertEquals(5, sequential.errors().size());
+        assertEquals(sequential.errors(), chunked.errors());
+    }
+
+    private static RetailTransactionParserResult parseTransactions(RetailTransactionParser parser,
+                                                                   List<RetailTransactionDTO> transactions,
+                                                                   List<Customer> customers) {
+        var customerIndex = new CustomerIndex(customers.size());
+        customers.forEach(customer -> customerIndex.add(customer.id(), customer.name()));
+        return parser.checkSpan(parser.validateTransactions(transactions,
+                RetailTransactionParser.knownCustomers(customerIndex),
+                parser.newValidationErrors()));
+    }
+
+    private static List<RetailTransactionDTO> invalidTransactions(int count) {
+        List<RetailTransactionDTO> transactions = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            transactions.add(new RetailTransactionDTO("bad" + i, "2023-08-09", "1", "bad"));
+        }
+        return transactions;
+    }
+}
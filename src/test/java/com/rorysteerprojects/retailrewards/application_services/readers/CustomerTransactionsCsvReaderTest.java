@@ -0,0 +1,165 @@
+package com.rorysteerprojects.retailrewards.application_services.readers;
+
+import com.rorysteerprojects.retailrewards.application_services.RetailRewardsService;
+import com.rorysteerprojects.retailrewards.application_services.RewardsComputePool;
+import com.rorysteerprojects.retailrewards.application_services.StreamingRewardsCalculation;
+import com.rorysteerprojects.retailrewards.application_services.parsers.CustomerParser;
+import com.rorysteerprojects.retailrewards.application_services.parsers.RetailTransactionParser;
+import com.rorysteerprojects.retailrewards.config.RewardsMetrics;
+import com.rorysteerprojects.retailrewards.domain.RewardsCalculator;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CustomerTransactionsCsvReaderTest {
+
+    private final RetailRewardsService service = new RetailRewardsService(
+            new CustomerParser(),
+            new RetailTransactionParser(),
+            new RewardsCalculator(),
+            new CustomerTransactionsJsonReader(),
+            new CustomerTransactionsCsvReader(),
+            new RewardsMetrics(new SimpleMeterRegistry()),
+            new RewardsComputePool(),
+            50_000,
+            8_192,
+            true
+    );
+
+    private static InputStream csv(String csv) {
+        return new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private StreamingRewardsCalculation read(String customersCsv, String transactionsCsv) throws IOException {
+        return service.calculateRewardsFromCsv(csv(customersCsv), csv(transactionsCsv));
+    }
+
+    @Test
+    public void formPartsAreCalculatedAsTheyAreRead() throws IOException {
+        var form = """
+                --b\r
+                Content-Disposition: form-data; name="customers"\r
+                \r
+                id,name
+                1,Customer 1\r
+                --b\r
+                Content-Disposition: form-data; name="transactions"\r
+                \r
+                id,date,customerId,value
+                100,2023-03-01,1,101.50\r
+                --b--\r
+                """;
+
+        var calculation = service.calculateRewardsFromCsv(new MultipartFormReader(csv(form), "b"));
+
+        assertFalse(calculation.isInvalidRequestBody());
+        assertEquals(52, calculation.result().getCustomerSummaries().get(0).getTotalRewards());
+    }
+
+    @Test
+    public void formsWithoutATransactionsPartAreInvalid() throws IOException {
+        var form = """
+                --b\r
+                Content-Disposition: form-data; name="customers"\r
+                \r
+                id,name\r
+                --b--\r
+                """;
+
+        assertTrue(service.calculateRewardsFromCsv(new MultipartFormReader(csv(form), "b")).isInvalidRequestBody());
+    }
+
+    @Test
+    public void rowsAreCalculated() throws IOException {
+        var calculation = read("""
+                id,name
+                1,"Customer, 1"
+                2,Customer 2
+                """, """
+                id,date,customerId,value
+                100,2023-03-01,1,101.50
+                101,2023-05-31,2,500
+                """);
+
+        assertFalse(calculation.isInvalidRequestBody());
+        var result = calculation.result();
+        assertTrue(result.getErrors().isEmpty());
+        assertEquals(2, result.getCustomerSummaries().size());
+        assertEquals("Customer, 1", result.getCustomerSummaries().get(0).getCustomerName());
+        assertEquals(52, result.getCustomerSummaries().get(0).getTotalRewards());
+        assertEquals(850, result.getCustomerSummaries().get(1).getMonth3Rewards());
+    }
+
+    @Test
+    public void headerColumnsMayBeInAnyOrderAndCase() throws IOException {
+        var calculation = read("\uFEFFName,ID\r\nCustomer 1,1\r\n",
+                "VALUE,customerId,Date,Id\r\n101.50,1,2023-03-01,100\r\n");
+
+        var result = calculation.result();
+        assertTrue(result.getErrors().isEmpty());
+        assertEquals("Customer 1", result.getCustomerSummaries().get(0).getCustomerName());
+        assertEquals(52, result.getCustomerSummaries().get(0).getTotalRewards());
+    }
+
+    @Test
+    public void validationErrorsReportTheLine() throws IOException {
+        var calculation = read("""
+                id,name
+                1,"Customer
+                One"
+                """, """
+                id,date,customerId,value
+                100,2023-03-01,1,101.50
+
+                101,2023-03-02,3,60
+                102,2023-03-02,1
+                """);
+
+        var result = calculation.result();
+        assertEquals(List.of(
+                "Line 4: RetailTransaction{id='101', date='2023-03-02', customerId='3', value='60'} : " +
+                        "has a Customer id not found in the list of Customers.",
+                "Line 5: RetailTransaction{id='102', date='2023-03-02', customerId='1', value='null'} : " +
+                        "has invalid value."),
+                result.getErrors());
+    }
+
+    @Test
+    public void customerErrorsReportTheLineTheRecordStartsOn() throws IOException {
+        var calculation = read("""
+                id,name
+                "1","Customer ""One""\"
+                x,"Customer
+                Two"
+                """, """
+                id,date,customerId,value
+                """);
+
+        var result = calculation.result();
+        assertEquals(1, result.getErrors().size());
+        assertTrue(result.getErrors().get(0).startsWith("Line 3: "), result.getErrors().get(0));
+    }
+
+    @Test
+    public void transactionsWithoutCustomersAreAnInvalidRequestBody() throws IOException {
+        assertTrue(read("", "id,date,customerId,value\n100,2023-03-01,1,101.50\n").isInvalidRequestBody());
+        assertTrue(read("id,name\n", "id,date,customerId,value\n100,2023-03-01,1,101.50\n").isInvalidRequestBody());
+        assertFalse(read("id,name\n", "id,date,customerId,value\n").isInvalidRequestBody());
+    }
+
+    @Test
+    public void malformedCsvIsReported() {
+        var exception = assertThrows(MalformedCsvException.class,
+                () -> read("id,name\n1,\"Customer 1\n", "id,date,customerId,value\n"));
+        assertEquals(2, exception.getLineNumber());
+        assertThrows(MalformedCsvException.class,
+                () -> read("id,name\n1,\"Customer\" 1\n", "id,date,customerId,value\n"));
+    }
+}
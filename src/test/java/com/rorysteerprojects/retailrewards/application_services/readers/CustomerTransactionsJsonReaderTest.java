@@ -0,0 +1,169 @@
+package com.rorysteerprojects.retailrewards.application_services.readers;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.rorysteerprojects.retailrewards.application_services.RetailRewardsService;
+import com.rorysteerprojects.retailrewards.application_services.RewardsComputePool;
+import com.rorysteerprojects.retailrewards.application_services.StreamingRewardsCalculation;
+import com.rorysteerprojects.retailrewards.application_services.parsers.CustomerParser;
+import com.rorysteerprojects.retailrewards.application_services.parsers.RetailTransactionParser;
+import com.rorysteerprojects.retailrewards.config.RewardsMetrics;
+import com.rorysteerprojects.retailrewards.domain.RewardsCalculator;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CustomerTransactionsJsonReaderTest {
+
+    private final CustomerTransactionsJsonReader reader = new CustomerTransactionsJsonReader();
+    private final RetailRewardsService service = new RetailRewardsService(
+            new CustomerParser(),
+            new RetailTransactionParser(),
+            new RewardsCalculator(),
+            reader,
+            new CustomerTransactionsCsvReader(),
+            new RewardsMetrics(new SimpleMeterRegistry()),
+            new RewardsComputePool(),
+            50_000,
+            8_192,
+            true
+    );
+
+    private StreamingRewardsCalculation read(String json) throws IOException {
+        var calculation = service.newStreamingCalculation();
+        reader.read(new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)), calculation);
+        return calculation;
+    }
+
+    @Test
+    public void customersBeforeTransactionsAreCalculated() throws IOException {
+        var calculation = read("""
+                {"customers": [{"id": "1", "name": "Customer 1"}, {"id": "2", "name": "Customer 2"}],
+                 "transactions": [
+                    {"id": "100", "date": "2023-03-01", "customerId": "1", "value": "101.50"},
+                    {"id": "101", "date": "2023-05-31", "customerId": "2", "value": "500"}]}
+                """);
+
+        assertFalse(calculation.isInvalidRequestBody());
+        var result = calculation.result();
+        assertTrue(result.getErrors().isEmpty());
+        assertEquals(2, result.getCustomerSummaries().size());
+        var summary = result.getCustomerSummaries().stream().filter(s -> s.getCustomerId() == 1).findFirst();
+        assertTrue(summary.isPresent());
+        assertEquals("Customer 1", summary.get().getCustomerName());
+        assertEquals(52, summary.get().getMonth1Rewards());
+        assertEquals(52, summary.get().getTotalRewards());
+        summary = result.getCustomerSummaries().stream().filter(s -> s.getCustomerId() == 2).findFirst();
+        assertTrue(summary.isPresent());
+        assertEquals(850, summary.get().getMonth3Rewards());
+        assertEquals(850, summary.get().getTotalRewards());
+    }
+
+    @Test
+    public void transactionsBeforeCustomersAreHeldBackAndCalculated() throws IOException {
+        var calculation = read("""
+                {"transactions": [
+                    {"id": "100", "date": "2023-03-01", "customerId": "1", "value": "101.50"},
+                    {"id": "101", "date": "2023-03-02", "customerId": "3", "value": "60"}],
+                 "customers": [{"id": "1", "name": "Customer 1"}]}
+                """);
+
+        assertFalse(calculation.isInvalidRequestBody());
+        var result = calculation.result();
+        assertTrue(result.getCustomerSummaries().isEmpty());
+        assertEquals(1, result.getErrors().size());
+        assertEquals("RetailTransaction{id='101', date='2023-03-02', customerId='3', value='60'} : " +
+                "has a Customer id not found in the list of Customers.", result.getErrors().get(0));
+    }
+
+    @Test
+    public void nonStringScalarsAndUnknownFieldsAreAccepted() throws IOException {
+        var calculation = read("""
+                {"source": {"system": "pos"},
+                 "customers": [{"id": 1, "name": "Customer 1", "tier": ["gold"]}],
+                 "transactions": [{"id": 100, "date": "2023-03-01", "customerId": 1, "value": 60.5}]}
+                """);
+
+        var result = calculation.result();
+        assertTrue(result.getErrors().isEmpty());
+        assertEquals(1, result.getCustomerSummaries().size());
+        assertEquals(10, result.getCustomerSummaries().get(0).getTotalRewards());
+    }
+
+    @Test
+    public void missingOrNullListsAreAnInvalidRequestBody() throws IOException {
+        assertTrue(read("{\"customers\": []}").isInvalidRequestBody());
+        assertTrue(read("{\"customers\": [], \"transactions\": null}").isInvalidRequestBody());
+        assertTrue(read("").isInvalidRequestBody());
+        assertTrue(read("""
+                {"customers": [], "transactions": [{"id": "1", "date": "2023-08-09", "customerId": "0", "value": "0"}]}
+                """).isInvalidRequestBody());
+        assertFalse(read("{\"customers\": [], \"transactions\": []}").isInvalidRequestBody());
+    }
+
+    @Test
+    public void malformedJsonIsReported() {
+        assertThrows(JsonProcessingException.class, () -> read("{\"customers\": [{\"id\": \"1\""));
+    }
+
+    private StreamingRewardsCalculation readNdjson(String ndjson) throws IOException {
+        var calculation = service.newStreamingCalculation();
+        reader.readNdjson(new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8)), calculation);
+        return calculation;
+    }
+
+    @Test
+    public void ndjsonRowsAreCalculated() throws IOException {
+        var calculation = readNdjson("""
+                {"type": "customer", "id": "1", "name": "Customer 1"}
+                {"type": "customer", "id": "2", "name": "Customer 2"}
+
+                {"type": "transaction", "id": "100", "date": "2023-03-01", "customerId": "1", "value": "101.50"}
+                {"id": "101", "date": "2023-05-31", "customerId": "2", "value": "500", "type": "transaction"}
+                """);
+
+        assertFalse(calculation.isInvalidRequestBody());
+        var result = calculation.result();
+        assertTrue(result.getErrors().isEmpty());
+        assertEquals(2, result.getCustomerSummaries().size());
+        assertEquals(52, result.getCustomerSummaries().get(0).getTotalRewards());
+        assertEquals(850, result.getCustomerSummaries().get(1).getTotalRewards());
+    }
+
+    @Test
+    public void ndjsonValidationErrorsReportTheLine() throws IOException {
+        var calculation = readNdjson("""
+                {"type": "customer", "id": "1", "name": "Customer 1"}
+                {"type": "transaction", "id": "100", "date": "2023-03-01", "customerId": "1", "value": "101.50"}
+                {"type": "transaction", "id": "101", "date": "2023-03-02", "customerId": "3", "value": "60"}
+                """);
+
+        var result = calculation.result();
+        assertEquals(1, result.getErrors().size());
+        assertEquals("Line 3: RetailTransaction{id='101', date='2023-03-02', customerId='3', value='60'} : " +
+                "has a Customer id not found in the list of Customers.", result.getErrors().get(0));
+    }
+
+    @Test
+    public void ndjsonTransactionsWithoutCustomersAreAnInvalidRequestBody() throws IOException {
+        assertTrue(readNdjson("""
+                {"type": "transaction", "id": "100", "date": "2023-03-01", "customerId": "1", "value": "101.50"}
+                """).isInvalidRequestBody());
+        assertFalse(readNdjson("").isInvalidRequestBody());
+    }
+
+    @Test
+    public void malformedNdjsonIsReported() {
+        assertThrows(JsonProcessingException.class, () -> readNdjson("{\"type\": \"refund\", \"id\": \"1\"}"));
+        assertThrows(JsonProcessingException.class, () -> readNdjson("""
+                {"type": "customer", "id": "1", "name": "Customer 1"}
+                {"type": "transaction", "id": "100", "date": "2023-03-01", "customerId": "1", "value": "101.50"}
+                {"type": "customer", "id": "2", "name": "Customer 2"}
+                """));
+        assertThrows(JsonProcessingException.class, () -> readNdjson("[]"));
+    }
+}
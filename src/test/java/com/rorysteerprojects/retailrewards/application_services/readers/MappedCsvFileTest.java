@@ -0,0 +1,82 @@
+package com.rorysteerprojects.retailrewards.application_services.readers;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedCsvFileTest {
+
+    private Path file;
+
+    @AfterEach
+    public void deleteFile() throws IOException {
+        if (file != null) {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private MappedCsvFile write(String csv) throws IOException {
+        file = Files.createTempFile("mapped-csv", ".csv");
+        Files.writeString(file, csv, StandardCharsets.UTF_8);
+        return new MappedCsvFile(file);
+    }
+
+    @Test
+    public void segmentsStartAndEndOnLineBoundaries() throws IOException {
+        var csv = new StringBuilder("id,value\r\n");
+        for (int i = 0; i < 1000; i++) {
+            csv.append(i).append(",\"value, ").append(i).append("\"\r\n");
+        }
+        try (var mappedFile = write(csv.toString())) {
+            assertEquals(List.of("id", "value"), mappedFile.header());
+            for (int parts : new int[]{1, 2, 3, 7, 64}) {
+                var segments = mappedFile.split(parts);
+                assertEquals(parts, segments.size());
+                List<String> ids = new ArrayList<>();
+                long lines = 0;
+                for (MappedCsvFile.Segment segment : segments) {
+                    var firstLine = lines;
+                    lines += segment.forEachRecord((fields, lineNumber) -> {
+                        ids.add(fields.get(0));
+                        assertEquals("value, " + fields.get(0), fields.get(1));
+                        assertEquals(Long.parseLong(fields.get(0)), firstLine + lineNumber - 1);
+                    });
+                }
+                assertEquals(1000, ids.size());
+                assertEquals(1000, lines);
+                assertEquals("999", ids.get(999));
+            }
+        }
+    }
+
+    @Test
+    public void smallFilesHaveNoMoreSegmentsThanLines() throws IOException {
+        try (var mappedFile = write("id,name\n1,Customer 1\n2,Customer 2")) {
+            var segments = mappedFile.split(8);
+            assertEquals(2, segments.size());
+            List<String> names = new ArrayList<>();
+            segments.get(1).forEachRecord((fields, lineNumber) -> names.add(fields.get(1)));
+            assertEquals(List.of("Customer 2"), names);
+        }
+    }
+
+    @Test
+    public void emptyFilesHaveNoHeaderAndNoSegments() throws IOException {
+        try (var mappedFile = write("")) {
+            assertNull(mappedFile.header());
+            assertTrue(mappedFile.split(4).isEmpty());
+        }
+        try (var mappedFile = write("id,name\n")) {
+            assertEquals(List.of("id", "name"), mappedFile.header());
+            assertTrue(mappedFile.split(4).isEmpty());
+        }
+    }
+}
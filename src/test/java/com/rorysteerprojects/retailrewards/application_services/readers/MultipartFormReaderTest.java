@@ -0,0 +1,108 @@
+package com.rorysteerprojects.retailrewards.application_services.readers;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MultipartFormReaderTest {
+
+    private static final String BOUNDARY = "----boundary42";
+
+    private static String form(String... namesAndBodies) {
+        var form = new StringBuilder("preamble\r\n");
+        for (int i = 0; i < namesAndBodies.length; i += 2) {
+            form.append("--").append(BOUNDARY).append("\r\n")
+                    .append("Content-Disposition: form-data; name=\"").append(namesAndBodies[i])
+                    .append("\"; filename=\"").append(namesAndBodies[i]).append(".csv\"\r\n")
+                    .append("Content-Type: text/csv\r\n\r\n")
+                    .append(namesAndBodies[i + 1]).append("\r\n");
+        }
+        return form.append("--").append(BOUNDARY).append("--\r\n").toString();
+    }
+
+    private static InputStream stream(String form) {
+        return new ByteArrayInputStream(form.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Returns the body a byte at a time, as a slow client might send it.
+     */
+    private static InputStream trickle(String form) {
+        return new FilterInputStream(stream(form)) {
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                return super.read(b, off, Math.min(len, 1));
+            }
+        };
+    }
+
+    private static String read(InputStream part) throws IOException {
+        return new String(part.readAllBytes(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void partsAreReadInOrder() throws IOException {
+        var form = new MultipartFormReader(stream(form("customers", "id,name\r\n1,A", "transactions", "id\r\n100")),
+                BOUNDARY);
+
+        assertEquals("id,name\r\n1,A", read(form.nextPart("customers")));
+        assertEquals("id\r\n100", read(form.nextPart("transactions")));
+        assertNull(form.nextPart("transactions"));
+    }
+
+    @Test
+    public void partsAreReadWhenTheBodyArrivesAByteAtATime() throws IOException {
+        var body = "1,A\r\n-\r\n--" + BOUNDARY.substring(0, 6) + "\r\n2,B";
+        var form = new MultipartFormReader(trickle(form("customers", body, "transactions", "")), BOUNDARY);
+
+        assertEquals(body, read(form.nextPart("customers")));
+        assertEquals("", read(form.nextPart("transactions")));
+    }
+
+    @Test
+    public void partsLargerThanTheBufferAreStreamed() throws IOException {
+        var body = "1,Customer\r\n".repeat(100_000);
+        var form = new MultipartFormReader(stream(form("customers", body)), BOUNDARY);
+
+        assertEquals(body, read(form.nextPart("customers")));
+    }
+
+    @Test
+    public void otherAndUnreadPartsAreSkipped() throws IOException {
+        var form = new MultipartFormReader(stream(form("notes", "ignored", "customers", "unread", "transactions", "id")),
+                BOUNDARY);
+
+        assertNotNull(form.nextPart("customers"));
+        assertEquals("id", read(form.nextPart("transactions")));
+    }
+
+    @Test
+    public void missingPartsAreNull() throws IOException {
+        var form = new MultipartFormReader(stream(form("transactions", "id")), BOUNDARY);
+
+        assertNull(form.nextPart("customers"));
+    }
+
+    @Test
+    public void bodiesThatEndBeforeTheLastBoundaryAreMalformed() throws IOException {
+        var form = new MultipartFormReader(stream(form("customers", "id,name").replace("--" + BOUNDARY + "--\r\n", "")),
+                BOUNDARY);
+        var customers = form.nextPart("customers");
+
+        assertThrows(MalformedMultipartException.class, customers::readAllBytes);
+    }
+
+    @Test
+    public void theBoundaryIsTakenFromTheContentType() {
+        assertEquals("abc", MultipartFormReader.boundary("multipart/form-data; boundary=abc"));
+        assertEquals("a b", MultipartFormReader.boundary("multipart/form-data; charset=UTF-8; BOUNDARY=\"a b\""));
+        assertNull(MultipartFormReader.boundary("multipart/form-data"));
+        assertNull(MultipartFormReader.boundary(null));
+    }
+}
@@ -0,0 +1,146 @@
+package com.rorysteerprojects.retailrewards.batch;
+
+import com.rorysteerprojects.retailrewards.application_services.parsers.CustomerParser;
+import com.rorysteerprojects.retailrewards.application_services.parsers.RetailTransactionParser;
+import com.rorysteerprojects.retailrewards.domain.RewardsCalculator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchRewardsRunnerTest {
+
+    private Path directory;
+    private Path customers;
+    private Path transactions;
+    private Path output;
+
+    @BeforeEach
+    public void createDirectory() throws IOException {
+        directory = Files.createTempDirectory("batch-rewards");
+        customers = directory.resolve("customers.csv");
+        transactions = directory.resolve("transactions.csv");
+        output = directory.resolve("summaries.csv");
+    }
+
+    @AfterEach
+    public void deleteDirectory() throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    private BatchRewardsRunner runner(int parallelism) {
+        return new BatchRewardsRunner(new CustomerParser(),
+                new RetailTransactionParser(),
+                new RewardsCalculator(),
+                customers,
+                transactions,
+                output,
+                parallelism);
+    }
+
+    @Test
+    public void summariesAreTheSameForAnyParallelism() throws IOException {
+        Files.writeString(customers, """
+                id,name
+                1,"Smith, John"
+                2,Customer 2
+                3,Customer 3
+                """, StandardCharsets.UTF_8);
+        var csv = new StringBuilder("id,date,customerId,value\n");
+        var startDate = LocalDate.of(2023, 6, 1);
+        for (int i = 0; i < 5_000; i++) {
+            csv.append(i).append(',')
+                    .append(startDate.plusDays(i % 91)).append(',')
+                    .append(i % 3 + 1).append(',')
+                    .append(i % 250).append(".25\n");
+        }
+        Files.writeString(transactions, csv, StandardCharsets.UTF_8);
+
+        runner(1).run();
+        var expected = Files.readAllLines(output);
+        assertEquals(4, expected.size());
+        assertEquals(BatchRewardsRunner.SUMMARY_HEADER, expected.get(0));
+        assertTrue(expected.get(1).startsWith("1,\"Smith, John\","), expected.get(1));
+
+        for (int parallelism : new int[]{2, 3, 8}) {
+            Files.delete(output);
+            runner(parallelism).run();
+            assertEquals(expected, Files.readAllLines(output));
+        }
+    }
+
+    @Test
+    public void validationErrorsReportTheLineAndWriteNoSummaries() throws IOException {
+        Files.writeString(customers, "id,name\n1,Customer 1\n", StandardCharsets.UTF_8);
+        Files.writeString(transactions, """
+                id,date,customerId,value
+                100,2023-03-01,1,101.50
+                101,2023-03-02,3,60
+                102,2023-03-xx,1,60
+                """, StandardCharsets.UTF_8);
+
+        var exception = assertThrows(IllegalStateException.class, () -> runner(2).run());
+        assertTrue(exception.getMessage().startsWith("2 validation errors"), exception.getMessage());
+        assertFalse(Files.exists(output));
+    }
+
+    @Test
+    public void errorsAreLimitedAcrossCustomersAndSegments() throws IOException {
+        Files.writeString(customers, "id,name\n1,Customer 1\nx,Customer x\n", StandardCharsets.UTF_8);
+        var csv = new StringBuilder("id,date,customerId,value\n");
+        for (int i = 0; i < 1_000; i++) {
+            csv.append("bad").append(i).append(",2023-03-01,1,60\n");
+        }
+        Files.writeString(transactions, csv, StandardCharsets.UTF_8);
+        var cappedRunner = new BatchRewardsRunner(new CustomerParser(3, false),
+                new RetailTransactionParser(3, false),
+                new RewardsCalculator(),
+                customers,
+                transactions,
+                output,
+                4);
+
+        var exception = assertThrows(IllegalStateException.class, cappedRunner::run);
+        assertTrue(exception.getMessage().startsWith("3 validation errors"), exception.getMessage());
+        assertFalse(Files.exists(output));
+    }
+
+    @Test
+    public void transactionsWithoutCustomersAreRejected() throws IOException {
+        Files.writeString(customers, "id,name\n", StandardCharsets.UTF_8);
+        Files.writeString(transactions, "id,date,customerId,value\n100,2023-03-01,1,101.50\n", StandardCharsets.UTF_8);
+
+        assertThrows(IllegalStateException.class, () -> runner(2).run());
+        assertFalse(Files.exists(output));
+    }
+
+    @Test
+    public void summariesMatchTheRewardsRules() throws IOException {
+        Files.writeString(customers, "id,name\n1,Customer 1\n2,Customer 2\n", StandardCharsets.UTF_8);
+        Files.writeString(transactions, """
+                id,date,customerId,value
+                100,2023-03-01,1,101.50
+                101,2023-05-31,2,500
+                """, StandardCharsets.UTF_8);
+
+        runner(4).run();
+        assertEquals(List.of(BatchRewardsRunner.SUMMARY_HEADER,
+                        "1,Customer 1,52,0,0,52",
+                        "2,Customer 2,0,0,850,850"),
+                Files.readAllLines(output));
+    }
+}
@@ -0,0 +1,128 @@
+package com.rorysteerprojects.retailrewards.config;
+
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rorysteerprojects.retailrewards.api.CustomerDTO;
+import com.rorysteerprojects.retailrewards.api.CustomerSummaryDTO;
+import com.rorysteerprojects.retailrewards.api.CustomerTransactionsDTO;
+import com.rorysteerprojects.retailrewards.api.RetailTransactionDTO;
+import com.rorysteerprojects.retailrewards.api.RewardsResultDTO;
+import com.rorysteerprojects.retailrewards.api.ValidationErrorDTO;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RewardsApiModuleTest {
+
+    /**
+     * The reflective binding, configured the way Spring Boot configures it.
+     */
+    private final ObjectMapper reflective = Jackson2ObjectMapperBuilder.json().build();
+    private final ObjectMapper codecs = Jackson2ObjectMapperBuilder.json().build();
+
+    RewardsApiModuleTest() {
+        codecs.registerModule(new RewardsApiModule());
+    }
+
+    @Test
+    public void requestsAreReadAsTheReflectiveBindingReadsThem() throws IOException {
+        var requests = List.of(
+                "{\"customers\":[{\"id\":\"1\",\"name\":\"Customer 1\"}]," +
+                        "\"transactions\":[{\"id\":\"100\",\"date\":\"2023-03-01\",\"customerId\":\"1\",\"value\":\"120\"}]}",
+                "{\"transactions\":[{\"value\":\"120\",\"customerId\":\"1\",\"date\":\"2023-03-01\",\"id\":\"100\"}]," +
+                        "\"customers\":[{\"name\":\"Customer 1\",\"id\":\"1\"}]}",
+                "{\"customers\":[{\"id\":1,\"name\":true}],\"transactions\":[{\"id\":100,\"customerId\":1,\"value\":51.50}]}",
+                "{\"customers\":[{\"id\":null,\"name\":null},null,{}],\"transactions\":null}",
+                "{\"customers\":[],\"extra\":{\"nested\":[1,{\"a\":2}]},\"transactions\":[{\"id\":\"1\",\"tags\":[\"x\"]}]}",
+                "{\"customers\":[{\"id\":\"1\",\"id\":\"2\"}]}",
+                "{}");
+
+        for (String request : requests) {
+            assertEquals(
+                    reflective.writeValueAsString(reflective.readValue(request, CustomerTransactionsDTO.class)),
+                    reflective.writeValueAsString(codecs.readValue(request, CustomerTransactionsDTO.class)),
+                    request);
+        }
+    }
+
+    @Test
+    public void malformedRequestsAreRejectedAsTheReflectiveBindingRejectsThem() {
+        var requests = List.of(
+                "[]",
+                "{\"customers\":{}}",
+                "{\"customers\":\"1\"}",
+                "{\"customers\":[1]}",
+                "{\"customers\":[[]]}",
+                "{\"customers\":[{\"id\":{\"value\":\"1\"}}]}",
+                "{\"transactions\":[{\"value\":[120]}]}");
+
+        for (String request : requests) {
+            assertThrows(JsonMappingException.class,
+                    () -> reflective.readValue(request, CustomerTransactionsDTO.class), request);
+            assertThrows(JsonMappingException.class,
+                    () -> codecs.readValue(request, CustomerTransactionsDTO.class), request);
+        }
+    }
+
+    @Test
+    public void requestsAreWrittenAsTheReflectiveBindingWritesThem() throws IOException {
+        var requests = List.of(
+                generatedRequest(1_000),
+                new CustomerTransactionsDTO(Arrays.asList(new CustomerDTO(null, "No id"), null), null),
+                new CustomerTransactionsDTO(null, List.of(new RetailTransactionDTO("1", null, "\u00e9\"", null))));
+
+        for (CustomerTransactionsDTO request : requests) {
+            var written = codecs.writeValueAsString(request);
+
+            assertEquals(reflective.writeValueAsString(request), written);
+            assertEquals(written, codecs.writeValueAsString(codecs.readValue(written, CustomerTransactionsDTO.class)));
+        }
+    }
+
+    @Test
+    public void responsesRoundTripAsTheReflectiveBindingWritesThem() throws IOException {
+        var summaries = List.of(new CustomerSummaryDTO(1, "Customer 1", 90, 0, 250, 340),
+                new CustomerSummaryDTO(2, null, 0, 1, 0, 1));
+        var success = new RewardsResultDTO(summaries, Collections.emptyList());
+        var failure = new RewardsResultDTO(Collections.emptyList(), List.of("Error"),
+                List.of(new ValidationErrorDTO(null, null, "TRANSACTIONS_SPAN_MORE_THAN_THREE_MONTHS", "Error")),
+                Map.of("TRANSACTIONS_SPAN_MORE_THAN_THREE_MONTHS", 1));
+
+        assertEquals(reflective.writeValueAsString(success), codecs.writeValueAsString(success));
+        assertEquals(reflective.writeValueAsString(failure), codecs.writeValueAsString(failure));
+        var summariesJson = reflective.writeValueAsString(summaries);
+        assertEquals(summariesJson,
+                reflective.writeValueAsString(codecs.readValue(summariesJson, CustomerSummaryDTO[].class)));
+        assertEquals(reflective.writeValueAsString(reflective.readValue(
+                        "[{\"customerId\":\"7\",\"customerName\":7,\"totalRewards\":null,\"extra\":1}]",
+                        CustomerSummaryDTO[].class)),
+                reflective.writeValueAsString(codecs.readValue(
+                        "[{\"customerId\":\"7\",\"customerName\":7,\"totalRewards\":null,\"extra\":1}]",
+                        CustomerSummaryDTO[].class)));
+    }
+
+    private static CustomerTransactionsDTO generatedRequest(int transactionCount) {
+        var random = new Random(20231220L);
+        List<CustomerDTO> customers = new ArrayList<>();
+        for (int id = 1; id <= 50; id++) {
+            customers.add(new CustomerDTO(Integer.toString(id), "Customer " + id));
+        }
+        List<RetailTransactionDTO> transactions = new ArrayList<>();
+        for (int id = 1; id <= transactionCount; id++) {
+            transactions.add(new RetailTransactionDTO(Integer.toString(id),
+                    "2023-0" + (3 + random.nextInt(3)) + "-" + (10 + random.nextInt(18)),
+                    Integer.toString(1 + random.nextInt(50)),
+                    random.nextInt(30_000) / 100 + "." + random.nextInt(10)));
+        }
+        return new CustomerTransactionsDTO(customers, transactions);
+    }
+}
@@ -0,0 +1,63 @@
+package com.rorysteerprojects.retailrewards.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rorysteerprojects.retailrewards.api.CustomerSummaryDTO;
+import com.rorysteerprojects.retailrewards.api.RewardsResultDTO;
+import com.rorysteerprojects.retailrewards.api.ValidationErrorDTO;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RewardsResultJsonWriterTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    public void summariesAreWrittenAsJacksonBindsThem() throws IOException {
+        var result = new RewardsResultDTO(
+                List.of(new CustomerSummaryDTO(1, "Customer \"1\"", 90, 0, 250, 340),
+                        new CustomerSummaryDTO(2, null, 0, 1, 0, 1)),
+                Collections.emptyList());
+
+        assertEquals(objectMapper.writeValueAsString(result), write(result));
+    }
+
+    @Test
+    public void errorsAreWrittenAsJacksonBindsThem() throws IOException {
+        Map<String, Integer> errorCounts = new LinkedHashMap<>();
+        errorCounts.put("TRANSACTION_HAS_INVALID_DATE", 1);
+        errorCounts.put("TRANSACTIONS_SPAN_MORE_THAN_THREE_MONTHS", 1);
+        var result = new RewardsResultDTO(
+                Collections.emptyList(),
+                List.of("RetailTransaction{id='100'} : has invalid transaction date.", "More than 3 months."),
+                List.of(new ValidationErrorDTO(0L, "date", "TRANSACTION_HAS_INVALID_DATE",
+                                "RetailTransaction{id='100'} : has invalid transaction date."),
+                        new ValidationErrorDTO(null, null, "TRANSACTIONS_SPAN_MORE_THAN_THREE_MONTHS",
+                                "More than 3 months.")),
+                errorCounts);
+
+        assertEquals(objectMapper.writeValueAsString(result), write(result));
+    }
+
+    @Test
+    public void bodyErrorsLeaveOutTheStructuredErrors() throws IOException {
+        var result = new RewardsResultDTO(Collections.emptyList(), List.of("Request Body is not valid JSON"));
+
+        assertEquals("{\"customerSummaries\":[],\"errors\":[\"Request Body is not valid JSON\"]}", write(result));
+    }
+
+    private String write(RewardsResultDTO result) throws IOException {
+        var body = new StringWriter();
+        try (var generator = objectMapper.getFactory().createGenerator(body)) {
+            RewardsResultJsonWriter.write(result, generator);
+        }
+        return body.toString();
+    }
+}
@@ -0,0 +1,40 @@
+package com.rorysteerprojects.retailrewards.domain;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CalendarMonthsTest {
+
+    @Test
+    public void monthOfMatchesLocalDate() {
+        var random = new Random(20231216L);
+        for (int i = 0; i < 1_000_000; i++) {
+            var epochDay = i < 500_000 ? random.nextInt(200_000) - 100_000 : random.nextInt();
+            var date = LocalDate.ofEpochDay(epochDay);
+            assertEquals(date.getYear() * 12 + date.getMonthValue() - 1, CalendarMonths.monthOf(epochDay),
+                    date.toString());
+        }
+    }
+
+    @Test
+    public void firstDayOfMatchesLocalDate() {
+        for (int year = -2001; year <= 2401; year++) {
+            for (int month = 1; month <= 12; month++) {
+                assertEquals(LocalDate.of(year, month, 1).toEpochDay(),
+                        CalendarMonths.firstDayOf(year * 12 + month - 1),
+                        year + "-" + month);
+            }
+        }
+    }
+
+    @Test
+    public void monthsPackAsYearMonth() {
+        assertEquals(202303, CalendarMonths.toYearMonth(2023 * 12 + 2));
+        assertEquals(202312, CalendarMonths.toYearMonth(2023 * 12 + 11));
+        assertEquals(101, CalendarMonths.toYearMonth(12));
+    }
+}
@@ -0,0 +1,51 @@
+package com.rorysteerprojects.retailrewards.domain;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CustomerIndexTest {
+
+    @Test
+    public void aDuplicateIdIsRejectedAndTheFirstNameIsKept() {
+        var customerIndex = new CustomerIndex();
+
+        assertTrue(customerIndex.add(1, "Customer 1"));
+        assertFalse(customerIndex.add(1, "Customer 2"));
+
+        assertEquals(1, customerIndex.size());
+        assertEquals("Customer 1", customerIndex.getNameOrDefault(1, null));
+    }
+
+    @Test
+    public void anEmptyIndexContainsNoCustomers() {
+        var customerIndex = new CustomerIndex();
+
+        assertTrue(customerIndex.isEmpty());
+        assertFalse(customerIndex.contains(0));
+        assertEquals("not found", customerIndex.getNameOrDefault(0, "not found"));
+    }
+
+    @Test
+    public void matchesAHashMapAcrossGrowth() {
+        var random = new Random(20231209L);
+        var customerIndex = new CustomerIndex(4);
+        Map<Integer, String> expected = new HashMap<>();
+        for (int i = 0; i < 100_000; i++) {
+            var customerId = random.nextBoolean() ? random.nextInt(50_000) : random.nextInt();
+            var name = "Customer " + i;
+            assertEquals(expected.putIfAbsent(customerId, name) == null, customerIndex.add(customerId, name));
+        }
+
+        assertEquals(expected.size(), customerIndex.size());
+        expected.forEach((customerId, name) -> assertEquals(name, customerIndex.getNameOrDefault(customerId, null)));
+        for (int i = 0; i < 100_000; i++) {
+            var customerId = random.nextInt();
+            assertEquals(expected.containsKey(customerId), customerIndex.contains(customerId));
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.rorysteerprojects.retailrewards.domain;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CustomerRewardsTableTest {
+
+    @Test
+    public void addingToTheSameCustomerAccumulatesEachMonthSeparately() {
+        var table = new CustomerRewardsTable();
+        table.add(100, 0, 10);
+        table.add(100, 2, 5);
+        table.add(100, 0, 1);
+
+        var results = table.toRewardsResults(0);
+
+        assertEquals(1, table.size());
+        assertEquals(1, results.size());
+        assertEquals(100, results.get(0).customerId());
+        assertArrayEquals(new int[]{11, 0, 5}, results.get(0).monthlyTotals());
+        assertEquals(16, results.get(0).threeMonthTotal());
+    }
+
+    @Test
+    public void resultsCanStartFromAnyMonthCounter() {
+        var table = new CustomerRewardsTable();
+        table.add(7, 0, 1);
+        table.add(7, 1, 2);
+        table.add(7, 2, 3);
+
+        assertArrayEquals(new int[]{3, 1, 2}, table.toRewardsResults(2, 0).get(0).monthlyTotals());
+    }
+
+    @Test
+    public void matchesAHashMapAcrossGrowthAndMerging() {
+        var random = new Random(20231201L);
+        var table = new CustomerRewardsTable();
+        var otherTable = new CustomerRewardsTable(4);
+        Map<Integer, int[]> expected = new HashMap<>();
+        for (int i = 0; i < 200_000; i++) {
+            var customerId = random.nextBoolean() ? random.nextInt(5_000) : random.nextInt();
+            var month = random.nextInt(3);
+            var points = random.nextInt(1_000);
+            (random.nextBoolean() ? table : otherTable).add(customerId, month, points);
+            expected.computeIfAbsent(customerId, id -> new int[3])[month] += points;
+        }
+
+        table.addAll(otherTable);
+        var results = table.toRewardsResults(0);
+
+        assertEquals(expected.size(), table.size());
+        assertEquals(expected.size(), results.size());
+        for (RewardsResult result : results) {
+            assertArrayEquals(expected.get(result.customerId()), result.monthlyTotals());
+        }
+    }
+}
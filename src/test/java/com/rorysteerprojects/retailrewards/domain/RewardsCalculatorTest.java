@@ -1,9 +1,15 @@
 package com.rorysteerprojects.retailrewards.domain;
 
+import com.rorysteerprojects.retailrewards.application_services.parsers.FieldParsers;
 import org.junit.jupiter.api.Test;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -14,7 +20,7 @@ class RewardsCalculatorTest {
     @Test
     public void oneTransactionReturnsTheRewardsResultForCustomer() {
         var transactions = List.of(
-                new RetailTransaction(1001, LocalDate.of(2023, 6, 3), 100, 10));
+                new RetailTransaction(1001, LocalDate.of(2023, 6, 3), 100, 1000));
 
         var result = rewardsCalculator.calculate(transactions);
 
@@ -27,10 +33,23 @@ class RewardsCalculatorTest {
         assertEquals(0, rewardResult.threeMonthTotal());
     }
 
+    @Test
+    public void resultsCarryTheirFirstMonthAndTransactionsCarryTheirEpochDay() {
+        var transactions = List.of(
+                new RetailTransaction(1001, LocalDate.of(2023, 6, 30), 100, 6000),
+                new RetailTransaction(1002, LocalDate.of(2023, 7, 1), 100, 6000));
+
+        var result = rewardsCalculator.calculate(transactions);
+
+        assertEquals(LocalDate.of(2023, 6, 30).toEpochDay(), transactions.get(0).epochDay());
+        assertEquals(202306, CalendarMonths.toYearMonth(result.get(0).firstMonth()));
+        assertArrayEquals(new int[]{10, 10, 0}, result.get(0).monthlyTotals());
+    }
+
     @Test
     public void oneTransactionReturnsTheRewardsResultForCustomerAndCalculatesTheRewardsAbove50InTheFirstMonth() {
         var transactions = List.of(
-                new RetailTransaction(1001, LocalDate.of(2023, 6, 3), 100, 60));
+                new RetailTransaction(1001, LocalDate.of(2023, 6, 3), 100, 6000));
 
         var result = rewardsCalculator.calculate(transactions);
 
@@ -46,7 +65,7 @@ class RewardsCalculatorTest {
     @Test
     public void oneTransactionReturnsTheRewardsResultForCustomerAndCalculatesTheRewardsAbove100InTheFirstMonth() {
         var transactions = List.of(
-                new RetailTransaction(1001, LocalDate.of(2023, 6, 3), 100, 120));
+                new RetailTransaction(1001, LocalDate.of(2023, 6, 3), 100, 12000));
 
         var result = rewardsCalculator.calculate(transactions);
 
@@ -61,8 +80,8 @@ class RewardsCalculatorTest {
     @Test
     public void twoTransactionsForSameCustomerDifferentMonths() {
         var transactions = List.of(
-                new RetailTransaction(1001, LocalDate.of(2023, 6, 3), 100, 120),
-                new RetailTransaction(1002, LocalDate.of(2023, 7, 23), 100, 70)
+                new RetailTransaction(1001, LocalDate.of(2023, 6, 3), 100, 12000),
+                new RetailTransaction(1002, LocalDate.of(2023, 7, 23), 100, 7000)
                 );
 
         var result = rewardsCalculator.calculate(transactions);
@@ -78,8 +97,8 @@ class RewardsCalculatorTest {
     @Test
     public void twoTransactionsForDifferentCustomersDifferentMonths() {
         var transactions = List.of(
-                new RetailTransaction(1001, LocalDate.of(2023, 6, 3), 100, 120),
-                new RetailTransaction(1002, LocalDate.of(2023, 8, 31), 101, 70)
+                new RetailTransaction(1001, LocalDate.of(2023, 6, 3), 100, 12000),
+                new RetailTransaction(1002, LocalDate.of(2023, 8, 31), 101, 7000)
         );
 
         var result = rewardsCalculator.calculate(transactions);
@@ -103,13 +122,13 @@ class RewardsCalculatorTest {
     @Test
     public void multipleTransactionsForDifferentCustomersDifferentMonthsAndYears() {
         var transactions = List.of(
-                new RetailTransaction(1001, LocalDate.of(2023, 11, 3), 100, 120),
-                new RetailTransaction(1002, LocalDate.of(2024, 1, 31), 101, 70),
-                new RetailTransaction(1005, LocalDate.of(2023, 11, 1), 102, 50.99),
-                new RetailTransaction(1006, LocalDate.of(2023, 11, 1), 101, 150.75),
-                new RetailTransaction(1007, LocalDate.of(2023, 11, 30), 101, 90),
-                new RetailTransaction(1011, LocalDate.of(2023, 12, 31), 101, 500.50),
-                new RetailTransaction(1012, LocalDate.of(2024, 1, 31), 100, 65.50)
+                new RetailTransaction(1001, LocalDate.of(2023, 11, 3), 100, 12000),
+                new RetailTransaction(1002, LocalDate.of(2024, 1, 31), 101, 7000),
+                new RetailTransaction(1005, LocalDate.of(2023, 11, 1), 102, 5099),
+                new RetailTransaction(1006, LocalDate.of(2023, 11, 1), 101, 15075),
+                new RetailTransaction(1007, LocalDate.of(2023, 11, 30), 101, 9000),
+                new RetailTransaction(1011, LocalDate.of(2023, 12, 31), 101, 50050),
+                new RetailTransaction(1012, LocalDate.of(2024, 1, 31), 100, 6550)
         );
 
         var result = rewardsCalculator.calculate(transactions);
@@ -140,10 +159,10 @@ class RewardsCalculatorTest {
     @Test
     public void tesThresholds() {
         var transactions = List.of(
-                new RetailTransaction(1001, LocalDate.of(2023, 6, 3), 100, 50.99),
-                new RetailTransaction(1002, LocalDate.of(2023, 6, 30), 101, 51),
-                new RetailTransaction(1003, LocalDate.of(2023, 6, 30), 102, 100.99),
-                new RetailTransaction(1004, LocalDate.of(2023, 6, 30), 103, 101)
+                new RetailTransaction(1001, LocalDate.of(2023, 6, 3), 100, 5099),
+                new RetailTransaction(1002, LocalDate.of(2023, 6, 30), 101, 5100),
+                new RetailTransaction(1003, LocalDate.of(2023, 6, 30), 102, 10099),
+                new RetailTransaction(1004, LocalDate.of(2023, 6, 30), 103, 10100)
         );
 
         var result = rewardsCalculator.calculate(transactions);
@@ -178,4 +197,72 @@ class RewardsCalculatorTest {
         assertEquals(52, rewardsResult.get().threeMonthTotal());
     }
 
-}
\ No newline at end of file
+    @Test
+    public void fixedPointCalculationMatchesTheFloatingPointCalculationOverGeneratedData() {
+        var random = new Random(20231118L);
+        var firstDay = LocalDate.of(2023, 6, 1);
+        for (int run = 0; run < 200; run++) {
+            List<String> values = new ArrayList<>();
+            List<RetailTransaction> transactions = new ArrayList<>();
+            for (int i = 0; i < 500; i++) {
+                var fractionDigits = String.format("%08d", random.nextInt(100_000_000)).substring(random.nextInt(9));
+                var value = random.nextInt(1_000_000) + "." + fractionDigits;
+                values.add(value);
+                transactions.add(new RetailTransaction(i,
+                        firstDay.plusDays(random.nextInt(92)),
+                        random.nextInt(50),
+                        FieldParsers.parseCents(value)));
+            }
+
+            var expected = floatingPointCalculation(transactions, values);
+            var result = rewardsCalculator.calculate(transactions);
+
+            assertEquals(expected.size(), result.size());
+            for (RewardsResult rewardsResult : result) {
+                assertArrayEquals(expected.get(rewardsResult.customerId()), rewardsResult.monthlyTotals());
+            }
+        }
+    }
+
+    @Test
+    public void parallelCalculationMatchesTheSequentialCalculation() {
+        var random = new Random(20231207L);
+        var firstDay = LocalDate.of(2023, 12, 1);
+        List<RetailTransaction> transactions = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            transactions.add(new RetailTransaction(i,
+                    firstDay.plusDays(random.nextInt(91)),
+                    random.nextInt(500),
+                    random.nextInt(50_000)));
+        }
+
+        var expected = rewardsCalculator.calculate(transactions);
+        var result = rewardsCalculator.calculate(transactions, new ForkJoinPool(4), 100);
+
+        assertEquals(expected.size(), result.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).customerId(), result.get(i).customerId());
+            assertArrayEquals(expected.get(i).monthlyTotals(), result.get(i).monthlyTotals());
+            assertEquals(expected.get(i).threeMonthTotal(), result.get(i).threeMonthTotal());
+        }
+    }
+
+    /**
+     * The calculation as it was when transaction values were held as doubles.
+     */
+    private Map<Integer, int[]> floatingPointCalculation(List<RetailTransaction> transactions, List<String> values) {
+        var earliestDate = transactions.stream().map(RetailTransaction::date).min(LocalDate::compareTo).orElseThrow();
+        var secondMonthStartDate = earliestDate.withDayOfMonth(1).plusMonths(1);
+        var thirdMonthStartDate = secondMonthStartDate.plusMonths(1);
+        Map<Integer, int[]> rewardsByCustomerId = new HashMap<>();
+        for (int i = 0; i < transactions.size(); i++) {
+            var transaction = transactions.get(i);
+            var value = Double.parseDouble(values.get(i));
+            var points = value < 50 ? 0 : value > 100 ? (int) value * 2 - 150 : (int) value - 50;
+            var monthNumber = transaction.date().isBefore(secondMonthStartDate) ? 0 :
+                    transaction.date().isBefore(thirdMonthStartDate) ? 1 : 2;
+            rewardsByCustomerId.computeIfAbsent(transaction.customerId(), customerId -> new int[3])[monthNumber] += points;
+        }
+        return rewardsByCustomerId;
+    }
+}
@@ -0,0 +1,179 @@
+package com.rorysteerprojects.retailrewards.domain;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RewardsLedgerTest {
+
+    private static final LocalDate MARCH = LocalDate.of(2023, 3, 1);
+
+    @Test
+    public void appendsUpdateTheCustomersMonthlyTotals() {
+        var ledger = new RewardsLedger(4);
+
+        assertEquals(RewardsLedger.AppendStatus.APPENDED, ledger.append(List.of(new Customer(1, "Customer 1")),
+                List.of(new RetailTransaction(100, MARCH.plusMonths(1), 1, 12000))).status());
+        assertEquals(new RewardsLedger.AppendResult(RewardsLedger.AppendStatus.APPENDED, 2, 0), ledger.append(List.of(),
+                List.of(new RetailTransaction(101, MARCH, 1, 10150),
+                        new RetailTransaction(102, MARCH.plusMonths(2), 1, 5000))));
+
+        var entry = ledger.find(1);
+        assertTrue(entry.isPresent());
+        assertEquals("Customer 1", entry.get().customerName());
+        assertArrayEquals(new int[]{52, 90, 0}, entry.get().rewards().monthlyTotals());
+        assertEquals(142, entry.get().rewards().threeMonthTotal());
+    }
+
+    @Test
+    public void customersWithoutTransactionsHaveZeroRewardsAndUnknownCustomersAreNotFound() {
+        var ledger = new RewardsLedger(4);
+        ledger.append(List.of(new Customer(1, "Customer 1")), List.of());
+
+        assertTrue(ledger.containsCustomer(1));
+        assertEquals(0, ledger.find(1).orElseThrow().rewards().threeMonthTotal());
+        assertFalse(ledger.containsCustomer(2));
+        assertTrue(ledger.find(2).isEmpty());
+    }
+
+    @Test
+    public void customersAreFoundTogether() {
+        var ledger = new RewardsLedger(4);
+        ledger.append(List.of(new Customer(1, "Customer 1"), new Customer(7, "Customer 7")), List.of());
+
+        var found = ledger.findCustomers(new int[]{1, 2, 7, 1});
+
+        assertEquals(2, found.size());
+        assertTrue(found.contains(1));
+        assertTrue(found.contains(7));
+        assertFalse(found.contains(2));
+    }
+
+    @Test
+    public void aLaterMonthRollsTheWindowOn() {
+        var ledger = new RewardsLedger(4);
+        ledger.append(List.of(new Customer(1, "Customer 1"), new Customer(2, "Customer 2")),
+                List.of(new RetailTransaction(100, MARCH, 1, 10150),
+                        new RetailTransaction(101, MARCH.plusMonths(1), 2, 10150)));
+
+        assertEquals(RewardsLedger.AppendStatus.APPENDED,
+                ledger.append(List.of(), List.of(new RetailTransaction(102, MARCH.plusMonths(3), 1, 12000))).status());
+
+        var entry = ledger.find(1).orElseThrow();
+        assertArrayEquals(new int[]{0, 0, 90}, entry.rewards().monthlyTotals());
+        assertEquals(90, entry.rewards().threeMonthTotal());
+        entry = ledger.find(2).orElseThrow();
+        assertArrayEquals(new int[]{52, 0, 0}, entry.rewards().monthlyTotals());
+        assertEquals(52, entry.rewards().threeMonthTotal());
+    }
+
+    @Test
+    public void anAppendSpanningMoreThanThreeMonthsOrBeforeTheWindowChangesNothing() {
+        var ledger = new RewardsLedger(4);
+        ledger.append(List.of(new Customer(1, "Customer 1")),
+                List.of(new RetailTransaction(100, MARCH.plusMonths(3), 1, 10150)));
+
+        assertEquals(RewardsLedger.AppendStatus.SPANS_MORE_THAN_THREE_MONTHS,
+                ledger.append(List.of(new Customer(2, "Customer 2")),
+                        List.of(new RetailTransaction(101, MARCH.plusMonths(3), 1, 10150),
+                                new RetailTransaction(102, MARCH.plusMonths(6), 1, 10150))).status());
+        assertEquals(RewardsLedger.AppendStatus.BEFORE_WINDOW,
+                ledger.append(List.of(new Customer(2, "Customer 2")),
+                        List.of(new RetailTransaction(103, MARCH, 1, 10150))).status());
+
+        assertFalse(ledger.containsCustomer(2));
+        assertEquals(52, ledger.find(1).orElseThrow().rewards().threeMonthTotal());
+        assertEquals(RewardsLedger.AppendStatus.APPENDED,
+                ledger.append(List.of(), List.of(new RetailTransaction(104, MARCH.plusMonths(1), 1, 10150))).status());
+        assertArrayEquals(new int[]{52, 0, 52}, ledger.find(1).orElseThrow().rewards().monthlyTotals());
+    }
+
+    @Test
+    public void transactionsTheWindowRollsPastBeforeTheyAreAddedAreDropped() throws Exception {
+        var ledger = new RewardsLedger(4);
+        ledger.append(List.of(new Customer(1, "Customer 1")),
+                List.of(new RetailTransaction(100, MARCH.plusMonths(1), 1, 10150)));
+        var roll = new FutureTask<>(() -> ledger.append(List.of(),
+                List.of(new RetailTransaction(101, MARCH.plusMonths(6), 1, 12000))));
+        // The window is rolled on from another thread once this append has checked its months, and before it
+        // reaches the customer's stripe.
+        var batch = new TransactionBatch() {
+            @Override
+            public int customerId(int index) {
+                if (!roll.isDone()) {
+                    var thread = new Thread(roll);
+                    thread.start();
+                    try {
+                        thread.join();
+                    }
+                    catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                return super.customerId(index);
+            }
+        };
+        batch.add(new RetailTransaction(102, MARCH.plusMonths(2), 1, 5000));
+
+        assertEquals(new RewardsLedger.AppendResult(RewardsLedger.AppendStatus.APPENDED, 0, 1),
+                ledger.append(List.of(), batch));
+        assertEquals(new RewardsLedger.AppendResult(RewardsLedger.AppendStatus.APPENDED, 1, 0), roll.get());
+        var entry = ledger.find(1).orElseThrow();
+        assertArrayEquals(new int[]{0, 0, 90}, entry.rewards().monthlyTotals());
+        assertEquals(90, entry.rewards().threeMonthTotal());
+    }
+
+    @Test
+    public void concurrentAppendsMatchTheRewardsCalculator() throws Exception {
+        var random = new Random(20231214L);
+        List<Customer> customers = new ArrayList<>();
+        for (int customerId = 0; customerId < 500; customerId++) {
+            customers.add(new Customer(customerId, "Customer " + customerId));
+        }
+        List<List<RetailTransaction>> batches = new ArrayList<>();
+        List<RetailTransaction> allTransactions = new ArrayList<>();
+        for (int batch = 0; batch < 40; batch++) {
+            List<RetailTransaction> transactions = new ArrayList<>();
+            for (int i = 0; i < 1000; i++) {
+                transactions.add(new RetailTransaction(batch * 1000 + i,
+                        MARCH.plusDays(random.nextInt(92)),
+                        random.nextInt(customers.size()),
+                        random.nextInt(30000)));
+            }
+            batches.add(transactions);
+            allTransactions.addAll(transactions);
+        }
+
+        var ledger = new RewardsLedger(8);
+        ledger.append(customers, List.of());
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<RewardsLedger.AppendResult>> appends = new ArrayList<>();
+            for (List<RetailTransaction> transactions : batches) {
+                appends.add(executor.submit(() -> ledger.append(List.of(), transactions)));
+            }
+            for (Future<RewardsLedger.AppendResult> append : appends) {
+                assertEquals(RewardsLedger.AppendStatus.APPENDED, append.get().status());
+                assertEquals(1000, append.get().transactionsAppended() + append.get().transactionsDropped());
+            }
+        }
+        finally {
+            executor.shutdown();
+        }
+
+        for (RewardsResult expected : new RewardsCalculator().calculate(allTransactions)) {
+            var entry = ledger.find(expected.customerId()).orElseThrow();
+            assertArrayEquals(expected.monthlyTotals(), entry.rewards().monthlyTotals(), "customer " + expected.customerId());
+            assertEquals(expected.threeMonthTotal(), entry.rewards().threeMonthTotal());
+        }
+    }
+}
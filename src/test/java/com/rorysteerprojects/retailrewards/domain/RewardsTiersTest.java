@@ -0,0 +1,91 @@
+package com.rorysteerprojects.retailrewards.domain;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RewardsTiersTest {
+
+    @Test
+    public void theDefaultTiersMatchTheOriginalRules() {
+        var random = new Random(20231217L);
+        for (int i = 0; i < 100_000; i++) {
+            var valueInCents = i < 50_000 ? i : random.nextLong();
+            var wholeDollars = valueInCents / 100;
+            var expected = Math.min(Math.max(0, wholeDollars - 50) + Math.max(0, wholeDollars - 100),
+                    Integer.MAX_VALUE);
+
+            assertEquals(expected, RewardsTiers.DEFAULT.points(valueInCents), "points for " + valueInCents);
+        }
+        assertEquals(Integer.MAX_VALUE, RewardsTiers.DEFAULT.points(Long.MAX_VALUE));
+        assertEquals(0, RewardsTiers.DEFAULT.points(Long.MIN_VALUE));
+    }
+
+    @Test
+    public void eachTierSetsThePointsPerDollarOverItsThreshold() {
+        var rewardsTiers = RewardsTiers.parse("200:5, 0:1, 25:3, 75:0", Integer.MAX_VALUE);
+
+        assertEquals(List.of(new RewardsTiers.Tier(0, 1), new RewardsTiers.Tier(25, 3),
+                new RewardsTiers.Tier(75, 0), new RewardsTiers.Tier(200, 5)), rewardsTiers.tiers());
+        assertEquals(0, rewardsTiers.points(99));
+        assertEquals(1, rewardsTiers.points(100));
+        assertEquals(25, rewardsTiers.points(2500));
+        assertEquals(28, rewardsTiers.points(2600));
+        assertEquals(175, rewardsTiers.points(7500));
+        assertEquals(175, rewardsTiers.points(20000));
+        assertEquals(180, rewardsTiers.points(20100));
+    }
+
+    @Test
+    public void pointsAreCappedPerTransaction() {
+        var rewardsTiers = RewardsTiers.parse("50:1,100:2", 500);
+
+        assertEquals(90, rewardsTiers.points(12000));
+        assertEquals(500, rewardsTiers.points(40000));
+        assertEquals(500, rewardsTiers.points(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void thresholdsPastTheTableAreSearched() {
+        var rewardsTiers = RewardsTiers.parse("0:1,70000:0,100000:2", Integer.MAX_VALUE);
+
+        assertEquals(65_535, rewardsTiers.points(6_553_500));
+        assertEquals(65_536, rewardsTiers.points(6_553_600));
+        assertEquals(70_000, rewardsTiers.points(8_000_000));
+        assertEquals(70_002, rewardsTiers.points(10_000_100));
+    }
+
+    @Test
+    public void noTiersEarnNoPoints() {
+        var rewardsTiers = RewardsTiers.parse("", Integer.MAX_VALUE);
+
+        assertEquals(0, rewardsTiers.points(1_000_000));
+        assertEquals("", rewardsTiers.toString());
+    }
+
+    @Test
+    public void largeTiersSaturateRatherThanOverflow() {
+        var rewardsTiers = RewardsTiers.parse("0:" + Integer.MAX_VALUE + ",1:" + Integer.MAX_VALUE, Integer.MAX_VALUE);
+
+        assertEquals(Integer.MAX_VALUE, rewardsTiers.points(300));
+        assertEquals(Integer.MAX_VALUE, rewardsTiers.points(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void invalidDefinitionsAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> RewardsTiers.parse("50:1,50:2", 100));
+        assertThrows(IllegalArgumentException.class, () -> RewardsTiers.parse("50:-1", 100));
+        assertThrows(IllegalArgumentException.class, () -> RewardsTiers.parse("-50:1", 100));
+        assertThrows(IllegalArgumentException.class, () -> RewardsTiers.parse("50", 100));
+        assertThrows(IllegalArgumentException.class, () -> RewardsTiers.parse("fifty:1", 100));
+        assertThrows(IllegalArgumentException.class, () -> RewardsTiers.parse("50:1", -1));
+    }
+
+    @Test
+    public void theDefinitionIsWrittenBackInThresholdOrder() {
+        assertEquals("50:1,100:2", RewardsTiers.parse(" 100:2 , 50:1 ", 100).toString());
+    }
+}
@@ -0,0 +1,92 @@
+package com.rorysteerprojects.retailrewards.domain;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RollingRewardsWindowTest {
+
+    private static final int MARCH = 2023 * 12 + 2;
+
+    @Test
+    public void monthsAreReportedOldestFirstForTheWindowEndingWithTheLatestMonth() {
+        var window = new RollingRewardsWindow();
+        window.add(1, MARCH, 10);
+        window.add(1, MARCH + 1, 20);
+        window.add(1, MARCH + 2, 30);
+        window.add(1, MARCH, 1);
+
+        var result = window.find(1, MARCH + 2);
+        assertArrayEquals(new int[]{11, 20, 30}, result.monthlyTotals());
+        assertEquals(61, result.threeMonthTotal());
+
+        result = window.find(1, MARCH + 3);
+        assertArrayEquals(new int[]{20, 30, 0}, result.monthlyTotals());
+        assertEquals(50, result.threeMonthTotal());
+    }
+
+    @Test
+    public void aNewMonthEvictsTheOldestBucket() {
+        var window = new RollingRewardsWindow();
+        window.add(1, MARCH, 10);
+        window.add(1, MARCH + 1, 20);
+        window.add(1, MARCH + 3, 40);
+
+        var result = window.find(1, MARCH + 3);
+        assertArrayEquals(new int[]{20, 0, 40}, result.monthlyTotals());
+        assertEquals(60, result.threeMonthTotal());
+
+        assertFalse(window.add(1, MARCH, 5));
+        assertEquals(60, window.find(1, MARCH + 3).threeMonthTotal());
+    }
+
+    @Test
+    public void pointsBeforeTheEarliestMonthAreDropped() {
+        var window = new RollingRewardsWindow();
+        window.add(1, MARCH + 1, 20);
+
+        assertFalse(window.add(1, MARCH + 1, 5, MARCH + 2));
+        assertTrue(window.add(1, MARCH + 2, 30, MARCH + 2));
+        assertArrayEquals(new int[]{20, 30, 0}, window.find(1, MARCH + 3).monthlyTotals());
+    }
+
+    @Test
+    public void customersWithNoPointsAreNotFound() {
+        var window = new RollingRewardsWindow();
+        window.add(1, MARCH, 10);
+
+        assertNull(window.find(2, MARCH));
+        assertEquals(1, window.size());
+    }
+
+    @Test
+    public void matchesRecalculatingTheWindowAcrossGrowth() {
+        var random = new Random(20231215L);
+        var window = new RollingRewardsWindow(4);
+        Map<Integer, int[]> pointsByMonth = new HashMap<>();
+        var latestMonth = MARCH;
+        for (int i = 0; i < 200_000; i++) {
+            if (random.nextInt(10_000) == 0) {
+                latestMonth++;
+            }
+            var customerId = random.nextInt(20_000);
+            var month = latestMonth - random.nextInt(3);
+            var points = random.nextInt(100);
+            assertTrue(window.add(customerId, month, points));
+            pointsByMonth.computeIfAbsent(customerId, id -> new int[100])[month - MARCH + 2] += points;
+        }
+
+        for (Map.Entry<Integer, int[]> customer : pointsByMonth.entrySet()) {
+            var months = customer.getValue();
+            var latest = latestMonth - MARCH + 2;
+            var expected = new int[]{months[latest - 2], months[latest - 1], months[latest]};
+            var result = window.find(customer.getKey(), latestMonth);
+            assertArrayEquals(expected, result.monthlyTotals(), "customer " + customer.getKey());
+            assertEquals(expected[0] + expected[1] + expected[2], result.threeMonthTotal());
+        }
+    }
+}
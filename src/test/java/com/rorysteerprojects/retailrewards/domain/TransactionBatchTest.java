@@ -0,0 +1,55 @@
+package com.rorysteerprojects.retailrewards.domain;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TransactionBatchTest {
+
+    @Test
+    public void columnsHoldTheTransactionsInTheOrderTheyWereAdded() {
+        var batch = new TransactionBatch(0);
+        assertTrue(batch.isEmpty());
+
+        List<RetailTransaction> transactions = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            var transaction = new RetailTransaction(i, LocalDate.of(2023, 3, 1).plusDays(i % 90), i % 7, i * 101L);
+            transactions.add(transaction);
+            batch.add(transaction);
+        }
+
+        assertEquals(1000, batch.size());
+        assertEquals(transactions, batch.stream().toList());
+        assertEquals(999, batch.id(999));
+        assertEquals(LocalDate.of(2023, 3, 1).plusDays(999 % 90).toEpochDay(), batch.epochDay(999));
+        assertEquals(999 % 7, batch.customerId(999));
+        assertEquals(999 * 101L, batch.valueInCents(999));
+    }
+
+    @Test
+    public void addAllAppendsTheOtherBatch() {
+        var first = TransactionBatch.of(List.of(new RetailTransaction(1, LocalDate.of(2023, 3, 1), 10, 5000)));
+        var second = TransactionBatch.of(List.of(new RetailTransaction(2, LocalDate.of(2023, 4, 1), 20, 6000),
+                new RetailTransaction(3, LocalDate.of(2023, 5, 1), 30, 7000)));
+
+        first.addAll(second);
+
+        assertEquals(List.of(new RetailTransaction(1, LocalDate.of(2023, 3, 1), 10, 5000),
+                        new RetailTransaction(2, LocalDate.of(2023, 4, 1), 20, 6000),
+                        new RetailTransaction(3, LocalDate.of(2023, 5, 1), 30, 7000)),
+                first.stream().toList());
+        assertEquals(2, second.size());
+    }
+
+    @Test
+    public void indexesPastTheEndAreRejectedEvenWhenTheArraysHaveRoom() {
+        var batch = new TransactionBatch(16);
+        batch.add(1, 19417, 10, 5000);
+
+        assertThrows(IndexOutOfBoundsException.class, () -> batch.customerId(1));
+    }
+}
@@ -0,0 +1,111 @@
+package com.rorysteerprojects.retailrewards.domain;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Differential tests of the vector kernel against the scalar formula.  The test task runs with the
+ * {@code jdk.incubator.vector} module, and the kernel is loaded through {@link RewardsCalculator} as the service
+ * loads it, since the tests are compiled without the module.
+ */
+class VectorPointsKernelTest {
+
+    private static final LocalDate FIRST_DAY = LocalDate.of(2023, 11, 1);
+    private static final RewardsTiers MANY_TIERS = RewardsTiers.parse("0:1,25:3,75:0,120:5,200:2,40000000:7", 50_000);
+
+    @Test
+    public void pointsAndMonthNumbersMatchTheScalarFormulaAtTheEdges() {
+        long[] values = {0, 1, 5000, 5099, 5100, 5199, 10000, 10099, 10100, 10199, 15075, 50050,
+                0xFFFF_FFFEL, 0xFFFF_FFFFL, 0x1_0000_0000L, 0x1_0000_0063L, 0x1_0000_0064L,
+                Long.MAX_VALUE / 2, Long.MAX_VALUE, -1, -10100, Long.MIN_VALUE};
+        int[] dayOffsets = {0, 29, 30, 31, 60, 61, 90, 91};
+        var transactions = new TransactionBatch();
+        for (int i = 0; i < values.length * dayOffsets.length; i++) {
+            transactions.add(i,
+                    (int) FIRST_DAY.plusDays(dayOffsets[i % dayOffsets.length]).toEpochDay(),
+                    i % 5,
+                    values[i % values.length]);
+        }
+
+        assertKernelMatchesScalar(transactions, new MonthBoundaries(CalendarMonths.monthOf(
+                (int) FIRST_DAY.toEpochDay())), RewardsTiers.DEFAULT);
+        assertKernelMatchesScalar(transactions, new MonthBoundaries(CalendarMonths.monthOf(
+                (int) FIRST_DAY.toEpochDay())), MANY_TIERS);
+    }
+
+    @Test
+    public void pointsAndMonthNumbersMatchTheScalarFormulaForRandomTransactions() {
+        var random = new Random(20231217L);
+        var transactions = new TransactionBatch();
+        for (int i = 0; i < 100_003; i++) {
+            var valueInCents = random.nextInt(10) == 0 ? random.nextLong() : random.nextInt(30_000);
+            transactions.add(i, (int) FIRST_DAY.plusDays(random.nextInt(92)).toEpochDay(), i % 97, valueInCents);
+        }
+
+        assertKernelMatchesScalar(transactions, new MonthBoundaries(CalendarMonths.monthOf(
+                (int) FIRST_DAY.toEpochDay())), RewardsTiers.DEFAULT);
+        assertKernelMatchesScalar(transactions, new MonthBoundaries(CalendarMonths.monthOf(
+                (int) FIRST_DAY.toEpochDay())), MANY_TIERS);
+    }
+
+    @Test
+    public void boundariesBeyondTheIntRangeDoNotWrapRound() {
+        var transactions = new TransactionBatch();
+        transactions.add(1, Integer.MAX_VALUE, 1, 12000);
+        transactions.add(2, Integer.MAX_VALUE - 40, 1, 12000);
+
+        assertKernelMatchesScalar(transactions,
+                new MonthBoundaries(Integer.MAX_VALUE - 20L, (long) Integer.MAX_VALUE + 11), RewardsTiers.DEFAULT);
+    }
+
+    @Test
+    public void calculatorResultsAreTheSameWithTheVectorKernel() {
+        var scalarCalculator = new RewardsCalculator(RewardsTiers.DEFAULT, false);
+        var vectorCalculator = new RewardsCalculator(RewardsTiers.DEFAULT, true);
+        assertFalse(scalarCalculator.usesVectorKernel());
+        assertTrue(vectorCalculator.usesVectorKernel());
+
+        var random = new Random(42);
+        var transactions = new TransactionBatch();
+        for (int i = 0; i < 50_000; i++) {
+            transactions.add(i, (int) FIRST_DAY.plusDays(random.nextInt(92)).toEpochDay(), random.nextInt(500),
+                    random.nextInt(40_000));
+        }
+
+        assertResultsEqual(scalarCalculator.calculate(transactions), vectorCalculator.calculate(transactions));
+        assertResultsEqual(scalarCalculator.calculate(transactions),
+                vectorCalculator.calculate(transactions, new ForkJoinPool(4), 1000));
+    }
+
+    private static void assertKernelMatchesScalar(TransactionBatch transactions,
+                                                  MonthBoundaries monthBoundaries,
+                                                  RewardsTiers rewardsTiers) {
+        var points = new int[transactions.size()];
+        var monthNumbers = new int[transactions.size()];
+        var vectorKernel = new RewardsCalculator(rewardsTiers, true).pointsKernel();
+        assertNotNull(vectorKernel);
+        vectorKernel.compute(transactions, 0, transactions.size(), monthBoundaries, points, monthNumbers);
+
+        for (int i = 0; i < transactions.size(); i++) {
+            assertEquals(rewardsTiers.points(transactions.valueInCents(i)), points[i],
+                    "points for " + transactions.valueInCents(i));
+            assertEquals(monthBoundaries.monthNumber(transactions.epochDay(i)), monthNumbers[i],
+                    "month number for " + transactions.epochDay(i));
+        }
+    }
+
+    private static void assertResultsEqual(java.util.List<RewardsResult> expected,
+                                           java.util.List<RewardsResult> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).customerId(), actual.get(i).customerId());
+            assertArrayEquals(expected.get(i).monthlyTotals(), actual.get(i).monthlyTotals());
+            assertEquals(expected.get(i).threeMonthTotal(), actual.get(i).threeMonthTotal());
+        }
+    }
+}
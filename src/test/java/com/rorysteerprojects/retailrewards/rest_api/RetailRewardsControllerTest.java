@@ -1,7 +1,10 @@
 package com.rorysteerprojects.retailrewards.rest_api;
 
 import com.rorysteerprojects.retailrewards.api.*;
+import com.fasterxml.jackson.core.JsonParseException;
 import com.rorysteerprojects.retailrewards.application_services.RetailRewardsService;
+import com.rorysteerprojects.retailrewards.application_services.StreamingRewardsCalculation;
+import com.rorysteerprojects.retailrewards.config.RewardsMetrics;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
@@ -12,11 +15,16 @@ import org.springframework.mock.web.MockHttpServletRequest;
 import org.springframework.web.context.request.RequestContextHolder;
 import org.springframework.web.context.request.ServletRequestAttributes;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.Collections;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -28,6 +36,9 @@ class RetailRewardsControllerTest {
     @Mock
     RetailRewardsService retailRewardsService;
 
+    @Mock
+    RewardsMetrics rewardsMetrics;
+
     @Test
     public void testNoRequestBody() {
         MockHttpServletRequest request = new MockHttpServletRequest();
@@ -139,4 +150,48 @@ class RetailRewardsControllerTest {
                 .anyMatch(cs -> cs.getCustomerId() == customerSummary.getCustomerId()));
         assertTrue(responseEntity.getBody().getErrors().isEmpty());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testStreamedRequestBodyThatIsNotJsonReturns400() throws IOException {
+        when(retailRewardsService.calculateRewards(any(InputStream.class)))
+                .thenThrow(new JsonParseException(null, "Unexpected end-of-input"));
+
+        ResponseEntity<RewardsResultDTO> responseEntity = retailRewardsController.calculateRewardsStreaming(
+                new ByteArrayInputStream("{\"customers\": [".getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(400, responseEntity.getStatusCode().value());
+        assertNotNull(responseEntity.getBody());
+        assertEquals(1, responseEntity.getBody().getErrors().size());
+        assertEquals("Request Body is not valid JSON", responseEntity.getBody().getErrors().get(0));
+    }
+
+    @Test
+    public void testStreamedRequestBodyWithoutBothListsReturns400() throws IOException {
+        StreamingRewardsCalculation calculation = mock(StreamingRewardsCalculation.class);
+        when(calculation.isInvalidRequestBody()).thenReturn(true);
+        when(retailRewardsService.calculateRewards(any(InputStream.class))).thenReturn(calculation);
+
+        ResponseEntity<RewardsResultDTO> responseEntity = retailRewardsController.calculateRewardsStreaming(
+                new ByteArrayInputStream("{\"customers\": []}".getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(400, responseEntity.getStatusCode().value());
+        assertNotNull(responseEntity.getBody());
+        assertEquals(1, responseEntity.getBody().getErrors().size());
+        assertEquals("Request Body must contain both a customer list and a transaction list",
+                responseEntity.getBody().getErrors().get(0));
+    }
+
+    @Test
+    public void testStreamedRequestBodyWithParsingErrorsReturns422() throws IOException {
+        StreamingRewardsCalculation calculation = mock(StreamingRewardsCalculation.class);
+        when(calculation.result()).thenReturn(new RewardsResultDTO(Collections.emptyList(), List.of("Invalid Transaction")));
+        when(retailRewardsService.calculateRewards(any(InputStream.class))).thenReturn(calculation);
+
+        ResponseEntity<RewardsResultDTO> responseEntity = retailRewardsController.calculateRewardsStreaming(
+                new ByteArrayInputStream(new byte[0]));
+
+        assertEquals(422, responseEntity.getStatusCode().value());
+        assertNotNull(responseEntity.getBody());
+        assertEquals(List.of("Invalid Transaction"), responseEntity.getBody().getErrors());
+    }
+}
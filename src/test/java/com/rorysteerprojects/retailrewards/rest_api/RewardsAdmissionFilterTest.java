@@ -0,0 +1,236 @@
+package com.rorysteerprojects.retailrewards.rest_api;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rorysteerprojects.retailrewards.config.RewardsMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RewardsAdmissionFilterTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final RewardsAdmissionFilter filter = new RewardsAdmissionFilter(
+            new RewardsMetrics(meterRegistry),
+            new ObjectMapper(),
+            true,
+            DataSize.ofKilobytes(10),
+            DataSize.ofKilobytes(4),
+            Duration.ofMillis(50),
+            Duration.ofSeconds(2));
+    private final CountDownLatch calculating = new CountDownLatch(1);
+    private final CountDownLatch finishCalculating = new CountDownLatch(1);
+    private final FilterChain controller = (request, response) -> response.getWriter().write("{}");
+
+    /**
+     * Stands in for a controller that holds its request until the test lets it finish.
+     */
+    private final FilterChain slowController = (request, response) -> {
+        calculating.countDown();
+        try {
+            finishCalculating.await(5, TimeUnit.SECONDS);
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    };
+
+    @Test
+    public void requestsWithinTheBudgetAreAdmitted() throws ServletException, IOException {
+        var response = post(new byte[6 * 1024], controller);
+
+        assertEquals(200, response.getStatus());
+        assertEquals("{}", response.getContentAsString());
+        assertEquals(1, admissions("admitted"));
+        assertEquals(0, meterRegistry.get("rewards.admission.in-flight").gauge().value());
+    }
+
+    @Test
+    public void requestsThatDoNotFitAreQueuedAndThenShed() throws Exception {
+        var inFlight = CompletableFuture.runAsync(() -> postQuietly(new byte[8 * 1024], slowController));
+        assertTrue(calculating.await(5, TimeUnit.SECONDS));
+        assertEquals(8, meterRegistry.get("rewards.admission.in-flight").gauge().value());
+
+        var response = post(new byte[4 * 1024], controller);
+
+        assertEquals(429, response.getStatus());
+        assertEquals("2", response.getHeader("Retry-After"));
+        assertTrue(response.getContentAsString().contains("\"errors\":[\"Too many rewards requests"),
+                response.getContentAsString());
+        assertEquals(1, admissions("queued"));
+        assertEquals(1, admissions("rejected"));
+
+        finishCalculating.countDown();
+        inFlight.get(5, TimeUnit.SECONDS);
+        assertEquals(200, post(new byte[4 * 1024], controller).getStatus());
+        assertEquals(2, admissions("admitted"));
+    }
+
+    @Test
+    public void queuedRequestsAreAdmittedWhenTheBudgetFreesUp() throws Exception {
+        var patientFilter = new RewardsAdmissionFilter(new RewardsMetrics(meterRegistry), new ObjectMapper(), true,
+                DataSize.ofKilobytes(10), DataSize.ofKilobytes(4), Duration.ofSeconds(5), Duration.ofSeconds(1));
+        var inFlight = CompletableFuture.runAsync(() -> postQuietly(patientFilter, new byte[8 * 1024], slowController));
+        assertTrue(calculating.await(5, TimeUnit.SECONDS));
+
+        var queued = CompletableFuture.supplyAsync(() -> postQuietly(patientFilter, new byte[4 * 1024], controller));
+        while (admissions("queued") == 0) {
+            Thread.onSpinWait();
+        }
+        finishCalculating.countDown();
+
+        assertEquals(200, queued.get(5, TimeUnit.SECONDS).getStatus());
+        inFlight.get(5, TimeUnit.SECONDS);
+        assertEquals(0, admissions("rejected"));
+    }
+
+    @Test
+    public void requestsLargerThanTheWholeBudgetAreRejectedStraightAway() throws ServletException, IOException {
+        var response = post(new byte[11 * 1024], controller);
+
+        assertEquals(413, response.getStatus());
+        assertNull(response.getHeader("Retry-After"));
+        assertEquals(0, admissions("queued"));
+        assertEquals(1, admissions("rejected"));
+    }
+
+    @Test
+    public void requestsWithoutAContentLengthCostTheUnknownLengthCost() throws Exception {
+        var inFlight = CompletableFuture.runAsync(() -> postQuietly(new byte[7 * 1024], slowController));
+        assertTrue(calculating.await(5, TimeUnit.SECONDS));
+
+        var request = new MockHttpServletRequest("POST", "/calculate-rewards/stream");
+        var response = new MockHttpServletResponse();
+        filter.doFilter(request, response, controller);
+
+        assertEquals(-1, request.getContentLengthLong());
+        assertEquals(429, response.getStatus());
+        finishCalculating.countDown();
+        inFlight.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void chunkedBodiesLongerThanTheUnknownLengthCostAreRejected() throws ServletException, IOException {
+        var response = new MockHttpServletResponse();
+        // Stands in for Spring turning the failed read into a 400 before the filter sees it.
+        FilterChain readingController = (request, controllerResponse) -> {
+            try {
+                request.getInputStream().readAllBytes();
+            }
+            catch (IOException e) {
+                ((HttpServletResponse) controllerResponse).sendError(400);
+                return;
+            }
+            controllerResponse.getWriter().write("{}");
+        };
+
+        filter.doFilter(chunked(new byte[5 * 1024]), response, readingController);
+
+        assertEquals(413, response.getStatus());
+        assertTrue(response.getContentAsString().contains("\"errors\":[\"Request Body is larger"),
+                response.getContentAsString());
+        assertEquals(1, admissions("admitted"));
+        assertEquals(1, admissions("rejected"));
+        assertEquals(0, meterRegistry.get("rewards.admission.in-flight").gauge().value());
+    }
+
+    @Test
+    public void chunkedBodiesWithinTheUnknownLengthCostAreRead() throws ServletException, IOException {
+        var response = new MockHttpServletResponse();
+
+        filter.doFilter(chunked(new byte[4 * 1024]), response, (request, controllerResponse) ->
+                controllerResponse.getWriter().write(Integer.toString(request.getInputStream().readAllBytes().length)));
+
+        assertEquals(200, response.getStatus());
+        assertEquals("4096", response.getContentAsString());
+        assertEquals(0, admissions("rejected"));
+    }
+
+    @Test
+    public void otherPathsAreNotLimited() throws ServletException, IOException {
+        var request = new MockHttpServletRequest("POST", "/rewards-jobs/stream");
+        request.setContent(new byte[11 * 1024]);
+        var response = new MockHttpServletResponse();
+
+        filter.doFilter(request, response, controller);
+
+        assertEquals(200, response.getStatus());
+        assertEquals(0, admissions("rejected"));
+    }
+
+    @Test
+    public void jobSubmissionsAreLimited() throws ServletException, IOException {
+        var request = new MockHttpServletRequest("POST", "/rewards-jobs");
+        request.setContent(new byte[11 * 1024]);
+        var response = new MockHttpServletResponse();
+
+        filter.doFilter(request, response, controller);
+
+        assertEquals(413, response.getStatus());
+        assertEquals(1, admissions("rejected"));
+    }
+
+    /**
+     * A request whose body is sent in chunks, so it has no {@code Content-Length}.
+     */
+    private static MockHttpServletRequest chunked(byte[] body) {
+        var request = new MockHttpServletRequest("POST", "/calculate-rewards/stream") {
+            @Override
+            public int getContentLength() {
+                return -1;
+            }
+
+            @Override
+            public long getContentLengthLong() {
+                return -1;
+            }
+        };
+        request.setContentType("application/json");
+        request.setContent(body);
+        return request;
+    }
+
+    private double admissions(String result) {
+        return meterRegistry.get("rewards.admission.requests").tag("result", result).counter().count();
+    }
+
+    private MockHttpServletResponse post(byte[] body, FilterChain filterChain) throws ServletException, IOException {
+        return post(filter, body, filterChain);
+    }
+
+    private static MockHttpServletResponse post(RewardsAdmissionFilter filter, byte[] body, FilterChain filterChain)
+            throws ServletException, IOException {
+        var request = new MockHttpServletRequest("POST", "/calculate-rewards");
+        request.setContentType("application/json");
+        request.setContent(body);
+        var response = new MockHttpServletResponse();
+        filter.doFilter(request, response, filterChain);
+        return response;
+    }
+
+    private MockHttpServletResponse postQuietly(byte[] body, FilterChain filterChain) {
+        return postQuietly(filter, body, filterChain);
+    }
+
+    private static MockHttpServletResponse postQuietly(RewardsAdmissionFilter filter, byte[] body,
+                                                       FilterChain filterChain) {
+        try {
+            return post(filter, body, filterChain);
+        }
+        catch (ServletException | IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
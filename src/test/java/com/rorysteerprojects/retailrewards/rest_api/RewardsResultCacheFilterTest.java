@@ -0,0 +1,274 @@
+package com.rorysteerprojects.retailrewards.rest_api;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.rorysteerprojects.retailrewards.api.CustomerSummaryDTO;
+import com.rorysteerprojects.retailrewards.api.RewardsResultDTO;
+import com.rorysteerprojects.retailrewards.application_services.cache.RewardsResultCache;
+import com.rorysteerprojects.retailrewards.config.RewardsMetrics;
+import com.rorysteerprojects.retailrewards.config.TimedJacksonHttpMessageConverter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.ServletServerHttpResponse;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.Collections;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RewardsResultCacheFilterTest {
+
+    private static final String REQUEST = "{\"customers\":[{\"id\":\"1\",\"name\":\"Customer 1\"}]," +
+            "\"transactions\":[{\"id\":\"100\",\"date\":\"2023-03-01\",\"customerId\":\"1\",\"value\":\"120\"}]}";
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final RewardsMetrics rewardsMetrics = new RewardsMetrics(meterRegistry);
+    private final RewardsResultCacheFilter filter = new RewardsResultCacheFilter(
+            new RewardsResultCache(rewardsMetrics, DataSize.ofMegabytes(1)),
+            rewardsMetrics,
+            new ObjectMapper(),
+            true,
+            DataSize.ofKilobytes(1));
+    private int calculations;
+    private int status = 200;
+    private String padding = "";
+    private boolean useWriter;
+
+    /**
+     * Stands in for the controller, answering with the number of calculations so far and the size of the body it
+     * was given, followed by any padding.
+     */
+    private final FilterChain controller = (request, response) -> {
+        calculations++;
+        var body = request.getInputStream().readAllBytes();
+        ((HttpServletResponse) response).setStatus(status);
+        response.setContentType("application/json");
+        var json = "{\"calculation\":" + calculations + ",\"requestBytes\":" + body.length + "}" + padding;
+        if (useWriter) {
+            response.getWriter().write(json);
+        }
+        else {
+            response.getOutputStream().write(json.getBytes(StandardCharsets.UTF_8));
+        }
+    };
+
+    @Test
+    public void repeatedRequestsAreAnsweredFromTheCache() throws ServletException, IOException {
+        var first = post(REQUEST, null);
+        var second = post(REQUEST.replace(",", ",\n  "), null);
+
+        assertEquals("MISS", first.getHeader(RewardsResultCacheFilter.CACHE_HEADER));
+        assertEquals("{\"calculation\":1,\"requestBytes\":" + REQUEST.length() + "}", first.getContentAsString());
+        assertEquals("HIT", second.getHeader(RewardsResultCacheFilter.CACHE_HEADER));
+        assertEquals(first.getContentAsString(), second.getContentAsString());
+        assertEquals("application/json", second.getContentType());
+        assertEquals(1, calculations);
+        assertEquals(1, meterRegistry.get("rewards.cache.lookups").tag("result", "hit").counter().count());
+    }
+
+    @Test
+    public void validationErrorsAreCachedButBadRequestsAreNot() throws ServletException, IOException {
+        status = 422;
+        post(REQUEST, null);
+        assertEquals(422, post(REQUEST, null).getStatus());
+        assertEquals(1, calculations);
+
+        status = 400;
+        var badRequest = "{\"customers\":[]}";
+        post(badRequest, null);
+        assertEquals("MISS", post(badRequest, null).getHeader(RewardsResultCacheFilter.CACHE_HEADER));
+        assertEquals(3, calculations);
+    }
+
+    @Test
+    public void cacheControlNoCacheBypassesTheCache() throws ServletException, IOException {
+        post(REQUEST, null);
+        var bypassed = post(REQUEST, "no-cache");
+
+        assertEquals("BYPASS", bypassed.getHeader(RewardsResultCacheFilter.CACHE_HEADER));
+        assertEquals("{\"calculation\":2,\"requestBytes\":" + REQUEST.length() + "}", bypassed.getContentAsString());
+        assertEquals(1, meterRegistry.get("rewards.cache.lookups").tag("result", "bypass").counter().count());
+    }
+
+    @Test
+    public void malformedJsonIsPassedOnWithItsBody() throws ServletException, IOException {
+        var response = post("{\"customers\":[", null);
+
+        assertNull(response.getHeader(RewardsResultCacheFilter.CACHE_HEADER));
+        assertEquals("{\"calculation\":1,\"requestBytes\":14}", response.getContentAsString());
+    }
+
+    @Test
+    public void theBufferedBodyCanBeReadWithAReadListener() throws ServletException, IOException {
+        var body = new ByteArrayOutputStream();
+        var allDataRead = new boolean[1];
+        FilterChain asyncController = (request, response) -> {
+            var in = request.getInputStream();
+            in.setReadListener(new ReadListener() {
+                @Override
+                public void onDataAvailable() throws IOException {
+                    var buffer = new byte[64];
+                    while (in.isReady() && !in.isFinished()) {
+                        var read = in.read(buffer);
+                        if (read > 0) {
+                            body.write(buffer, 0, read);
+                        }
+                    }
+                }
+
+                @Override
+                public void onAllDataRead() {
+                    allDataRead[0] = true;
+                }
+
+                @Override
+                public void onError(Throwable t) {
+                    fail(t);
+                }
+            });
+        };
+
+        filter.doFilter(request(REQUEST), new MockHttpServletResponse(), asyncController);
+
+        assertEquals(REQUEST, body.toString(StandardCharsets.UTF_8));
+        assertTrue(allDataRead[0]);
+    }
+
+    @Test
+    public void requestsOverTheBodyLimitOrWithoutALengthBypassTheCache() throws ServletException, IOException {
+        var large = REQUEST.replace(",", "," + " ".repeat(200));
+        post(large, null);
+        var bypassed = post(large, null);
+
+        assertEquals("BYPASS", bypassed.getHeader(RewardsResultCacheFilter.CACHE_HEADER));
+        assertEquals("{\"calculation\":2,\"requestBytes\":" + large.length() + "}", bypassed.getContentAsString());
+
+        var request = new MockHttpServletRequest("POST", "/calculate-rewards");
+        request.setContentType("application/json");
+        var response = new MockHttpServletResponse();
+        filter.doFilter(request, response, controller);
+
+        assertEquals(-1, request.getContentLengthLong());
+        assertEquals("BYPASS", response.getHeader(RewardsResultCacheFilter.CACHE_HEADER));
+        assertEquals(3, calculations);
+    }
+
+    @Test
+    public void responsesOverTheBodyLimitAreWrittenInFullButNotCached() throws ServletException, IOException {
+        padding = " ".repeat(2000);
+        var first = post(REQUEST, null);
+        var second = post(REQUEST, null);
+
+        assertEquals("MISS", second.getHeader(RewardsResultCacheFilter.CACHE_HEADER));
+        assertEquals("{\"calculation\":1,\"requestBytes\":" + REQUEST.length() + "}" + padding,
+                first.getContentAsString());
+        assertEquals(2, calculations);
+    }
+
+    @Test
+    public void responsesWrittenWithTheWriterAreCached() throws ServletException, IOException {
+        useWriter = true;
+        var first = post(REQUEST, null);
+        var second = post(REQUEST, null);
+
+        assertEquals("HIT", second.getHeader(RewardsResultCacheFilter.CACHE_HEADER));
+        assertEquals(first.getContentAsString(), second.getContentAsString());
+        assertEquals(1, calculations);
+    }
+
+    @Test
+    public void largeRewardsResponsesPassThroughTheFilterAsTheyAreWritten() throws ServletException, IOException {
+        var summaryCount = 20_000;
+        var converter = new TimedJacksonHttpMessageConverter(new ObjectMapper(), rewardsMetrics);
+        var clientResponse = new MockHttpServletResponse();
+        var bytesSentBeforeTheLastSummary = new int[1];
+        FilterChain rewardsController = (request, response) -> {
+            calculations++;
+            request.getInputStream().readAllBytes();
+            // Built as they are read, as the service's summaries are.
+            var summaries = new AbstractList<CustomerSummaryDTO>() {
+                @Override
+                public CustomerSummaryDTO get(int index) {
+                    if (index == summaryCount - 1) {
+                        bytesSentBeforeTheLastSummary[0] = clientResponse.getContentAsByteArray().length;
+                    }
+                    return new CustomerSummaryDTO(index, "Customer " + index, 90, 0, 250, 340);
+                }
+
+                @Override
+                public int size() {
+                    return summaryCount;
+                }
+            };
+            response.setContentType("application/json");
+            converter.write(new RewardsResultDTO(summaries, Collections.emptyList()), MediaType.APPLICATION_JSON,
+                    new ServletServerHttpResponse((HttpServletResponse) response));
+        };
+
+        filter.doFilter(request(REQUEST), clientResponse, rewardsController);
+
+        assertEquals("MISS", clientResponse.getHeader(RewardsResultCacheFilter.CACHE_HEADER));
+        assertTrue(bytesSentBeforeTheLastSummary[0] > 1024 * 1024, "sent " + bytesSentBeforeTheLastSummary[0]);
+        var written = new ObjectMapper().readTree(clientResponse.getContentAsByteArray());
+        assertEquals(summaryCount, written.get("customerSummaries").size());
+        assertEquals("Customer 19999", written.get("customerSummaries").get(summaryCount - 1).get("customerName").asText());
+
+        var repeated = new MockHttpServletResponse();
+        filter.doFilter(request(REQUEST), repeated, rewardsController);
+        assertEquals("MISS", repeated.getHeader(RewardsResultCacheFilter.CACHE_HEADER));
+        assertEquals(2, calculations);
+    }
+
+    @Test
+    public void streamedRequestsAreNotFiltered() throws ServletException, IOException {
+        var request = new MockHttpServletRequest("POST", "/calculate-rewards/stream");
+        request.setContentType("application/json");
+        request.setContent(REQUEST.getBytes(StandardCharsets.UTF_8));
+        var response = new MockHttpServletResponse();
+
+        filter.doFilter(request, response, controller);
+
+        assertNull(response.getHeader(RewardsResultCacheFilter.CACHE_HEADER));
+        assertEquals(1, calculations);
+    }
+
+    @Test
+    public void otherContentTypesAreNotFiltered() throws ServletException, IOException {
+        var request = new MockHttpServletRequest("POST", "/calculate-rewards");
+        request.setContentType("application/x-ndjson");
+        request.setContent(REQUEST.getBytes(StandardCharsets.UTF_8));
+        var response = new MockHttpServletResponse();
+
+        filter.doFilter(request, response, controller);
+
+        assertNull(response.getHeader(RewardsResultCacheFilter.CACHE_HEADER));
+        assertEquals(1, calculations);
+    }
+
+    private MockHttpServletResponse post(String body, String cacheControl) throws ServletException, IOException {
+        var request = request(body);
+        if (cacheControl != null) {
+            request.addHeader("Cache-Control", cacheControl);
+        }
+        var response = new MockHttpServletResponse();
+        filter.doFilter(request, response, controller);
+        return response;
+    }
+
+    private static MockHttpServletRequest request(String body) {
+        var request = new MockHttpServletRequest("POST", "/calculate-rewards");
+        request.setContentType("application/json");
+        request.setContent(body.getBytes(StandardCharsets.UTF_8));
+        return request;
+    }
+}
@@ -0,0 +1,87 @@
+package com.rorysteerprojects.retailrewards.domain;
+
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * A {@link PointsKernel} on the incubating Vector API, which works out the points and month numbers of as many
+ * transactions at a time as the CPU has long lanes.
+ * <p>
+ * Values are divided into whole dollars by multiplying by a fixed point reciprocal of 100 and shifting, which is
+ * exact for values up to 2^32 - 1 cents; the lanes of any larger or negative values are worked out again by the
+ * scalar formula.  The points are the sum over the tiers of the change in points per dollar at each threshold
+ * times the whole dollars over it, which cannot overflow for values in that range.  Dates are compared in int lanes,
+ * using an int species with as many lanes as the long species.
+ * <p>
+ * This class is only loaded when the {@code jdk.incubator.vector} module is present, see
+ * {@link RewardsCalculator}.
+ */
+final class VectorPointsKernel implements PointsKernel {
+
+    private static final VectorSpecies<Long> LONGS = LongVector.SPECIES_PREFERRED;
+    private static final VectorSpecies<Integer> INTS =
+            VectorSpecies.of(int.class, VectorShape.forBitSize(LONGS.vectorBitSize() / 2));
+
+    private static final long MAX_EXACT_VALUE_IN_CENTS = 0xFFFF_FFFFL;
+    private static final long ONE_HUNDREDTH_MULTIPLIER = 0x51EB_851FL;
+    private static final int ONE_HUNDREDTH_SHIFT = 37;
+
+    private final RewardsTiers rewardsTiers;
+    private final long[] thresholds;
+    private final long[] pointsPerDollarSteps;
+
+    VectorPointsKernel(RewardsTiers rewardsTiers) {
+        this.rewardsTiers = rewardsTiers;
+        this.thresholds = rewardsTiers.thresholds();
+        this.pointsPerDollarSteps = rewardsTiers.pointsPerDollarSteps();
+    }
+
+    @Override
+    public void compute(TransactionBatch transactions,
+                        int from,
+                        int to,
+                        MonthBoundaries monthBoundaries,
+                        int[] points,
+                        int[] monthNumbers) {
+        var valuesInCents = transactions.valueInCentsColumn();
+        var epochDays = transactions.epochDayColumn();
+        // Comparing with the day before each boundary keeps a boundary past the int range from wrapping round.
+        var lastDayOfFirstMonth = (int) Math.min(monthBoundaries.secondMonthStartDay() - 1, Integer.MAX_VALUE);
+        var lastDayOfSecondMonth = (int) Math.min(monthBoundaries.thirdMonthStartDay() - 1, Integer.MAX_VALUE);
+        var zeros = IntVector.zero(INTS);
+
+        var i = from;
+        for (var upperBound = from + LONGS.loopBound(to - from); i < upperBound; i += LONGS.length()) {
+            var cents = LongVector.fromArray(LONGS, valuesInCents, i);
+            var wholeDollars = cents.mul(ONE_HUNDREDTH_MULTIPLIER).lanewise(VectorOperators.LSHR, ONE_HUNDREDTH_SHIFT);
+            var lanePoints = LongVector.zero(LONGS);
+            for (int tier = 0; tier < thresholds.length; tier++) {
+                var dollarsOverThreshold = wholeDollars.sub(thresholds[tier]).max(0L);
+                lanePoints = lanePoints.add(dollarsOverThreshold.mul(pointsPerDollarSteps[tier]));
+            }
+            lanePoints = lanePoints.min(rewardsTiers.maxPointsPerTransaction());
+            ((IntVector) lanePoints.convertShape(VectorOperators.L2I, INTS, 0)).intoArray(points, i - from);
+
+            var days = IntVector.fromArray(INTS, epochDays, i);
+            zeros.blend(1, days.compare(VectorOperators.GT, lastDayOfFirstMonth))
+                    .add(zeros.blend(1, days.compare(VectorOperators.GT, lastDayOfSecondMonth)))
+                    .intoArray(monthNumbers, i - from);
+
+            var inexact = cents.compare(VectorOperators.UNSIGNED_GT, MAX_EXACT_VALUE_IN_CENTS);
+            if (inexact.anyTrue()) {
+                for (int lane = inexact.firstTrue(); lane < LONGS.length(); lane++) {
+                    if (inexact.laneIsSet(lane)) {
+                        points[i + lane - from] = rewardsTiers.points(valuesInCents[i + lane]);
+                    }
+                }
+            }
+        }
+        for (; i < to; i++) {
+            points[i - from] = rewardsTiers.points(valuesInCents[i]);
+            monthNumbers[i - from] = monthBoundaries.monthNumber(epochDays[i]);
+        }
+    }
+}